@@ -31,6 +31,7 @@ import org.apache.hadoop.hbase.exceptions.NotServingRegionException;
 import org.apache.hadoop.hbase.exceptions.OutOfOrderScannerNextException;
 import org.apache.hadoop.hbase.exceptions.RegionServerStoppedException;
 import org.apache.hadoop.hbase.exceptions.UnknownScannerException;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
 import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
 import org.apache.hadoop.hbase.protobuf.generated.MapReduceProtos;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -52,14 +53,14 @@ public class ClientScanner extends AbstractClientScanner {
     private boolean closed = false;
     // Current region scanner is against.  Gets cleared if current region goes
     // wonky: e.g. if it splits on us.
-    private HRegionInfo currentRegion = null;
-    private ScannerCallable callable = null;
+    protected HRegionInfo currentRegion = null;
+    protected ScannerCallable callable = null;
     private final LinkedList<Result> cache = new LinkedList<Result>();
-    private final int caching;
+    protected final int caching;
     private long lastNext;
     // Keep lastResult returned successfully in case we have to reset scanner.
     private Result lastResult = null;
-    private ScanMetrics scanMetrics = null;
+    protected ScanMetrics scanMetrics = null;
     private final long maxScannerResultSize;
     private final HConnection connection;
     private final byte[] tableName;
@@ -148,7 +149,7 @@ public class ClientScanner extends AbstractClientScanner {
     }
 
     // returns true if the passed region endKey
-    private boolean checkScanStopRow(final byte [] endKey) {
+    protected boolean checkScanStopRow(final byte [] endKey) {
       if (this.scan.getStopRow().length > 0) {
         // there is a stop row, check to see if we are past it.
         byte [] stopRow = scan.getStopRow();
@@ -171,7 +172,7 @@ public class ClientScanner extends AbstractClientScanner {
      * <code>done</code> is true.
      * @param done Server-side says we're done scanning.
      */
-    private boolean nextScanner(final boolean done)
+    protected boolean nextScanner(final boolean done)
     throws IOException {
       // Close the previous scanner if it's open
       if (this.callable != null) {
@@ -204,6 +205,21 @@ public class ClientScanner extends AbstractClientScanner {
         localStartKey = this.scan.getStartRow();
       }
 
+      // Skip over the regions that hold none of the row ranges asked for
+      if (this.scan.getFilter() instanceof MultiRowRangeFilter) {
+        byte [] rangeStartKey = ((MultiRowRangeFilter)this.scan.getFilter())
+          .getNextRangeStartRow(localStartKey);
+        if (rangeStartKey == null ||
+            (rangeStartKey != localStartKey && checkScanStopRow(rangeStartKey))) {
+          close();
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("No row range left after '" + Bytes.toStringBinary(localStartKey) + "'");
+          }
+          return false;
+        }
+        localStartKey = rangeStartKey;
+      }
+
       if (LOG.isDebugEnabled() && this.currentRegion != null) {
         // Only worth logging if NOT first region in scan.
         LOG.debug("Advancing internal scanner to startKey at '" +
@@ -582,6 +582,10 @@ public class HTable implements HTableInterface {
     if (scan.getCaching() <= 0) {
       scan.setCaching(getScannerCaching());
     }
+    if (scan.isReversed()) {
+      return new ReversedClientScanner(getConfiguration(), scan, getTableName(),
+          this.connection);
+    }
     return new ClientScanner(getConfiguration(), scan, getTableName(), this.connection);
   }
 
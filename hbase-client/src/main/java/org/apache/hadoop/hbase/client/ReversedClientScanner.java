@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * A reversed client scanner which support backward scanning. Regions are
+ * visited from the one holding the scan's start row back towards the start
+ * of the table.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ReversedClientScanner extends ClientScanner {
+  private static final Log LOG = LogFactory.getLog(ReversedClientScanner.class);
+
+  // A byte array in which all elements are the max byte, and it is used to
+  // construct closest front row
+  static final byte[] MAX_BYTE_ARRAY = new byte[] { (byte) 0xff, (byte) 0xff,
+      (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+      (byte) 0xff, (byte) 0xff };
+
+  /**
+   * Create a new ReversibleClientScanner for the specified table Note that the
+   * passed {@link Scan}'s start row maybe changed.
+   * @param conf The {@link Configuration} to use.
+   * @param scan {@link Scan} to use in this scanner
+   * @param tableName The table that we wish to scan
+   * @param connection Connection identifying the cluster
+   * @throws IOException
+   */
+  public ReversedClientScanner(Configuration conf, Scan scan,
+      byte[] tableName, HConnection connection) throws IOException {
+    super(conf, scan, tableName, connection);
+  }
+
+  @Override
+  protected boolean nextScanner(final boolean done) throws IOException {
+    // Close the previous scanner if it's open
+    if (this.callable != null) {
+      this.callable.setClose();
+      this.callable.withRetries();
+      this.callable = null;
+    }
+
+    // Where to start the next scanner
+    byte[] localStartKey;
+    boolean locateTheClosestFrontRow = true;
+    // if we're at start of table, close and return false to stop iterating
+    if (this.currentRegion != null) {
+      byte[] startKey = this.currentRegion.getStartKey();
+      if (startKey == null
+          || Bytes.equals(startKey, HConstants.EMPTY_BYTE_ARRAY)
+          || checkScanStopRow(startKey) || done) {
+        close();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Finished " + this.currentRegion);
+        }
+        return false;
+      }
+      localStartKey = startKey;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Finished " + this.currentRegion);
+      }
+    } else {
+      localStartKey = getScan().getStartRow();
+      locateTheClosestFrontRow = false;
+    }
+
+    if (LOG.isDebugEnabled() && this.currentRegion != null) {
+      // Only worth logging if NOT first region in scan.
+      LOG.debug("Advancing internal scanner to startKey at '"
+          + Bytes.toStringBinary(localStartKey) + "'");
+    }
+    try {
+      // In reversed scan, we want to locate the previous region through current
+      // region's start key. In order to get that previous region, first we
+      // create a closest row before the start key, e.g. if the start key is
+      // 'e', we will create a row 'd\xff\xff...', and locate the region
+      // holding it. The scan itself still starts at the start key, which is
+      // not part of the previous region, so no row is returned twice.
+      byte[] locateStartRow = locateTheClosestFrontRow ? createClosestRowBefore(localStartKey)
+          : null;
+      callable = getScannerCallable(localStartKey, locateStartRow);
+      // Open a scanner on the region server starting at the
+      // beginning of the region
+      callable.withRetries();
+      this.currentRegion = callable.getHRegionInfo();
+      if (this.scanMetrics != null) {
+        this.scanMetrics.countOfRegions.incrementAndGet();
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+    return true;
+  }
+
+  protected ScannerCallable getScannerCallable(byte[] localStartKey,
+      byte[] locateStartRow) {
+    getScan().setStartRow(localStartKey);
+    ScannerCallable s = new ReversedScannerCallable(getConnection(),
+        getTableName(), getScan(), this.scanMetrics, locateStartRow);
+    s.setCaching(this.caching);
+    return s;
+  }
+
+  /**
+   * A reversed scan is done once the start key of the region just finished is
+   * at or before the stop row: the regions before it hold smaller rows only.
+   * @param startKey the start key of the region just finished
+   * @return true if there is nothing left to scan
+   */
+  @Override
+  protected boolean checkScanStopRow(final byte[] startKey) {
+    if (getScan().getStopRow().length > 0) {
+      // there is a stop row, check to see if we are past it.
+      byte[] stopRow = getScan().getStopRow();
+      int cmp = Bytes.compareTo(stopRow, 0, stopRow.length, startKey, 0,
+          startKey.length);
+      if (cmp >= 0) {
+        // stopRow >= startKey (stopRow is equals to or larger than startKey)
+        // This is a stop.
+        return true;
+      }
+    }
+    return false; // unlikely.
+  }
+
+  /**
+   * Create the closest row before the specified row
+   * @param row
+   * @return a new byte array which is the closest front row of the specified one
+   */
+  static byte[] createClosestRowBefore(byte[] row) {
+    if (row == null) {
+      throw new IllegalArgumentException("The passed row is empty");
+    }
+    if (Bytes.equals(row, HConstants.EMPTY_BYTE_ARRAY)) {
+      return MAX_BYTE_ARRAY;
+    }
+    if (row[row.length - 1] == 0) {
+      return Arrays.copyOf(row, row.length - 1);
+    } else {
+      byte[] closestFrontRow = Arrays.copyOf(row, row.length);
+      closestFrontRow[row.length - 1] = (byte) ((closestFrontRow[row.length - 1] & 0xff) - 1);
+      closestFrontRow = Bytes.add(closestFrontRow, MAX_BYTE_ARRAY);
+      return closestFrontRow;
+    }
+  }
+}
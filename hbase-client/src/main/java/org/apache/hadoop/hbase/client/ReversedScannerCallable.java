@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import java.io.IOException;
+import java.util.NavigableMap;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * A reversed ScannerCallable which supports backward scanning.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class ReversedScannerCallable extends ScannerCallable {
+  /**
+   * The row to locate the region with, when moving on to the previous region:
+   * the closest row before the start key of the region just finished. Null
+   * when the region holding the scan's start row is wanted.
+   */
+  protected final byte[] locateStartRow;
+
+  /**
+   * @param connection which connection
+   * @param tableName table callable is on
+   * @param scan the scan to execute
+   * @param scanMetrics the ScanMetrics to used, if it is null, ScannerCallable
+   *          won't collect metrics
+   * @param locateStartRow The start row for locating regions, or null
+   */
+  public ReversedScannerCallable(HConnection connection, byte[] tableName,
+      Scan scan, ScanMetrics scanMetrics, byte[] locateStartRow) {
+    super(connection, tableName, scan, scanMetrics);
+    this.locateStartRow = locateStartRow;
+  }
+
+  @Override
+  protected HRegionLocation locateRegion(final boolean reload) throws IOException {
+    if (locateStartRow == null) {
+      if (row.length > 0) {
+        // Just locate the region with the row
+        return super.locateRegion(reload);
+      }
+      // An empty start row means the scan starts from the end of the table.
+      return locateLastRegion(reload);
+    }
+    // The region holding the closest row before our start row is normally the
+    // previous region. If some region starts between the two, walk forward to
+    // the one ending at our start row.
+    HRegionLocation location = connection.getRegionLocation(tableName,
+        locateStartRow, reload);
+    while (location != null) {
+      byte[] endKey = location.getRegionInfo().getEndKey();
+      if (endKey.length == 0 || Bytes.compareTo(endKey, row) >= 0) {
+        break;
+      }
+      location = connection.getRegionLocation(tableName, endKey, reload);
+    }
+    return location;
+  }
+
+  private HRegionLocation locateLastRegion(final boolean reload)
+      throws IOException {
+    NavigableMap<HRegionInfo, ServerName> regions = MetaScanner.allTableRegions(
+        connection.getConfiguration(), tableName, false);
+    if (regions.isEmpty()) {
+      return null;
+    }
+    return connection.getRegionLocation(tableName,
+        regions.lastKey().getStartKey(), reload);
+  }
+}
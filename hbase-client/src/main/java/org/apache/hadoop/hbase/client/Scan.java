@@ -118,6 +118,8 @@ public class Scan extends OperationWithAttributes {
 
   private boolean prefetching = true;
 
+  private boolean reversed = false;
+
   /**
    * Create a Scan operation across all rows.
    */
@@ -171,6 +173,7 @@ public class Scan extends OperationWithAttributes {
     filter = scan.getFilter(); // clone?
     loadColumnFamiliesOnDemand = scan.getLoadColumnFamiliesOnDemandValue();
     prefetching = scan.getPrefetching();
+    reversed = scan.isReversed();
     TimeRange ctr = scan.getTimeRange();
     tr = new TimeRange(ctr.getMin(), ctr.getMax());
     Map<byte[], NavigableSet<byte[]>> fams = scan.getFamilyMap();
@@ -382,6 +385,32 @@ public class Scan extends OperationWithAttributes {
     return prefetching;
   }
 
+  /**
+   * Set whether this scan is a reversed one.
+   * <p>
+   * A reversed scan returns rows in descending row key order. The start row
+   * is then the largest row to return (inclusive) and the stop row the
+   * smallest (exclusive), so the scan goes from the start row back down to,
+   * but not including, the stop row. An empty start row means the scan
+   * starts from the last row of the table. Cells within a row are still
+   * returned in their usual order.
+   * <p>
+   * Region servers seek backwards through their store files and memstores
+   * natively, so this is far cheaper than scanning a range forwards and
+   * reversing it on the client.
+   * @param reversed if true, rows are returned in descending order
+   */
+  public void setReversed(boolean reversed) {
+    this.reversed = reversed;
+  }
+
+  /**
+   * @return true if rows are returned in descending order
+   */
+  public boolean isReversed() {
+    return reversed;
+  }
+
 /**
    * @return the maximum result size in bytes. See {@link #setMaxResultSize(long)}
    */
@@ -633,6 +662,7 @@ public class Scan extends OperationWithAttributes {
     map.put("cacheBlocks", this.cacheBlocks);
     map.put("loadColumnFamiliesOnDemand", this.loadColumnFamiliesOnDemand);
     map.put("prefetching", this.prefetching);
+    map.put("reversed", this.reversed);
     List<Long> timeRange = new ArrayList<Long>();
     timeRange.add(this.tr.getMin());
     timeRange.add(this.tr.getMax());
@@ -42,6 +42,7 @@ import org.apache.hadoop.hbase.protobuf.RequestConverter;
 import org.apache.hadoop.hbase.protobuf.ResponseConverter;
 import org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ScanRequest;
 import org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ScanResponse;
+import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair;
 import org.apache.hadoop.ipc.RemoteException;
 import org.apache.hadoop.net.DNS;
 
@@ -169,6 +170,7 @@ public class ScannerCallable extends ServerCallable<Result[]> {
             // Results are returned via controller
             CellScanner cellScanner = controller.cellScanner();
             rrs = ResponseConverter.getResults(cellScanner, response);
+            updateServerSideMetrics(response);
             if (logScannerActivity) {
               long now = System.currentTimeMillis();
               if (now - timestamp > logCutOffLatency) {
@@ -261,6 +263,20 @@ public class ScannerCallable extends ServerCallable<Result[]> {
     }
   }
 
+  /**
+   * Add the counters the region server sent back, if any, to the scan metrics.
+   */
+  private void updateServerSideMetrics(ScanResponse response) {
+    if (this.scanMetrics == null || response == null) {
+      return;
+    }
+    for (NameInt64Pair pair : response.getScanMetricsList()) {
+      if (pair.hasName() && pair.hasValue()) {
+        this.scanMetrics.addToCounter(pair.getName(), pair.getValue());
+      }
+    }
+  }
+
   private void close() {
     if (this.scannerId == -1L) {
       return;
@@ -93,7 +93,7 @@ public abstract class ServerCallable<T> implements Callable<T> {
    * @throws IOException e
    */
   public void prepare(final boolean reload) throws IOException {
-    this.location = connection.getRegionLocation(tableName, row, reload);
+    this.location = locateRegion(reload);
     if (this.location == null) {
       throw new IOException("Failed to find location, tableName=" + Bytes.toString(tableName) + ", row=" +
         Bytes.toString(row) + ", reload=" + reload);
@@ -101,6 +101,16 @@ public abstract class ServerCallable<T> implements Callable<T> {
     this.stub = connection.getClient(location.getServerName());
   }
 
+  /**
+   * Find the location of the region this callable should go to.
+   * @param reload Set this to true if connection should re-find the region
+   * @return the region location, or null if it could not be found
+   * @throws IOException e
+   */
+  protected HRegionLocation locateRegion(final boolean reload) throws IOException {
+    return connection.getRegionLocation(tableName, row, reload);
+  }
+
   /** @return the server name
    * @deprecated Just use {@link #toString()} instead.
    */
@@ -47,6 +47,18 @@ public class ScanMetrics {
 
   private static final Log LOG = LogFactory.getLog(ScanMetrics.class);
 
+  // Names of the counters a region server reports back for scans that asked
+  // for metrics. They are shared with the server, so keep them stable.
+  public static final String BLOCKS_READ_FROM_CACHE_METRIC_NAME = "BLOCKS_READ_FROM_CACHE";
+  public static final String BLOCKS_READ_FROM_FS_METRIC_NAME = "BLOCKS_READ_FROM_FS";
+  public static final String BYTES_READ_FROM_FS_METRIC_NAME = "BYTES_READ_FROM_FS";
+  public static final String CELLS_EXAMINED_METRIC_NAME = "CELLS_EXAMINED";
+  public static final String CELLS_FILTERED_METRIC_NAME = "CELLS_FILTERED";
+  public static final String ROWS_EXAMINED_METRIC_NAME = "ROWS_EXAMINED";
+  public static final String ROWS_FILTERED_METRIC_NAME = "ROWS_FILTERED";
+  public static final String SEEKS_METRIC_NAME = "SEEKS";
+  public static final String RESEEKS_METRIC_NAME = "RESEEKS";
+
   /**
    * Hash to hold the String -> Atomic Long mappings.
    */
@@ -102,6 +114,53 @@ public class ScanMetrics {
    */
   public final AtomicLong countOfRemoteRPCRetries = createCounter("REMOTE_RPC_RETRIES");
 
+  /**
+   * number of blocks region servers found in their block cache
+   */
+  public final AtomicLong countOfBlocksReadFromCache =
+      createCounter(BLOCKS_READ_FROM_CACHE_METRIC_NAME);
+
+  /**
+   * number of blocks region servers had to read from the filesystem
+   */
+  public final AtomicLong countOfBlocksReadFromFs = createCounter(BLOCKS_READ_FROM_FS_METRIC_NAME);
+
+  /**
+   * number of on-disk bytes region servers read from the filesystem
+   */
+  public final AtomicLong countOfBytesReadFromFs = createCounter(BYTES_READ_FROM_FS_METRIC_NAME);
+
+  /**
+   * number of cells the store scanners looked at
+   */
+  public final AtomicLong countOfCellsExamined = createCounter(CELLS_EXAMINED_METRIC_NAME);
+
+  /**
+   * number of examined cells that were not returned, because of filters,
+   * deletes, versions or TTL
+   */
+  public final AtomicLong countOfCellsFiltered = createCounter(CELLS_FILTERED_METRIC_NAME);
+
+  /**
+   * number of rows the region scanners looked at
+   */
+  public final AtomicLong countOfRowsExamined = createCounter(ROWS_EXAMINED_METRIC_NAME);
+
+  /**
+   * number of examined rows that were filtered out entirely
+   */
+  public final AtomicLong countOfRowsFiltered = createCounter(ROWS_FILTERED_METRIC_NAME);
+
+  /**
+   * number of seeks done by the store scanners
+   */
+  public final AtomicLong countOfSeeks = createCounter(SEEKS_METRIC_NAME);
+
+  /**
+   * number of reseeks done by the store scanners
+   */
+  public final AtomicLong countOfReseeks = createCounter(RESEEKS_METRIC_NAME);
+
   /**
    * constructor
    */
@@ -121,6 +180,17 @@ public class ScanMetrics {
     }
   }
 
+  /**
+   * Add the given value to a counter. Unknown counter names are ignored, so
+   * that an older client can talk to a newer server.
+   */
+  public void addToCounter(String counterName, long delta) {
+    AtomicLong c = this.counters.get(counterName);
+    if (c != null) {
+      c.addAndGet(delta);
+    }
+  }
+
   /**
    * Get all of the values since the last time this function was called.
    *
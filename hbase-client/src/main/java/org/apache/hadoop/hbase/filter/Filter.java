@@ -53,6 +53,8 @@ import org.apache.hadoop.hbase.exceptions.DeserializationException;
 @InterfaceAudience.Public
 @InterfaceStability.Stable
 public abstract class Filter {
+  protected transient boolean reversed;
+
   /**
    * Reset the state of the filter between rows.
    * 
@@ -254,4 +256,23 @@ public abstract class Filter {
    * @throws IOException in case an I/O or an filter specific failure needs to be signaled.
    */
   abstract boolean areSerializedFieldsEqual(Filter other);
+
+  /**
+   * Tells the filter whether it is used by a reversed scan, which visits rows
+   * in descending order. Filters that seek or give up based on row order have
+   * to know this; the region server sets it before scanning, it is not
+   * serialized.
+   *
+   * @param reversed true if the scan is reversed
+   */
+  public void setReversed(boolean reversed) {
+    this.reversed = reversed;
+  }
+
+  /**
+   * @return true if the filter is used by a reversed scan
+   */
+  public boolean isReversed() {
+    return this.reversed;
+  }
 }
\ No newline at end of file
@@ -370,6 +370,14 @@ public class FilterList extends Filter {
     return false;
   }
 
+  @Override
+  public void setReversed(boolean reversed) {
+    for (Filter filter : filters) {
+      filter.setReversed(reversed);
+    }
+    this.reversed = reversed;
+  }
+
   @Override
   public String toString() {
     return toString(MAX_LOG_FILTERS);
@@ -140,6 +140,12 @@ public class FilterWrapper extends Filter {
     return filter.isFamilyEssential(name);
   }
 
+  @Override
+  public void setReversed(boolean reversed) {
+    this.filter.setReversed(reversed);
+    this.reversed = reversed;
+  }
+
   /**
    * @param other
    * @return true if and only if the fields of the filter that are serialized
@@ -0,0 +1,432 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.protobuf.generated.FilterProtos;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Filter to support scanning multiple row key ranges with a single scan.
+ * It takes a list of {@link RowRange}s, each with a start and a stop row and
+ * flags telling whether those are inclusive, sorts them and merges the ones
+ * that overlap. Rows falling between two ranges are not read: when the scan
+ * reaches one, the filter hands back the start of the next range as a seek
+ * hint, the way {@link FuzzyRowFilter} does, and once the scan is past the
+ * last range the filter ends it.
+ * <p>
+ * The client scanner also uses the ranges to skip regions that hold none of
+ * them, when this filter is the scan's top level filter.
+ *
+ * Example: to read rows [a, c) and [m, n] only
+ * <pre>
+ * List&lt;RowRange&gt; ranges = new ArrayList&lt;RowRange&gt;();
+ * ranges.add(new RowRange(Bytes.toBytes("a"), true, Bytes.toBytes("c"), false));
+ * ranges.add(new RowRange(Bytes.toBytes("m"), true, Bytes.toBytes("n"), true));
+ * scan.setFilter(new MultiRowRangeFilter(ranges));
+ * </pre>
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class MultiRowRangeFilter extends FilterBase {
+  private final List<RowRange> rangeList;
+  private boolean done = false;
+  private ReturnCode currentReturnCode = ReturnCode.INCLUDE;
+  private byte[] nextHintRow;
+
+  /**
+   * @param rowRanges the row ranges to return; they need not be sorted and
+   *          may overlap
+   * @throws IllegalArgumentException if a range's start row is after its stop
+   *           row
+   */
+  public MultiRowRangeFilter(List<RowRange> rowRanges) {
+    this.rangeList = sortAndMerge(rowRanges);
+  }
+
+  /**
+   * @return the sorted, non overlapping row ranges this filter returns
+   */
+  public List<RowRange> getRowRanges() {
+    return this.rangeList;
+  }
+
+  @Override
+  public boolean filterRowKey(byte[] buffer, int offset, int length) {
+    if (done) {
+      return true;
+    }
+    if (!reversed) {
+      int index = getNextRangeIndex(buffer, offset, length);
+      if (index == rangeList.size()) {
+        // past the last range
+        done = true;
+        return true;
+      }
+      RowRange range = rangeList.get(index);
+      if (range.isAfterRow(buffer, offset, length)) {
+        currentReturnCode = ReturnCode.SEEK_NEXT_USING_HINT;
+        nextHintRow = range.getFirstRow();
+      } else {
+        currentReturnCode = ReturnCode.INCLUDE;
+      }
+    } else {
+      int index = getPreviousRangeIndex(buffer, offset, length);
+      if (index < 0) {
+        // before the first range, which is the end of a reversed scan
+        done = true;
+        return true;
+      }
+      RowRange range = rangeList.get(index);
+      if (range.isBeforeRow(buffer, offset, length)) {
+        if (Bytes.compareTo(range.stopRow, 0, range.stopRow.length,
+            buffer, offset, length) == 0) {
+          // the excluded stop row itself; the row before it is in the range
+          return true;
+        }
+        currentReturnCode = ReturnCode.SEEK_NEXT_USING_HINT;
+        nextHintRow = range.stopRow;
+      } else {
+        currentReturnCode = ReturnCode.INCLUDE;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public ReturnCode filterKeyValue(KeyValue ignored) {
+    return currentReturnCode;
+  }
+
+  @Override
+  public KeyValue getNextKeyHint(KeyValue currentKV) {
+    return KeyValue.createFirstOnRow(nextHintRow);
+  }
+
+  @Override
+  public boolean filterAllRemaining() {
+    return done;
+  }
+
+  /**
+   * Used by the client scanner to skip regions holding none of the ranges.
+   * Only meaningful for forward scans.
+   *
+   * @param row a row, or an empty array for the start of the table
+   * @return the given row if it falls in one of the ranges, else the start
+   *         row of the first range after it, or null if there is none
+   */
+  public byte[] getNextRangeStartRow(byte[] row) {
+    int index = getNextRangeIndex(row, 0, row.length);
+    if (index == rangeList.size()) {
+      return null;
+    }
+    RowRange range = rangeList.get(index);
+    return range.isAfterRow(row, 0, row.length) ? range.startRow : row;
+  }
+
+  /**
+   * @return the index of the first range that does not end before the given
+   *         row, or the number of ranges if they all do
+   */
+  private int getNextRangeIndex(byte[] row, int offset, int length) {
+    int low = 0;
+    int high = rangeList.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (rangeList.get(mid).isBeforeRow(row, offset, length)) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the index of the last range that does not start after the given
+   *         row, or -1 if they all do
+   */
+  private int getPreviousRangeIndex(byte[] row, int offset, int length) {
+    int low = 0;
+    int high = rangeList.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (rangeList.get(mid).isAfterRow(row, offset, length)) {
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return high;
+  }
+
+  /**
+   * @return The filter serialized using pb
+   */
+  public byte [] toByteArray() {
+    FilterProtos.MultiRowRangeFilter.Builder builder =
+      FilterProtos.MultiRowRangeFilter.newBuilder();
+    for (RowRange range : rangeList) {
+      FilterProtos.RowRange.Builder rangeBuilder = FilterProtos.RowRange.newBuilder();
+      rangeBuilder.setStartRow(ByteString.copyFrom(range.startRow));
+      rangeBuilder.setStartRowInclusive(range.startRowInclusive);
+      rangeBuilder.setStopRow(ByteString.copyFrom(range.stopRow));
+      rangeBuilder.setStopRowInclusive(range.stopRowInclusive);
+      builder.addRowRanges(rangeBuilder);
+    }
+    return builder.build().toByteArray();
+  }
+
+  /**
+   * @param pbBytes A pb serialized {@link MultiRowRangeFilter} instance
+   * @return An instance of {@link MultiRowRangeFilter} made from <code>bytes</code>
+   * @throws DeserializationException
+   * @see #toByteArray
+   */
+  public static MultiRowRangeFilter parseFrom(final byte [] pbBytes)
+  throws DeserializationException {
+    FilterProtos.MultiRowRangeFilter proto;
+    try {
+      proto = FilterProtos.MultiRowRangeFilter.parseFrom(pbBytes);
+    } catch (InvalidProtocolBufferException e) {
+      throw new DeserializationException(e);
+    }
+    int count = proto.getRowRangesCount();
+    List<RowRange> rangeList = new ArrayList<RowRange>(count);
+    for (int i = 0; i < count; ++i) {
+      FilterProtos.RowRange range = proto.getRowRanges(i);
+      rangeList.add(new RowRange(range.getStartRow().toByteArray(),
+          range.getStartRowInclusive(), range.getStopRow().toByteArray(),
+          range.getStopRowInclusive()));
+    }
+    try {
+      return new MultiRowRangeFilter(rangeList);
+    } catch (IllegalArgumentException e) {
+      throw new DeserializationException(e);
+    }
+  }
+
+  /**
+   * @param o
+   * @return true if and only if the fields of the filter that are serialized
+   * are equal to the corresponding fields in other.  Used for testing.
+   */
+  boolean areSerializedFieldsEqual(Filter o) {
+    if (o == this) return true;
+    if (!(o instanceof MultiRowRangeFilter)) return false;
+
+    MultiRowRangeFilter other = (MultiRowRangeFilter)o;
+    if (this.rangeList.size() != other.rangeList.size()) return false;
+    for (int i = 0; i < rangeList.size(); ++i) {
+      if (!this.rangeList.get(i).equals(other.rangeList.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(this.getClass().getSimpleName()).append(" ");
+    for (RowRange range : rangeList) {
+      sb.append(range);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Sorts the ranges by start row and merges the ones that overlap or touch,
+   * so the filter can binary search them.
+   */
+  static List<RowRange> sortAndMerge(List<RowRange> ranges) {
+    if (ranges == null || ranges.isEmpty()) {
+      throw new IllegalArgumentException("No row ranges specified");
+    }
+    List<RowRange> sorted = new ArrayList<RowRange>(ranges);
+    for (RowRange range : sorted) {
+      if (!range.isValid()) {
+        throw new IllegalArgumentException("Invalid row range " + range
+            + ": the start row is after the stop row");
+      }
+    }
+    Collections.sort(sorted);
+
+    List<RowRange> merged = new ArrayList<RowRange>();
+    RowRange current = sorted.get(0);
+    for (int i = 1; i < sorted.size(); i++) {
+      RowRange next = sorted.get(i);
+      if (current.stopRow.length == 0) {
+        // current runs to the end of the table and covers everything after it
+        break;
+      }
+      int cmp = Bytes.compareTo(next.startRow, current.stopRow);
+      if (cmp < 0 || (cmp == 0 && (current.stopRowInclusive || next.startRowInclusive))) {
+        int stopCmp = next.stopRow.length == 0 ? 1
+            : Bytes.compareTo(next.stopRow, current.stopRow);
+        if (stopCmp > 0) {
+          current = new RowRange(current.startRow, current.startRowInclusive,
+              next.stopRow, next.stopRowInclusive);
+        } else if (stopCmp == 0 && next.stopRowInclusive && !current.stopRowInclusive) {
+          current = new RowRange(current.startRow, current.startRowInclusive,
+              current.stopRow, true);
+        }
+      } else {
+        merged.add(current);
+        current = next;
+      }
+    }
+    merged.add(current);
+    return merged;
+  }
+
+  /**
+   * A range of rows. An empty start row means the start of the table and an
+   * empty stop row the end of it.
+   */
+  @InterfaceAudience.Public
+  @InterfaceStability.Evolving
+  public static class RowRange implements Comparable<RowRange> {
+    private final byte[] startRow;
+    private final boolean startRowInclusive;
+    private final byte[] stopRow;
+    private final boolean stopRowInclusive;
+
+    /**
+     * @param startRow first row of the range, empty or null for the start of
+     *          the table
+     * @param startRowInclusive whether startRow itself is part of the range
+     * @param stopRow last row of the range, empty or null for the end of the
+     *          table
+     * @param stopRowInclusive whether stopRow itself is part of the range
+     */
+    public RowRange(byte[] startRow, boolean startRowInclusive, byte[] stopRow,
+        boolean stopRowInclusive) {
+      this.startRow = startRow == null ? HConstants.EMPTY_BYTE_ARRAY : startRow;
+      this.startRowInclusive = startRowInclusive;
+      this.stopRow = stopRow == null ? HConstants.EMPTY_BYTE_ARRAY : stopRow;
+      this.stopRowInclusive = stopRowInclusive;
+    }
+
+    public byte[] getStartRow() {
+      return startRow;
+    }
+
+    public boolean isStartRowInclusive() {
+      return startRowInclusive;
+    }
+
+    public byte[] getStopRow() {
+      return stopRow;
+    }
+
+    public boolean isStopRowInclusive() {
+      return stopRowInclusive;
+    }
+
+    /**
+     * @return true if the whole range comes before the given row
+     */
+    boolean isBeforeRow(byte[] row, int offset, int length) {
+      if (stopRow.length == 0) {
+        return false;
+      }
+      int cmp = Bytes.compareTo(stopRow, 0, stopRow.length, row, offset, length);
+      return cmp < 0 || (cmp == 0 && !stopRowInclusive);
+    }
+
+    /**
+     * @return true if the whole range comes after the given row
+     */
+    boolean isAfterRow(byte[] row, int offset, int length) {
+      if (startRow.length == 0) {
+        return false;
+      }
+      int cmp = Bytes.compareTo(startRow, 0, startRow.length, row, offset, length);
+      return cmp > 0 || (cmp == 0 && !startRowInclusive);
+    }
+
+    /**
+     * @return the smallest row that is part of the range
+     */
+    byte[] getFirstRow() {
+      if (startRowInclusive || startRow.length == 0) {
+        return startRow;
+      }
+      // the smallest row that sorts after startRow
+      return Bytes.add(startRow, new byte[] { 0 });
+    }
+
+    boolean isValid() {
+      if (startRow.length == 0 || stopRow.length == 0) {
+        return true;
+      }
+      int cmp = Bytes.compareTo(startRow, stopRow);
+      return cmp < 0 || (cmp == 0 && startRowInclusive && stopRowInclusive);
+    }
+
+    @Override
+    public int compareTo(RowRange other) {
+      int cmp = Bytes.compareTo(this.startRow, other.startRow);
+      if (cmp != 0) {
+        return cmp;
+      }
+      if (this.startRowInclusive == other.startRowInclusive) {
+        return 0;
+      }
+      return this.startRowInclusive ? -1 : 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof RowRange)) return false;
+      RowRange other = (RowRange) o;
+      return Bytes.equals(this.startRow, other.startRow)
+          && this.startRowInclusive == other.startRowInclusive
+          && Bytes.equals(this.stopRow, other.stopRow)
+          && this.stopRowInclusive == other.stopRowInclusive;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = Bytes.hashCode(startRow);
+      result = 31 * result + (startRowInclusive ? 1 : 0);
+      result = 31 * result + Bytes.hashCode(stopRow);
+      result = 31 * result + (stopRowInclusive ? 1 : 0);
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return (startRowInclusive ? "[" : "(") + Bytes.toStringBinary(startRow)
+          + ", " + Bytes.toStringBinary(stopRow) + (stopRowInclusive ? "]" : ")");
+    }
+  }
+}
@@ -144,6 +144,12 @@ public class WhileMatchFilter extends FilterBase {
     return filter.isFamilyEssential(name);
   }
 
+  @Override
+  public void setReversed(boolean reversed) {
+    this.filter.setReversed(reversed);
+    this.reversed = reversed;
+  }
+
   @Override
   public String toString() {
     return this.getClass().getSimpleName() + " " + this.filter.toString();
@@ -720,6 +720,9 @@ public final class ProtobufUtil {
       scanBuilder.setLoadColumnFamiliesOnDemand(loadColumnFamiliesOnDemand.booleanValue());
     }
     scanBuilder.setPrefetching(scan.getPrefetching());
+    if (scan.isReversed()) {
+      scanBuilder.setReversed(true);
+    }
     scanBuilder.setMaxVersions(scan.getMaxVersions());
     TimeRange timeRange = scan.getTimeRange();
     if (!timeRange.isAllTime()) {
@@ -800,6 +803,9 @@ public final class ProtobufUtil {
     if (proto.hasPrefetching()) {
       scan.setPrefetching(proto.getPrefetching());
     }
+    if (proto.hasReversed()) {
+      scan.setReversed(proto.getReversed());
+    }
     if (proto.hasStoreLimit()) {
       scan.setMaxResultsPerColumnFamily(proto.getStoreLimit());
     }
@@ -1218,6 +1224,10 @@ public final class ProtobufUtil {
 
   /**
    * A helper to invoke a Get using client protocol.
+   * <p>
+   * If the get asked for scan metrics, the counts the region server sent back are
+   * published on it as the {@link Scan#SCAN_ATTRIBUTES_METRICS_DATA} attribute, the
+   * same way ClientScanner does for scans.
    *
    * @param client
    * @param regionName
@@ -1232,6 +1242,16 @@ public final class ProtobufUtil {
     try {
       GetResponse response = client.get(null, request);
       if (response == null) return null;
+      if (response.getScanMetricsCount() > 0) {
+        ScanMetrics scanMetrics = new ScanMetrics();
+        for (HBaseProtos.NameInt64Pair pair : response.getScanMetricsList()) {
+          if (pair.hasName() && pair.hasValue()) {
+            scanMetrics.addToCounter(pair.getName(), pair.getValue());
+          }
+        }
+        get.setAttribute(Scan.SCAN_ATTRIBUTES_METRICS_DATA,
+          toScanMetrics(scanMetrics).toByteArray());
+      }
       return toResult(response.getResult());
     } catch (ServiceException se) {
       throw getRemoteException(se);
@@ -31,5 +31,11 @@ public enum BloomType {
   /**
    * Bloom enabled with Table row & column (family+qualifier) as Key
    */
-  ROWCOL
+  ROWCOL,
+  /**
+   * Bloom enabled with a prefix of the Table row as Key, of a fixed length or
+   * up to a delimiter, as set in the column family configuration. Checked by
+   * scans within a prefix as well as by gets
+   */
+  ROWPREFIX
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.ByteBufferUtils;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.RawComparator;
+
+/**
+ * Keeps the KeyValues as they are, and adds the offset of the first
+ * KeyValue of each row, so that a seek binary searches the rows of the block
+ * rather than going through the KeyValues from the start of the block.
+ *
+ * Format:
+ * 4 bytes: length of the KeyValues
+ * ... bytes: the KeyValues, unencoded
+ * 4 bytes: number of rows
+ * 4 bytes each: offset of the first KeyValue of each row, from the first
+ * KeyValue of the block
+ *
+ * Costs 4 bytes a row on top of unencoded blocks.
+ */
+@InterfaceAudience.Private
+public class RowIndexDataBlockEncoder extends BufferedDataBlockEncoder {
+  private static final int INITIAL_ROW_COUNT = 64;
+
+  @Override
+  public void internalEncodeKeyValues(DataOutputStream out,
+      ByteBuffer in, boolean includesMemstoreTS) throws IOException {
+    in.rewind();
+    int[] rowOffsets = new int[INITIAL_ROW_COUNT];
+    int rowCount = 0;
+    int prevRowOffset = -1;
+    int prevRowLength = 0;
+    while (in.hasRemaining()) {
+      int kvOffset = in.position();
+      int keyLength = in.getInt();
+      int valueLength = in.getInt();
+      int rowLength = in.getShort();
+      int rowOffset = in.position();
+      if (prevRowOffset == -1 || !ByteBufferUtils.arePartsEqual(in,
+          prevRowOffset, prevRowLength, rowOffset, rowLength)) {
+        if (rowCount == rowOffsets.length) {
+          int[] newRowOffsets = new int[rowOffsets.length * 2];
+          System.arraycopy(rowOffsets, 0, newRowOffsets, 0, rowCount);
+          rowOffsets = newRowOffsets;
+        }
+        rowOffsets[rowCount++] = kvOffset;
+      }
+      prevRowOffset = rowOffset;
+      prevRowLength = rowLength;
+      ByteBufferUtils.skip(in, keyLength - Bytes.SIZEOF_SHORT + valueLength);
+      if (includesMemstoreTS) {
+        ByteBufferUtils.readVLong(in);
+      }
+    }
+
+    in.rewind();
+    ByteBufferUtils.putInt(out, in.limit());
+    ByteBufferUtils.moveBufferToStream(out, in, in.limit());
+    ByteBufferUtils.putInt(out, rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      ByteBufferUtils.putInt(out, rowOffsets[i]);
+    }
+  }
+
+  @Override
+  public ByteBuffer decodeKeyValues(DataInputStream source,
+      int allocateHeaderLength, int skipLastBytes, boolean includesMemstoreTS)
+      throws IOException {
+    int decompressedSize = source.readInt();
+    ByteBuffer buffer = ByteBuffer.allocate(decompressedSize +
+        allocateHeaderLength);
+    buffer.position(allocateHeaderLength);
+    ByteBufferUtils.copyFromStreamToBuffer(buffer, source, decompressedSize);
+
+    // the row index is of no use once decoded
+    int rowCount = source.readInt();
+    source.skipBytes(rowCount * Bytes.SIZEOF_INT);
+    if (source.available() != skipLastBytes) {
+      throw new IllegalStateException("Read too many bytes.");
+    }
+    return buffer;
+  }
+
+  @Override
+  public ByteBuffer getFirstKeyInBlock(ByteBuffer block) {
+    int keyLength = block.getInt(Bytes.SIZEOF_INT);
+    return ByteBuffer.wrap(block.array(),
+        block.arrayOffset() + 3 * Bytes.SIZEOF_INT, keyLength).slice();
+  }
+
+  @Override
+  public String toString() {
+    return RowIndexDataBlockEncoder.class.getSimpleName();
+  }
+
+  @Override
+  public EncodedSeeker createSeeker(RawComparator<byte[]> comparator,
+      boolean includesMemstoreTS) {
+    return new RowIndexSeeker(comparator, includesMemstoreTS);
+  }
+
+  /**
+   * Goes through the KeyValues of the block as they are, and seeks from the
+   * row found by a binary search of the row index.
+   */
+  private static class RowIndexSeeker extends BufferedEncodedSeeker<SeekerState> {
+    private final boolean includesMemstoreTS;
+    /** The encoded block, with the row index after the KeyValues */
+    private ByteBuffer block;
+    /** The offset of the row index in the encoded block */
+    private int rowIndexOffset;
+    private int rowCount;
+
+    RowIndexSeeker(RawComparator<byte[]> comparator, boolean includesMemstoreTS) {
+      super(comparator);
+      this.includesMemstoreTS = includesMemstoreTS;
+    }
+
+    @Override
+    public void setCurrentBuffer(ByteBuffer buffer) {
+      int start = buffer.position();
+      int kvLength = buffer.getInt(start);
+      block = buffer;
+      rowCount = buffer.getInt(start + Bytes.SIZEOF_INT + kvLength);
+      rowIndexOffset = start + 2 * Bytes.SIZEOF_INT + kvLength;
+
+      // go through the KeyValues alone, as other seekers go through the block
+      ByteBuffer keyValues = buffer.duplicate();
+      keyValues.position(start + Bytes.SIZEOF_INT);
+      keyValues.limit(start + Bytes.SIZEOF_INT + kvLength);
+      super.setCurrentBuffer(keyValues.slice());
+    }
+
+    @Override
+    public int seekToKeyInBlock(byte[] key, int offset, int length,
+        boolean seekBefore) {
+      // the last row starting at or before the key, strictly before it when
+      // seeking before the key, or the first row if none
+      int low = 1;
+      int high = rowCount - 1;
+      int row = 0;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int comp = compareFirstKeyOfRow(mid, key, offset, length);
+        if (comp > 0 || (comp == 0 && !seekBefore)) {
+          row = mid;
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+
+      // skip ahead to the row, going on from the current position as other
+      // seekers do if already there, as when reseeking
+      int rowOffset = getRowOffset(row);
+      int currentOffset =
+          current.valueOffset - current.keyLength - KeyValue.ROW_OFFSET;
+      if (rowOffset > currentOffset) {
+        currentBuffer.position(rowOffset);
+        decodeNext();
+      }
+      return super.seekToKeyInBlock(key, offset, length, seekBefore);
+    }
+
+    private int getRowOffset(int row) {
+      return block.getInt(rowIndexOffset + row * Bytes.SIZEOF_INT);
+    }
+
+    /**
+     * @return how the key compares to the first key of the row
+     */
+    private int compareFirstKeyOfRow(int row, byte[] key, int offset,
+        int length) {
+      int kvOffset = getRowOffset(row);
+      return comparator.compare(key, offset, length, currentBuffer.array(),
+          currentBuffer.arrayOffset() + kvOffset + KeyValue.ROW_OFFSET,
+          currentBuffer.getInt(kvOffset));
+    }
+
+    @Override
+    protected void decodeNext() {
+      current.keyLength = currentBuffer.getInt();
+      current.valueLength = currentBuffer.getInt();
+      current.ensureSpaceForKey();
+      currentBuffer.get(current.keyBuffer, 0, current.keyLength);
+      current.valueOffset = currentBuffer.position();
+      ByteBufferUtils.skip(currentBuffer, current.valueLength);
+      if (includesMemstoreTS) {
+        current.memstoreTS = ByteBufferUtils.readVLong(currentBuffer);
+      } else {
+        current.memstoreTS = 0;
+      }
+      current.nextKvOffset = currentBuffer.position();
+    }
+
+    @Override
+    protected void decodeFirst() {
+      current.lastCommonPrefix = 0;
+      decodeNext();
+    }
+  }
+}
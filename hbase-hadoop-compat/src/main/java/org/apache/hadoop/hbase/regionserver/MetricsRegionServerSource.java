@@ -179,6 +179,25 @@ public interface MetricsRegionServerSource extends BaseSource {
   static final String BLOCK_CACHE_EXPRESS_HIT_PERCENT = "blockCacheExpressHitPercent";
   static final String BLOCK_CACHE_EXPRESS_HIT_PERCENT_DESC =
       "The percent of the time that requests with the cache turned on hit the cache.";
+  static final String BLOCK_CACHE_META_TIER_SIZE = "blockCacheMetaTierSize";
+  static final String BLOCK_CACHE_META_TIER_SIZE_DESC =
+      "Size of the index and Bloom block tier of the block cache.";
+  static final String BLOCK_CACHE_META_TIER_HIT_COUNT = "blockCacheMetaTierHitCount";
+  static final String BLOCK_CACHE_META_TIER_HIT_COUNT_DESC =
+      "Count of the hits on the index and Bloom block tier of the block cache.";
+  static final String BLOCK_CACHE_META_TIER_EVICTION_COUNT = "blockCacheMetaTierEvictionCount";
+  static final String BLOCK_CACHE_META_TIER_EVICTION_COUNT_DESC =
+      "Count of the number of blocks evicted from the index and Bloom block tier.";
+  static final String BLOCK_CACHE_TABLE_PREFIX = "table_";
+  static final String BLOCK_CACHE_TABLE_SUFFIX = "_metric_";
+  static final String BLOCK_CACHE_TABLE_SIZE_DESC =
+      "Size of the blocks of the table in the block cache.";
+  static final String BLOCK_CACHE_TABLE_HIT_COUNT_DESC =
+      "Count of the hits on the blocks of the table in the block cache.";
+  static final String BLOCK_CACHE_TABLE_MISS_COUNT_DESC =
+      "Number of requests for a block of the table that missed the block cache.";
+  static final String BLOCK_CACHE_TABLE_EVICTION_COUNT_DESC =
+      "Count of the number of blocks of the table evicted from the block cache.";
   static final String RS_START_TIME_NAME = "regionServerStartTime";
   static final String ZOOKEEPER_QUORUM_NAME = "zookeeperQuorum";
   static final String SERVER_NAME_NAME = "serverName";
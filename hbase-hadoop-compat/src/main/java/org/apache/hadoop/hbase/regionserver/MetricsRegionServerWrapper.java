@@ -18,6 +18,8 @@
 
 package org.apache.hadoop.hbase.regionserver;
 
+import java.util.Collection;
+
 /**
  * This is the interface that will expose RegionServer information to hadoop1/hadoop2
  * implementations of the MetricsRegionServerSource.
@@ -193,6 +195,46 @@ public interface MetricsRegionServerWrapper {
    */
   int getBlockCacheHitCachingPercent();
 
+  /**
+   * Get the size of the index and Bloom block tier of the block cache.
+   */
+  long getBlockCacheMetaTierSize();
+
+  /**
+   * Get the count of hits to the index and Bloom block tier of the block cache.
+   */
+  long getBlockCacheMetaTierHitCount();
+
+  /**
+   * Get the number of blocks evicted from the index and Bloom block tier.
+   */
+  long getBlockCacheMetaTierEvictedCount();
+
+  /**
+   * Get the names of the tables which have had blocks in the block cache.
+   */
+  Collection<String> getBlockCacheTableNames();
+
+  /**
+   * Get the size of the blocks of the given table in the block cache.
+   */
+  long getBlockCacheTableSize(String table);
+
+  /**
+   * Get the count of hits to the blocks of the given table in the block cache.
+   */
+  long getBlockCacheTableHitCount(String table);
+
+  /**
+   * Get the count of misses to the blocks of the given table in the block cache.
+   */
+  long getBlockCacheTableMissCount(String table);
+
+  /**
+   * Get the number of blocks of the given table evicted from the block cache.
+   */
+  long getBlockCacheTableEvictedCount(String table);
+
   /**
    * Force a re-computation of the metrics.
    */
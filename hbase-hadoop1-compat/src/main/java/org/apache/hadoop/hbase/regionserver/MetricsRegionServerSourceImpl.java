@@ -193,10 +193,32 @@ public class MetricsRegionServerSourceImpl
           .addGauge(BLOCK_CACHE_EXPRESS_HIT_PERCENT,
               BLOCK_CACHE_EXPRESS_HIT_PERCENT_DESC,
               rsWrap.getBlockCacheHitCachingPercent())
+          .addGauge(BLOCK_CACHE_META_TIER_SIZE,
+              BLOCK_CACHE_META_TIER_SIZE_DESC,
+              rsWrap.getBlockCacheMetaTierSize())
+          .addCounter(BLOCK_CACHE_META_TIER_HIT_COUNT,
+              BLOCK_CACHE_META_TIER_HIT_COUNT_DESC,
+              rsWrap.getBlockCacheMetaTierHitCount())
+          .addCounter(BLOCK_CACHE_META_TIER_EVICTION_COUNT,
+              BLOCK_CACHE_META_TIER_EVICTION_COUNT_DESC,
+              rsWrap.getBlockCacheMetaTierEvictedCount())
           .addCounter(UPDATES_BLOCKED_TIME, UPDATES_BLOCKED_DESC, rsWrap.getUpdatesBlockedTime())
           .tag(ZOOKEEPER_QUORUM_NAME, ZOOKEEPER_QUORUM_DESC, rsWrap.getZookeeperQuorum())
           .tag(SERVER_NAME_NAME, SERVER_NAME_DESC, rsWrap.getServerName())
           .tag(CLUSTER_ID_NAME, CLUSTER_ID_DESC, rsWrap.getClusterId());
+
+      for (String table : rsWrap.getBlockCacheTableNames()) {
+        String prefix = BLOCK_CACHE_TABLE_PREFIX + table + BLOCK_CACHE_TABLE_SUFFIX;
+        mrb.addGauge(prefix + BLOCK_CACHE_SIZE, BLOCK_CACHE_TABLE_SIZE_DESC,
+              rsWrap.getBlockCacheTableSize(table))
+            .addCounter(prefix + BLOCK_CACHE_HIT_COUNT, BLOCK_CACHE_TABLE_HIT_COUNT_DESC,
+              rsWrap.getBlockCacheTableHitCount(table))
+            .addCounter(prefix + BLOCK_CACHE_MISS_COUNT, BLOCK_CACHE_TABLE_MISS_COUNT_DESC,
+              rsWrap.getBlockCacheTableMissCount(table))
+            .addCounter(prefix + BLOCK_CACHE_EVICTION_COUNT,
+              BLOCK_CACHE_TABLE_EVICTION_COUNT_DESC,
+              rsWrap.getBlockCacheTableEvictedCount(table));
+      }
     }
 
     metricsRegistry.snapshot(mrb, all);
@@ -4375,6 +4375,16 @@ public final class ClientProtos {
     // optional bool exists = 2;
     boolean hasExists();
     boolean getExists();
+    
+    // repeated .NameInt64Pair scanMetrics = 3;
+    java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> 
+        getScanMetricsList();
+    org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair getScanMetrics(int index);
+    int getScanMetricsCount();
+    java.util.List<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+        getScanMetricsOrBuilderList();
+    org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder getScanMetricsOrBuilder(
+        int index);
   }
   public static final class GetResponse extends
       com.google.protobuf.GeneratedMessage
@@ -4428,9 +4438,31 @@ public final class ClientProtos {
       return exists_;
     }
     
+    // repeated .NameInt64Pair scanMetrics = 3;
+    public static final int SCANMETRICS_FIELD_NUMBER = 3;
+    private java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> scanMetrics_;
+    public java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> getScanMetricsList() {
+      return scanMetrics_;
+    }
+    public java.util.List<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+        getScanMetricsOrBuilderList() {
+      return scanMetrics_;
+    }
+    public int getScanMetricsCount() {
+      return scanMetrics_.size();
+    }
+    public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair getScanMetrics(int index) {
+      return scanMetrics_.get(index);
+    }
+    public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder getScanMetricsOrBuilder(
+        int index) {
+      return scanMetrics_.get(index);
+    }
+    
     private void initFields() {
       result_ = org.apache.hadoop.hbase.protobuf.generated.ClientProtos.Result.getDefaultInstance();
       exists_ = false;
+      scanMetrics_ = java.util.Collections.emptyList();
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -4450,6 +4482,9 @@ public final class ClientProtos {
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
         output.writeBool(2, exists_);
       }
+      for (int i = 0; i < scanMetrics_.size(); i++) {
+        output.writeMessage(3, scanMetrics_.get(i));
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -4467,6 +4502,10 @@ public final class ClientProtos {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(2, exists_);
       }
+      for (int i = 0; i < scanMetrics_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(3, scanMetrics_.get(i));
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -4500,6 +4539,8 @@ public final class ClientProtos {
         result = result && (getExists()
             == other.getExists());
       }
+      result = result && getScanMetricsList()
+          .equals(other.getScanMetricsList());
       result = result &&
           getUnknownFields().equals(other.getUnknownFields());
       return result;
@@ -4517,6 +4558,10 @@ public final class ClientProtos {
         hash = (37 * hash) + EXISTS_FIELD_NUMBER;
         hash = (53 * hash) + hashBoolean(getExists());
       }
+      if (getScanMetricsCount() > 0) {
+        hash = (37 * hash) + SCANMETRICS_FIELD_NUMBER;
+        hash = (53 * hash) + getScanMetricsList().hashCode();
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       return hash;
     }
@@ -4626,6 +4671,7 @@ public final class ClientProtos {
       private void maybeForceBuilderInitialization() {
         if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
           getResultFieldBuilder();
+          getScanMetricsFieldBuilder();
         }
       }
       private static Builder create() {
@@ -4642,6 +4688,12 @@ public final class ClientProtos {
         bitField0_ = (bitField0_ & ~0x00000001);
         exists_ = false;
         bitField0_ = (bitField0_ & ~0x00000002);
+        if (scanMetricsBuilder_ == null) {
+          scanMetrics_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000004);
+        } else {
+          scanMetricsBuilder_.clear();
+        }
         return this;
       }
       
@@ -4692,6 +4744,15 @@ public final class ClientProtos {
           to_bitField0_ |= 0x00000002;
         }
         result.exists_ = exists_;
+        if (scanMetricsBuilder_ == null) {
+          if (((bitField0_ & 0x00000004) == 0x00000004)) {
+            scanMetrics_ = java.util.Collections.unmodifiableList(scanMetrics_);
+            bitField0_ = (bitField0_ & ~0x00000004);
+          }
+          result.scanMetrics_ = scanMetrics_;
+        } else {
+          result.scanMetrics_ = scanMetricsBuilder_.build();
+        }
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -4714,6 +4775,32 @@ public final class ClientProtos {
         if (other.hasExists()) {
           setExists(other.getExists());
         }
+        if (scanMetricsBuilder_ == null) {
+          if (!other.scanMetrics_.isEmpty()) {
+            if (scanMetrics_.isEmpty()) {
+              scanMetrics_ = other.scanMetrics_;
+              bitField0_ = (bitField0_ & ~0x00000004);
+            } else {
+              ensureScanMetricsIsMutable();
+              scanMetrics_.addAll(other.scanMetrics_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.scanMetrics_.isEmpty()) {
+            if (scanMetricsBuilder_.isEmpty()) {
+              scanMetricsBuilder_.dispose();
+              scanMetricsBuilder_ = null;
+              scanMetrics_ = other.scanMetrics_;
+              bitField0_ = (bitField0_ & ~0x00000004);
+              scanMetricsBuilder_ = 
+                com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders ?
+                   getScanMetricsFieldBuilder() : null;
+            } else {
+              scanMetricsBuilder_.addAllMessages(other.scanMetrics_);
+            }
+          }
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -4759,6 +4846,12 @@ public final class ClientProtos {
               exists_ = input.readBool();
               break;
             }
+            case 26: {
+              org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder subBuilder = org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addScanMetrics(subBuilder.buildPartial());
+              break;
+            }
           }
         }
       }
@@ -4876,6 +4969,192 @@ public final class ClientProtos {
         return this;
       }
       
+      // repeated .NameInt64Pair scanMetrics = 3;
+      private java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> scanMetrics_ =
+        java.util.Collections.emptyList();
+      private void ensureScanMetricsIsMutable() {
+        if (!((bitField0_ & 0x00000004) == 0x00000004)) {
+          scanMetrics_ = new java.util.ArrayList<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair>(scanMetrics_);
+          bitField0_ |= 0x00000004;
+         }
+      }
+      
+      private com.google.protobuf.RepeatedFieldBuilder<
+          org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> scanMetricsBuilder_;
+      
+      public java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> getScanMetricsList() {
+        if (scanMetricsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(scanMetrics_);
+        } else {
+          return scanMetricsBuilder_.getMessageList();
+        }
+      }
+      public int getScanMetricsCount() {
+        if (scanMetricsBuilder_ == null) {
+          return scanMetrics_.size();
+        } else {
+          return scanMetricsBuilder_.getCount();
+        }
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair getScanMetrics(int index) {
+        if (scanMetricsBuilder_ == null) {
+          return scanMetrics_.get(index);
+        } else {
+          return scanMetricsBuilder_.getMessage(index);
+        }
+      }
+      public Builder setScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair value) {
+        if (scanMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureScanMetricsIsMutable();
+          scanMetrics_.set(index, value);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      public Builder setScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder builderForValue) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          scanMetricsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addScanMetrics(org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair value) {
+        if (scanMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(value);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      public Builder addScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair value) {
+        if (scanMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(index, value);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      public Builder addScanMetrics(
+          org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder builderForValue) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(builderForValue.build());
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder builderForValue) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addAllScanMetrics(
+          java.lang.Iterable<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> values) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          super.addAll(values, scanMetrics_);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      public Builder clearScanMetrics() {
+        if (scanMetricsBuilder_ == null) {
+          scanMetrics_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000004);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.clear();
+        }
+        return this;
+      }
+      public Builder removeScanMetrics(int index) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.remove(index);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.remove(index);
+        }
+        return this;
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder getScanMetricsBuilder(
+          int index) {
+        return getScanMetricsFieldBuilder().getBuilder(index);
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder getScanMetricsOrBuilder(
+          int index) {
+        if (scanMetricsBuilder_ == null) {
+          return scanMetrics_.get(index);  } else {
+          return scanMetricsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      public java.util.List<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+           getScanMetricsOrBuilderList() {
+        if (scanMetricsBuilder_ != null) {
+          return scanMetricsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(scanMetrics_);
+        }
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder addScanMetricsBuilder() {
+        return getScanMetricsFieldBuilder().addBuilder(
+            org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.getDefaultInstance());
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder addScanMetricsBuilder(
+          int index) {
+        return getScanMetricsFieldBuilder().addBuilder(
+            index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.getDefaultInstance());
+      }
+      public java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder> 
+           getScanMetricsBuilderList() {
+        return getScanMetricsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilder<
+          org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+          getScanMetricsFieldBuilder() {
+        if (scanMetricsBuilder_ == null) {
+          scanMetricsBuilder_ = new com.google.protobuf.RepeatedFieldBuilder<
+              org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder>(
+                  scanMetrics_,
+                  ((bitField0_ & 0x00000004) == 0x00000004),
+                  getParentForChildren(),
+                  isClean());
+          scanMetrics_ = null;
+        }
+        return scanMetricsBuilder_;
+      }
+      
       // @@protoc_insertion_point(builder_scope:GetResponse)
     }
     
@@ -10630,6 +10909,10 @@ public final class ClientProtos {
     // optional bool prefetching = 15;
     boolean hasPrefetching();
     boolean getPrefetching();
+    
+    // optional bool reversed = 16 [default = false];
+    boolean hasReversed();
+    boolean getReversed();
   }
   public static final class Scan extends
       com.google.protobuf.GeneratedMessage
@@ -10838,6 +11121,16 @@ public final class ClientProtos {
       return prefetching_;
     }
     
+    // optional bool reversed = 16 [default = false];
+    public static final int REVERSED_FIELD_NUMBER = 16;
+    private boolean reversed_;
+    public boolean hasReversed() {
+      return ((bitField0_ & 0x00002000) == 0x00002000);
+    }
+    public boolean getReversed() {
+      return reversed_;
+    }
+    
     private void initFields() {
       column_ = java.util.Collections.emptyList();
       attribute_ = java.util.Collections.emptyList();
@@ -10854,6 +11147,7 @@ public final class ClientProtos {
       loadColumnFamiliesOnDemand_ = false;
       cachingCount_ = 0;
       prefetching_ = false;
+      reversed_ = false;
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -10930,6 +11224,9 @@ public final class ClientProtos {
       if (((bitField0_ & 0x00001000) == 0x00001000)) {
         output.writeBool(15, prefetching_);
       }
+      if (((bitField0_ & 0x00002000) == 0x00002000)) {
+        output.writeBool(16, reversed_);
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -10999,6 +11296,10 @@ public final class ClientProtos {
         size += com.google.protobuf.CodedOutputStream
           .computeBoolSize(15, prefetching_);
       }
+      if (((bitField0_ & 0x00002000) == 0x00002000)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(16, reversed_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -11091,6 +11392,11 @@ public final class ClientProtos {
         result = result && (getPrefetching()
             == other.getPrefetching());
       }
+      result = result && (hasReversed() == other.hasReversed());
+      if (hasReversed()) {
+        result = result && (getReversed()
+            == other.getReversed());
+      }
       result = result &&
           getUnknownFields().equals(other.getUnknownFields());
       return result;
@@ -11160,6 +11466,10 @@ public final class ClientProtos {
         hash = (37 * hash) + PREFETCHING_FIELD_NUMBER;
         hash = (53 * hash) + hashBoolean(getPrefetching());
       }
+      if (hasReversed()) {
+        hash = (37 * hash) + REVERSED_FIELD_NUMBER;
+        hash = (53 * hash) + hashBoolean(getReversed());
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       return hash;
     }
@@ -11326,6 +11636,8 @@ public final class ClientProtos {
         bitField0_ = (bitField0_ & ~0x00002000);
         prefetching_ = false;
         bitField0_ = (bitField0_ & ~0x00004000);
+        reversed_ = false;
+        bitField0_ = (bitField0_ & ~0x00008000);
         return this;
       }
       
@@ -11442,6 +11754,10 @@ public final class ClientProtos {
           to_bitField0_ |= 0x00001000;
         }
         result.prefetching_ = prefetching_;
+        if (((from_bitField0_ & 0x00008000) == 0x00008000)) {
+          to_bitField0_ |= 0x00002000;
+        }
+        result.reversed_ = reversed_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -11549,6 +11865,9 @@ public final class ClientProtos {
         if (other.hasPrefetching()) {
           setPrefetching(other.getPrefetching());
         }
+        if (other.hasReversed()) {
+          setReversed(other.getReversed());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -11683,6 +12002,11 @@ public final class ClientProtos {
               prefetching_ = input.readBool();
               break;
             }
+            case 128: {
+              bitField0_ |= 0x00008000;
+              reversed_ = input.readBool();
+              break;
+            }
           }
         }
       }
@@ -12478,6 +12802,27 @@ public final class ClientProtos {
         return this;
       }
       
+      // optional bool reversed = 16 [default = false];
+      private boolean reversed_ ;
+      public boolean hasReversed() {
+        return ((bitField0_ & 0x00008000) == 0x00008000);
+      }
+      public boolean getReversed() {
+        return reversed_;
+      }
+      public Builder setReversed(boolean value) {
+        bitField0_ |= 0x00008000;
+        reversed_ = value;
+        onChanged();
+        return this;
+      }
+      public Builder clearReversed() {
+        bitField0_ = (bitField0_ & ~0x00008000);
+        reversed_ = false;
+        onChanged();
+        return this;
+      }
+      
       // @@protoc_insertion_point(builder_scope:Scan)
     }
     
@@ -13405,6 +13750,16 @@ public final class ClientProtos {
     // optional uint32 ttl = 4;
     boolean hasTtl();
     int getTtl();
+    
+    // repeated .NameInt64Pair scanMetrics = 5;
+    java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> 
+        getScanMetricsList();
+    org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair getScanMetrics(int index);
+    int getScanMetricsCount();
+    java.util.List<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+        getScanMetricsOrBuilderList();
+    org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder getScanMetricsOrBuilder(
+        int index);
   }
   public static final class ScanResponse extends
       com.google.protobuf.GeneratedMessage
@@ -13478,11 +13833,33 @@ public final class ClientProtos {
       return ttl_;
     }
     
+    // repeated .NameInt64Pair scanMetrics = 5;
+    public static final int SCANMETRICS_FIELD_NUMBER = 5;
+    private java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> scanMetrics_;
+    public java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> getScanMetricsList() {
+      return scanMetrics_;
+    }
+    public java.util.List<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+        getScanMetricsOrBuilderList() {
+      return scanMetrics_;
+    }
+    public int getScanMetricsCount() {
+      return scanMetrics_.size();
+    }
+    public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair getScanMetrics(int index) {
+      return scanMetrics_.get(index);
+    }
+    public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder getScanMetricsOrBuilder(
+        int index) {
+      return scanMetrics_.get(index);
+    }
+    
     private void initFields() {
       resultCellMeta_ = org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ResultCellMeta.getDefaultInstance();
       scannerId_ = 0L;
       moreResults_ = false;
       ttl_ = 0;
+      scanMetrics_ = java.util.Collections.emptyList();
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -13508,6 +13885,9 @@ public final class ClientProtos {
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         output.writeUInt32(4, ttl_);
       }
+      for (int i = 0; i < scanMetrics_.size(); i++) {
+        output.writeMessage(5, scanMetrics_.get(i));
+      }
       getUnknownFields().writeTo(output);
     }
     
@@ -13533,6 +13913,10 @@ public final class ClientProtos {
         size += com.google.protobuf.CodedOutputStream
           .computeUInt32Size(4, ttl_);
       }
+      for (int i = 0; i < scanMetrics_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(5, scanMetrics_.get(i));
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -13576,6 +13960,8 @@ public final class ClientProtos {
         result = result && (getTtl()
             == other.getTtl());
       }
+      result = result && getScanMetricsList()
+          .equals(other.getScanMetricsList());
       result = result &&
           getUnknownFields().equals(other.getUnknownFields());
       return result;
@@ -13601,6 +13987,10 @@ public final class ClientProtos {
         hash = (37 * hash) + TTL_FIELD_NUMBER;
         hash = (53 * hash) + getTtl();
       }
+      if (getScanMetricsCount() > 0) {
+        hash = (37 * hash) + SCANMETRICS_FIELD_NUMBER;
+        hash = (53 * hash) + getScanMetricsList().hashCode();
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       return hash;
     }
@@ -13710,6 +14100,7 @@ public final class ClientProtos {
       private void maybeForceBuilderInitialization() {
         if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
           getResultCellMetaFieldBuilder();
+          getScanMetricsFieldBuilder();
         }
       }
       private static Builder create() {
@@ -13730,6 +14121,12 @@ public final class ClientProtos {
         bitField0_ = (bitField0_ & ~0x00000004);
         ttl_ = 0;
         bitField0_ = (bitField0_ & ~0x00000008);
+        if (scanMetricsBuilder_ == null) {
+          scanMetrics_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000010);
+        } else {
+          scanMetricsBuilder_.clear();
+        }
         return this;
       }
       
@@ -13788,6 +14185,15 @@ public final class ClientProtos {
           to_bitField0_ |= 0x00000008;
         }
         result.ttl_ = ttl_;
+        if (scanMetricsBuilder_ == null) {
+          if (((bitField0_ & 0x00000010) == 0x00000010)) {
+            scanMetrics_ = java.util.Collections.unmodifiableList(scanMetrics_);
+            bitField0_ = (bitField0_ & ~0x00000010);
+          }
+          result.scanMetrics_ = scanMetrics_;
+        } else {
+          result.scanMetrics_ = scanMetricsBuilder_.build();
+        }
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -13816,6 +14222,32 @@ public final class ClientProtos {
         if (other.hasTtl()) {
           setTtl(other.getTtl());
         }
+        if (scanMetricsBuilder_ == null) {
+          if (!other.scanMetrics_.isEmpty()) {
+            if (scanMetrics_.isEmpty()) {
+              scanMetrics_ = other.scanMetrics_;
+              bitField0_ = (bitField0_ & ~0x00000010);
+            } else {
+              ensureScanMetricsIsMutable();
+              scanMetrics_.addAll(other.scanMetrics_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.scanMetrics_.isEmpty()) {
+            if (scanMetricsBuilder_.isEmpty()) {
+              scanMetricsBuilder_.dispose();
+              scanMetricsBuilder_ = null;
+              scanMetrics_ = other.scanMetrics_;
+              bitField0_ = (bitField0_ & ~0x00000010);
+              scanMetricsBuilder_ = 
+                com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders ?
+                   getScanMetricsFieldBuilder() : null;
+            } else {
+              scanMetricsBuilder_.addAllMessages(other.scanMetrics_);
+            }
+          }
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -13871,6 +14303,12 @@ public final class ClientProtos {
               ttl_ = input.readUInt32();
               break;
             }
+            case 42: {
+              org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder subBuilder = org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.newBuilder();
+              input.readMessage(subBuilder, extensionRegistry);
+              addScanMetrics(subBuilder.buildPartial());
+              break;
+            }
           }
         }
       }
@@ -14030,6 +14468,192 @@ public final class ClientProtos {
         return this;
       }
       
+      // repeated .NameInt64Pair scanMetrics = 5;
+      private java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> scanMetrics_ =
+        java.util.Collections.emptyList();
+      private void ensureScanMetricsIsMutable() {
+        if (!((bitField0_ & 0x00000010) == 0x00000010)) {
+          scanMetrics_ = new java.util.ArrayList<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair>(scanMetrics_);
+          bitField0_ |= 0x00000010;
+         }
+      }
+      
+      private com.google.protobuf.RepeatedFieldBuilder<
+          org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> scanMetricsBuilder_;
+      
+      public java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> getScanMetricsList() {
+        if (scanMetricsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(scanMetrics_);
+        } else {
+          return scanMetricsBuilder_.getMessageList();
+        }
+      }
+      public int getScanMetricsCount() {
+        if (scanMetricsBuilder_ == null) {
+          return scanMetrics_.size();
+        } else {
+          return scanMetricsBuilder_.getCount();
+        }
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair getScanMetrics(int index) {
+        if (scanMetricsBuilder_ == null) {
+          return scanMetrics_.get(index);
+        } else {
+          return scanMetricsBuilder_.getMessage(index);
+        }
+      }
+      public Builder setScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair value) {
+        if (scanMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureScanMetricsIsMutable();
+          scanMetrics_.set(index, value);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      public Builder setScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder builderForValue) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          scanMetricsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addScanMetrics(org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair value) {
+        if (scanMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(value);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      public Builder addScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair value) {
+        if (scanMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(index, value);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      public Builder addScanMetrics(
+          org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder builderForValue) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(builderForValue.build());
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addScanMetrics(
+          int index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder builderForValue) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      public Builder addAllScanMetrics(
+          java.lang.Iterable<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair> values) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          super.addAll(values, scanMetrics_);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      public Builder clearScanMetrics() {
+        if (scanMetricsBuilder_ == null) {
+          scanMetrics_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000010);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.clear();
+        }
+        return this;
+      }
+      public Builder removeScanMetrics(int index) {
+        if (scanMetricsBuilder_ == null) {
+          ensureScanMetricsIsMutable();
+          scanMetrics_.remove(index);
+          onChanged();
+        } else {
+          scanMetricsBuilder_.remove(index);
+        }
+        return this;
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder getScanMetricsBuilder(
+          int index) {
+        return getScanMetricsFieldBuilder().getBuilder(index);
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder getScanMetricsOrBuilder(
+          int index) {
+        if (scanMetricsBuilder_ == null) {
+          return scanMetrics_.get(index);  } else {
+          return scanMetricsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      public java.util.List<? extends org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+           getScanMetricsOrBuilderList() {
+        if (scanMetricsBuilder_ != null) {
+          return scanMetricsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(scanMetrics_);
+        }
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder addScanMetricsBuilder() {
+        return getScanMetricsFieldBuilder().addBuilder(
+            org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.getDefaultInstance());
+      }
+      public org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder addScanMetricsBuilder(
+          int index) {
+        return getScanMetricsFieldBuilder().addBuilder(
+            index, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.getDefaultInstance());
+      }
+      public java.util.List<org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder> 
+           getScanMetricsBuilderList() {
+        return getScanMetricsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilder<
+          org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder> 
+          getScanMetricsFieldBuilder() {
+        if (scanMetricsBuilder_ == null) {
+          scanMetricsBuilder_ = new com.google.protobuf.RepeatedFieldBuilder<
+              org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair.Builder, org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64PairOrBuilder>(
+                  scanMetrics_,
+                  ((bitField0_ & 0x00000010) == 0x00000010),
+                  getParentForChildren(),
+                  isClean());
+          scanMetrics_ = null;
+        }
+        return scanMetricsBuilder_;
+      }
+      
       // @@protoc_insertion_point(builder_scope:ScanResponse)
     }
     
@@ -21569,84 +22193,87 @@ public final class ClientProtos {
       "tenceOnly\030\004 \001(\010\"w\n\017MultiGetRequest\022 \n\006re" +
       "gion\030\001 \002(\0132\020.RegionSpecifier\022\021\n\003get\030\002 \003(" +
       "\0132\004.Get\022\030\n\020closestRowBefore\030\003 \001(\010\022\025\n\rexi" +
-      "stenceOnly\030\004 \001(\010\"6\n\013GetResponse\022\027\n\006resul" +
-      "t\030\001 \001(\0132\007.Result\022\016\n\006exists\030\002 \001(\010\";\n\020Mult" +
-      "iGetResponse\022\027\n\006result\030\001 \003(\0132\007.Result\022\016\n" +
-      "\006exists\030\002 \003(\010\"\177\n\tCondition\022\013\n\003row\030\001 \002(\014\022" +
-      "\016\n\006family\030\002 \002(\014\022\021\n\tqualifier\030\003 \002(\014\022!\n\013co",
-      "mpareType\030\004 \002(\0162\014.CompareType\022\037\n\ncompara" +
-      "tor\030\005 \002(\0132\013.Comparator\"\365\005\n\rMutationProto" +
-      "\022\013\n\003row\030\001 \001(\014\022/\n\nmutateType\030\002 \001(\0162\033.Muta" +
-      "tionProto.MutationType\022/\n\013columnValue\030\003 " +
-      "\003(\0132\032.MutationProto.ColumnValue\022\021\n\ttimes" +
-      "tamp\030\004 \001(\004\022!\n\tattribute\030\005 \003(\0132\016.NameByte" +
-      "sPair\022:\n\ndurability\030\006 \001(\0162\031.MutationProt" +
-      "o.Durability:\013USE_DEFAULT\022\035\n\ttimeRange\030\007" +
-      " \001(\0132\n.TimeRange\022\033\n\023associatedCellCount\030" +
-      "\010 \001(\005\032\326\001\n\013ColumnValue\022\016\n\006family\030\001 \002(\014\022A\n",
-      "\016qualifierValue\030\002 \003(\0132).MutationProto.Co" +
-      "lumnValue.QualifierValue\032t\n\016QualifierVal" +
-      "ue\022\021\n\tqualifier\030\001 \001(\014\022\r\n\005value\030\002 \001(\014\022\021\n\t" +
-      "timestamp\030\003 \001(\004\022-\n\ndeleteType\030\004 \001(\0162\031.Mu" +
-      "tationProto.DeleteType\"W\n\nDurability\022\017\n\013" +
-      "USE_DEFAULT\020\000\022\014\n\010SKIP_WAL\020\001\022\r\n\tASYNC_WAL" +
-      "\020\002\022\014\n\010SYNC_WAL\020\003\022\r\n\tFSYNC_WAL\020\004\">\n\014Mutat" +
-      "ionType\022\n\n\006APPEND\020\000\022\r\n\tINCREMENT\020\001\022\007\n\003PU" +
-      "T\020\002\022\n\n\006DELETE\020\003\"U\n\nDeleteType\022\026\n\022DELETE_" +
-      "ONE_VERSION\020\000\022\034\n\030DELETE_MULTIPLE_VERSION",
-      "S\020\001\022\021\n\rDELETE_FAMILY\020\002\"r\n\rMutateRequest\022" +
-      " \n\006region\030\001 \002(\0132\020.RegionSpecifier\022 \n\010mut" +
-      "ation\030\002 \002(\0132\016.MutationProto\022\035\n\tcondition" +
-      "\030\003 \001(\0132\n.Condition\"<\n\016MutateResponse\022\027\n\006" +
-      "result\030\001 \001(\0132\007.Result\022\021\n\tprocessed\030\002 \001(\010" +
-      "\"\362\002\n\004Scan\022\027\n\006column\030\001 \003(\0132\007.Column\022!\n\tat" +
-      "tribute\030\002 \003(\0132\016.NameBytesPair\022\020\n\010startRo" +
-      "w\030\003 \001(\014\022\017\n\007stopRow\030\004 \001(\014\022\027\n\006filter\030\005 \001(\013" +
-      "2\007.Filter\022\035\n\ttimeRange\030\006 \001(\0132\n.TimeRange" +
-      "\022\026\n\013maxVersions\030\007 \001(\r:\0011\022\031\n\013cacheBlocks\030",
-      "\010 \001(\010:\004true\022\021\n\tbatchSize\030\t \001(\r\022\025\n\rmaxRes" +
-      "ultSize\030\n \001(\004\022\022\n\nstoreLimit\030\013 \001(\r\022\023\n\013sto" +
-      "reOffset\030\014 \001(\r\022\"\n\032loadColumnFamiliesOnDe" +
-      "mand\030\r \001(\010\022\024\n\014cachingCount\030\016 \001(\r\022\023\n\013pref" +
-      "etching\030\017 \001(\010\"\230\001\n\013ScanRequest\022 \n\006region\030" +
-      "\001 \001(\0132\020.RegionSpecifier\022\023\n\004scan\030\002 \001(\0132\005." +
-      "Scan\022\021\n\tscannerId\030\003 \001(\004\022\024\n\014numberOfRows\030" +
-      "\004 \001(\r\022\024\n\014closeScanner\030\005 \001(\010\022\023\n\013nextCallS" +
-      "eq\030\006 \001(\004\"l\n\014ScanResponse\022\'\n\016resultCellMe" +
-      "ta\030\001 \001(\0132\017.ResultCellMeta\022\021\n\tscannerId\030\002",
-      " \001(\004\022\023\n\013moreResults\030\003 \001(\010\022\013\n\003ttl\030\004 \001(\r\"%" +
-      "\n\016ResultCellMeta\022\023\n\013cellsLength\030\001 \003(\r\"\260\001" +
-      "\n\024BulkLoadHFileRequest\022 \n\006region\030\001 \002(\0132\020" +
-      ".RegionSpecifier\0224\n\nfamilyPath\030\002 \003(\0132 .B" +
-      "ulkLoadHFileRequest.FamilyPath\022\024\n\014assign" +
-      "SeqNum\030\003 \001(\010\032*\n\nFamilyPath\022\016\n\006family\030\001 \002" +
-      "(\014\022\014\n\004path\030\002 \002(\t\"\'\n\025BulkLoadHFileRespons" +
-      "e\022\016\n\006loaded\030\001 \002(\010\"_\n\026CoprocessorServiceC" +
-      "all\022\013\n\003row\030\001 \002(\014\022\023\n\013serviceName\030\002 \002(\t\022\022\n" +
-      "\nmethodName\030\003 \002(\t\022\017\n\007request\030\004 \002(\014\"d\n\031Co",
-      "processorServiceRequest\022 \n\006region\030\001 \002(\0132" +
-      "\020.RegionSpecifier\022%\n\004call\030\002 \002(\0132\027.Coproc" +
-      "essorServiceCall\"]\n\032CoprocessorServiceRe" +
-      "sponse\022 \n\006region\030\001 \002(\0132\020.RegionSpecifier" +
-      "\022\035\n\005value\030\002 \002(\0132\016.NameBytesPair\"B\n\013Multi" +
-      "Action\022 \n\010mutation\030\001 \001(\0132\016.MutationProto" +
-      "\022\021\n\003get\030\002 \001(\0132\004.Get\"I\n\014ActionResult\022\026\n\005v" +
-      "alue\030\001 \001(\0132\007.Result\022!\n\texception\030\002 \001(\0132\016" +
-      ".NameBytesPair\"^\n\014MultiRequest\022 \n\006region" +
-      "\030\001 \002(\0132\020.RegionSpecifier\022\034\n\006action\030\002 \003(\013",
-      "2\014.MultiAction\022\016\n\006atomic\030\003 \001(\010\".\n\rMultiR" +
-      "esponse\022\035\n\006result\030\001 \003(\0132\r.ActionResult2\342" +
-      "\002\n\rClientService\022 \n\003get\022\013.GetRequest\032\014.G" +
-      "etResponse\022/\n\010multiGet\022\020.MultiGetRequest" +
-      "\032\021.MultiGetResponse\022)\n\006mutate\022\016.MutateRe" +
-      "quest\032\017.MutateResponse\022#\n\004scan\022\014.ScanReq" +
-      "uest\032\r.ScanResponse\022>\n\rbulkLoadHFile\022\025.B" +
-      "ulkLoadHFileRequest\032\026.BulkLoadHFileRespo" +
-      "nse\022F\n\013execService\022\032.CoprocessorServiceR" +
-      "equest\032\033.CoprocessorServiceResponse\022&\n\005m",
-      "ulti\022\r.MultiRequest\032\016.MultiResponseBB\n*o" +
-      "rg.apache.hadoop.hbase.protobuf.generate" +
-      "dB\014ClientProtosH\001\210\001\001\240\001\001"
+      "stenceOnly\030\004 \001(\010\"[\n\013GetResponse\022\027\n\006resul" +
+      "t\030\001 \001(\0132\007.Result\022\016\n\006exists\030\002 \001(\010\022#\n\013scan" +
+      "Metrics\030\003 \003(\0132\016.NameInt64Pair\";\n\020MultiGe" +
+      "tResponse\022\027\n\006result\030\001 \003(\0132\007.Result\022\016\n\006ex" +
+      "ists\030\002 \003(\010\"\177\n\tCondition\022\013\n\003row\030\001 \002(\014\022\016\n\006",
+      "family\030\002 \002(\014\022\021\n\tqualifier\030\003 \002(\014\022!\n\013compa" +
+      "reType\030\004 \002(\0162\014.CompareType\022\037\n\ncomparator" +
+      "\030\005 \002(\0132\013.Comparator\"\365\005\n\rMutationProto\022\013\n" +
+      "\003row\030\001 \001(\014\022/\n\nmutateType\030\002 \001(\0162\033.Mutatio" +
+      "nProto.MutationType\022/\n\013columnValue\030\003 \003(\013" +
+      "2\032.MutationProto.ColumnValue\022\021\n\ttimestam" +
+      "p\030\004 \001(\004\022!\n\tattribute\030\005 \003(\0132\016.NameBytesPa" +
+      "ir\022:\n\ndurability\030\006 \001(\0162\031.MutationProto.D" +
+      "urability:\013USE_DEFAULT\022\035\n\ttimeRange\030\007 \001(" +
+      "\0132\n.TimeRange\022\033\n\023associatedCellCount\030\010 \001",
+      "(\005\032\326\001\n\013ColumnValue\022\016\n\006family\030\001 \002(\014\022A\n\016qu" +
+      "alifierValue\030\002 \003(\0132).MutationProto.Colum" +
+      "nValue.QualifierValue\032t\n\016QualifierValue\022" +
+      "\021\n\tqualifier\030\001 \001(\014\022\r\n\005value\030\002 \001(\014\022\021\n\ttim" +
+      "estamp\030\003 \001(\004\022-\n\ndeleteType\030\004 \001(\0162\031.Mutat" +
+      "ionProto.DeleteType\"W\n\nDurability\022\017\n\013USE" +
+      "_DEFAULT\020\000\022\014\n\010SKIP_WAL\020\001\022\r\n\tASYNC_WAL\020\002\022" +
+      "\014\n\010SYNC_WAL\020\003\022\r\n\tFSYNC_WAL\020\004\">\n\014Mutation" +
+      "Type\022\n\n\006APPEND\020\000\022\r\n\tINCREMENT\020\001\022\007\n\003PUT\020\002" +
+      "\022\n\n\006DELETE\020\003\"U\n\nDeleteType\022\026\n\022DELETE_ONE",
+      "_VERSION\020\000\022\034\n\030DELETE_MULTIPLE_VERSIONS\020\001" +
+      "\022\021\n\rDELETE_FAMILY\020\002\"r\n\rMutateRequest\022 \n\006" +
+      "region\030\001 \002(\0132\020.RegionSpecifier\022 \n\010mutati" +
+      "on\030\002 \002(\0132\016.MutationProto\022\035\n\tcondition\030\003 " +
+      "\001(\0132\n.Condition\"<\n\016MutateResponse\022\027\n\006res" +
+      "ult\030\001 \001(\0132\007.Result\022\021\n\tprocessed\030\002 \001(\010\"\213\003" +
+      "\n\004Scan\022\027\n\006column\030\001 \003(\0132\007.Column\022!\n\tattri" +
+      "bute\030\002 \003(\0132\016.NameBytesPair\022\020\n\010startRow\030\003" +
+      " \001(\014\022\017\n\007stopRow\030\004 \001(\014\022\027\n\006filter\030\005 \001(\0132\007." +
+      "Filter\022\035\n\ttimeRange\030\006 \001(\0132\n.TimeRange\022\026\n",
+      "\013maxVersions\030\007 \001(\r:\0011\022\031\n\013cacheBlocks\030\010 \001" +
+      "(\010:\004true\022\021\n\tbatchSize\030\t \001(\r\022\025\n\rmaxResult" +
+      "Size\030\n \001(\004\022\022\n\nstoreLimit\030\013 \001(\r\022\023\n\013storeO" +
+      "ffset\030\014 \001(\r\022\"\n\032loadColumnFamiliesOnDeman" +
+      "d\030\r \001(\010\022\024\n\014cachingCount\030\016 \001(\r\022\023\n\013prefetc" +
+      "hing\030\017 \001(\010\022\027\n\010reversed\030\020 \001(\010:\005false\"\230\001\n\013" +
+      "ScanRequest\022 \n\006region\030\001 \001(\0132\020.RegionSpec" +
+      "ifier\022\023\n\004scan\030\002 \001(\0132\005.Scan\022\021\n\tscannerId\030" +
+      "\003 \001(\004\022\024\n\014numberOfRows\030\004 \001(\r\022\024\n\014closeScan" +
+      "ner\030\005 \001(\010\022\023\n\013nextCallSeq\030\006 \001(\004\"\221\001\n\014ScanR",
+      "esponse\022\'\n\016resultCellMeta\030\001 \001(\0132\017.Result" +
+      "CellMeta\022\021\n\tscannerId\030\002 \001(\004\022\023\n\013moreResul" +
+      "ts\030\003 \001(\010\022\013\n\003ttl\030\004 \001(\r\022#\n\013scanMetrics\030\005 \003" +
+      "(\0132\016.NameInt64Pair\"%\n\016ResultCellMeta\022\023\n\013" +
+      "cellsLength\030\001 \003(\r\"\260\001\n\024BulkLoadHFileReque" +
+      "st\022 \n\006region\030\001 \002(\0132\020.RegionSpecifier\0224\n\n" +
+      "familyPath\030\002 \003(\0132 .BulkLoadHFileRequest." +
+      "FamilyPath\022\024\n\014assignSeqNum\030\003 \001(\010\032*\n\nFami" +
+      "lyPath\022\016\n\006family\030\001 \002(\014\022\014\n\004path\030\002 \002(\t\"\'\n\025" +
+      "BulkLoadHFileResponse\022\016\n\006loaded\030\001 \002(\010\"_\n",
+      "\026CoprocessorServiceCall\022\013\n\003row\030\001 \002(\014\022\023\n\013" +
+      "serviceName\030\002 \002(\t\022\022\n\nmethodName\030\003 \002(\t\022\017\n" +
+      "\007request\030\004 \002(\014\"d\n\031CoprocessorServiceRequ" +
+      "est\022 \n\006region\030\001 \002(\0132\020.RegionSpecifier\022%\n" +
+      "\004call\030\002 \002(\0132\027.CoprocessorServiceCall\"]\n\032" +
+      "CoprocessorServiceResponse\022 \n\006region\030\001 \002" +
+      "(\0132\020.RegionSpecifier\022\035\n\005value\030\002 \002(\0132\016.Na" +
+      "meBytesPair\"B\n\013MultiAction\022 \n\010mutation\030\001" +
+      " \001(\0132\016.MutationProto\022\021\n\003get\030\002 \001(\0132\004.Get\"" +
+      "I\n\014ActionResult\022\026\n\005value\030\001 \001(\0132\007.Result\022",
+      "!\n\texception\030\002 \001(\0132\016.NameBytesPair\"^\n\014Mu" +
+      "ltiRequest\022 \n\006region\030\001 \002(\0132\020.RegionSpeci" +
+      "fier\022\034\n\006action\030\002 \003(\0132\014.MultiAction\022\016\n\006at" +
+      "omic\030\003 \001(\010\".\n\rMultiResponse\022\035\n\006result\030\001 " +
+      "\003(\0132\r.ActionResult2\342\002\n\rClientService\022 \n\003" +
+      "get\022\013.GetRequest\032\014.GetResponse\022/\n\010multiG" +
+      "et\022\020.MultiGetRequest\032\021.MultiGetResponse\022" +
+      ")\n\006mutate\022\016.MutateRequest\032\017.MutateRespon" +
+      "se\022#\n\004scan\022\014.ScanRequest\032\r.ScanResponse\022" +
+      ">\n\rbulkLoadHFile\022\025.BulkLoadHFileRequest\032",
+      "\026.BulkLoadHFileResponse\022F\n\013execService\022\032" +
+      ".CoprocessorServiceRequest\032\033.Coprocessor" +
+      "ServiceResponse\022&\n\005multi\022\r.MultiRequest\032" +
+      "\016.MultiResponseBB\n*org.apache.hadoop.hba" +
+      "se.protobuf.generatedB\014ClientProtosH\001\210\001\001" +
+      "\240\001\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -21698,7 +22325,7 @@ public final class ClientProtos {
           internal_static_GetResponse_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_GetResponse_descriptor,
-              new java.lang.String[] { "Result", "Exists", },
+              new java.lang.String[] { "Result", "Exists", "ScanMetrics", },
               org.apache.hadoop.hbase.protobuf.generated.ClientProtos.GetResponse.class,
               org.apache.hadoop.hbase.protobuf.generated.ClientProtos.GetResponse.Builder.class);
           internal_static_MultiGetResponse_descriptor =
@@ -21762,7 +22389,7 @@ public final class ClientProtos {
           internal_static_Scan_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_Scan_descriptor,
-              new java.lang.String[] { "Column", "Attribute", "StartRow", "StopRow", "Filter", "TimeRange", "MaxVersions", "CacheBlocks", "BatchSize", "MaxResultSize", "StoreLimit", "StoreOffset", "LoadColumnFamiliesOnDemand", "CachingCount", "Prefetching", },
+              new java.lang.String[] { "Column", "Attribute", "StartRow", "StopRow", "Filter", "TimeRange", "MaxVersions", "CacheBlocks", "BatchSize", "MaxResultSize", "StoreLimit", "StoreOffset", "LoadColumnFamiliesOnDemand", "CachingCount", "Prefetching", "Reversed", },
               org.apache.hadoop.hbase.protobuf.generated.ClientProtos.Scan.class,
               org.apache.hadoop.hbase.protobuf.generated.ClientProtos.Scan.Builder.class);
           internal_static_ScanRequest_descriptor =
@@ -21778,7 +22405,7 @@ public final class ClientProtos {
           internal_static_ScanResponse_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_ScanResponse_descriptor,
-              new java.lang.String[] { "ResultCellMeta", "ScannerId", "MoreResults", "Ttl", },
+              new java.lang.String[] { "ResultCellMeta", "ScannerId", "MoreResults", "Ttl", "ScanMetrics", },
               org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ScanResponse.class,
               org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ScanResponse.Builder.class);
           internal_static_ResultCellMeta_descriptor =
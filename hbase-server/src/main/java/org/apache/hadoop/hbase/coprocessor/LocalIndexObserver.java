@@ -0,0 +1,566 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.coprocessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.IsolationLevel;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.exceptions.DoNotRetryIOException;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScanType;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.hbase.util.Threads;
+
+/**
+ * A region-local secondary index on the latest value of some columns, kept in a dedicated
+ * shadow column family of the same region (see {@link HStore#SHADOW_FAMILY_KEY}).
+ * <p>
+ * For every indexed column of a data row the index family holds an entry row made of the
+ * column's id, the value and the data row. Entries are updated
+ * in preBatchMutate: the index Puts and Deletes are added to the batch so that they go to
+ * the memstore and to the same WALEdit as the data mutation, under the same row locks and
+ * MVCC transaction. Only Puts and Deletes, including those of checkAndPut and checkAndDelete,
+ * maintain the index; Increments and Appends of indexed columns are not indexed.
+ * <p>
+ * A scan carrying the {@link #LOOKUP_COLUMN_ATTRIBUTE} and {@link #LOOKUP_VALUE_ATTRIBUTE}
+ * attributes reads the index entries for that value first and then fetches only the
+ * matching data rows, restricted to the scan's families, columns, time range, versions and
+ * filter. Each match is checked against the data before it is returned, so an entry left
+ * behind by a concurrent update never produces a wrong row.
+ * <p>
+ * The rows of a shadow family do not share the keyspace of the data rows: they are left out
+ * of the operations naming no family and of the choice of the split point. Both daughters of
+ * a split inherit the whole index of the parent, and a merged region the union of the indexes
+ * of the merged regions, so the index is usable as soon as the new regions open. The entries
+ * of data rows out of the range of the region are skipped by lookups and dropped by the
+ * compactions of the index family. A region that opens with an index built for another set
+ * of columns drops its entries and rebuilds them in the background; until that is done index
+ * lookups fall back to scanning the indexed column.
+ * <p>
+ * Configuration, usually passed as coprocessor arguments in the table descriptor:
+ * <ul>
+ * <li>{@link #INDEXED_COLUMNS_KEY}: the family:qualifier columns to index</li>
+ * <li>{@link #INDEX_FAMILY_KEY}: the family holding the entries, which must exist in the
+ * table as a shadow family; defaults to {@link #DEFAULT_INDEX_FAMILY}</li>
+ * </ul>
+ */
+@InterfaceAudience.Private
+public class LocalIndexObserver extends BaseRegionObserver {
+  private static final Log LOG = LogFactory.getLog(LocalIndexObserver.class);
+
+  /**
+   * The family:qualifier columns to index, separated by spaces or commas. Coprocessor
+   * arguments cannot hold commas: use spaces there.
+   */
+  public static final String INDEXED_COLUMNS_KEY = "hbase.local.index.columns";
+  /** Column family holding the index entries */
+  public static final String INDEX_FAMILY_KEY = "hbase.local.index.family";
+  public static final String DEFAULT_INDEX_FAMILY = "__idx";
+  /** Scan attribute naming the indexed column to look up, as family:qualifier */
+  public static final String LOOKUP_COLUMN_ATTRIBUTE = "_localIndex.column";
+  /** Scan attribute holding the value to look up */
+  public static final String LOOKUP_VALUE_ATTRIBUTE = "_localIndex.value";
+
+  private static final byte[] ENTRY_QUALIFIER = HConstants.EMPTY_BYTE_ARRAY;
+  /** Row of the index state: entry rows start with a column id, which is never negative */
+  static final byte[] STATE_ROW = new byte[] { (byte) 0xff };
+  private static final byte[] STATE_QUALIFIER = Bytes.toBytes("state");
+  private static final int REBUILD_BATCH_SIZE = 1000;
+
+  private HRegion region;
+  private byte[] indexFamily;
+  private List<IndexedColumn> columns = new ArrayList<IndexedColumn>();
+  private String columnsSpec;
+  private volatile boolean indexReady = false;
+  private volatile boolean stopped = false;
+  private final AtomicLong lastTimestamp = new AtomicLong();
+
+  /**
+   * A column this observer indexes.
+   */
+  static class IndexedColumn {
+    final byte[] family;
+    final byte[] qualifier;
+    final byte id;
+
+    IndexedColumn(byte[] family, byte[] qualifier, byte id) {
+      this.family = family;
+      this.qualifier = qualifier;
+      this.id = id;
+    }
+
+    boolean matches(KeyValue kv) {
+      return kv.matchingFamily(family) && kv.matchingQualifier(qualifier);
+    }
+
+    @Override
+    public String toString() {
+      return Bytes.toStringBinary(family) + ":" + Bytes.toStringBinary(qualifier);
+    }
+  }
+
+  @Override
+  public void start(CoprocessorEnvironment e) throws IOException {
+    if (!(e instanceof RegionCoprocessorEnvironment)) {
+      throw new DoNotRetryIOException(getClass().getSimpleName()
+          + " must be loaded as a table coprocessor");
+    }
+    this.region = ((RegionCoprocessorEnvironment) e).getRegion();
+    Configuration conf = e.getConfiguration();
+    this.indexFamily = Bytes.toBytes(conf.get(INDEX_FAMILY_KEY, DEFAULT_INDEX_FAMILY));
+    this.columnsSpec = conf.get(INDEXED_COLUMNS_KEY, "");
+    for (String spec : columnsSpec.trim().split("[\\s,]+")) {
+      if (spec.isEmpty()) {
+        continue;
+      }
+      int colon = spec.indexOf(':');
+      if (colon <= 0 || colon == spec.length() - 1) {
+        throw new DoNotRetryIOException("Bad indexed column '" + spec
+            + "', expected family:qualifier");
+      }
+      byte[] family = Bytes.toBytes(spec.substring(0, colon));
+      if (Bytes.equals(family, indexFamily)) {
+        throw new DoNotRetryIOException("Cannot index a column of the index family " + spec);
+      }
+      if (columns.size() > Byte.MAX_VALUE) {
+        throw new DoNotRetryIOException("Too many indexed columns");
+      }
+      columns.add(new IndexedColumn(family, Bytes.toBytes(spec.substring(colon + 1)),
+          (byte) columns.size()));
+    }
+    HColumnDescriptor family = region.getTableDesc().getFamily(indexFamily);
+    if (family == null || !HStore.isShadowFamily(family)) {
+      LOG.error("Table " + region.getTableDesc().getNameAsString() + " has no shadow family "
+          + Bytes.toString(indexFamily) + "; local indexing is disabled");
+      columns.clear();
+    }
+  }
+
+  @Override
+  public void postOpen(ObserverContext<RegionCoprocessorEnvironment> c) {
+    if (columns.isEmpty()) {
+      return;
+    }
+    try {
+      Get get = new Get(STATE_ROW);
+      get.addColumn(indexFamily, STATE_QUALIFIER);
+      byte[] state = region.get(get).getValue(indexFamily, STATE_QUALIFIER);
+      if (Bytes.equals(state, getStateValue())) {
+        indexReady = true;
+        return;
+      }
+    } catch (IOException ioe) {
+      LOG.warn("Could not read the index state of " + region, ioe);
+    }
+    // The index was built for another set of columns, or not at all. Rebuilding it writes
+    // to the region, which must wait until the region is online.
+    Thread rebuilder = new Thread() {
+      @Override
+      public void run() {
+        try {
+          rebuildIndex();
+        } catch (IOException ioe) {
+          if (!stopped) {
+            LOG.error("Failed rebuilding the local index of " + region, ioe);
+          }
+        }
+      }
+    };
+    Threads.setDaemonThreadRunning(rebuilder,
+        "LocalIndexRebuilder-" + region.getRegionInfo().getEncodedName());
+  }
+
+  @Override
+  public void preClose(ObserverContext<RegionCoprocessorEnvironment> c, boolean abortRequested)
+      throws IOException {
+    stopped = true;
+  }
+
+  @Override
+  public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c,
+      Scan scan, RegionScanner s) throws IOException {
+    if (columns.isEmpty()) {
+      return s;
+    }
+    byte[] lookupColumn = scan.getAttribute(LOOKUP_COLUMN_ATTRIBUTE);
+    if (lookupColumn == null) {
+      return s;
+    }
+    byte[] value = scan.getAttribute(LOOKUP_VALUE_ATTRIBUTE);
+    if (value == null) {
+      throw new DoNotRetryIOException("Index lookup without " + LOOKUP_VALUE_ATTRIBUTE);
+    }
+    IndexedColumn column = null;
+    for (IndexedColumn candidate : columns) {
+      if (Bytes.equals(lookupColumn, Bytes.add(candidate.family, new byte[] { ':' },
+          candidate.qualifier))) {
+        column = candidate;
+      }
+    }
+    if (column == null) {
+      throw new DoNotRetryIOException("Column " + Bytes.toStringBinary(lookupColumn)
+          + " is not indexed");
+    }
+    c.bypass();
+    return new LocalIndexScanner(region, scan, column, value,
+        indexReady ? indexFamily : null, indexReady ? getEntryPrefix(column, value) : null);
+  }
+
+  /**
+   * Drops the entries of the data rows out of the range of the region from the compactions of
+   * the index family: they are the part of an inherited index that describes another region.
+   */
+  @Override
+  public InternalScanner preCompact(ObserverContext<RegionCoprocessorEnvironment> c,
+      Store store, final InternalScanner scanner, ScanType scanType) throws IOException {
+    if (columns.isEmpty() || !Bytes.equals(store.getFamily().getName(), indexFamily)) {
+      return scanner;
+    }
+    return new InternalScanner() {
+      @Override
+      public boolean next(List<KeyValue> results) throws IOException {
+        return filter(results, scanner.next(results));
+      }
+
+      @Override
+      public boolean next(List<KeyValue> results, int limit) throws IOException {
+        return filter(results, scanner.next(results, limit));
+      }
+
+      private boolean filter(List<KeyValue> results, boolean more) {
+        Iterator<KeyValue> i = results.iterator();
+        while (i.hasNext()) {
+          byte[] dataRow = getDataRow(i.next().getRow());
+          if (dataRow != null && !HRegion.rowIsInRange(region.getRegionInfo(), dataRow)) {
+            i.remove();
+          }
+        }
+        return more;
+      }
+
+      @Override
+      public void close() throws IOException {
+        scanner.close();
+      }
+    };
+  }
+
+  @Override
+  public void preBatchMutate(ObserverContext<RegionCoprocessorEnvironment> c,
+      MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp) throws IOException {
+    if (columns.isEmpty()) {
+      return;
+    }
+    // versions of the indexed columns as this batch leaves them, by row and column id
+    Map<byte[], NavigableMap<Long, byte[]>[]> pending =
+        new TreeMap<byte[], NavigableMap<Long, byte[]>[]>(Bytes.BYTES_COMPARATOR);
+    for (int i = 0; i < miniBatchOp.size(); i++) {
+      if (miniBatchOp.getOperationStatus(i).getOperationStatusCode()
+          != OperationStatus.NOT_RUN.getOperationStatusCode()) {
+        continue;
+      }
+      Mutation m = miniBatchOp.getOperation(i).getFirst();
+      List<Mutation> indexMutations = null;
+      for (IndexedColumn column : columns) {
+        List<? extends Cell> cells = m.getFamilyMap().get(column.family);
+        if (cells == null || !affects(cells, column)) {
+          continue;
+        }
+        NavigableMap<Long, byte[]>[] rowVersions = pending.get(m.getRow());
+        if (rowVersions == null) {
+          @SuppressWarnings("unchecked")
+          NavigableMap<Long, byte[]>[] newRowVersions = new NavigableMap[columns.size()];
+          rowVersions = newRowVersions;
+          pending.put(m.getRow(), rowVersions);
+        }
+        if (rowVersions[column.id] == null) {
+          rowVersions[column.id] = readVersions(m.getRow(), column);
+        }
+        NavigableMap<Long, byte[]> versions = rowVersions[column.id];
+        byte[] oldValue = versions.isEmpty() ? null : versions.lastEntry().getValue();
+        applyCells(versions, cells, column);
+        byte[] newValue = versions.isEmpty() ? null : versions.lastEntry().getValue();
+        if (oldValue == null ? newValue == null : Bytes.equals(oldValue, newValue)) {
+          continue;
+        }
+        if (indexMutations == null) {
+          indexMutations = new ArrayList<Mutation>();
+        }
+        if (oldValue != null) {
+          indexMutations.add(deleteEntry(getEntryRow(column, oldValue, m.getRow())));
+        }
+        if (newValue != null) {
+          indexMutations.add(putEntry(getEntryRow(column, newValue, m.getRow())));
+        }
+      }
+      if (indexMutations != null && !indexMutations.isEmpty()) {
+        miniBatchOp.addOperationsFromCP(i,
+            indexMutations.toArray(new Mutation[indexMutations.size()]));
+      }
+    }
+  }
+
+  /**
+   * @return true if one of the cells, taken from the family map of a Put or a Delete, puts
+   *         or deletes a version of the given column
+   */
+  private static boolean affects(List<? extends Cell> cells, IndexedColumn column) {
+    for (Cell cell : cells) {
+      KeyValue kv = KeyValueUtil.ensureKeyValue(cell);
+      if (kv.isDeleteFamily() || kv.matchingQualifier(column.qualifier)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Applies the cells of a mutation, whose timestamps the region has already set, to the
+   * versions of an indexed column.
+   */
+  private static void applyCells(NavigableMap<Long, byte[]> versions,
+      List<? extends Cell> cells, IndexedColumn column) {
+    for (Cell cell : cells) {
+      KeyValue kv = KeyValueUtil.ensureKeyValue(cell);
+      if (kv.isDeleteFamily()) {
+        versions.headMap(kv.getTimestamp(), true).clear();
+      } else if (!kv.matchingQualifier(column.qualifier)) {
+        continue;
+      } else if (kv.getType() == KeyValue.Type.Put.getCode()) {
+        versions.put(kv.getTimestamp(), kv.getValue());
+      } else if (kv.getType() == KeyValue.Type.DeleteColumn.getCode()) {
+        versions.headMap(kv.getTimestamp(), true).clear();
+      } else if (kv.getType() == KeyValue.Type.Delete.getCode()) {
+        versions.remove(kv.getTimestamp());
+      }
+    }
+  }
+
+  /**
+   * Reads every version of an indexed column, including the ones written by batches whose
+   * MVCC transaction has not completed yet: they hold no row lock any more, but their
+   * values are the ones this batch replaces.
+   */
+  private NavigableMap<Long, byte[]> readVersions(byte[] row, IndexedColumn column)
+      throws IOException {
+    Get get = new Get(row);
+    get.addColumn(column.family, column.qualifier);
+    get.setMaxVersions();
+    NavigableMap<Long, byte[]> versions = new TreeMap<Long, byte[]>();
+    for (KeyValue kv : readUncommitted(get)) {
+      versions.put(kv.getTimestamp(), kv.getValue());
+    }
+    return versions;
+  }
+
+  private List<KeyValue> readUncommitted(Get get) throws IOException {
+    Scan scan = new Scan(get);
+    scan.setIsolationLevel(IsolationLevel.READ_UNCOMMITTED);
+    List<KeyValue> results = new ArrayList<KeyValue>();
+    RegionScanner scanner = region.getScanner(scan);
+    try {
+      scanner.next(results);
+    } finally {
+      scanner.close();
+    }
+    return results;
+  }
+
+  /**
+   * @return a Delete removing every version of the entry written so far, including the ones
+   *         of operations earlier in the same batch, which are not in the memstore yet
+   */
+  private Delete deleteEntry(byte[] entryRow) {
+    Delete delete = new Delete(entryRow);
+    delete.deleteColumns(indexFamily, ENTRY_QUALIFIER, nextTimestamp());
+    return delete;
+  }
+
+  private Put putEntry(byte[] entryRow) {
+    Put put = new Put(entryRow);
+    put.add(indexFamily, ENTRY_QUALIFIER, nextTimestamp(), HConstants.EMPTY_BYTE_ARRAY);
+    return put;
+  }
+
+  /**
+   * Index entries are not versioned by the data they point at: the delete marker of a
+   * removed entry would otherwise hide the entry again when the data goes back to an older
+   * value. Instead every entry this region writes gets a timestamp later than all earlier
+   * ones, so a new entry is never hidden by the marker of an older one.
+   */
+  private long nextTimestamp() {
+    long now = EnvironmentEdgeManager.currentTimeMillis();
+    while (true) {
+      long last = lastTimestamp.get();
+      long next = Math.max(now, last + 1);
+      if (lastTimestamp.compareAndSet(last, next)) {
+        return next;
+      }
+    }
+  }
+
+  /**
+   * Drops every index row of the region, whatever columns it was built for, and indexes the
+   * latest value of the indexed columns of every data row.
+   */
+  void rebuildIndex() throws IOException {
+    long start = EnvironmentEdgeManager.currentTimeMillis();
+    long deleteTimestamp = nextTimestamp();
+    List<Mutation> batch = new ArrayList<Mutation>();
+
+    Scan scan = new Scan();
+    scan.addFamily(indexFamily);
+    RegionScanner scanner = region.getScanner(scan);
+    try {
+      List<KeyValue> kvs = new ArrayList<KeyValue>();
+      boolean more;
+      do {
+        kvs.clear();
+        more = scanner.next(kvs);
+        if (!kvs.isEmpty()) {
+          Delete delete = new Delete(kvs.get(0).getRow());
+          delete.deleteFamily(indexFamily, deleteTimestamp);
+          batch.add(delete);
+          batch = flushBatch(batch, false);
+        }
+      } while (more);
+    } finally {
+      scanner.close();
+    }
+
+    long entries = 0;
+    scan = new Scan();
+    for (IndexedColumn column : columns) {
+      scan.addColumn(column.family, column.qualifier);
+    }
+    scanner = region.getScanner(scan);
+    try {
+      List<KeyValue> kvs = new ArrayList<KeyValue>();
+      boolean more;
+      do {
+        kvs.clear();
+        more = scanner.next(kvs);
+        for (KeyValue kv : kvs) {
+          for (IndexedColumn column : columns) {
+            if (column.matches(kv)) {
+              batch.add(putEntry(getEntryRow(column, kv.getValue(), kv.getRow())));
+              entries++;
+            }
+          }
+        }
+        batch = flushBatch(batch, false);
+      } while (more);
+    } finally {
+      scanner.close();
+    }
+
+    Put state = new Put(STATE_ROW);
+    state.add(indexFamily, STATE_QUALIFIER, nextTimestamp(), getStateValue());
+    batch.add(state);
+    flushBatch(batch, true);
+    indexReady = true;
+    LOG.info("Rebuilt the local index of " + region + " with " + entries + " entries in "
+        + (EnvironmentEdgeManager.currentTimeMillis() - start) + "ms");
+  }
+
+  private List<Mutation> flushBatch(List<Mutation> batch, boolean force) throws IOException {
+    if (stopped) {
+      throw new IOException("Region " + region + " is closing");
+    }
+    if (batch.isEmpty() || (!force && batch.size() < REBUILD_BATCH_SIZE)) {
+      return batch;
+    }
+    @SuppressWarnings("unchecked")
+    Pair<Mutation, Integer>[] mutations = new Pair[batch.size()];
+    for (int i = 0; i < mutations.length; i++) {
+      mutations[i] = new Pair<Mutation, Integer>(batch.get(i), null);
+    }
+    OperationStatus[] statuses = region.batchMutate(mutations);
+    for (OperationStatus status : statuses) {
+      if (status.getOperationStatusCode()
+          != OperationStatus.SUCCESS.getOperationStatusCode()) {
+        throw new IOException("Failed writing index rows: " + status.getExceptionMsg());
+      }
+    }
+    return new ArrayList<Mutation>();
+  }
+
+  private byte[] getStateValue() {
+    return Bytes.toBytes(columnsSpec);
+  }
+
+  /**
+   * @return the start of the rows of the entries for the given value of the given column
+   */
+  static byte[] getEntryPrefix(IndexedColumn column, byte[] value) {
+    return Bytes.add(new byte[] { column.id }, Bytes.toBytes(value.length), value);
+  }
+
+  static byte[] getEntryRow(IndexedColumn column, byte[] value, byte[] dataRow) {
+    return Bytes.add(getEntryPrefix(column, value), dataRow);
+  }
+
+  /**
+   * @return the data row the given index row is an entry for, or null if it is no entry
+   */
+  static byte[] getDataRow(byte[] entryRow) {
+    if (entryRow.length <= 1 + Bytes.SIZEOF_INT || entryRow[0] < 0) {
+      return null;
+    }
+    int offset = 1 + Bytes.SIZEOF_INT + Bytes.toInt(entryRow, 1);
+    if (offset < 1 + Bytes.SIZEOF_INT || offset >= entryRow.length) {
+      return null;
+    }
+    return Arrays.copyOfRange(entryRow, offset, entryRow.length);
+  }
+
+  boolean isIndexReady() {
+    return indexReady;
+  }
+}
@@ -0,0 +1,269 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.coprocessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Returns the rows of a region whose latest value of an indexed column equals a given value,
+ * as a scan would, for {@link LocalIndexObserver}.
+ * <p>
+ * The candidate rows come from the index entries of the value when the region's index is
+ * ready, and from a scan of the indexed column otherwise. Entries of data rows out of the
+ * range of the region, inherited from the region it was split from, are skipped. Each
+ * candidate is then read with a
+ * Get carrying the families, columns, time range, versions and filter of the original scan.
+ * Every row is read at its own read point, so unlike a plain scan the rows returned are not
+ * a consistent snapshot of the region.
+ */
+@InterfaceAudience.Private
+class LocalIndexScanner implements RegionScanner {
+  private final HRegion region;
+  private final Scan scan;
+  private final LocalIndexObserver.IndexedColumn column;
+  private final byte[] value;
+  /** Start of the rows of the entries to read, or null when scanning the indexed column */
+  private final byte[] entryPrefix;
+  private final RegionScanner candidates;
+  private boolean filterDone = false;
+
+  /**
+   * @param indexFamily the family holding the index entries, or null if the index is not
+   *          ready and the indexed column must be scanned instead
+   * @param entryPrefix the start of the rows of the entries for the value looked up
+   */
+  LocalIndexScanner(HRegion region, Scan scan, LocalIndexObserver.IndexedColumn column,
+      byte[] value, byte[] indexFamily, byte[] entryPrefix) throws IOException {
+    this.region = region;
+    this.scan = scan;
+    this.column = column;
+    this.value = value;
+    this.entryPrefix = indexFamily == null ? null : entryPrefix;
+
+    Scan candidateScan = new Scan();
+    candidateScan.setReversed(scan.isReversed());
+    candidateScan.setCacheBlocks(scan.getCacheBlocks());
+    if (this.entryPrefix != null) {
+      candidateScan.addFamily(indexFamily);
+      candidateScan.setStartRow(getEntryStartRow());
+      candidateScan.setStopRow(getEntryStopRow());
+    } else {
+      candidateScan.addColumn(column.family, column.qualifier);
+      candidateScan.setStartRow(scan.getStartRow());
+      candidateScan.setStopRow(scan.getStopRow());
+      SingleColumnValueFilter filter = new SingleColumnValueFilter(column.family,
+          column.qualifier, CompareOp.EQUAL, value);
+      filter.setFilterIfMissing(true);
+      filter.setLatestVersionOnly(true);
+      candidateScan.setFilter(filter);
+    }
+    this.candidates = region.getScanner(candidateScan);
+  }
+
+  private byte[] getEntryStartRow() {
+    // the entries of the region's rows come first in the scan's direction
+    byte[] start = scan.getStartRow();
+    byte[] regionBound = scan.isReversed() ? region.getEndKey() : region.getStartKey();
+    if (regionBound.length > 0 && (start.length == 0
+        || (Bytes.compareTo(start, regionBound) < 0) != scan.isReversed())) {
+      start = regionBound;
+    }
+    if (start.length > 0) {
+      return Bytes.add(entryPrefix, start);
+    }
+    // a reversed scan starts after the last entry: no entry row is a prefix successor
+    return scan.isReversed() ? prefixSuccessor(entryPrefix) : entryPrefix;
+  }
+
+  private byte[] getEntryStopRow() {
+    if (scan.getStopRow().length > 0) {
+      return Bytes.add(entryPrefix, scan.getStopRow());
+    }
+    // the entry prefix is no entry row, and sorts before all of them
+    return scan.isReversed() ? entryPrefix : prefixSuccessor(entryPrefix);
+  }
+
+  /**
+   * @return the first row after all the rows starting with the given prefix, or the empty
+   *         row if there is none
+   */
+  private static byte[] prefixSuccessor(byte[] prefix) {
+    for (int i = prefix.length - 1; i >= 0; i--) {
+      if (prefix[i] != (byte) 0xff) {
+        byte[] successor = Arrays.copyOf(prefix, i + 1);
+        successor[i]++;
+        return successor;
+      }
+    }
+    return HConstants.EMPTY_END_ROW;
+  }
+
+  @Override
+  public HRegionInfo getRegionInfo() {
+    return region.getRegionInfo();
+  }
+
+  @Override
+  public synchronized boolean isFilterDone() throws IOException {
+    return filterDone;
+  }
+
+  /**
+   * Moves the lookup on to the matching rows from the given data row on, in the direction of
+   * the scan.
+   */
+  @Override
+  public synchronized boolean reseek(byte[] row) throws IOException {
+    if (row == null) {
+      throw new IllegalArgumentException("Row cannot be null.");
+    }
+    return candidates.reseek(entryPrefix == null ? row : Bytes.add(entryPrefix, row));
+  }
+
+  @Override
+  public long getMaxResultSize() {
+    return scan.getMaxResultSize();
+  }
+
+  @Override
+  public long getMvccReadPoint() {
+    return candidates.getMvccReadPoint();
+  }
+
+  @Override
+  public boolean next(List<KeyValue> results) throws IOException {
+    return nextRaw(results);
+  }
+
+  @Override
+  public boolean next(List<KeyValue> results, int limit) throws IOException {
+    return nextRaw(results);
+  }
+
+  @Override
+  public boolean nextRaw(List<KeyValue> result, int limit) throws IOException {
+    return nextRaw(result);
+  }
+
+  /**
+   * Adds the cells of the next matching row to the result. Rows are never split: the batch
+   * limit of the scan does not apply.
+   */
+  @Override
+  public synchronized boolean nextRaw(List<KeyValue> result) throws IOException {
+    List<KeyValue> kvs = new ArrayList<KeyValue>();
+    boolean more;
+    do {
+      kvs.clear();
+      // the Gets below moved the read point of this thread to their own
+      MultiVersionConsistencyControl.setThreadReadPoint(candidates.getMvccReadPoint());
+      more = candidates.nextRaw(kvs);
+      if (kvs.isEmpty()) {
+        continue;
+      }
+      byte[] row = kvs.get(0).getRow();
+      if (entryPrefix != null) {
+        if (!Bytes.startsWith(row, entryPrefix) || row.length == entryPrefix.length) {
+          continue;
+        }
+        row = Arrays.copyOfRange(row, entryPrefix.length, row.length);
+        if (!HRegion.rowIsInRange(region.getRegionInfo(), row)) {
+          if (isPastRegion(row)) {
+            break;
+          }
+          continue;
+        }
+        if (!hasValue(row)) {
+          continue;
+        }
+      }
+      Result r = region.get(toGet(row));
+      if (!r.isEmpty()) {
+        result.addAll(Arrays.asList(r.raw()));
+        return more;
+      }
+    } while (more);
+    filterDone = true;
+    return false;
+  }
+
+  /**
+   * @return true if the given row, out of the range of the region, comes after all its rows
+   *         in the direction of the scan
+   */
+  private boolean isPastRegion(byte[] row) {
+    if (scan.isReversed()) {
+      return Bytes.compareTo(row, region.getStartKey()) < 0;
+    }
+    return region.getEndKey().length > 0 && Bytes.compareTo(row, region.getEndKey()) >= 0;
+  }
+
+  /**
+   * @return true if the latest version of the indexed column of the given row holds the
+   *         value looked up: the entry of a row updated concurrently may be stale
+   */
+  private boolean hasValue(byte[] row) throws IOException {
+    Get get = new Get(row);
+    get.addColumn(column.family, column.qualifier);
+    return Bytes.equals(value, region.get(get).getValue(column.family, column.qualifier));
+  }
+
+  private Get toGet(byte[] row) throws IOException {
+    Get get = new Get(row);
+    for (Map.Entry<byte[], NavigableSet<byte[]>> entry : scan.getFamilyMap().entrySet()) {
+      if (entry.getValue() == null) {
+        get.addFamily(entry.getKey());
+      } else {
+        for (byte[] qualifier : entry.getValue()) {
+          get.addColumn(entry.getKey(), qualifier);
+        }
+      }
+    }
+    TimeRange tr = scan.getTimeRange();
+    get.setTimeRange(tr.getMin(), tr.getMax());
+    get.setMaxVersions(scan.getMaxVersions());
+    get.setFilter(scan.getFilter());
+    get.setCacheBlocks(scan.getCacheBlocks());
+    return get;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    candidates.close();
+  }
+}
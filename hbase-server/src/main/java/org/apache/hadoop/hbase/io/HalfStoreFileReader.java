@@ -27,8 +27,8 @@ import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
-import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
@@ -47,6 +47,12 @@ import org.apache.hadoop.hbase.util.Bytes;
  * is used reading while Reference is used writing.
  *
  * <p>This file is not splitable.  Calls to {@link #midkey()} return null.
+ *
+ * <p>When all of the file is on the side of the split key of this half, as is often
+ * the case for the smaller files of a store, the scanners are those of the file,
+ * with no split key checks. The first and last keys of the half are looked up once,
+ * so that scans outside of them skip the file, and the scanners skip the blocks out
+ * of the time range of the scan as they do for other files.
  */
 @InterfaceAudience.Private
 public class HalfStoreFileReader extends StoreFile.Reader {
@@ -60,6 +66,13 @@ public class HalfStoreFileReader extends StoreFile.Reader {
   
   private boolean firstKeySeeked = false;
 
+  private byte[] lastKey = null;
+
+  private boolean lastKeySeeked = false;
+
+  // Whether all the keys of the file are in this half
+  private final boolean coversFile;
+
   /**
    * Creates a half file reader for a normal hfile.
    * @param fs fileystem to read from
@@ -81,6 +94,7 @@ public class HalfStoreFileReader extends StoreFile.Reader {
     this.splitkey = r.getSplitKey();
     // Is it top or bottom half?
     this.top = Reference.isTopFileRegion(r.getFileRegion());
+    this.coversFile = coversFile();
   }
 
   /**
@@ -106,19 +120,38 @@ public class HalfStoreFileReader extends StoreFile.Reader {
     this.splitkey = r.getSplitKey();
     // Is it top or bottom half?
     this.top = Reference.isTopFileRegion(r.getFileRegion());
+    this.coversFile = coversFile();
   }
 
   protected boolean isTop() {
     return this.top;
   }
 
+  /**
+   * @return Whether all the keys of the file are on the side of the split key of this half.
+   */
+  private boolean coversFile() {
+    byte[] fileKey = top ? super.getFirstKey() : super.getLastKey();
+    if (fileKey == null) {
+      return false;
+    }
+    int compared = getComparator().compare(fileKey, 0, fileKey.length,
+        splitkey, 0, splitkey.length);
+    return top ? compared >= 0 : compared < 0;
+  }
+
   @Override
   public HFileScanner getScanner(final boolean cacheBlocks,
       final boolean pread, final boolean isCompaction) {
     final HFileScanner s = super.getScanner(cacheBlocks, pread, isCompaction);
+    if (coversFile) {
+      return s;
+    }
     return new HFileScanner() {
       final HFileScanner delegate = s;
       public boolean atEnd = false;
+      // Whether the delegate may skip blocks, and so land past the split key on a seek
+      boolean skipsBlocks = false;
 
       public ByteBuffer getKey() {
         if (atEnd) return null;
@@ -174,6 +207,7 @@ public class HalfStoreFileReader extends StoreFile.Reader {
 
       public boolean seekBefore(byte [] key, int offset, int length)
       throws IOException {
+        atEnd = false;
         if (top) {
           byte[] fk = getFirstKey();
           // This will be null when the file is empty in which we can not seekBefore to any key
@@ -193,8 +227,13 @@ public class HalfStoreFileReader extends StoreFile.Reader {
       }
 
       public boolean seekTo() throws IOException {
+        atEnd = false;
         if (top) {
           int r = this.delegate.seekTo(splitkey);
+          if (r == HConstants.INDEX_KEY_MAGIC) {
+            // skipped to the first key of a later block, past the split key
+            return true;
+          }
           if (r < 0) {
             // midkey is < first key in file
             return this.delegate.seekTo();
@@ -221,6 +260,7 @@ public class HalfStoreFileReader extends StoreFile.Reader {
       }
 
       public int seekTo(byte[] key, int offset, int length) throws IOException {
+        atEnd = false;
         if (top) {
           if (getComparator().compare(key, offset, length, splitkey, 0,
               splitkey.length) < 0) {
@@ -238,7 +278,7 @@ public class HalfStoreFileReader extends StoreFile.Reader {
             return 1;
           }
         }
-        return delegate.seekTo(key, offset, length);
+        return constrainBottom(delegate.seekTo(key, offset, length));
       }
 
       @Override
@@ -273,7 +313,27 @@ public class HalfStoreFileReader extends StoreFile.Reader {
           // skip the 'reseek' and just return 1.
           return 1;
         }
-        return delegate.reseekTo(key, offset, length);
+        return constrainBottom(delegate.reseekTo(key, offset, length));
+      }
+
+      /**
+       * Ends the bottom half if a seek of a delegate skipping blocks landed past the split
+       * key: the blocks skipped have no cell of the time range, so neither has the rest of
+       * the half. Checked once per seek rather than on every cell.
+       * @param result The result of the seek of the delegate.
+       * @return The result of the seek.
+       */
+      private int constrainBottom(int result) {
+        if (top || !skipsBlocks || (result < 0 && result != HConstants.INDEX_KEY_MAGIC)) {
+          return result;
+        }
+        ByteBuffer bb = delegate.getKey();
+        if (getComparator().compare(bb.array(), bb.arrayOffset(), bb.limit(),
+            splitkey, 0, splitkey.length) >= 0) {
+          atEnd = true;
+          return 1;
+        }
+        return result;
       }
 
       public org.apache.hadoop.hbase.io.hfile.HFile.Reader getReader() {
@@ -283,29 +343,34 @@ public class HalfStoreFileReader extends StoreFile.Reader {
       public boolean isSeeked() {
         return this.delegate.isSeeked();
       }
+
+      @Override
+      public void setTimeRange(long minTimestamp, long maxTimestamp) throws IOException {
+        // next() checks every key of the bottom half, and the seeks are constrained above
+        delegate.setTimeRange(minTimestamp, maxTimestamp);
+        skipsBlocks = minTimestamp != Long.MIN_VALUE || maxTimestamp != Long.MAX_VALUE;
+      }
     };
   }
   
-  @Override
-  public boolean passesKeyRangeFilter(Scan scan) {
-    return true;
-  }
-  
   @Override
   public byte[] getLastKey() {
-    if (top) {
+    if (top || coversFile) {
       return super.getLastKey();
     }
-    // Get a scanner that caches the block and that uses pread.
-    HFileScanner scanner = getScanner(true, true);
-    try {
-      if (scanner.seekBefore(this.splitkey)) {
-        return Bytes.toBytes(scanner.getKey());
+    if (!lastKeySeeked) {
+      // Get a scanner that caches the block and that uses pread.
+      HFileScanner scanner = getScanner(true, true);
+      try {
+        if (scanner.seekBefore(this.splitkey)) {
+          this.lastKey = Bytes.toBytes(scanner.getKey());
+        }
+        lastKeySeeked = true;
+      } catch (IOException e) {
+        LOG.warn("Failed seekBefore " + Bytes.toStringBinary(this.splitkey), e);
       }
-    } catch (IOException e) {
-      LOG.warn("Failed seekBefore " + Bytes.toStringBinary(this.splitkey), e);
     }
-    return null;
+    return this.lastKey;
   }
 
   @Override
@@ -316,6 +381,9 @@ public class HalfStoreFileReader extends StoreFile.Reader {
   
   @Override
   public byte[] getFirstKey() {
+    if (coversFile) {
+      return super.getFirstKey();
+    }
     if (!firstKeySeeked) {
       HFileScanner scanner = getScanner(true, true, false);
       try {
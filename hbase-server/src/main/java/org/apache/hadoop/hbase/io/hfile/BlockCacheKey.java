@@ -28,12 +28,30 @@ import org.apache.hadoop.hbase.util.ClassSize;
  */
 @InterfaceAudience.Private
 public class BlockCacheKey implements HeapSize, java.io.Serializable {
+  private static final long serialVersionUID = -5109500669726873316L;
   private final String hfileName;
   private final long offset;
   private final DataBlockEncoding encoding;
+  /**
+   * The table and family of the block, for the per table accounting of the
+   * cache. Not part of the identity of the key, and not persisted.
+   */
+  private final transient BlockCacheOwner owner;
 
   public BlockCacheKey(String file, long offset, DataBlockEncoding encoding,
       BlockType blockType) {
+    this(file, offset, encoding, blockType, null);
+  }
+
+  /**
+   * @param file The name of the HFile this block belongs to.
+   * @param offset Offset of the block into the file
+   * @param encoding the data block encoding of the block in the cache
+   * @param blockType the type of the block, or null if unknown
+   * @param owner the table and family of the block, or null if unknown
+   */
+  public BlockCacheKey(String file, long offset, DataBlockEncoding encoding,
+      BlockType blockType, BlockCacheOwner owner) {
     this.hfileName = file;
     this.offset = offset;
     // We add encoding to the cache key only for data blocks. If the block type
@@ -41,6 +59,7 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
     // the provided encoding, because it might be a data block.
     this.encoding = (blockType == null || blockType.isData()) ? encoding :
         DataBlockEncoding.NONE;
+    this.owner = owner;
   }
 
   /**
@@ -83,7 +102,7 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
   @Override
   public long heapSize() {
     return ClassSize.align(ClassSize.OBJECT + 2 * hfileName.length() +
-        Bytes.SIZEOF_LONG + 2 * ClassSize.REFERENCE);
+        Bytes.SIZEOF_LONG + 3 * ClassSize.REFERENCE);
   }
 
   // can't avoid this unfortunately
@@ -94,7 +113,21 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
     return hfileName;
   }
 
+  /**
+   * @return Offset of the block into the file
+   */
+  public long getOffset() {
+    return offset;
+  }
+
   public DataBlockEncoding getDataBlockEncoding() {
     return encoding;
   }
+
+  /**
+   * @return the table and family of the block, or null if unknown
+   */
+  public BlockCacheOwner getOwner() {
+    return owner;
+  }
 }
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+/**
+ * The table and column family which cached blocks belong to, along with the
+ * share of the block cache the table is entitled to. A store hands its owner
+ * to the HFile readers and writers through its {@link CacheConfig}, which put
+ * it in the {@link BlockCacheKey}s of the blocks they cache.
+ * <p>
+ * The shares are fractions of the capacity of the cache. The blocks of a
+ * table over its maximum share are evicted before any other, and the blocks
+ * of a table under its minimum share are not evicted to make room for the
+ * blocks of other tables.
+ */
+@InterfaceAudience.Private
+public class BlockCacheOwner {
+  private final String table;
+  private final String family;
+  private final float maxShare;
+  private final float minShare;
+
+  /**
+   * @param table name of the table
+   * @param family name of the column family
+   * @param maxShare largest fraction of the cache the table may take
+   * @param minShare fraction of the cache the table keeps, whatever the
+   *          pressure from other tables
+   */
+  public BlockCacheOwner(String table, String family, float maxShare,
+      float minShare) {
+    if (maxShare <= 0 || maxShare > 1 || minShare < 0 || minShare > maxShare) {
+      throw new IllegalArgumentException("Invalid block cache shares for table "
+          + table + ": max=" + maxShare + ", min=" + minShare);
+    }
+    this.table = table;
+    this.family = family;
+    this.maxShare = maxShare;
+    this.minShare = minShare;
+  }
+
+  public BlockCacheOwner(String table, String family) {
+    this(table, family, 1.0f, 0.0f);
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  public String getFamily() {
+    return family;
+  }
+
+  public float getMaxShare() {
+    return maxShare;
+  }
+
+  public float getMinShare() {
+    return minShare;
+  }
+
+  @Override
+  public String toString() {
+    return table + "/" + family + " (share max=" + maxShare + ", min="
+        + minShare + ")";
+  }
+}
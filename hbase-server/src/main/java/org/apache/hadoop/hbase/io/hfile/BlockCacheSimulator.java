@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.AbstractHBaseTool;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Replays a trace of block cache accesses, recorded by a region server with
+ * {@link CacheConfig#BLOCKCACHE_TRACE_FILE_KEY}, against the block cache of
+ * the given configuration, to compare cache implementations and sizes on
+ * real traffic. The cache is configured with the usual keys, given with -D;
+ * -size sets the size of the on-heap cache in bytes rather than as a
+ * fraction of the heap.
+ * <p>
+ * The replay caches blocks where the traced server did, unless the replayed
+ * cache already had them, and where the replayed cache misses a block the
+ * traced server had in its cache. Blocks hold no data, their size and type
+ * are those of the traced blocks.
+ * <p>
+ * Reports the hit ratio, the evictions and the replay throughput, along
+ * with the hit ratio of the traced server.
+ */
+@InterfaceAudience.Private
+public class BlockCacheSimulator extends AbstractHBaseTool {
+  private static final String OPT_TRACE = "trace";
+  private static final String OPT_SIZE = "size";
+
+  /** The number of lookups missed in the trace waiting for their caching */
+  private static final int MAX_PENDING = 100000;
+
+  private String traceFile;
+  private long size = -1;
+
+  @Override
+  protected void addOptions() {
+    addRequiredOptWithArg(OPT_TRACE, "The trace of block cache accesses to replay");
+    addOptWithArg(OPT_SIZE, "The size of the on-heap block cache, in bytes");
+  }
+
+  @Override
+  protected void processOptions(CommandLine cmd) {
+    traceFile = cmd.getOptionValue(OPT_TRACE);
+    if (cmd.hasOption(OPT_SIZE)) {
+      size = parseLong(cmd.getOptionValue(OPT_SIZE), 1, Long.MAX_VALUE);
+    }
+  }
+
+  @Override
+  protected int doWork() throws Exception {
+    Configuration cacheConf = new Configuration(conf);
+    if (size > 0) {
+      long maxHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+      if (size >= maxHeap) {
+        System.err.println("The cache size must be smaller than the heap, "
+            + StringUtils.humanReadableInt(maxHeap));
+        return 1;
+      }
+      cacheConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, (float) size / maxHeap);
+    }
+    BlockCache cache = CacheConfig.createBlockCache(cacheConf);
+    if (cache == null) {
+      System.err.println("The configuration disables the block cache");
+      return 1;
+    }
+    BlockCacheTrace.Reader reader =
+        new BlockCacheTrace.Reader(new FileInputStream(traceFile));
+    try {
+      ReplayResult result = replay(reader, cache);
+      System.out.println(result.report(cache));
+    } finally {
+      reader.close();
+      cache.shutdown();
+    }
+    return 0;
+  }
+
+  /**
+   * Replays a trace against a cache.
+   */
+  static ReplayResult replay(BlockCacheTrace.Reader reader, BlockCache cache)
+      throws IOException {
+    ReplayResult result = new ReplayResult();
+    // whether the replayed cache missed too, for the lookups which missed in
+    // the trace and which the traced server is about to cache
+    @SuppressWarnings("serial")
+    Map<BlockCacheKey, Boolean> pending = new LinkedHashMap<BlockCacheKey, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<BlockCacheKey, Boolean> eldest) {
+        return size() > MAX_PENDING;
+      }
+    };
+    long start = System.nanoTime();
+    BlockCacheTrace.Record record;
+    while ((record = reader.next()) != null) {
+      result.records++;
+      switch (record.getOp()) {
+      case GET:
+        Cacheable block = cache.getBlock(record.getCacheKey(), record.isCaching(),
+            record.isRepeat());
+        if (record.isHit()) {
+          result.tracedHits++;
+          if (block == null && record.isCaching()) {
+            // the block is known from the traced hit, read and cache it
+            cache.cacheBlock(record.getCacheKey(), new SimulatedBlock(record));
+          }
+        } else {
+          if (!record.isRepeat()) {
+            result.tracedMisses++;
+          }
+          pending.put(record.getCacheKey(), block == null);
+        }
+        break;
+      case CACHE:
+        Boolean missed = pending.remove(record.getCacheKey());
+        // not looked up before when cached on write
+        if (missed == null || missed) {
+          cache.cacheBlock(record.getCacheKey(), new SimulatedBlock(record),
+              record.isInMemory());
+        }
+        break;
+      case EVICT:
+        cache.evictBlock(record.getCacheKey());
+        break;
+      case EVICT_FILE:
+        if (record.getHfileName() != null) {
+          cache.evictBlocksByHfileName(record.getHfileName());
+        }
+        break;
+      default:
+        break;
+      }
+    }
+    result.elapsedNanos = System.nanoTime() - start;
+    return result;
+  }
+
+  /**
+   * The counts of a replay, on top of the stats of the replayed cache.
+   */
+  static class ReplayResult {
+    long records = 0;
+    long tracedHits = 0;
+    long tracedMisses = 0;
+    long elapsedNanos = 0;
+
+    double getTracedHitRatio() {
+      long requests = tracedHits + tracedMisses;
+      return requests == 0 ? 0 : (double) tracedHits / requests;
+    }
+
+    double getRecordsPerSecond() {
+      return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    String report(BlockCache cache) {
+      CacheStats stats = cache.getStats();
+      return "records=" + records
+          + ", replayMs=" + elapsedNanos / 1000000
+          + ", recordsPerSecond=" + (long) getRecordsPerSecond()
+          + "\ntraced: hits=" + tracedHits + ", misses=" + tracedMisses
+          + ", hitRatio=" + StringUtils.formatPercent(getTracedHitRatio(), 2)
+          + "\nreplayed: " + cache.getClass().getSimpleName()
+          + ", hits=" + stats.getHitCount() + ", misses=" + stats.getMissCount()
+          + ", hitRatio=" + StringUtils.formatPercent(stats.getHitRatio(), 2)
+          + ", cachingHitRatio=" + StringUtils.formatPercent(stats.getHitCachingRatio(), 2)
+          + ", evictions=" + stats.getEvictionCount()
+          + ", evicted=" + stats.getEvictedCount()
+          + ", blocks=" + cache.getBlockCount()
+          + ", size=" + StringUtils.byteDesc(cache.getCurrentSize())
+          + ", free=" + StringUtils.byteDesc(cache.getFreeSize());
+    }
+  }
+
+  /**
+   * A block of the size and type of a traced block, without its data.
+   */
+  static class SimulatedBlock implements Cacheable {
+    /** The block type and heap size, in front of the serialized block */
+    private static final int HEADER_SIZE = 1 + 8;
+
+    private static final CacheableDeserializer<Cacheable> deserializer =
+        new CacheableDeserializer<Cacheable>() {
+      private final int identifier =
+          CacheableDeserializerIdManager.registerDeserializer(this);
+
+      @Override
+      public Cacheable deserialize(ByteBuffer b) throws IOException {
+        int typeOrdinal = b.get(0);
+        return new SimulatedBlock(b.getLong(1), b.limit(),
+            typeOrdinal < 0 ? null : BlockType.values()[typeOrdinal]);
+      }
+
+      @Override
+      public Cacheable deserialize(ByteBuffer b, boolean reuse) throws IOException {
+        return deserialize(b);
+      }
+
+      @Override
+      public int getDeserialiserIdentifier() {
+        return identifier;
+      }
+    };
+
+    private final long heapSize;
+    private final int serializedLength;
+    private final BlockType blockType;
+
+    SimulatedBlock(BlockCacheTrace.Record record) {
+      this(record.getHeapSize(), record.getSerializedLength(), record.getBlockType());
+    }
+
+    SimulatedBlock(long heapSize, int serializedLength, BlockType blockType) {
+      this.heapSize = heapSize;
+      // a length of 0 keeps the block out of the BucketCache, as it was
+      this.serializedLength = serializedLength == 0 ? 0
+          : Math.max(serializedLength, HEADER_SIZE);
+      this.blockType = blockType;
+    }
+
+    @Override
+    public long heapSize() {
+      return heapSize;
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return serializedLength;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination) {
+      if (serializedLength == 0) {
+        return;
+      }
+      destination.put(blockType == null ? -1 : (byte) blockType.ordinal());
+      destination.putLong(heapSize);
+      destination.position(destination.position() + serializedLength - HEADER_SIZE);
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return deserializer;
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return blockType;
+    }
+  }
+
+  public static void main(String[] args) {
+    new BlockCacheSimulator().doStaticMain(args);
+  }
+}
@@ -0,0 +1,333 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * The binary format of the traces of block cache accesses, recorded by the
+ * {@link TracingBlockCache} and replayed by the {@link BlockCacheSimulator}.
+ * <p>
+ * A trace starts with {@link #MAGIC}, followed by records of one operation
+ * each, starting with the byte of the {@link Op}. HFile names are written
+ * once, in a {@link Op#FILE} record giving them an id, and the other records
+ * refer to the file by id. Ids are dropped when all the blocks of the file
+ * are evicted, usually as the file is closed. Numbers are variable length
+ * encoded, a lookup takes 5 to 10 bytes.
+ * <p>
+ * Only the evictions asked of the cache are recorded, for blocks that became
+ * invalid or files that were closed. The blocks the traced cache drops on its
+ * own to stay within its capacity are missing from the trace: they depend on
+ * its policy and size, and a replayed cache makes its own room instead.
+ */
+@InterfaceAudience.Private
+public class BlockCacheTrace {
+  /** The magic and version at the start of a trace */
+  static final byte[] MAGIC = Bytes.toBytes("BCTRACE1");
+
+  private static final int HIT = 1;
+  private static final int CACHING = 2;
+  private static final int REPEAT = 4;
+
+  /** The operations on the cache */
+  public enum Op {
+    /** Gives an id to an HFile name */
+    FILE,
+    /** A lookup, and whether it hit */
+    GET,
+    /** A block cached */
+    CACHE,
+    /** A block evicted on request, not for lack of room */
+    EVICT,
+    /** All the blocks of an HFile evicted, usually as the file is closed */
+    EVICT_FILE
+  }
+
+  /**
+   * One access to the cache. The size and type of the block are only known
+   * for hits and cached blocks.
+   */
+  public static class Record {
+    private final Op op;
+    private final BlockCacheKey cacheKey;
+    private final String hfileName;
+    private final boolean hit;
+    private final boolean caching;
+    private final boolean repeat;
+    private final boolean inMemory;
+    private final long heapSize;
+    private final int serializedLength;
+    private final BlockType blockType;
+
+    Record(Op op, BlockCacheKey cacheKey, String hfileName, boolean hit,
+        boolean caching, boolean repeat, boolean inMemory, long heapSize,
+        int serializedLength, BlockType blockType) {
+      this.op = op;
+      this.cacheKey = cacheKey;
+      this.hfileName = hfileName;
+      this.hit = hit;
+      this.caching = caching;
+      this.repeat = repeat;
+      this.inMemory = inMemory;
+      this.heapSize = heapSize;
+      this.serializedLength = serializedLength;
+      this.blockType = blockType;
+    }
+
+    public Op getOp() {
+      return op;
+    }
+
+    /**
+     * @return the key of the block, null for {@link Op#EVICT_FILE}
+     */
+    public BlockCacheKey getCacheKey() {
+      return cacheKey;
+    }
+
+    public String getHfileName() {
+      return hfileName;
+    }
+
+    public boolean isHit() {
+      return hit;
+    }
+
+    public boolean isCaching() {
+      return caching;
+    }
+
+    public boolean isRepeat() {
+      return repeat;
+    }
+
+    public boolean isInMemory() {
+      return inMemory;
+    }
+
+    public long getHeapSize() {
+      return heapSize;
+    }
+
+    public int getSerializedLength() {
+      return serializedLength;
+    }
+
+    /**
+     * @return the type of the block, null if not known
+     */
+    public BlockType getBlockType() {
+      return blockType;
+    }
+  }
+
+  /**
+   * Writes a trace. Thread safe; does nothing once closed.
+   */
+  public static class Writer implements Closeable {
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final Map<String, Integer> fileIds = new HashMap<String, Integer>();
+    private int nextFileId = 0;
+    private boolean closed = false;
+
+    public Writer(OutputStream os) throws IOException {
+      this.counter = new CountingOutputStream(new BufferedOutputStream(os));
+      this.out = new DataOutputStream(counter);
+      out.write(MAGIC);
+    }
+
+    public synchronized void writeGet(BlockCacheKey cacheKey, Cacheable block,
+        boolean caching, boolean repeat) throws IOException {
+      if (closed) return;
+      writeKey(Op.GET, cacheKey);
+      out.writeByte((block != null ? HIT : 0) | (caching ? CACHING : 0)
+          | (repeat ? REPEAT : 0));
+      if (block != null) {
+        writeBlock(block);
+      }
+    }
+
+    public synchronized void writeCache(BlockCacheKey cacheKey, Cacheable block,
+        boolean inMemory) throws IOException {
+      if (closed) return;
+      writeKey(Op.CACHE, cacheKey);
+      writeBlock(block);
+      out.writeBoolean(inMemory);
+    }
+
+    public synchronized void writeEvict(BlockCacheKey cacheKey) throws IOException {
+      if (closed) return;
+      writeKey(Op.EVICT, cacheKey);
+    }
+
+    public synchronized void writeEvictFile(String hfileName) throws IOException {
+      if (closed) return;
+      Integer fileId = fileIds.remove(hfileName);
+      if (fileId == null) {
+        // none of its blocks was ever seen
+        return;
+      }
+      out.writeByte(Op.EVICT_FILE.ordinal());
+      WritableUtils.writeVInt(out, fileId);
+    }
+
+    private void writeKey(Op op, BlockCacheKey cacheKey) throws IOException {
+      Integer fileId = fileIds.get(cacheKey.getHfileName());
+      if (fileId == null) {
+        fileId = nextFileId++;
+        fileIds.put(cacheKey.getHfileName(), fileId);
+        out.writeByte(Op.FILE.ordinal());
+        WritableUtils.writeVInt(out, fileId);
+        WritableUtils.writeString(out, cacheKey.getHfileName());
+      }
+      out.writeByte(op.ordinal());
+      WritableUtils.writeVInt(out, fileId);
+      WritableUtils.writeVLong(out, cacheKey.getOffset());
+      out.writeByte(cacheKey.getDataBlockEncoding().ordinal());
+    }
+
+    private void writeBlock(Cacheable block) throws IOException {
+      WritableUtils.writeVLong(out, block.heapSize());
+      WritableUtils.writeVInt(out, block.getSerializedLength());
+      BlockType blockType = block.getBlockType();
+      out.writeByte(blockType == null ? -1 : blockType.ordinal());
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public synchronized long getSize() {
+      return counter.getCount();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (closed) return;
+      closed = true;
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a trace, one record at a time.
+   */
+  public static class Reader implements Closeable {
+    private final DataInputStream in;
+    private final Map<Integer, String> fileNames = new HashMap<Integer, String>();
+
+    public Reader(InputStream is) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(is));
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Not a block cache trace, or of an unknown version");
+      }
+    }
+
+    /**
+     * @return the next record, or null at the end of the trace
+     */
+    public Record next() throws IOException {
+      while (true) {
+        int opOrdinal = in.read();
+        if (opOrdinal < 0) {
+          return null;
+        }
+        if (opOrdinal >= Op.values().length) {
+          throw new IOException("Unknown operation " + opOrdinal + " in the trace");
+        }
+        Op op = Op.values()[opOrdinal];
+        try {
+          switch (op) {
+          case FILE:
+            int fileId = WritableUtils.readVInt(in);
+            fileNames.put(fileId, WritableUtils.readString(in));
+            continue;
+          case EVICT_FILE:
+            String hfileName = fileNames.remove(WritableUtils.readVInt(in));
+            return new Record(op, null, hfileName, false, false, false, false, 0, 0,
+                null);
+          default:
+            return readKeyRecord(op);
+          }
+        } catch (EOFException eofe) {
+          // the last record of a trace cut short
+          return null;
+        }
+      }
+    }
+
+    private Record readKeyRecord(Op op) throws IOException {
+      int fileId = WritableUtils.readVInt(in);
+      String hfileName = fileNames.get(fileId);
+      if (hfileName == null) {
+        throw new IOException("Unknown file id " + fileId + " in the trace");
+      }
+      long offset = WritableUtils.readVLong(in);
+      DataBlockEncoding encoding = DataBlockEncoding.values()[in.readByte()];
+      BlockCacheKey cacheKey = new BlockCacheKey(hfileName, offset, encoding, null);
+      boolean hit = false;
+      boolean caching = false;
+      boolean repeat = false;
+      boolean hasBlock = op == Op.CACHE;
+      if (op == Op.GET) {
+        int flags = in.readByte();
+        hit = (flags & HIT) != 0;
+        caching = (flags & CACHING) != 0;
+        repeat = (flags & REPEAT) != 0;
+        hasBlock = hit;
+      }
+      long heapSize = 0;
+      int serializedLength = 0;
+      BlockType blockType = null;
+      if (hasBlock) {
+        heapSize = WritableUtils.readVLong(in);
+        serializedLength = WritableUtils.readVInt(in);
+        int typeOrdinal = in.readByte();
+        blockType = typeOrdinal < 0 ? null : BlockType.values()[typeOrdinal];
+      }
+      boolean inMemory = op == Op.CACHE && in.readBoolean();
+      return new Record(op, cacheKey, hfileName, hit, caching, repeat, inMemory,
+          heapSize, serializedLength, blockType);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
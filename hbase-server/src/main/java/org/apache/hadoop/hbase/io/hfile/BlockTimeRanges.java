@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The range of timestamps of the cells of each data block of an HFile, in
+ * file order. {@link HFileWriterV2} writes it to a meta block of KeyValue
+ * files, and scanners with a time range use it to skip the data blocks that
+ * hold nothing they would return.
+ * <p>
+ * A delete marker counts as covering every timestamp up to its own, since it
+ * masks cells older than itself: a block is only skipped if it holds no
+ * marker at or after the start of the time range.
+ */
+@InterfaceAudience.Private
+class BlockTimeRanges implements Writable {
+  /** Name of the meta block holding the ranges */
+  static final String META_BLOCK_NAME = "BLOCK_TIMERANGES";
+
+  private int count;
+  private long[] offsets = new long[16];
+  private int[] onDiskSizes = new int[16];
+  private long[] minTimestamps = new long[16];
+  private long[] maxTimestamps = new long[16];
+
+  /**
+   * Adds the range of the next data block of the file.
+   */
+  void add(long offset, int onDiskSize, long minTimestamp, long maxTimestamp) {
+    if (count == offsets.length) {
+      int capacity = Math.max(16, count * 2);
+      offsets = Arrays.copyOf(offsets, capacity);
+      onDiskSizes = Arrays.copyOf(onDiskSizes, capacity);
+      minTimestamps = Arrays.copyOf(minTimestamps, capacity);
+      maxTimestamps = Arrays.copyOf(maxTimestamps, capacity);
+    }
+    offsets[count] = offset;
+    onDiskSizes[count] = onDiskSize;
+    minTimestamps[count] = minTimestamp;
+    maxTimestamps[count] = maxTimestamp;
+    count++;
+  }
+
+  int size() {
+    return count;
+  }
+
+  long getOffset(int block) {
+    return offsets[block];
+  }
+
+  int getOnDiskSize(int block) {
+    return onDiskSizes[block];
+  }
+
+  /**
+   * @return the number of the data block at the given offset, or -1 if there
+   *         is none
+   */
+  int indexOf(long offset) {
+    int block = Arrays.binarySearch(offsets, 0, count, offset);
+    return block < 0 ? -1 : block;
+  }
+
+  /**
+   * @return a view of these ranges for a scanner with the time range
+   *         [minTimestamp, maxTimestamp)
+   */
+  Filter forTimeRange(long minTimestamp, long maxTimestamp) {
+    return new Filter(minTimestamp, maxTimestamp);
+  }
+
+  /**
+   * Picks the data blocks that may hold cells of a time range.
+   */
+  class Filter {
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    private Filter(long minTimestamp, long maxTimestamp) {
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+    }
+
+    BlockTimeRanges getRanges() {
+      return BlockTimeRanges.this;
+    }
+
+    /**
+     * @return the number of the first data block from the given one on that
+     *         may hold cells of the time range, or -1 if there is none
+     */
+    int nextOverlappingBlock(int fromBlock) {
+      for (int block = fromBlock; block < count; block++) {
+        if (maxTimestamps[block] >= minTimestamp && minTimestamps[block] < maxTimestamp) {
+          return block;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Widens the given [min, max] range of a block to include the timestamp of
+   * the given KeyValue key.
+   * @param range the range, updated in place
+   */
+  static void includeKey(long[] range, byte[] key, int offset, int length) {
+    int timestampOffset = offset + length - KeyValue.TIMESTAMP_TYPE_SIZE;
+    long timestamp = Bytes.toLong(key, timestampOffset);
+    if (KeyValue.isDelete(key[timestampOffset + Bytes.SIZEOF_LONG])) {
+      // masks older cells of any timestamp
+      range[0] = Long.MIN_VALUE;
+    } else {
+      range[0] = Math.min(range[0], timestamp);
+    }
+    range[1] = Math.max(range[1], timestamp);
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, count);
+    long previousOffset = 0;
+    for (int i = 0; i < count; i++) {
+      WritableUtils.writeVLong(out, offsets[i] - previousOffset);
+      previousOffset = offsets[i];
+      WritableUtils.writeVInt(out, onDiskSizes[i]);
+      out.writeLong(minTimestamps[i]);
+      out.writeLong(maxTimestamps[i]);
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    count = WritableUtils.readVInt(in);
+    offsets = new long[count];
+    onDiskSizes = new int[count];
+    minTimestamps = new long[count];
+    maxTimestamps = new long[count];
+    long offset = 0;
+    for (int i = 0; i < count; i++) {
+      offset += WritableUtils.readVLong(in);
+      offsets[i] = offset;
+      onDiskSizes[i] = WritableUtils.readVInt(in);
+      minTimestamps[i] = in.readLong();
+      maxTimestamps[i] = in.readLong();
+    }
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hbase.io.hfile;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryUsage;
@@ -61,8 +62,9 @@ public class CacheConfig {
       "hfile.block.bloom.cacheonwrite";
 
   /**
-   * TODO: Implement this (jgray)
-   * Configuration key to cache data blocks in compressed format.
+   * Configuration key to cache data blocks in compressed format, the way they
+   * are stored on disk. More data fits in the cache, at the cost of
+   * decompressing a block on every access.
    */
   public static final String CACHE_DATA_BLOCKS_COMPRESSED_KEY =
       "hbase.rs.blockcache.cachedatacompressed";
@@ -74,6 +76,46 @@ public class CacheConfig {
   public static final String EVICT_BLOCKS_ON_CLOSE_KEY =
       "hbase.rs.evictblocksonclose";
 
+  /**
+   * Configuration key for the eviction policy of the on-heap block cache,
+   * LRU for the {@link LruBlockCache} or TinyLFU for the scan-resistant
+   * {@link TinyLfuBlockCache}.
+   */
+  public static final String BLOCKCACHE_POLICY_KEY = "hfile.block.cache.policy";
+
+  /**
+   * Configuration keys for the largest and the guaranteed share of the block
+   * cache a table gets, as fractions of the capacity of the cache. Usually set
+   * on the table, through
+   * {@link org.apache.hadoop.hbase.HTableDescriptor#setConfiguration(String, String)}.
+   * See {@link BlockCacheOwner}.
+   */
+  public static final String BLOCKCACHE_TABLE_MAX_SHARE_KEY =
+      "hbase.blockcache.table.max.share";
+  public static final String BLOCKCACHE_TABLE_MIN_SHARE_KEY =
+      "hbase.blockcache.table.min.share";
+
+  /**
+   * Configuration key for the size of a separate tier of the block cache for
+   * the index and Bloom blocks, as a fraction of the heap taken out of the
+   * on-heap block cache. Disabled at 0. See {@link MetaTierBlockCache}.
+   */
+  public static final String BLOCKCACHE_META_TIER_SIZE_KEY =
+      "hbase.blockcache.meta.tier.size";
+
+  /**
+   * Configuration key for a local file to record the accesses to the block
+   * cache to, for replay by the {@link BlockCacheSimulator}. Not traced if unset.
+   */
+  public static final String BLOCKCACHE_TRACE_FILE_KEY = "hbase.blockcache.trace.file";
+
+  /**
+   * Configuration key for the size after which the recording of the block
+   * cache accesses stops, in bytes.
+   */
+  public static final String BLOCKCACHE_TRACE_MAX_SIZE_KEY =
+      "hbase.blockcache.trace.max.size";
+
   /**
    * Configuration keys for Bucket cache
    */
@@ -105,6 +147,11 @@ public class CacheConfig {
   public static final boolean DEFAULT_CACHE_BLOOMS_ON_WRITE = false;
   public static final boolean DEFAULT_EVICT_ON_CLOSE = false;
   public static final boolean DEFAULT_COMPRESSED_CACHE = false;
+  public static final String DEFAULT_BLOCKCACHE_POLICY = "LRU";
+  public static final float DEFAULT_BLOCKCACHE_META_TIER_SIZE = 0.0f;
+  public static final long DEFAULT_BLOCKCACHE_TRACE_MAX_SIZE = 1024L * 1024 * 1024;
+  public static final float DEFAULT_BLOCKCACHE_TABLE_MAX_SHARE = 1.0f;
+  public static final float DEFAULT_BLOCKCACHE_TABLE_MIN_SHARE = 0.0f;
 
   /** Local reference to the block cache, null if completely disabled */
   private final BlockCache blockCache;
@@ -130,9 +177,15 @@ public class CacheConfig {
   /** Whether blocks of a file should be evicted when the file is closed */
   private boolean evictOnClose;
 
-  /** Whether data blocks should be stored in compressed form in the cache */
+  /**
+   * Whether data blocks should be stored in compressed form in the cache, see
+   * {@link HFileBlock#isPacked()}
+   */
   private final boolean cacheCompressed;
 
+  /** The table and family of the blocks cached through this configuration */
+  private BlockCacheOwner owner;
+
   /**
    * Create a cache configuration using the specified configuration object and
    * family descriptor.
@@ -214,6 +267,7 @@ public class CacheConfig {
         cacheConf.cacheDataOnWrite, cacheConf.cacheIndexesOnWrite,
         cacheConf.cacheBloomsOnWrite, cacheConf.evictOnClose,
         cacheConf.cacheCompressed);
+    this.owner = cacheConf.owner;
   }
 
   /**
@@ -316,6 +370,32 @@ public class CacheConfig {
     return isBlockCacheEnabled() && this.cacheCompressed;
   }
 
+  /**
+   * Index and Bloom blocks are always cached uncompressed, as they are read
+   * far more often than data blocks.
+   * @return true if blocks of the given category should be compressed in the
+   *         cache, false if not
+   */
+  public boolean shouldCacheCompressed(BlockCategory category) {
+    return shouldCacheCompressed() && category == BlockCategory.DATA;
+  }
+
+  /**
+   * @return the table and family of the blocks cached through this
+   *         configuration, or null if unknown
+   */
+  public BlockCacheOwner getOwner() {
+    return owner;
+  }
+
+  /**
+   * @param owner the table and family of the blocks cached through this
+   *          configuration
+   */
+  public void setOwner(BlockCacheOwner owner) {
+    this.owner = owner;
+  }
+
   @Override
   public String toString() {
     if (!isBlockCacheEnabled()) {
@@ -351,10 +431,35 @@ public class CacheConfig {
     if (globalBlockCache != null) return globalBlockCache;
     if (blockCacheDisabled) return null;
 
+    globalBlockCache = createBlockCache(conf);
+    if (globalBlockCache == null) {
+      blockCacheDisabled = true;
+      return null;
+    }
+    String traceFile = conf.get(BLOCKCACHE_TRACE_FILE_KEY);
+    if (traceFile != null) {
+      try {
+        globalBlockCache = new TracingBlockCache(globalBlockCache, new File(traceFile),
+            conf.getLong(BLOCKCACHE_TRACE_MAX_SIZE_KEY, DEFAULT_BLOCKCACHE_TRACE_MAX_SIZE));
+      } catch (IOException ioe) {
+        LOG.warn("Can't trace the block cache accesses to " + traceFile, ioe);
+      }
+    }
+    return globalBlockCache;
+  }
+
+  /**
+   * Creates the block cache of the given configuration, without making it the
+   * global one. Used by the {@link BlockCacheSimulator} to replay traces
+   * against any configuration.
+   *
+   * @param conf  The configuration.
+   * @return The block cache or <code>null</code> if the configuration disables it.
+   */
+  static BlockCache createBlockCache(Configuration conf) {
     float cachePercentage = conf.getFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY,
       HConstants.HFILE_BLOCK_CACHE_SIZE_DEFAULT);
     if (cachePercentage == 0L) {
-      blockCacheDisabled = true;
       return null;
     }
     if (cachePercentage > 1.0) {
@@ -365,7 +470,14 @@ public class CacheConfig {
     // Calculate the amount of heap to give the heap.
     MemoryUsage mu = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
     long lruCacheSize = (long) (mu.getMax() * cachePercentage);
+    long metaTierSize = (long) (mu.getMax() * conf.getFloat(
+        BLOCKCACHE_META_TIER_SIZE_KEY, DEFAULT_BLOCKCACHE_META_TIER_SIZE));
+    if (metaTierSize >= lruCacheSize) {
+      throw new IllegalArgumentException(BLOCKCACHE_META_TIER_SIZE_KEY
+          + " must be smaller than " + HConstants.HFILE_BLOCK_CACHE_SIZE_KEY);
+    }
     int blockSize = conf.getInt("hbase.offheapcache.minblocksize", HConstants.DEFAULT_BLOCKSIZE);
+    BlockCache blockCache;
     long offHeapCacheSize =
       (long) (conf.getFloat("hbase.offheapcache.percentage", (float) 0) *
           DirectMemoryUtils.getDirectMemorySize());
@@ -404,19 +516,54 @@ public class CacheConfig {
           throw new RuntimeException(ioex);
         }
       }
-      LOG.info("Allocating LruBlockCache with maximum size " +
-        StringUtils.humanReadableInt(lruCacheSize));
-      LruBlockCache lruCache = new LruBlockCache(lruCacheSize, StoreFile.DEFAULT_BLOCKSIZE_SMALL);
+      if (bucketCache != null && combinedWithLru) {
+        if (metaTierSize > 0) {
+          LOG.info("Not allocating a separate tier for index and Bloom blocks, "
+              + "the on-heap cache of the combined cache holds these only");
+          metaTierSize = 0;
+        }
+      } else {
+        lruCacheSize -= metaTierSize;
+      }
+      FirstLevelBlockCache lruCache = createFirstLevelBlockCache(conf, lruCacheSize);
       lruCache.setVictimCache(bucketCache);
       if (bucketCache != null && combinedWithLru) {
-        globalBlockCache = new CombinedBlockCache(lruCache, bucketCache);
+        blockCache = new CombinedBlockCache(lruCache, bucketCache);
       } else {
-        globalBlockCache = lruCache;
+        blockCache = lruCache;
       }
     } else {
-      globalBlockCache = new DoubleBlockCache(lruCacheSize, offHeapCacheSize,
+      lruCacheSize -= metaTierSize;
+      blockCache = new DoubleBlockCache(lruCacheSize, offHeapCacheSize,
           StoreFile.DEFAULT_BLOCKSIZE_SMALL, blockSize, conf);
     }
-    return globalBlockCache;
+    if (metaTierSize > 0) {
+      LOG.info("Allocating a tier for index and Bloom blocks with maximum size " +
+        StringUtils.humanReadableInt(metaTierSize));
+      blockCache = new MetaTierBlockCache(
+          new LruBlockCache(metaTierSize, StoreFile.DEFAULT_BLOCKSIZE_SMALL, conf),
+          blockCache);
+    }
+    return blockCache;
+  }
+
+  /**
+   * @return the on-heap block cache of the configured eviction policy
+   */
+  private static FirstLevelBlockCache createFirstLevelBlockCache(Configuration conf,
+      long cacheSize) {
+    String policy = conf.get(BLOCKCACHE_POLICY_KEY, DEFAULT_BLOCKCACHE_POLICY);
+    if (policy.equalsIgnoreCase("TinyLFU")) {
+      LOG.info("Allocating TinyLfuBlockCache with maximum size " +
+        StringUtils.humanReadableInt(cacheSize));
+      return new TinyLfuBlockCache(cacheSize, StoreFile.DEFAULT_BLOCKSIZE_SMALL, conf);
+    }
+    if (!policy.equalsIgnoreCase(DEFAULT_BLOCKCACHE_POLICY)) {
+      throw new IllegalArgumentException(BLOCKCACHE_POLICY_KEY + " must be LRU or TinyLFU, not "
+          + policy);
+    }
+    LOG.info("Allocating LruBlockCache with maximum size " +
+      StringUtils.humanReadableInt(cacheSize));
+    return new LruBlockCache(cacheSize, StoreFile.DEFAULT_BLOCKSIZE_SMALL);
   }
 }
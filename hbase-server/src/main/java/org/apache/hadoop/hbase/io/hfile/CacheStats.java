@@ -18,6 +18,11 @@
  */
 package org.apache.hadoop.hbase.io.hfile;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -53,6 +58,19 @@ public class CacheStats {
   private final AtomicLong evictionCount = new AtomicLong(0);
   /** The total number of blocks that have been evicted */
   private final AtomicLong evictedBlockCount = new AtomicLong(0);
+  /** The size of the blocks in the cache, as they are cached */
+  private final AtomicLong physicalSize = new AtomicLong(0);
+  /**
+   * The size the blocks in the cache would take if they were all unpacked,
+   * see {@link HFileBlock#isPacked()}
+   */
+  private final AtomicLong logicalSize = new AtomicLong(0);
+  /**
+   * The usage of the cache by table, for the blocks with a known owner. Idle
+   * tables are dropped, see {@link #expireIdleTables()}.
+   */
+  private final ConcurrentMap<String, TableCacheStats> tableStats =
+      new ConcurrentHashMap<String, TableCacheStats>();
 
   /** The number of metrics periods to include in window */
   private final int numPeriodsInWindow;
@@ -97,6 +115,28 @@ public class CacheStats {
     if (caching) hitCachingCount.incrementAndGet();
   }
 
+  /**
+   * Counts a cache miss, for the table of the block too.
+   * @param owner the owner of the block, or null if unknown
+   */
+  public void miss(boolean caching, BlockCacheOwner owner) {
+    miss(caching);
+    if (owner != null) {
+      getTableStats(owner).miss();
+    }
+  }
+
+  /**
+   * Counts a cache hit, for the table of the block too.
+   * @param owner the owner of the block, or null if unknown
+   */
+  public void hit(boolean caching, BlockCacheOwner owner) {
+    hit(caching);
+    if (owner != null) {
+      getTableStats(owner).hit();
+    }
+  }
+
   public void evict() {
     evictionCount.incrementAndGet();
   }
@@ -105,6 +145,132 @@ public class CacheStats {
     evictedBlockCount.incrementAndGet();
   }
 
+  /**
+   * Counts an evicted block, for the table of the block too.
+   * @param owner the owner of the block, or null if unknown
+   */
+  public void evicted(BlockCacheOwner owner) {
+    evicted();
+    if (owner != null) {
+      getTableStats(owner).evicted();
+    }
+  }
+
+  /**
+   * Accounts for a block added to the cache.
+   * @param size the size the block takes in the cache
+   * @param unpackingGrowth how much larger the block is once unpacked
+   * @see #getUnpackingGrowth(Cacheable)
+   */
+  public void blockAdded(long size, long unpackingGrowth) {
+    physicalSize.addAndGet(size);
+    logicalSize.addAndGet(size + unpackingGrowth);
+  }
+
+  /**
+   * Accounts for a block removed from the cache, with the sizes it was added
+   * with.
+   */
+  public void blockRemoved(long size, long unpackingGrowth) {
+    physicalSize.addAndGet(-size);
+    logicalSize.addAndGet(-size - unpackingGrowth);
+  }
+
+  /**
+   * Accounts for a block added to the cache, for the table and family of the
+   * block too.
+   * @param owner the owner of the block, or null if unknown
+   */
+  public void blockAdded(long size, long unpackingGrowth, BlockCacheOwner owner) {
+    blockAdded(size, unpackingGrowth);
+    if (owner != null) {
+      TableCacheStats table;
+      do {
+        table = getTableStats(owner);
+        table.updateShares(owner);
+      } while (!table.blockAdded(owner.getFamily(), size));
+    }
+  }
+
+  /**
+   * Accounts for a block removed from the cache, with the sizes and owner it
+   * was added with.
+   */
+  public void blockRemoved(long size, long unpackingGrowth, BlockCacheOwner owner) {
+    blockRemoved(size, unpackingGrowth);
+    if (owner != null) {
+      getTableStats(owner).blockRemoved(owner.getFamily(), size);
+    }
+  }
+
+  /**
+   * @return the usage of the cache by the table of the given owner
+   */
+  TableCacheStats getTableStats(BlockCacheOwner owner) {
+    TableCacheStats table = tableStats.get(owner.getTable());
+    if (table == null) {
+      TableCacheStats newTable = new TableCacheStats(owner.getTable());
+      newTable.updateShares(owner);
+      table = tableStats.putIfAbsent(owner.getTable(), newTable);
+      if (table == null) {
+        table = newTable;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Drops the usage of the tables which have no block in the cache and had
+   * no request since the previous call, so that dropped tables do not stay
+   * around. Called periodically by the cache.
+   */
+  public void expireIdleTables() {
+    for (TableCacheStats table : tableStats.values()) {
+      if (table.expireIfIdle()) {
+        tableStats.remove(table.getTable(), table);
+      }
+    }
+  }
+
+  /**
+   * @return the usage of the cache by table name, for the blocks cached by
+   *         stores. Tables without blocks nor requests for a while are left
+   *         out, see {@link #expireIdleTables()}.
+   */
+  public Map<String, TableCacheStats> getTableStats() {
+    return Collections.<String, TableCacheStats>unmodifiableMap(tableStats);
+  }
+
+  /**
+   * @param capacity the capacity of the cache
+   * @return the tables which take more than their maximum share of the cache
+   */
+  public Map<String, TableCacheStats> getTablesOverMaxShare(long capacity) {
+    Map<String, TableCacheStats> tables = null;
+    for (TableCacheStats table : tableStats.values()) {
+      if (table.isOverMaxShare(capacity)) {
+        if (tables == null) {
+          tables = new HashMap<String, TableCacheStats>();
+        }
+        tables.put(table.getTable(), table);
+      }
+    }
+    return tables == null ? Collections.<String, TableCacheStats>emptyMap() : tables;
+  }
+
+  /**
+   * @return how many more bytes the given block takes once unpacked, 0 unless
+   *         it is a packed {@link HFileBlock}
+   */
+  public static int getUnpackingGrowth(Cacheable block) {
+    if (block instanceof HFileBlock && ((HFileBlock) block).isPacked()) {
+      HFileBlock hfileBlock = (HFileBlock) block;
+      return hfileBlock.getUnpackedSize()
+          - (hfileBlock.getSerializedLength() - HFileBlock.EXTRA_SERIALIZATION_SPACE);
+    }
+    return 0;
+  }
+
   public long getRequestCount() {
     return getHitCount() + getMissCount();
   }
@@ -137,6 +303,22 @@ public class CacheStats {
     return evictedBlockCount.get();
   }
 
+  /**
+   * @return the size of the blocks in the cache, as they are cached
+   */
+  public long getPhysicalSize() {
+    return physicalSize.get();
+  }
+
+  /**
+   * @return the size the blocks in the cache take once unpacked, which is
+   *         larger than the physical size when data blocks are cached
+   *         compressed
+   */
+  public long getLogicalSize() {
+    return logicalSize.get();
+  }
+
   public double getHitRatio() {
     return ((float)getHitCount()/(float)getRequestCount());
   }
@@ -19,7 +19,9 @@
 package org.apache.hadoop.hbase.io.hfile;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
@@ -28,8 +30,9 @@ import org.apache.hadoop.hbase.io.hfile.BlockType.BlockCategory;
 import org.apache.hadoop.hbase.io.hfile.bucket.BucketCache;
 
 /**
- * CombinedBlockCache is an abstraction layer that combines
- * {@link LruBlockCache} and {@link BucketCache}. The smaller lruCache is used
+ * CombinedBlockCache is an abstraction layer that combines an on-heap
+ * {@link FirstLevelBlockCache}, such as {@link LruBlockCache}, and
+ * {@link BucketCache}. The smaller lruCache is used
  * to cache bloom blocks and index blocks , the larger bucketCache is used to
  * cache data blocks. getBlock reads first from the smaller lruCache before
  * looking for the block in the bucketCache. Metrics are the combined size and
@@ -39,11 +42,11 @@ import org.apache.hadoop.hbase.io.hfile.bucket.BucketCache;
 @InterfaceAudience.Private
 public class CombinedBlockCache implements BlockCache, HeapSize {
 
-  private final LruBlockCache lruCache;
+  private final FirstLevelBlockCache lruCache;
   private final BucketCache bucketCache;
   private final CombinedCacheStats combinedCacheStats;
 
-  public CombinedBlockCache(LruBlockCache lruCache, BucketCache bucketCache) {
+  public CombinedBlockCache(FirstLevelBlockCache lruCache, BucketCache bucketCache) {
     this.lruCache = lruCache;
     this.bucketCache = bucketCache;
     this.combinedCacheStats = new CombinedCacheStats(lruCache.getStats(),
@@ -136,7 +139,7 @@ public class CombinedBlockCache implements BlockCache, HeapSize {
     throw new UnsupportedOperationException();
   }
 
-  private static class CombinedCacheStats extends CacheStats {
+  static class CombinedCacheStats extends CacheStats {
     private final CacheStats lruCacheStats;
     private final CacheStats bucketCacheStats;
 
@@ -191,6 +194,38 @@ public class CombinedBlockCache implements BlockCache, HeapSize {
           + bucketCacheStats.getEvictedCount();
     }
 
+    @Override
+    public long getPhysicalSize() {
+      return lruCacheStats.getPhysicalSize()
+          + bucketCacheStats.getPhysicalSize();
+    }
+
+    @Override
+    public long getLogicalSize() {
+      return lruCacheStats.getLogicalSize()
+          + bucketCacheStats.getLogicalSize();
+    }
+
+    @Override
+    public Map<String, TableCacheStats> getTableStats() {
+      Map<String, TableCacheStats> tables = new HashMap<String, TableCacheStats>();
+      addTableStats(tables, lruCacheStats.getTableStats());
+      addTableStats(tables, bucketCacheStats.getTableStats());
+      return tables;
+    }
+
+    private static void addTableStats(Map<String, TableCacheStats> sum,
+        Map<String, TableCacheStats> tables) {
+      for (TableCacheStats table : tables.values()) {
+        TableCacheStats tableSum = sum.get(table.getTable());
+        if (tableSum == null) {
+          tableSum = new TableCacheStats(table.getTable());
+          sum.put(table.getTable(), tableSum);
+        }
+        tableSum.add(table);
+      }
+    }
+
     @Override
     public double getHitRatioPastNPeriods() {
       double ratio = ((double) (lruCacheStats.getSumHitCountsPastNPeriods() + bucketCacheStats
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+
+/**
+ * Estimates how often keys were seen recently, in a count-min sketch of 4-bit
+ * counters. Each key maps to one counter in each of four table entries, and
+ * its frequency is the smallest of the four.
+ * <p>
+ * Counters saturate at 15. Once the number of increments reaches ten times
+ * the table size, every counter is halved, so that the sketch favours recent
+ * history and keys that stopped being used are eventually forgotten.
+ * <p>
+ * Not thread safe.
+ */
+@InterfaceAudience.Private
+class FrequencySketch {
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  /** Clears the high bit of each counter after a shift right by one */
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_TABLE_SIZE = 1 << 30;
+
+  /** Sixteen 4-bit counters per entry */
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * @param expectedEntries the number of keys the sketch is expected to track
+   */
+  FrequencySketch(long expectedEntries) {
+    int size = 8;
+    while (size < expectedEntries && size < MAX_TABLE_SIZE) {
+      size <<= 1;
+    }
+    this.table = new long[size];
+    this.tableMask = size - 1;
+    this.sampleSize = size >= MAX_TABLE_SIZE / 10 ? Integer.MAX_VALUE : size * 10;
+  }
+
+  /**
+   * @return the estimated number of recent occurrences of the key of the
+   *         given hash, up to 15
+   */
+  int frequency(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an occurrence of the key of the given hash.
+   */
+  void increment(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Increments the given counter of the given entry, unless it is saturated.
+   * @return true if the counter was incremented
+   */
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter */
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  /** Guards against poor hash codes */
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the heap size of a sketch for the given number of keys
+   */
+  static long estimateHeapSize(long expectedEntries) {
+    long size = 8;
+    while (size < expectedEntries && size < MAX_TABLE_SIZE) {
+      size <<= 1;
+    }
+    return ClassSize.align(ClassSize.OBJECT + ClassSize.REFERENCE + 3 * Bytes.SIZEOF_INT)
+        + ClassSize.align(ClassSize.ARRAY + size * Bytes.SIZEOF_LONG);
+  }
+}
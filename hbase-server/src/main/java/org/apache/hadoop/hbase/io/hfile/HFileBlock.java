@@ -124,40 +124,55 @@ public class HFileBlock implements Cacheable {
    */
   static final int CHECKSUM_SIZE = Bytes.SIZEOF_INT;
 
-  private static final CacheableDeserializer<Cacheable> blockDeserializer =
-      new CacheableDeserializer<Cacheable>() {
-        public HFileBlock deserialize(ByteBuffer buf, boolean reuse) throws IOException{
-          buf.limit(buf.limit() - HFileBlock.EXTRA_SERIALIZATION_SPACE).rewind();
-          ByteBuffer newByteBuffer;
-          if (reuse) {
-            newByteBuffer = buf.slice();
-          } else {
-           newByteBuffer = ByteBuffer.allocate(buf.limit());
-           newByteBuffer.put(buf);
-          }
-          buf.position(buf.limit());
-          buf.limit(buf.limit() + HFileBlock.EXTRA_SERIALIZATION_SPACE);
-          int minorVersion=buf.getInt();
-          HFileBlock ourBuffer = new HFileBlock(newByteBuffer, minorVersion);
-          ourBuffer.offset = buf.getLong();
-          ourBuffer.nextBlockOnDiskSizeWithHeader = buf.getInt();
-          return ourBuffer;
-        }
-        
-        @Override
-        public int getDeserialiserIdentifier() {
-          return deserializerIdentifier;
-        }
-
-        @Override
-        public HFileBlock deserialize(ByteBuffer b) throws IOException {
-          return deserialize(b, false);
-        }
-      };
-  private static final int deserializerIdentifier;
+  private static final BlockDeserializer blockDeserializer =
+      new BlockDeserializer(false);
+  /** Deserializes the blocks which were cached in their on-disk form */
+  private static final BlockDeserializer packedBlockDeserializer =
+      new BlockDeserializer(true);
   static {
-    deserializerIdentifier = CacheableDeserializerIdManager
+    blockDeserializer.identifier = CacheableDeserializerIdManager
         .registerDeserializer(blockDeserializer);
+    packedBlockDeserializer.identifier = CacheableDeserializerIdManager
+        .registerDeserializer(packedBlockDeserializer);
+  }
+
+  private static class BlockDeserializer implements CacheableDeserializer<Cacheable> {
+    private final boolean packed;
+    private int identifier;
+
+    BlockDeserializer(boolean packed) {
+      this.packed = packed;
+    }
+
+    @Override
+    public HFileBlock deserialize(ByteBuffer buf, boolean reuse) throws IOException{
+      buf.limit(buf.limit() - HFileBlock.EXTRA_SERIALIZATION_SPACE).rewind();
+      ByteBuffer newByteBuffer;
+      if (reuse) {
+        newByteBuffer = buf.slice();
+      } else {
+       newByteBuffer = ByteBuffer.allocate(buf.limit());
+       newByteBuffer.put(buf);
+      }
+      buf.position(buf.limit());
+      buf.limit(buf.limit() + HFileBlock.EXTRA_SERIALIZATION_SPACE);
+      int minorVersion=buf.getInt();
+      HFileBlock ourBuffer = new HFileBlock(newByteBuffer, minorVersion);
+      ourBuffer.offset = buf.getLong();
+      ourBuffer.nextBlockOnDiskSizeWithHeader = buf.getInt();
+      ourBuffer.packed = packed;
+      return ourBuffer;
+    }
+
+    @Override
+    public int getDeserialiserIdentifier() {
+      return identifier;
+    }
+
+    @Override
+    public HFileBlock deserialize(ByteBuffer b) throws IOException {
+      return deserialize(b, false);
+    }
   }
 
   private BlockType blockType;
@@ -202,6 +217,15 @@ public class HFileBlock implements Cacheable {
    */
   private int nextBlockOnDiskSizeWithHeader = -1;
 
+  /**
+   * Whether the buffer holds the block as it is stored on disk, compressed,
+   * rather than its uncompressed data. A packed block is cached as such, to
+   * fit more data in the cache, and is unpacked by
+   * {@link FSReader#unpack(HFileBlock)} on every access. Only the header of a
+   * packed block can be read.
+   */
+  private boolean packed = false;
+
   /**
    * Creates a new {@link HFile} block from the given fields. This constructor
    * is mostly used when the block data has already been read and uncompressed,
@@ -316,6 +340,26 @@ public class HFileBlock implements Cacheable {
     return uncompressedSizeWithoutHeader;
   }
 
+  /**
+   * @return true if the block is in its on-disk form, compressed, and needs
+   *         to be unpacked before its data is read
+   */
+  public boolean isPacked() {
+    return packed;
+  }
+
+  /**
+   * @return the size of the buffer of this block once unpacked, the header
+   *         included, which for a block that is not packed is the size of its
+   *         buffer
+   */
+  public int getUnpackedSize() {
+    if (!packed) {
+      return buf.limit();
+    }
+    return headerSize() + uncompressedSizeWithoutHeader + totalChecksumBytes();
+  }
+
   /**
    * @return the offset of the previous block of the same type in the file, or
    *         -1 if unknown
@@ -549,8 +593,8 @@ public class HFileBlock implements Cacheable {
         1 * Bytes.SIZEOF_BYTE +
         // This and previous block offset
         2 * Bytes.SIZEOF_LONG +
-        // "Include memstore timestamp" flag
-        Bytes.SIZEOF_BOOLEAN
+        // "Include memstore timestamp" and packed flags
+        2 * Bytes.SIZEOF_BOOLEAN
     );
 
     if (buf != null) {
@@ -626,6 +670,8 @@ public class HFileBlock implements Cacheable {
     private enum State {
       INIT,
       WRITING,
+      /** Encoded and compressed, without its header and checksums yet */
+      COMPRESSED,
       BLOCK_READY
     };
 
@@ -791,7 +837,11 @@ public class HFileBlock implements Cacheable {
         return;
 
       // This will set state to BLOCK_READY.
-      finishBlock();
+      if (state == State.COMPRESSED) {
+        finishHeaderAndChecksums(prevOffsetByType[blockType.getId()]);
+      } else {
+        finishBlock();
+      }
     }
 
     /**
@@ -801,15 +851,23 @@ public class HFileBlock implements Cacheable {
      * write state to "block ready".
      */
     private void finishBlock() throws IOException {
+      compressBlock();
+      finishHeaderAndChecksums(prevOffsetByType[blockType.getId()]);
+    }
+
+    /**
+     * Encodes and compresses the block being written, leaving its header and
+     * checksums to {@link #writeCompressedBlock(FSDataOutputStream, long)}.
+     * Lets the encoding and the compression of data blocks run on another
+     * thread than the writing one, before the offset of the previous block is
+     * known. Sets block write state to "compressed".
+     */
+    void compressBlock() throws IOException {
+      expectState(State.WRITING);
       userDataStream.flush();
       // This does an array copy, so it is safe to cache this byte array.
       uncompressedBytesWithHeader = baosInMemory.toByteArray();
-      prevOffset = prevOffsetByType[blockType.getId()];
 
-      // We need to set state before we can package the block up for
-      // cache-on-write. In a way, the block is ready, but not yet encoded or
-      // compressed.
-      state = State.BLOCK_READY;
       if (blockType == BlockType.DATA) {
         encodeDataBlockForDisk();
       } else {
@@ -818,6 +876,31 @@ public class HFileBlock implements Cacheable {
         onDiskBytesWithHeader =
           defaultBlockEncodingCtx.getOnDiskBytesWithHeader();
       }
+      state = State.COMPRESSED;
+    }
+
+    /**
+     * Writes a block compressed by {@link #compressBlock()}, as
+     * {@link #writeHeaderAndData(FSDataOutputStream)} does.
+     *
+     * @param out the stream to write the block to
+     * @param prevOffset the offset of the previous block of the same type in
+     *          the stream, -1 if none
+     */
+    void writeCompressedBlock(FSDataOutputStream out, long prevOffset)
+        throws IOException {
+      expectState(State.COMPRESSED);
+      finishHeaderAndChecksums(prevOffset);
+      writeHeaderAndData(out);
+    }
+
+    /**
+     * Serializes the header of a compressed block, and computes its
+     * checksums. Sets block write state to "block ready".
+     */
+    private void finishHeaderAndChecksums(long prevOffset) throws IOException {
+      this.prevOffset = prevOffset;
+      state = State.BLOCK_READY;
 
       int numBytes = (int) ChecksumUtil.numBytes(
           onDiskBytesWithHeader.length,
@@ -1062,6 +1145,29 @@ public class HFileBlock implements Cacheable {
           0, ChecksumType.NULL.getCode(),  // no checksums in cached data
           onDiskBytesWithHeader.length + onDiskChecksum.length);
     }
+
+    /**
+     * Creates a new HFileBlock in the form it is written to disk, compressed
+     * and with its checksums, to be cached packed. Returns the same as
+     * {@link #getBlockForCaching()} if compression is not used.
+     */
+    public HFileBlock getPackedBlockForCaching() throws IOException {
+      if (defaultBlockEncodingCtx.getCompression() == Compression.Algorithm.NONE) {
+        return getBlockForCaching();
+      }
+      // A copy, as the on-disk bytes may be reused by the next block
+      byte[] onDiskBlock = new byte[onDiskBytesWithHeader.length + onDiskChecksum.length];
+      System.arraycopy(onDiskBytesWithHeader, 0, onDiskBlock, 0,
+          onDiskBytesWithHeader.length);
+      System.arraycopy(onDiskChecksum, 0, onDiskBlock, onDiskBytesWithHeader.length,
+          onDiskChecksum.length);
+      HFileBlock block = new HFileBlock(ByteBuffer.wrap(onDiskBlock),
+          MINOR_VERSION_WITH_CHECKSUM);
+      block.offset = startOffset;
+      block.includesMemstoreTS = includesMemstoreTS;
+      block.packed = true;
+      return block;
+    }
   }
 
   /** Something that can be written into a block. */
@@ -1113,6 +1219,30 @@ public class HFileBlock implements Cacheable {
     HFileBlock readBlockData(long offset, long onDiskSize,
         int uncompressedSize, boolean pread) throws IOException;
 
+    /**
+     * Reads the block at the given offset in the file, like
+     * {@link #readBlockData(long, long, int, boolean)}, but leaves it in its
+     * on-disk form if it is compressed, once its checksums are verified.
+     *
+     * @param offset
+     * @param onDiskSize the on-disk size of the entire block, including all
+     *          applicable headers, or -1 if unknown
+     * @return the newly read block, which is packed if compression is used
+     * @see HFileBlock#isPacked()
+     */
+    HFileBlock readPackedBlockData(long offset, long onDiskSize, boolean pread)
+        throws IOException;
+
+    /**
+     * Decompresses a packed block, read by this reader or cached. The packed
+     * block is left untouched, so that it can be shared.
+     *
+     * @param block a block of the file of this reader
+     * @return the given block if it is not packed, or else a new block holding
+     *         its uncompressed data
+     */
+    HFileBlock unpack(HFileBlock block) throws IOException;
+
     /**
      * Creates a block iterator over the given portion of the {@link HFile}.
      * The iterator returns blocks starting with offset such that offset <=
@@ -1347,6 +1477,21 @@ public class HFileBlock implements Cacheable {
     @Override
     public HFileBlock readBlockData(long offset, long onDiskSizeWithHeaderL,
         int uncompressedSize, boolean pread) throws IOException {
+      return readBlockData(offset, onDiskSizeWithHeaderL, uncompressedSize,
+          pread, true);
+    }
+
+    @Override
+    public HFileBlock readPackedBlockData(long offset, long onDiskSizeWithHeaderL,
+        boolean pread) throws IOException {
+      return readBlockData(offset, onDiskSizeWithHeaderL, -1, pread, false);
+    }
+
+    /**
+     * @param unpack whether to decompress the block, or leave it packed
+     */
+    private HFileBlock readBlockData(long offset, long onDiskSizeWithHeaderL,
+        int uncompressedSize, boolean pread, boolean unpack) throws IOException {
 
       // get a copy of the current state of whether to validate
       // hbase checksums or not for this read call. This is not 
@@ -1359,7 +1504,7 @@ public class HFileBlock implements Cacheable {
       HFileBlock blk = readBlockDataInternal(is, offset, 
                          onDiskSizeWithHeaderL, 
                          uncompressedSize, pread,
-                         doVerificationThruHBaseChecksum);
+                         doVerificationThruHBaseChecksum, unpack);
       if (blk == null) {
         HFile.LOG.warn("HBase checksum verification failed for file " +
                        path + " at offset " +
@@ -1387,7 +1532,7 @@ public class HFileBlock implements Cacheable {
         doVerificationThruHBaseChecksum = false;
         blk = readBlockDataInternal(is, offset, onDiskSizeWithHeaderL,
                                     uncompressedSize, pread,
-                                    doVerificationThruHBaseChecksum);
+                                    doVerificationThruHBaseChecksum, unpack);
         if (blk != null) {
           HFile.LOG.warn("HDFS checksum verification suceeded for file " +
                          path + " at offset " +
@@ -1424,11 +1569,12 @@ public class HFileBlock implements Cacheable {
      * @param pread whether to use a positional read
      * @param verifyChecksum Whether to use HBase checksums. 
      *        If HBase checksum is switched off, then use HDFS checksum.
+     * @param unpack whether to decompress the block, or leave it packed
      * @return the HFileBlock or null if there is a HBase checksum mismatch
      */
     private HFileBlock readBlockDataInternal(FSDataInputStream is, long offset, 
         long onDiskSizeWithHeaderL, int uncompressedSize, boolean pread,
-        boolean verifyChecksum) throws IOException {
+        boolean verifyChecksum, boolean unpack) throws IOException {
       if (offset < 0) {
         throw new IOException("Invalid offset=" + offset + " trying to read "
             + "block (onDiskSize=" + onDiskSizeWithHeaderL
@@ -1551,7 +1697,7 @@ public class HFileBlock implements Cacheable {
         return null;             // checksum mismatch
       }
 
-      if (isCompressed) {
+      if (isCompressed && unpack) {
         // This will allocate a new buffer but keep header bytes.
         b.allocateBuffer(nextBlockOnDiskSize > 0);
         if (b.blockType.equals(BlockType.ENCODED_DATA)) {
@@ -1577,6 +1723,7 @@ public class HFileBlock implements Cacheable {
         // block's header in it.
         b = new HFileBlock(ByteBuffer.wrap(onDiskBlock, 0,
                 onDiskSizeWithHeader), getMinorVersion());
+        b.packed = isCompressed;
       }
 
       b.nextBlockOnDiskSizeWithHeader = nextBlockOnDiskSize;
@@ -1593,6 +1740,36 @@ public class HFileBlock implements Cacheable {
       return b;
     }
 
+    @Override
+    public HFileBlock unpack(HFileBlock block) throws IOException {
+      if (!block.packed) {
+        return block;
+      }
+      int headerSize = block.headerSize();
+      ByteBuffer packedBuf = block.getBufferWithHeader();
+      // Parses the header, and shares the buffer until a new one is allocated
+      HFileBlock b = new HFileBlock(packedBuf.duplicate(), block.minorVersion);
+      // Keep the header of the next block if it was read with this one
+      boolean nextHeader = block.nextBlockOnDiskSizeWithHeader > 0
+          && packedBuf.capacity() >= packedBuf.limit() + headerSize;
+      b.allocateBuffer(nextHeader);
+      HFileBlockDecodingContext decodingCtx = b.blockType == BlockType.ENCODED_DATA
+          ? encodedBlockDecodingCtx : defaultDecodingCtx;
+      decodingCtx.prepareDecoding(b.getOnDiskSizeWithoutHeader(),
+          b.getUncompressedSizeWithoutHeader(), b.getBufferWithoutHeader(),
+          packedBuf.array(), packedBuf.arrayOffset() + headerSize);
+      if (nextHeader) {
+        System.arraycopy(packedBuf.array(), packedBuf.arrayOffset() + packedBuf.limit(),
+            b.buf.array(), b.buf.arrayOffset() + headerSize
+            + b.uncompressedSizeWithoutHeader + b.totalChecksumBytes(),
+            headerSize);
+      }
+      b.offset = block.offset;
+      b.nextBlockOnDiskSizeWithHeader = block.nextBlockOnDiskSizeWithHeader;
+      b.includesMemstoreTS = block.includesMemstoreTS;
+      return b;
+    }
+
     void setIncludesMemstoreTS(boolean enabled) {
       includesMemstoreTS = enabled;
     }
@@ -1649,7 +1826,7 @@ public class HFileBlock implements Cacheable {
 
   @Override
   public CacheableDeserializer<Cacheable> getDeserializer() {
-    return HFileBlock.blockDeserializer;
+    return packed ? HFileBlock.packedBlockDeserializer : HFileBlock.blockDeserializer;
   }
 
   @Override
@@ -1684,6 +1861,9 @@ public class HFileBlock implements Cacheable {
     if (castedComparison.uncompressedSizeWithoutHeader != this.uncompressedSizeWithoutHeader) {
       return false;
     }
+    if (castedComparison.packed != this.packed) {
+      return false;
+    }
     if (this.buf.compareTo(castedComparison.buf) != 0) {
       return false;
     }
@@ -178,7 +178,7 @@ public class HFileBlockIndex {
         boolean pread, boolean isCompaction)
         throws IOException {
       BlockWithScanInfo blockWithScanInfo = loadDataBlockWithScanInfo(key, keyOffset, keyLength,
-          currentBlock, cacheBlocks, pread, isCompaction);
+          currentBlock, cacheBlocks, pread, isCompaction, null);
       if (blockWithScanInfo == null) {
         return null;
       } else {
@@ -199,13 +199,17 @@ public class HFileBlockIndex {
      * @param cacheBlocks
      * @param pread
      * @param isCompaction
+     * @param blockFilter if not null, the data block holding the key is
+     *          replaced by the first one from there on that overlaps the time
+     *          range of the filter, if any. The next indexed key of a block
+     *          loaded that way is unknown, and null.
      * @return the BlockWithScanInfo which contains the DataBlock with other scan info
      *         such as nextIndexedKey.
      * @throws IOException
      */
     public BlockWithScanInfo loadDataBlockWithScanInfo(final byte[] key, int keyOffset,
         int keyLength, HFileBlock currentBlock, boolean cacheBlocks,
-        boolean pread, boolean isCompaction)
+        boolean pread, boolean isCompaction, BlockTimeRanges.Filter blockFilter)
         throws IOException {
       int rootLevelIndex = rootBlockContainingKey(key, keyOffset, keyLength);
       if (rootLevelIndex < 0 || rootLevelIndex >= blockOffsets.length) {
@@ -231,6 +235,18 @@ public class HFileBlockIndex {
       HFileBlock block;
       while (true) {
 
+        if (lookupLevel == searchTreeLevel && blockFilter != null) {
+          // Reached the data block: skip it if it is out of the time range.
+          BlockTimeRanges ranges = blockFilter.getRanges();
+          int dataBlock = ranges.indexOf(currentOffset);
+          int overlapping = dataBlock < 0 ? -1 : blockFilter.nextOverlappingBlock(dataBlock);
+          if (overlapping > dataBlock) {
+            currentOffset = ranges.getOffset(overlapping);
+            currentOnDiskSize = ranges.getOnDiskSize(overlapping);
+            nextIndexedKey = null;
+          }
+        }
+
         if (currentBlock != null && currentBlock.getOffset() == currentOffset)
         {
           // Avoid reading the same block again, even with caching turned off.
@@ -776,6 +792,9 @@ public class HFileBlockIndex {
     /** Name to use for computing cache keys */
     private String nameForCaching;
 
+    /** The table and family of the cached index blocks, or null if unknown */
+    private BlockCacheOwner cacheOwner;
+
     /** Creates a single-level block index writer */
     public BlockIndexWriter() {
       this(null, null, null);
@@ -791,6 +810,20 @@ public class HFileBlockIndex {
      */
     public BlockIndexWriter(HFileBlock.Writer blockWriter,
         BlockCache blockCache, String nameForCaching) {
+      this(blockWriter, blockCache, nameForCaching, null);
+    }
+
+    /**
+     * Creates a multi-level block index writer.
+     *
+     * @param blockWriter the block writer to use to write index blocks
+     * @param blockCache if this is not null, index blocks will be cached
+     *    on write into this block cache.
+     * @param cacheOwner the table and family of the cached index blocks
+     */
+    public BlockIndexWriter(HFileBlock.Writer blockWriter,
+        BlockCache blockCache, String nameForCaching,
+        BlockCacheOwner cacheOwner) {
       if ((blockCache == null) != (nameForCaching == null)) {
         throw new IllegalArgumentException("Block cache and file name for " +
             "caching must be both specified or both null");
@@ -799,6 +832,7 @@ public class HFileBlockIndex {
       this.blockWriter = blockWriter;
       this.blockCache = blockCache;
       this.nameForCaching = nameForCaching;
+      this.cacheOwner = cacheOwner;
       this.maxChunkSize = HFileBlockIndex.DEFAULT_MAX_CHUNK_SIZE;
     }
 
@@ -954,8 +988,8 @@ public class HFileBlockIndex {
       if (blockCache != null) {
         HFileBlock blockForCaching = blockWriter.getBlockForCaching();
         blockCache.cacheBlock(new BlockCacheKey(nameForCaching,
-            beginOffset, DataBlockEncoding.NONE, 
-            blockForCaching.getBlockType()), blockForCaching);
+            beginOffset, DataBlockEncoding.NONE,
+            blockForCaching.getBlockType(), cacheOwner), blockForCaching);
       }
 
       // Add intermediate index block size
@@ -1035,6 +1069,26 @@ public class HFileBlockIndex {
       }
     }
 
+    /**
+     * Whether {@link #shouldWriteBlock(boolean)} would return true, when not
+     * closing, once entries with the given keys are added. The size of an
+     * entry in the inline chunk does not depend on its offset and size, so
+     * this can be decided before the blocks are written.
+     *
+     * @param firstKeys the keys of the entries to be added
+     */
+    boolean shouldWriteBlockWith(List<byte[]> firstKeys) {
+      if (curInlineChunk.getNumEntries() == 0 && firstKeys.isEmpty()) {
+        return false;
+      }
+      int size = curInlineChunk.getNonRootSize();
+      for (byte[] firstKey : firstKeys) {
+        // the secondary index entry and the entry itself
+        size += Bytes.SIZEOF_INT + SECONDARY_INDEX_ENTRY_OVERHEAD + firstKey.length;
+      }
+      return size >= maxChunkSize;
+    }
+
     /**
      * Write out the current inline index block. Inline blocks are non-root
      * blocks, so the non-root index format is used.
@@ -18,7 +18,9 @@
  */
 package org.apache.hadoop.hbase.io.hfile;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -34,8 +36,10 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.fs.HFileSystem;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoder;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.io.hfile.BlockType.BlockCategory;
 import org.apache.hadoop.hbase.io.hfile.HFile.FileInfo;
 import org.apache.hadoop.hbase.io.FSDataInputStreamWrapper;
+import org.apache.hadoop.hbase.regionserver.ServerSideScanMetrics;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.IdLock;
 import org.apache.hadoop.io.WritableUtils;
@@ -78,6 +82,13 @@ public class HFileReaderV2 extends AbstractHFileReader {
    */
   private List<HFileBlock> loadOnOpenBlocks = new ArrayList<HFileBlock>();
 
+  /**
+   * Timestamp ranges of the data blocks, read on first use by a scanner with
+   * a time range. Null if the file has none.
+   */
+  private volatile BlockTimeRanges blockTimeRanges;
+  private volatile boolean blockTimeRangesLoaded = false;
+
   /** Minimum minor version supported by this HFile format */
   static final int MIN_MINOR_VERSION = 0;
 
@@ -189,6 +200,29 @@ public class HFileReaderV2 extends AbstractHFileReader {
     return new ScannerV2(this, cacheBlocks, pread, isCompaction);
   }
 
+  /**
+   * @return the timestamp ranges of the data blocks of this file, or null if
+   *         the file has none, e.g. because it was written before they were
+   *         recorded or has a single data block
+   */
+  BlockTimeRanges getBlockTimeRanges() throws IOException {
+    if (!blockTimeRangesLoaded) {
+      synchronized (this) {
+        if (!blockTimeRangesLoaded) {
+          ByteBuffer buf = getMetaBlock(BlockTimeRanges.META_BLOCK_NAME, false);
+          if (buf != null) {
+            BlockTimeRanges ranges = new BlockTimeRanges();
+            ranges.readFields(new DataInputStream(new ByteArrayInputStream(buf.array(),
+                buf.arrayOffset() + buf.position(), buf.remaining())));
+            blockTimeRanges = ranges;
+          }
+          blockTimeRangesLoaded = true;
+        }
+      }
+    }
+    return blockTimeRanges;
+  }
+
   /**
    * @param metaBlockName
    * @param cacheBlock Add block to cache, if found
@@ -220,7 +254,7 @@ public class HFileReaderV2 extends AbstractHFileReader {
       // Check cache for block. If found return.
       long metaBlockOffset = metaBlockIndexReader.getRootBlockOffset(block);
       BlockCacheKey cacheKey = new BlockCacheKey(name, metaBlockOffset,
-          DataBlockEncoding.NONE, BlockType.META);
+          DataBlockEncoding.NONE, BlockType.META, cacheConf.getOwner());
 
       cacheBlock &= cacheConf.shouldCacheDataOnRead();
       if (cacheConf.isBlockCacheEnabled()) {
@@ -288,7 +322,7 @@ public class HFileReaderV2 extends AbstractHFileReader {
     BlockCacheKey cacheKey =
         new BlockCacheKey(name, dataBlockOffset,
             dataBlockEncoder.getEffectiveEncodingInCache(isCompaction),
-            expectedBlockType);
+            expectedBlockType, cacheConf.getOwner());
 
     boolean useLock = false;
     IdLock.Entry lockEntry = null;
@@ -306,6 +340,7 @@ public class HFileReaderV2 extends AbstractHFileReader {
           HFileBlock cachedBlock = (HFileBlock) cacheConf.getBlockCache().getBlock(cacheKey,
               cacheBlock, useLock);
           if (cachedBlock != null) {
+            cachedBlock = fsBlockReader.unpack(cachedBlock);
             if (cachedBlock.getBlockType() == BlockType.DATA) {
               HFile.dataBlockReadCnt.incrementAndGet();
             }
@@ -320,6 +355,7 @@ public class HFileReaderV2 extends AbstractHFileReader {
                   + "has wrong encoding: " + cachedBlock.getDataBlockEncoding() + " (expected: "
                   + dataBlockEncoder.getEncodingInCache() + ")");
             }
+            ServerSideScanMetrics.blockReadFromCache();
             return cachedBlock;
           }
           // Carry on, please load.
@@ -332,17 +368,25 @@ public class HFileReaderV2 extends AbstractHFileReader {
 
         // Load block from filesystem.
         long startTimeNs = System.nanoTime();
-        HFileBlock hfileBlock = fsBlockReader.readBlockData(dataBlockOffset, onDiskBlockSize, -1,
-            pread);
-        hfileBlock = dataBlockEncoder.diskToCacheFormat(hfileBlock, isCompaction);
+        HFileBlock packedBlock = fsBlockReader.readPackedBlockData(dataBlockOffset,
+            onDiskBlockSize, pread);
+        HFileBlock unpackedBlock = fsBlockReader.unpack(packedBlock);
+        HFileBlock hfileBlock = dataBlockEncoder.diskToCacheFormat(unpackedBlock, isCompaction);
         validateBlockType(hfileBlock, expectedBlockType);
 
         final long delta = System.nanoTime() - startTimeNs;
         HFile.offerReadLatency(delta, pread);
+        ServerSideScanMetrics.blockReadFromFs(hfileBlock.getOnDiskSizeWithHeader());
 
         // Cache the block if necessary
-        if (cacheBlock && cacheConf.shouldCacheBlockOnRead(hfileBlock.getBlockType().getCategory())) {
-          cacheConf.getBlockCache().cacheBlock(cacheKey, hfileBlock, cacheConf.isInMemory());
+        BlockCategory category = hfileBlock.getBlockType().getCategory();
+        if (cacheBlock && cacheConf.shouldCacheBlockOnRead(category)) {
+          // The block is cached in its on-disk form if that is what the
+          // cache holds, that is if its in-cache encoding is the on-disk one
+          boolean cachePacked = hfileBlock == unpackedBlock
+              && cacheConf.shouldCacheCompressed(category);
+          cacheConf.getBlockCache().cacheBlock(cacheKey,
+              cachePacked ? packedBlock : hfileBlock, cacheConf.isInMemory());
         }
 
         if (hfileBlock.getBlockType() == BlockType.DATA) {
@@ -441,11 +485,28 @@ public class HFileReaderV2 extends AbstractHFileReader {
      */
     protected byte[] nextIndexedKey;
 
+    /**
+     * Picks the data blocks to read if this scanner skips the ones outside
+     * of its time range, null otherwise.
+     */
+    protected BlockTimeRanges.Filter blockFilter;
+
     public AbstractScannerV2(HFileReaderV2 r, boolean cacheBlocks,
         final boolean pread, final boolean isCompaction) {
       super(r, cacheBlocks, pread, isCompaction);
     }
 
+    @Override
+    public void setTimeRange(long minTimestamp, long maxTimestamp) throws IOException {
+      blockFilter = null;
+      if (minTimestamp != Long.MIN_VALUE || maxTimestamp != Long.MAX_VALUE) {
+        BlockTimeRanges ranges = ((HFileReaderV2) reader).getBlockTimeRanges();
+        if (ranges != null) {
+          blockFilter = ranges.forTimeRange(minTimestamp, maxTimestamp);
+        }
+      }
+    }
+
     /**
      * An internal API function. Seek to the given key, optionally rewinding to
      * the first key of the block before doing the seek.
@@ -468,11 +529,15 @@ public class HFileReaderV2 extends AbstractHFileReader {
           reader.getDataBlockIndexReader();
       BlockWithScanInfo blockWithScanInfo =
         indexReader.loadDataBlockWithScanInfo(key, offset, length, block,
-            cacheBlocks, pread, isCompaction);
+            cacheBlocks, pread, isCompaction, blockFilter);
       if (blockWithScanInfo == null || blockWithScanInfo.getHFileBlock() == null) {
         // This happens if the key e.g. falls before the beginning of the file.
         return -1;
       }
+      // If the block holding the key was skipped, the one loaded instead
+      // starts after the key: the seek lands on its first key and returns
+      // HConstants.INDEX_KEY_MAGIC, as when the key falls between a faked
+      // index key and the first key of its block.
       return loadBlockAndSeekToKey(blockWithScanInfo.getHFileBlock(),
           blockWithScanInfo.getNextIndexedKey(), rewind, key, offset, length, false);
     }
@@ -569,6 +634,22 @@ public class HFileReaderV2 extends AbstractHFileReader {
 
       HFileBlock curBlock = block;
 
+      if (blockFilter != null) {
+        BlockTimeRanges ranges = blockFilter.getRanges();
+        int current = ranges.indexOf(curBlock.getOffset());
+        if (current >= 0) {
+          int next = blockFilter.nextOverlappingBlock(current + 1);
+          if (next < 0) {
+            // Nothing in the rest of the file is in the time range.
+            return null;
+          }
+          if (next > current + 1) {
+            return reader.readBlock(ranges.getOffset(next), ranges.getOnDiskSize(next),
+                cacheBlocks, pread, isCompaction, BlockType.DATA);
+          }
+        }
+      }
+
       do {
         if (curBlock.getOffset() >= lastDataBlockOffset)
           return null;
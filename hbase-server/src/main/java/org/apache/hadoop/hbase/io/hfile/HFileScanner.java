@@ -144,4 +144,15 @@ public interface HFileScanner {
    * Otherwise returns false.
    */
   public boolean isSeeked();
+  /**
+   * Lets the scanner skip the data blocks that only hold cells outside of the
+   * time range [minTimestamp, maxTimestamp), and delete markers older than
+   * it. Only for scanners that go forward and whose caller ignores such
+   * cells: once set, {@link #next()} may jump over blocks, and a seek or
+   * reseek may land on a key after the first key at or after the one sought,
+   * returning {@link org.apache.hadoop.hbase.HConstants#INDEX_KEY_MAGIC}.
+   * Scanners of files without per block timestamp ranges ignore it.
+   * @throws IOException
+   */
+  public void setTimeRange(long minTimestamp, long maxTimestamp) throws IOException;
 }
@@ -22,8 +22,18 @@ package org.apache.hadoop.hbase.io.hfile;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,6 +53,8 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Writes HFile format version 2.
  */
@@ -61,6 +73,24 @@ public class HFileWriterV2 extends AbstractHFileWriter {
   /** Version for KeyValue which includes memstore timestamp */
   public static final int KEY_VALUE_VER_WITH_MEMSTORE = 1;
 
+  /**
+   * The number of threads compressing the data blocks of all the compressed
+   * HFiles being written, in parallel with the writing threads. 0 compresses
+   * each block on the thread writing it.
+   */
+  public static final String COMPRESSION_THREADS_KEY = "hbase.hfile.compression.threads";
+  public static final int DEFAULT_COMPRESSION_THREADS = 0;
+
+  /** How long a compression thread is kept around with nothing to compress */
+  private static final long COMPRESSION_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * The threads compressing data blocks, shared by all the writers of the
+   * region server. Idle threads exit, so a writer abandoned without being
+   * closed leaves nothing behind.
+   */
+  private static ThreadPoolExecutor compressionPool = null;
+
   /** Inline block writers for multi-level block index and compound Blooms. */
   private List<InlineBlockWriter> inlineBlockWriters =
       new ArrayList<InlineBlockWriter>();
@@ -68,6 +98,29 @@ public class HFileWriterV2 extends AbstractHFileWriter {
   /** Unified version 2 block writer */
   private HFileBlock.Writer fsBlockWriter;
 
+  /**
+   * The writer of the current data block. The same as {@link #fsBlockWriter},
+   * unless data blocks are compressed in parallel.
+   */
+  private HFileBlock.Writer dataBlockWriter;
+
+  /** The pool compressing the data blocks, null to compress them inline */
+  private ExecutorService blockCompressionPool;
+
+  /** The data blocks being compressed, in the order they are written out */
+  private final Deque<PendingBlock> pendingBlocks = new ArrayDeque<PendingBlock>();
+
+  /** The data block writers neither pending nor in use */
+  private final Deque<HFileBlock.Writer> idleBlockWriters =
+      new ArrayDeque<HFileBlock.Writer>();
+
+  /** All the data block writers used for parallel compression */
+  private final List<HFileBlock.Writer> dataBlockWriters =
+      new ArrayList<HFileBlock.Writer>();
+
+  /** The number of data blocks compressed at once by this writer */
+  private int maxPendingBlocks;
+
   private HFileBlockIndex.BlockIndexWriter dataBlockIndexWriter;
   private HFileBlockIndex.BlockIndexWriter metaBlockIndexWriter;
 
@@ -91,6 +144,59 @@ public class HFileWriterV2 extends AbstractHFileWriter {
   private final boolean includeMemstoreTS;
   private long maxMemstoreTS = 0;
 
+  /**
+   * Timestamp ranges of the data blocks written so far, or null if the keys
+   * of this file are not KeyValue keys.
+   */
+  private final BlockTimeRanges blockTimeRanges;
+
+  /** The [min, max] timestamps of the current data block */
+  private final long[] blockTimeRange = new long[2];
+
+  /**
+   * A data block handed to the compression pool, with what is needed to index
+   * it once written out.
+   */
+  private static class PendingBlock {
+    final HFileBlock.Writer writer;
+    final Future<Void> compression;
+    final byte[] indexKey;
+    final long minTimestamp;
+    final long maxTimestamp;
+
+    PendingBlock(HFileBlock.Writer writer, Future<Void> compression,
+        byte[] indexKey, long minTimestamp, long maxTimestamp) {
+      this.writer = writer;
+      this.compression = compression;
+      this.indexKey = indexKey;
+      this.minTimestamp = minTimestamp;
+      this.maxTimestamp = maxTimestamp;
+    }
+  }
+
+  /**
+   * @return the pool compressing data blocks, created on first use and grown
+   *         to the largest number of threads asked for
+   */
+  private static synchronized ExecutorService getCompressionPool(int threads) {
+    if (compressionPool == null) {
+      compressionPool = new ThreadPoolExecutor(threads, threads,
+          COMPRESSION_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryBuilder()
+              .setNameFormat("HFileBlockCompression-%d")
+              .setDaemon(true)
+              .build());
+      compressionPool.allowCoreThreadTimeOut(true);
+      LOG.info("Compressing HFile data blocks with " + threads + " threads");
+    } else if (compressionPool.getMaximumPoolSize() < threads) {
+      compressionPool.setMaximumPoolSize(threads);
+      compressionPool.setCorePoolSize(threads);
+      LOG.info("Compressing HFile data blocks with " + threads + " threads");
+    }
+    return compressionPool;
+  }
+
   static class WriterFactoryV2 extends HFile.WriterFactory {
     WriterFactoryV2(Configuration conf, CacheConfig cacheConf) {
       super(conf, cacheConf);
@@ -119,6 +225,7 @@ public class HFileWriterV2 extends AbstractHFileWriter {
     this.checksumType = checksumType;
     this.bytesPerChecksum = bytesPerChecksum;
     this.includeMemstoreTS = includeMVCCReadpoint;
+    this.blockTimeRanges = comparator instanceof KeyComparator ? new BlockTimeRanges() : null;
     finishInit(conf);
   }
 
@@ -130,12 +237,20 @@ public class HFileWriterV2 extends AbstractHFileWriter {
     // HFile filesystem-level (non-caching) block writer
     fsBlockWriter = new HFileBlock.Writer(compressAlgo, blockEncoder,
         includeMemstoreTS, checksumType, bytesPerChecksum);
+    dataBlockWriter = fsBlockWriter;
+    int compressionThreads = conf.getInt(COMPRESSION_THREADS_KEY, DEFAULT_COMPRESSION_THREADS);
+    if (compressAlgo != Compression.Algorithm.NONE && compressionThreads > 0) {
+      blockCompressionPool = getCompressionPool(compressionThreads);
+      // enough to keep all the threads busy with the blocks of this writer
+      maxPendingBlocks = 2 * compressionThreads;
+      dataBlockWriter = takeDataBlockWriter();
+    }
 
     // Data block index writer
     boolean cacheIndexesOnWrite = cacheConf.shouldCacheIndexesOnWrite();
     dataBlockIndexWriter = new HFileBlockIndex.BlockIndexWriter(fsBlockWriter,
         cacheIndexesOnWrite ? cacheConf.getBlockCache(): null,
-        cacheIndexesOnWrite ? name : null);
+        cacheIndexesOnWrite ? name : null, cacheConf.getOwner());
     dataBlockIndexWriter.setMaxChunkSize(
         HFileBlockIndex.getMaxChunkSize(conf));
     inlineBlockWriters.add(dataBlockIndexWriter);
@@ -151,7 +266,7 @@ public class HFileWriterV2 extends AbstractHFileWriter {
    * @throws IOException
    */
   private void checkBlockBoundary() throws IOException {
-    if (fsBlockWriter.blockSizeWritten() < blockSize)
+    if (dataBlockWriter.blockSizeWritten() < blockSize)
       return;
 
     finishBlock();
@@ -161,10 +276,26 @@ public class HFileWriterV2 extends AbstractHFileWriter {
 
   /** Clean up the current block */
   private void finishBlock() throws IOException {
-    if (!fsBlockWriter.isWriting() || fsBlockWriter.blockSizeWritten() == 0)
+    if (!dataBlockWriter.isWriting() || dataBlockWriter.blockSizeWritten() == 0)
       return;
 
     long startTimeNs = System.nanoTime();
+    byte[] indexKey = getIndexKey();
+    if (blockCompressionPool != null) {
+      final HFileBlock.Writer writer = dataBlockWriter;
+      Future<Void> compression = blockCompressionPool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          writer.compressBlock();
+          return null;
+        }
+      });
+      pendingBlocks.addLast(new PendingBlock(writer, compression, indexKey,
+          blockTimeRange[0], blockTimeRange[1]));
+      dataBlockWriter = takeDataBlockWriter();
+      return;
+    }
+
     // Update the first data block offset for scanning.
     if (firstDataBlockOffset == -1) {
       firstDataBlockOffset = outputStream.getPos();
@@ -172,7 +303,14 @@ public class HFileWriterV2 extends AbstractHFileWriter {
     // Update the last data block offset
     lastDataBlockOffset = outputStream.getPos();
     fsBlockWriter.writeHeaderAndData(outputStream);
-    int onDiskSize = fsBlockWriter.getOnDiskSizeWithHeader();
+    dataBlockWritten(fsBlockWriter, indexKey, blockTimeRange[0], blockTimeRange[1],
+        startTimeNs);
+  }
+
+  /**
+   * @return the key of the current block in the data block index
+   */
+  private byte[] getIndexKey() throws IOException {
     // Generate a shorter faked key into index block. For example, consider a block boundary
     // between the keys "the quick brown fox" and "the who test text".  We can use "the r" as the 
     // key for the index block entry since it is > all entries in the previous block and <= all
@@ -190,21 +328,117 @@ public class HFileWriterV2 extends AbstractHFileWriter {
             Bytes.toString(lastKeyOfPreviousBlock) + ", fakeKey:" +
             Bytes.toString(fakeKey));
       }
-      dataBlockIndexWriter.addEntry(fakeKey, lastDataBlockOffset,onDiskSize);
-    } else {
-      dataBlockIndexWriter.addEntry(firstKeyInBlock, lastDataBlockOffset,onDiskSize);
+      return fakeKey;
     }
-    totalUncompressedBytes += fsBlockWriter.getUncompressedSizeWithHeader();
+    return firstKeyInBlock;
+  }
+
+  /**
+   * Indexes, accounts for and caches the data block just written at
+   * {@link #lastDataBlockOffset}.
+   */
+  private void dataBlockWritten(HFileBlock.Writer writer, byte[] indexKey,
+      long minTimestamp, long maxTimestamp, long startTimeNs) throws IOException {
+    int onDiskSize = writer.getOnDiskSizeWithHeader();
+    dataBlockIndexWriter.addEntry(indexKey, lastDataBlockOffset, onDiskSize);
+    if (blockTimeRanges != null) {
+      blockTimeRanges.add(lastDataBlockOffset, onDiskSize, minTimestamp, maxTimestamp);
+    }
+    totalUncompressedBytes += writer.getUncompressedSizeWithHeader();
     HFile.offerWriteLatency(System.nanoTime() - startTimeNs);
     if (cacheConf.shouldCacheDataOnWrite()) {
-      doCacheOnWrite(lastDataBlockOffset);
+      doCacheOnWrite(writer, lastDataBlockOffset);
+    }
+  }
+
+  /**
+   * @return a writer for the next data block, after writing out the oldest
+   *         pending blocks if there are too many of them
+   */
+  private HFileBlock.Writer takeDataBlockWriter() throws IOException {
+    while (pendingBlocks.size() >= maxPendingBlocks) {
+      writeOldestPendingBlock();
+    }
+    HFileBlock.Writer writer = idleBlockWriters.pollFirst();
+    if (writer == null) {
+      writer = new HFileBlock.Writer(compressAlgo, blockEncoder, includeMemstoreTS,
+          checksumType, bytesPerChecksum);
+      dataBlockWriters.add(writer);
     }
+    return writer;
+  }
+
+  /**
+   * Waits for the oldest pending data block to be compressed, and writes it
+   * out.
+   */
+  private void writeOldestPendingBlock() throws IOException {
+    PendingBlock pending = pendingBlocks.removeFirst();
+    try {
+      pending.compression.get();
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException(
+          "Interrupted compressing a block").initCause(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to compress a block", e.getCause());
+    }
+    long startTimeNs = System.nanoTime();
+    long offset = outputStream.getPos();
+    pending.writer.writeCompressedBlock(outputStream,
+        firstDataBlockOffset == -1 ? -1 : lastDataBlockOffset);
+    if (firstDataBlockOffset == -1) {
+      firstDataBlockOffset = offset;
+    }
+    lastDataBlockOffset = offset;
+    dataBlockWritten(pending.writer, pending.indexKey, pending.minTimestamp,
+        pending.maxTimestamp, startTimeNs);
+    idleBlockWriters.addLast(pending.writer);
+  }
+
+  /** Writes out all the pending data blocks, in order. */
+  private void writePendingBlocks() throws IOException {
+    while (!pendingBlocks.isEmpty()) {
+      writeOldestPendingBlock();
+    }
+  }
+
+  /**
+   * Asks an inline block writer whether it has a block to write after the
+   * last finished data block. The entries of the pending data blocks are not
+   * in the data block index yet, so the index predicts whether they would fill
+   * its current chunk, and the pending blocks are only written out when it or
+   * another inline block is. This puts the inline blocks exactly where they
+   * are when compressing inline.
+   */
+  private boolean shouldWriteInlineBlock(InlineBlockWriter ibw, boolean closing)
+      throws IOException {
+    if (ibw == dataBlockIndexWriter && !pendingBlocks.isEmpty()) {
+      if (!closing && !dataBlockIndexWriter.shouldWriteBlockWith(pendingIndexKeys())) {
+        return false;
+      }
+      writePendingBlocks();
+    }
+    return ibw.shouldWriteBlock(closing);
+  }
+
+  /** @return the data block index keys of the pending data blocks */
+  private List<byte[]> pendingIndexKeys() {
+    List<byte[]> keys = new ArrayList<byte[]>(pendingBlocks.size());
+    for (PendingBlock pending : pendingBlocks) {
+      keys.add(pending.indexKey);
+    }
+    return keys;
   }
 
   /** Gives inline block writers an opportunity to contribute blocks. */
   private void writeInlineBlocks(boolean closing) throws IOException {
     for (InlineBlockWriter ibw : inlineBlockWriters) {
-      while (ibw.shouldWriteBlock(closing)) {
+      while (shouldWriteInlineBlock(ibw, closing)) {
+        // inline blocks follow the data blocks they refer to
+        writePendingBlocks();
         long offset = outputStream.getPos();
         boolean cacheThisBlock = ibw.getCacheOnWrite();
         ibw.writeInlineBlock(fsBlockWriter.startWriting(
@@ -215,7 +449,7 @@ public class HFileWriterV2 extends AbstractHFileWriter {
         totalUncompressedBytes += fsBlockWriter.getUncompressedSizeWithHeader();
 
         if (cacheThisBlock) {
-          doCacheOnWrite(offset);
+          doCacheOnWrite(fsBlockWriter, offset);
         }
       }
     }
@@ -223,18 +457,24 @@ public class HFileWriterV2 extends AbstractHFileWriter {
 
   /**
    * Caches the last written HFile block.
+   * @param writer the writer of the block
    * @param offset the offset of the block we want to cache. Used to determine
    *          the cache key.
    */
-  private void doCacheOnWrite(long offset) {
+  private void doCacheOnWrite(HFileBlock.Writer writer, long offset) throws IOException {
     // We don't cache-on-write data blocks on compaction, so assume this is not
     // a compaction.
     final boolean isCompaction = false;
-    HFileBlock cacheFormatBlock = blockEncoder.diskToCacheFormat(
-        fsBlockWriter.getBlockForCaching(), isCompaction);
+    HFileBlock block = writer.getBlockForCaching();
+    HFileBlock cacheFormatBlock = blockEncoder.diskToCacheFormat(block, isCompaction);
+    if (cacheFormatBlock == block
+        && cacheConf.shouldCacheCompressed(block.getBlockType().getCategory())) {
+      cacheFormatBlock = writer.getPackedBlockForCaching();
+    }
     cacheConf.getBlockCache().cacheBlock(
         new BlockCacheKey(name, offset, blockEncoder.getEncodingInCache(),
-            cacheFormatBlock.getBlockType()), cacheFormatBlock);
+            cacheFormatBlock.getBlockType(), cacheConf.getOwner()),
+        cacheFormatBlock);
   }
 
   /**
@@ -244,8 +484,10 @@ public class HFileWriterV2 extends AbstractHFileWriter {
    */
   private void newBlock() throws IOException {
     // This is where the next block begins.
-    fsBlockWriter.startWriting(BlockType.DATA);
+    dataBlockWriter.startWriting(BlockType.DATA);
     firstKeyInBlock = null;
+    blockTimeRange[0] = Long.MAX_VALUE;
+    blockTimeRange[1] = Long.MIN_VALUE;
     if (lastKeyLength > 0) {
       lastKeyOfPreviousBlock = new byte[lastKeyLength];
       System.arraycopy(lastKeyBuffer, lastKeyOffset, lastKeyOfPreviousBlock, 0, lastKeyLength);
@@ -330,13 +572,13 @@ public class HFileWriterV2 extends AbstractHFileWriter {
       checkBlockBoundary();
     }
 
-    if (!fsBlockWriter.isWriting())
+    if (!dataBlockWriter.isWriting())
       newBlock();
 
     // Write length of key and value and then actual key and value bytes.
     // Additionally, we may also write down the memstoreTS.
     {
-      DataOutputStream out = fsBlockWriter.getUserDataStream();
+      DataOutputStream out = dataBlockWriter.getUserDataStream();
       out.writeInt(klength);
       totalKeyLength += klength;
       out.writeInt(vlength);
@@ -354,6 +596,9 @@ public class HFileWriterV2 extends AbstractHFileWriter {
       firstKeyInBlock = new byte[klength];
       System.arraycopy(key, koffset, firstKeyInBlock, 0, klength);
     }
+    if (blockTimeRanges != null) {
+      BlockTimeRanges.includeKey(blockTimeRange, key, koffset, klength);
+    }
 
     lastKeyBuffer = key;
     lastKeyOffset = koffset;
@@ -372,8 +617,14 @@ public class HFileWriterV2 extends AbstractHFileWriter {
     // followed by fileinfo, data block index and meta block index.
 
     finishBlock();
+    writePendingBlocks();
     writeInlineBlocks(true);
 
+    // Per data block timestamp ranges, only useful to skip some of several blocks.
+    if (blockTimeRanges != null && blockTimeRanges.size() > 1) {
+      appendMetaBlock(BlockTimeRanges.META_BLOCK_NAME, blockTimeRanges);
+    }
+
     FixedFileTrailer trailer = new FixedFileTrailer(2, 
                                  HFileReaderV2.MAX_MINOR_VERSION);
 
@@ -442,6 +693,9 @@ public class HFileWriterV2 extends AbstractHFileWriter {
     finishClose(trailer);
 
     fsBlockWriter.release();
+    for (HFileBlock.Writer writer : dataBlockWriters) {
+      writer.release();
+    }
   }
 
   @Override
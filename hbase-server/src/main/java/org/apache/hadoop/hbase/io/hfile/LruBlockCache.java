@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -95,7 +96,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  * to the relative sizes and usage.
  */
 @InterfaceAudience.Private
-public class LruBlockCache implements BlockCache, HeapSize {
+public class LruBlockCache implements FirstLevelBlockCache {
 
   static final Log LOG = LogFactory.getLog(LruBlockCache.class);
 
@@ -308,11 +309,21 @@ public class LruBlockCache implements BlockCache, HeapSize {
     long newSize = updateSizeMetrics(cb, false);
     map.put(cacheKey, cb);
     elements.incrementAndGet();
-    if(newSize > acceptableSize() && !evictionInProgress) {
+    if ((newSize > acceptableSize() || isOverMaxShare(cacheKey.getOwner()))
+        && !evictionInProgress) {
       runEviction();
     }
   }
 
+  /**
+   * @return true if the table of the given block owner takes more than its
+   *         maximum share of the cache
+   */
+  private boolean isOverMaxShare(BlockCacheOwner owner) {
+    return owner != null && owner.getMaxShare() < 1.0f
+        && stats.getTableStats(owner).isOverMaxShare(maxSize);
+  }
+
   private int compare(Cacheable left, Cacheable right) {
     ByteBuffer l = ByteBuffer.allocate(left.getSerializedLength());
     left.serialize(l);
@@ -346,8 +357,13 @@ public class LruBlockCache implements BlockCache, HeapSize {
    */
   protected long updateSizeMetrics(CachedBlock cb, boolean evict) {
     long heapsize = cb.heapSize();
+    int unpackingGrowth = CacheStats.getUnpackingGrowth(cb.getBuffer());
+    BlockCacheOwner owner = cb.getCacheKey().getOwner();
     if (evict) {
+      stats.blockRemoved(heapsize, unpackingGrowth, owner);
       heapsize *= -1;
+    } else {
+      stats.blockAdded(heapsize, unpackingGrowth, owner);
     }
     return size.addAndGet(heapsize);
   }
@@ -365,21 +381,17 @@ public class LruBlockCache implements BlockCache, HeapSize {
   public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat) {
     CachedBlock cb = map.get(cacheKey);
     if(cb == null) {
-      if (!repeat) stats.miss(caching);
+      if (!repeat) stats.miss(caching, cacheKey.getOwner());
       if (victimHandler != null)
         return victimHandler.getBlock(cacheKey, caching, repeat);
       return null;
     }
-    stats.hit(caching);
+    stats.hit(caching, cb.getCacheKey().getOwner());
     cb.access(count.incrementAndGet());
     return cb.getBuffer();
   }
 
-  /**
-   * Whether the cache contains block with specified cacheKey
-   * @param cacheKey
-   * @return true if contains the block
-   */
+  @Override
   public boolean containsBlock(BlockCacheKey cacheKey) {
     return map.containsKey(cacheKey);
   }
@@ -429,7 +441,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
     map.remove(block.getCacheKey());
     updateSizeMetrics(block, true);
     elements.decrementAndGet();
-    stats.evicted();
+    stats.evicted(block.getCacheKey().getOwner());
     if (evictedByEvictionProcess && victimHandler != null) {
       boolean wait = getCurrentSize() < acceptableSize();
       boolean inMemory = block.getPriority() == BlockPriority.MEMORY;
@@ -452,6 +464,10 @@ public class LruBlockCache implements BlockCache, HeapSize {
 
   /**
    * Eviction method.
+   * <p>
+   * The blocks of the tables over their maximum share of the cache go first,
+   * until these tables are back to {@link #minFactor} of their share. The
+   * blocks of the tables under their minimum share are not evicted.
    */
   void evict() {
 
@@ -462,25 +478,53 @@ public class LruBlockCache implements BlockCache, HeapSize {
       evictionInProgress = true;
       long currentSize = this.size.get();
       long bytesToFree = currentSize - minSize();
+      Map<String, TableCacheStats> tablesOverMaxShare =
+          stats.getTablesOverMaxShare(maxSize);
 
       if (LOG.isTraceEnabled()) {
         LOG.trace("Block cache LRU eviction started; Attempting to free " +
           StringUtils.byteDesc(bytesToFree) + " of total=" +
-          StringUtils.byteDesc(currentSize));
+          StringUtils.byteDesc(currentSize) + ", tables over their share=" +
+          tablesOverMaxShare.keySet());
       }
 
-      if(bytesToFree <= 0) return;
+      if(bytesToFree <= 0 && tablesOverMaxShare.isEmpty()) return;
 
-      // Instantiate priority buckets
-      BlockBucket bucketSingle = new BlockBucket(bytesToFree, blockSize,
-          singleSize());
-      BlockBucket bucketMulti = new BlockBucket(bytesToFree, blockSize,
-          multiSize());
-      BlockBucket bucketMemory = new BlockBucket(bytesToFree, blockSize,
-          memorySize());
+      // One bucket per table over its share
+      Map<String, BlockBucket> tableBuckets = new HashMap<String, BlockBucket>();
+      for (TableCacheStats table : tablesOverMaxShare.values()) {
+        long tableMinSize = (long) Math.floor(table.getMaxSize(maxSize) * minFactor);
+        tableBuckets.put(table.getTable(), new BlockBucket(
+            table.getSize() - tableMinSize, blockSize, tableMinSize));
+      }
+
+      // Instantiate priority buckets, if the cache as a whole is too large
+      BlockBucket bucketSingle = null;
+      BlockBucket bucketMulti = null;
+      BlockBucket bucketMemory = null;
+      if (bytesToFree > 0) {
+        bucketSingle = new BlockBucket(bytesToFree, blockSize, singleSize());
+        bucketMulti = new BlockBucket(bytesToFree, blockSize, multiSize());
+        bucketMemory = new BlockBucket(bytesToFree, blockSize, memorySize());
+      }
 
       // Scan entire map putting into appropriate buckets
       for(CachedBlock cachedBlock : map.values()) {
+        BlockCacheOwner owner = cachedBlock.getCacheKey().getOwner();
+        if (owner != null) {
+          BlockBucket tableBucket = tableBuckets.get(owner.getTable());
+          if (tableBucket != null) {
+            tableBucket.add(cachedBlock);
+            continue;
+          }
+          if (owner.getMinShare() > 0.0f
+              && stats.getTableStats(owner).isUnderMinShare(maxSize)) {
+            continue;
+          }
+        }
+        if (bucketSingle == null) {
+          continue;
+        }
         switch(cachedBlock.getPriority()) {
           case SINGLE: {
             bucketSingle.add(cachedBlock);
@@ -497,6 +541,16 @@ public class LruBlockCache implements BlockCache, HeapSize {
         }
       }
 
+      long bytesFreed = 0;
+      for (BlockBucket tableBucket : tableBuckets.values()) {
+        if (tableBucket.overflow() > 0) {
+          bytesFreed += tableBucket.free(tableBucket.overflow());
+        }
+      }
+      if (bucketSingle == null) {
+        return;
+      }
+
       PriorityQueue<BlockBucket> bucketQueue =
         new PriorityQueue<BlockBucket>(3);
 
@@ -505,14 +559,13 @@ public class LruBlockCache implements BlockCache, HeapSize {
       bucketQueue.add(bucketMemory);
 
       int remainingBuckets = 3;
-      long bytesFreed = 0;
 
       BlockBucket bucket;
       while((bucket = bucketQueue.poll()) != null) {
         long overflow = bucket.overflow();
-        if(overflow > 0) {
-          long bucketBytesToFree = Math.min(overflow,
+        long bucketBytesToFree = Math.min(overflow,
             (bytesToFree - bytesFreed) / remainingBuckets);
+        if(bucketBytesToFree > 0) {
           bytesFreed += bucket.free(bucketBytesToFree);
         }
         remainingBuckets--;
@@ -717,6 +770,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
     @Override
     public void run() {
       lru.logStats();
+      lru.getStats().expireIdleTables();
     }
   }
 
@@ -727,6 +781,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
     long freeSize = maxSize - totalSize;
     LruBlockCache.LOG.debug("Stats: " +
         "total=" + StringUtils.byteDesc(totalSize) + ", " +
+        "logical=" + StringUtils.byteDesc(stats.getLogicalSize()) + ", " +
         "free=" + StringUtils.byteDesc(freeSize) + ", " +
         "max=" + StringUtils.byteDesc(this.maxSize) + ", " +
         "blocks=" + size() +", " +
@@ -773,6 +828,15 @@ public class LruBlockCache implements BlockCache, HeapSize {
 
   @Override
   public List<BlockCacheColumnFamilySummary> getBlockCacheColumnFamilySummaries(Configuration conf) throws IOException {
+    return getBlockCacheColumnFamilySummaries(conf, map.values());
+  }
+
+  /**
+   * Summarizes the given cached blocks by table and column family.
+   * @see BlockCache#getBlockCacheColumnFamilySummaries(Configuration)
+   */
+  static List<BlockCacheColumnFamilySummary> getBlockCacheColumnFamilySummaries(
+      Configuration conf, Collection<? extends CachedBlock> blocks) throws IOException {
 
     Map<String, Path> sfMap = FSUtils.getTableStoreFilePathMap(
         FileSystem.get(conf),
@@ -783,7 +847,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
     Map<BlockCacheColumnFamilySummary, BlockCacheColumnFamilySummary> bcs =
       new HashMap<BlockCacheColumnFamilySummary, BlockCacheColumnFamilySummary>();
 
-    for (CachedBlock cb : map.values()) {
+    for (CachedBlock cb : blocks) {
       String sf = cb.getCacheKey().getHfileName();
       Path path = sfMap.get(sf);
       if ( path != null) {
@@ -875,6 +939,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
     return counts;
   }
 
+  @Override
   public void setVictimCache(BucketCache handler) {
     assert victimHandler == null;
     victimHandler = handler;
@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.hbase.io.hfile.BlockType.BlockCategory;
+import org.apache.hadoop.util.StringUtils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A block cache with a separate, size-bounded tier for the index and Bloom
+ * blocks, in front of the cache holding the data blocks. Every random read
+ * goes through the index and Bloom blocks of the files it looks at, so
+ * losing them to a large scan costs one or two more file system reads per
+ * read. Data blocks never go into the tier, so they never evict the index
+ * and Bloom blocks; these only evict one another, when the tier is too small
+ * for all the index and Bloom blocks in use.
+ * <p>
+ * The tier is an {@link LruBlockCache}, taken out of the on-heap block cache,
+ * see {@link CacheConfig#BLOCKCACHE_META_TIER_SIZE_KEY}. Its evictions are
+ * checked periodically, and logged as a warning when there were some, as the
+ * tier is too small for the index footprint of the server then.
+ * <p>
+ * {@link #getStats()} sums up the tier and the data cache, the tier alone is
+ * in {@link #getMetaTierStats()}. Lookups go to the tier first without
+ * counting misses there, so the misses of the tier are not known.
+ */
+@InterfaceAudience.Private
+public class MetaTierBlockCache implements BlockCache, HeapSize {
+  static final Log LOG = LogFactory.getLog(MetaTierBlockCache.class);
+
+  /** Period of the check of the tier evictions, in seconds */
+  static final int CHECK_PERIOD = 60 * 5;
+
+  private final LruBlockCache metaTier;
+  private final BlockCache dataCache;
+  private final CacheStats stats;
+  private final ScheduledExecutorService scheduleThreadPool;
+
+  /** Number of blocks evicted from the tier at the last check */
+  private long lastEvictedCount = 0;
+
+  /**
+   * @param metaTier the tier for the index and Bloom blocks
+   * @param dataCache the cache for all the other blocks
+   */
+  public MetaTierBlockCache(LruBlockCache metaTier, BlockCache dataCache) {
+    this.metaTier = metaTier;
+    this.dataCache = dataCache;
+    this.stats = new CombinedBlockCache.CombinedCacheStats(metaTier.getStats(),
+        dataCache.getStats());
+    this.scheduleThreadPool = Executors.newScheduledThreadPool(1,
+        new ThreadFactoryBuilder()
+            .setNameFormat("MetaTierBlockCache Check #%d")
+            .setDaemon(true)
+            .build());
+    this.scheduleThreadPool.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        checkTierSize();
+      }
+    }, CHECK_PERIOD, CHECK_PERIOD, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @return true if the blocks of the given category belong in the tier
+   */
+  static boolean isMetaTierCategory(BlockCategory category) {
+    return category == BlockCategory.INDEX || category == BlockCategory.BLOOM;
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    if (isMetaTierCategory(buf.getBlockType().getCategory())) {
+      metaTier.cacheBlock(cacheKey, buf, inMemory);
+    } else {
+      dataCache.cacheBlock(cacheKey, buf, inMemory);
+    }
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+    cacheBlock(cacheKey, buf, false);
+  }
+
+  @Override
+  public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching,
+      boolean repeat) {
+    // a miss in the tier is the usual case for data blocks, not counted
+    Cacheable block = metaTier.getBlock(cacheKey, caching, true);
+    if (block != null) {
+      return block;
+    }
+    return dataCache.getBlock(cacheKey, caching, repeat);
+  }
+
+  @Override
+  public boolean evictBlock(BlockCacheKey cacheKey) {
+    return metaTier.evictBlock(cacheKey) || dataCache.evictBlock(cacheKey);
+  }
+
+  @Override
+  public int evictBlocksByHfileName(String hfileName) {
+    return metaTier.evictBlocksByHfileName(hfileName)
+        + dataCache.evictBlocksByHfileName(hfileName);
+  }
+
+  /**
+   * Warns if index or Bloom blocks were evicted from the tier since the last
+   * check.
+   * @return true if there were evictions
+   */
+  synchronized boolean checkTierSize() {
+    long evictedCount = metaTier.getEvictedCount();
+    long evicted = evictedCount - lastEvictedCount;
+    lastEvictedCount = evictedCount;
+    if (evicted <= 0) {
+      return false;
+    }
+    LOG.warn("The index and Bloom block tier of the block cache evicted "
+        + evicted + " blocks since the last check, it is too small for the "
+        + "index and Bloom blocks in use; max="
+        + StringUtils.byteDesc(metaTier.getMaxSize()) + ", blocks="
+        + metaTier.getBlockCount() + ", hits=" + metaTier.getStats().getHitCount()
+        + ". Consider raising " + CacheConfig.BLOCKCACHE_META_TIER_SIZE_KEY);
+    return true;
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  /**
+   * @return the stats of the index and Bloom block tier alone
+   */
+  public CacheStats getMetaTierStats() {
+    return metaTier.getStats();
+  }
+
+  /**
+   * @return the index and Bloom block tier
+   */
+  public LruBlockCache getMetaTier() {
+    return metaTier;
+  }
+
+  @Override
+  public void shutdown() {
+    scheduleThreadPool.shutdown();
+    metaTier.shutdown();
+    dataCache.shutdown();
+  }
+
+  @Override
+  public long heapSize() {
+    return metaTier.heapSize()
+        + (dataCache instanceof HeapSize ? ((HeapSize) dataCache).heapSize() : 0);
+  }
+
+  @Override
+  public long size() {
+    return metaTier.size() + dataCache.size();
+  }
+
+  @Override
+  public long getFreeSize() {
+    return metaTier.getFreeSize() + dataCache.getFreeSize();
+  }
+
+  @Override
+  public long getCurrentSize() {
+    return metaTier.getCurrentSize() + dataCache.getCurrentSize();
+  }
+
+  @Override
+  public long getEvictedCount() {
+    return metaTier.getEvictedCount() + dataCache.getEvictedCount();
+  }
+
+  @Override
+  public long getBlockCount() {
+    return metaTier.getBlockCount() + dataCache.getBlockCount();
+  }
+
+  @Override
+  public List<BlockCacheColumnFamilySummary> getBlockCacheColumnFamilySummaries(
+      Configuration conf) throws IOException {
+    List<BlockCacheColumnFamilySummary> summaries =
+        metaTier.getBlockCacheColumnFamilySummaries(conf);
+    for (BlockCacheColumnFamilySummary summary :
+        dataCache.getBlockCacheColumnFamilySummaries(conf)) {
+      int i = summaries.indexOf(summary);
+      if (i < 0) {
+        summaries.add(summary);
+      } else {
+        BlockCacheColumnFamilySummary sum = summaries.get(i);
+        sum.setBlocks(sum.getBlocks() + summary.getBlocks());
+        sum.setHeapSize(sum.getHeapSize() + summary.getHeapSize());
+      }
+    }
+    Collections.sort(summaries);
+    return summaries;
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+/**
+ * The usage of a block cache by one table: the size and number of its cached
+ * blocks, broken down by column family, and the hits, misses and evictions of
+ * its blocks. Kept up to date by the cache as blocks come and go, see
+ * {@link CacheStats#getTableStats()}.
+ */
+@InterfaceAudience.Private
+public class TableCacheStats {
+  private final String table;
+  private final AtomicLong size = new AtomicLong(0);
+  private final AtomicLong blockCount = new AtomicLong(0);
+  private final AtomicLong hitCount = new AtomicLong(0);
+  private final AtomicLong missCount = new AtomicLong(0);
+  private final AtomicLong evictedCount = new AtomicLong(0);
+  private final ConcurrentMap<String, AtomicLong> familySizes =
+      new ConcurrentHashMap<String, AtomicLong>();
+
+  /** The shares of the cache the table is entitled to, see BlockCacheOwner */
+  private volatile float maxShare = 1.0f;
+  private volatile float minShare = 0.0f;
+
+  /** Set once dropped by {@link CacheStats#expireIdleTables()}, guarded by this */
+  private boolean expired = false;
+  /** The hits and misses at the previous idle check, guarded by this */
+  private long requestsAtLastCheck = 0;
+
+  public TableCacheStats(String table) {
+    this.table = table;
+  }
+
+  /**
+   * Takes the shares of the table from the owner of one of its blocks, so that
+   * a change of the table configuration applies as the table blocks get cached.
+   */
+  void updateShares(BlockCacheOwner owner) {
+    if (maxShare != owner.getMaxShare()) {
+      maxShare = owner.getMaxShare();
+    }
+    if (minShare != owner.getMinShare()) {
+      minShare = owner.getMinShare();
+    }
+  }
+
+  /**
+   * @return false, without accounting for the block, if the table was expired
+   *         and the block has to go to the stats that replaced it
+   */
+  synchronized boolean blockAdded(String family, long blockSize) {
+    if (expired) {
+      return false;
+    }
+    size.addAndGet(blockSize);
+    blockCount.incrementAndGet();
+    AtomicLong familySize = familySizes.get(family);
+    if (familySize == null) {
+      AtomicLong newSize = new AtomicLong(0);
+      familySize = familySizes.putIfAbsent(family, newSize);
+      if (familySize == null) {
+        familySize = newSize;
+      }
+    }
+    familySize.addAndGet(blockSize);
+    return true;
+  }
+
+  void blockRemoved(String family, long blockSize) {
+    size.addAndGet(-blockSize);
+    blockCount.decrementAndGet();
+    AtomicLong familySize = familySizes.get(family);
+    if (familySize != null) {
+      familySize.addAndGet(-blockSize);
+    }
+  }
+
+  void hit() {
+    hitCount.incrementAndGet();
+  }
+
+  void miss() {
+    missCount.incrementAndGet();
+  }
+
+  void evicted() {
+    evictedCount.incrementAndGet();
+  }
+
+  /**
+   * Expires the table if it has no block in the cache and had neither a hit
+   * nor a miss since the previous check. An expired table takes no more blocks.
+   * @return whether the table is expired
+   */
+  synchronized boolean expireIfIdle() {
+    long requests = hitCount.get() + missCount.get();
+    if (blockCount.get() == 0 && requests == requestsAtLastCheck) {
+      expired = true;
+    }
+    requestsAtLastCheck = requests;
+    return expired;
+  }
+
+  /**
+   * Adds the usage of the table in another cache to this one, used to sum up
+   * the usage of the caches making up a combined cache.
+   */
+  void add(TableCacheStats other) {
+    size.addAndGet(other.getSize());
+    blockCount.addAndGet(other.getBlockCount());
+    hitCount.addAndGet(other.getHitCount());
+    missCount.addAndGet(other.getMissCount());
+    evictedCount.addAndGet(other.getEvictedCount());
+    for (Map.Entry<String, Long> family : other.getFamilySizes().entrySet()) {
+      AtomicLong familySize = familySizes.get(family.getKey());
+      if (familySize == null) {
+        familySizes.put(family.getKey(), new AtomicLong(family.getValue()));
+      } else {
+        familySize.addAndGet(family.getValue());
+      }
+    }
+    maxShare = other.maxShare;
+    minShare = other.minShare;
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * @return the size of the cached blocks of the table
+   */
+  public long getSize() {
+    return size.get();
+  }
+
+  public long getBlockCount() {
+    return blockCount.get();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getEvictedCount() {
+    return evictedCount.get();
+  }
+
+  /**
+   * @return the size of the cached blocks of the table, by column family
+   */
+  public Map<String, Long> getFamilySizes() {
+    Map<String, Long> sizes = new TreeMap<String, Long>();
+    for (Map.Entry<String, AtomicLong> family : familySizes.entrySet()) {
+      sizes.put(family.getKey(), family.getValue().get());
+    }
+    return sizes;
+  }
+
+  /**
+   * @param capacity the capacity of the cache
+   * @return the size the blocks of the table may take in the cache
+   */
+  public long getMaxSize(long capacity) {
+    return (long) (capacity * maxShare);
+  }
+
+  /**
+   * @param capacity the capacity of the cache
+   * @return the size the blocks of the table keep in the cache, whatever the
+   *         pressure from other tables
+   */
+  public long getMinSize(long capacity) {
+    return (long) (capacity * minShare);
+  }
+
+  /**
+   * @return true if the blocks of the table take more than its maximum share
+   *         of a cache of the given capacity
+   */
+  public boolean isOverMaxShare(long capacity) {
+    return maxShare < 1.0f && getSize() > getMaxSize(capacity);
+  }
+
+  /**
+   * @return true if the blocks of the table take no more than its minimum
+   *         share of a cache of the given capacity
+   */
+  public boolean isUnderMinShare(long capacity) {
+    return minShare > 0.0f && getSize() <= getMinSize(capacity);
+  }
+
+  @Override
+  public String toString() {
+    return "table=" + table + ", size=" + getSize() + ", blocks=" + getBlockCount()
+        + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evicted="
+        + getEvictedCount() + ", families=" + getFamilySizes();
+  }
+}
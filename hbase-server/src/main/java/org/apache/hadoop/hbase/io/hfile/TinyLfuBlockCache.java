@@ -0,0 +1,636 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.hfile.bucket.BucketCache;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.hadoop.util.StringUtils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A memory-bound on-heap block cache that resists scans, using a frequency
+ * based admission filter in front of segmented LRU queues (W-TinyLFU).<p>
+ *
+ * New blocks enter a small admission window, an LRU queue holding a
+ * fraction of the cache. Blocks pushed out of the window compete for a place
+ * in the main space with the block that would be evicted to make room for
+ * them, the least recently used one of the probation queue: the block seen
+ * most often recently, according to a {@link FrequencySketch} of the lookups
+ * of the cache, wins and the other is evicted. Blocks hit in the probation
+ * queue move to the protected queue, which holds most of the main space and
+ * sends its least recently used blocks back to probation when full. A large
+ * scan thus only churns through the window and probation, and does not push
+ * out blocks used repeatedly.<p>
+ *
+ * Blocks of in-memory families skip the window and the admission filter and
+ * start in the protected queue.<p>
+ *
+ * Unlike {@link LruBlockCache}, eviction happens inline when a block is
+ * cached, and only ever looks at the ends of the queues: each insert does an
+ * amortized constant amount of work whatever the size of the cache. The
+ * queues are guarded by a single lock. Hits only update them, and the
+ * sketch, when the lock is free; the others are dropped, which loses some
+ * recency and frequency information under contention but never blocks a
+ * read.
+ */
+@InterfaceAudience.Private
+public class TinyLfuBlockCache implements FirstLevelBlockCache {
+
+  static final Log LOG = LogFactory.getLog(TinyLfuBlockCache.class);
+
+  static final String WINDOW_FACTOR_CONFIG_NAME = "hbase.tinylfu.blockcache.window.factor";
+  static final String PROTECTED_FACTOR_CONFIG_NAME =
+      "hbase.tinylfu.blockcache.protected.factor";
+
+  /** Share of the cache taken by the admission window */
+  static final float DEFAULT_WINDOW_FACTOR = 0.01f;
+
+  /** Share of the main space taken by the protected queue */
+  static final float DEFAULT_PROTECTED_FACTOR = 0.80f;
+
+  /** Statistics thread */
+  static final int statThreadPeriod = 60 * 5;
+
+  /** Concurrent map (the cache) */
+  private final ConcurrentHashMap<BlockCacheKey, Node> map;
+
+  /** Guards the queues and the sketch */
+  private final ReentrantLock policyLock = new ReentrantLock();
+
+  private final FrequencySketch sketch;
+  private final AccessQueue window = new AccessQueue();
+  private final AccessQueue probation = new AccessQueue();
+  private final AccessQueue protectedQueue = new AccessQueue();
+
+  /** Statistics thread schedule pool */
+  private final ScheduledExecutorService scheduleThreadPool =
+    Executors.newScheduledThreadPool(1,
+      new ThreadFactoryBuilder()
+        .setNameFormat("TinyLFU Statistics #%d")
+        .setDaemon(true)
+        .build());
+
+  /** Current size of cache, overhead included */
+  private final AtomicLong size;
+
+  /** Current number of cached elements */
+  private final AtomicLong elements;
+
+  /** Sequence of the cached blocks */
+  private final AtomicLong count = new AtomicLong(0);
+
+  /** Cache statistics */
+  private final CacheStats stats = new CacheStats();
+
+  /** Maximum allowable size of cache */
+  private final long maxSize;
+
+  /** Overhead of the structure itself */
+  private final long overhead;
+
+  /** Maximum size of the admission window */
+  private final long windowMaxSize;
+
+  /** Maximum size of the protected queue */
+  private final long protectedMaxSize;
+
+  /** Where to send victims (blocks evicted from the cache) */
+  private BucketCache victimHandler = null;
+
+  /**
+   * Default constructor.  Specify maximum size and expected average block
+   * size (approximation is fine).
+   * @param maxSize maximum size of cache, in bytes
+   * @param blockSize approximate size of each block, in bytes
+   */
+  public TinyLfuBlockCache(long maxSize, long blockSize) {
+    this(maxSize, blockSize, DEFAULT_WINDOW_FACTOR, DEFAULT_PROTECTED_FACTOR);
+  }
+
+  public TinyLfuBlockCache(long maxSize, long blockSize, Configuration conf) {
+    this(maxSize, blockSize,
+        conf.getFloat(WINDOW_FACTOR_CONFIG_NAME, DEFAULT_WINDOW_FACTOR),
+        conf.getFloat(PROTECTED_FACTOR_CONFIG_NAME, DEFAULT_PROTECTED_FACTOR));
+  }
+
+  /**
+   * Configurable constructor.
+   * @param maxSize maximum size of this cache, in bytes
+   * @param blockSize expected average size of blocks, in bytes
+   * @param windowFactor share of the cache taken by the admission window
+   * @param protectedFactor share of the main space taken by the protected
+   *          queue
+   */
+  public TinyLfuBlockCache(long maxSize, long blockSize, float windowFactor,
+      float protectedFactor) {
+    if (windowFactor <= 0 || windowFactor >= 1) {
+      throw new IllegalArgumentException("windowFactor must be between 0 and 1");
+    }
+    if (protectedFactor < 0 || protectedFactor >= 1) {
+      throw new IllegalArgumentException("protectedFactor must be between 0 and 1");
+    }
+    long expectedBlocks = (long) Math.ceil(1.2 * maxSize / blockSize);
+    this.maxSize = maxSize;
+    this.map = new ConcurrentHashMap<BlockCacheKey, Node>((int) expectedBlocks,
+        LruBlockCache.DEFAULT_LOAD_FACTOR, LruBlockCache.DEFAULT_CONCURRENCY_LEVEL);
+    this.sketch = new FrequencySketch(expectedBlocks);
+    this.overhead = calculateOverhead(maxSize, blockSize,
+        LruBlockCache.DEFAULT_CONCURRENCY_LEVEL);
+    this.size = new AtomicLong(this.overhead);
+    this.elements = new AtomicLong(0);
+    long capacity = Math.max(0, maxSize - overhead);
+    this.windowMaxSize = (long) (capacity * windowFactor);
+    this.protectedMaxSize = (long) ((capacity - windowMaxSize) * protectedFactor);
+    this.scheduleThreadPool.scheduleAtFixedRate(new StatisticsThread(this),
+        statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+  }
+
+  // BlockCache implementation
+
+  /**
+   * Cache the block with the specified name and buffer, evicting others if
+   * the cache is full.
+   * <p>
+   * It is assumed this will NOT be called on an already cached block. If it
+   * is, the block is left as it is.
+   * @param cacheKey block's cache key
+   * @param buf block buffer
+   * @param inMemory if block is in-memory
+   */
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    if (map.containsKey(cacheKey)) {
+      LOG.warn("Cached an already cached block: " + cacheKey
+          + ". This is harmless and can happen in rare cases (see HBASE-8547)");
+      return;
+    }
+    Node node = new Node(cacheKey, buf, count.incrementAndGet(), inMemory);
+    policyLock.lock();
+    try {
+      if (map.putIfAbsent(cacheKey, node) != null) {
+        return;
+      }
+      size.addAndGet(node.heapSize());
+      elements.incrementAndGet();
+      stats.blockAdded(node.heapSize(), CacheStats.getUnpackingGrowth(buf),
+          cacheKey.getOwner());
+      if (inMemory) {
+        protectedQueue.addFirst(node);
+        demoteProtectedOverflow();
+      } else {
+        window.addFirst(node);
+      }
+      evict();
+    } finally {
+      policyLock.unlock();
+    }
+  }
+
+  /**
+   * Cache the block with the specified name and buffer.
+   * @param cacheKey block's cache key
+   * @param buf block buffer
+   */
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+    cacheBlock(cacheKey, buf, false);
+  }
+
+  /**
+   * Get the buffer of the block with the specified name.
+   * @param cacheKey block's cache key
+   * @param caching true if the caller caches blocks on cache misses
+   * @param repeat Whether this is a repeat lookup for the same block
+   *        (used to avoid double counting cache misses when doing double-check locking)
+   * @return buffer of specified cache key, or null if not in cache
+   * @see HFileReaderV2#readBlock(long, long, boolean, boolean, boolean, BlockType)
+   */
+  @Override
+  public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat) {
+    Node node = map.get(cacheKey);
+    if (node == null) {
+      if (!repeat) {
+        stats.miss(caching, cacheKey.getOwner());
+        // The block is likely read and cached next: its frequency decides
+        // whether it is admitted. Like on hits, the sample is dropped rather
+        // than waiting for the lock.
+        if (policyLock.tryLock()) {
+          try {
+            sketch.increment(cacheKey.hashCode());
+          } finally {
+            policyLock.unlock();
+          }
+        }
+      }
+      if (victimHandler != null) {
+        return victimHandler.getBlock(cacheKey, caching, repeat);
+      }
+      return null;
+    }
+    stats.hit(caching, node.getCacheKey().getOwner());
+    if (policyLock.tryLock()) {
+      try {
+        sketch.increment(cacheKey.hashCode());
+        onHit(node);
+      } finally {
+        policyLock.unlock();
+      }
+    }
+    return node.getBuffer();
+  }
+
+  @Override
+  public boolean containsBlock(BlockCacheKey cacheKey) {
+    return map.containsKey(cacheKey);
+  }
+
+  @Override
+  public boolean evictBlock(BlockCacheKey cacheKey) {
+    policyLock.lock();
+    try {
+      Node node = map.get(cacheKey);
+      if (node == null) {
+        return false;
+      }
+      evictNode(node, false);
+      return true;
+    } finally {
+      policyLock.unlock();
+    }
+  }
+
+  /**
+   * Evicts all blocks for a specific HFile. This is an
+   * expensive operation implemented as a linear-time search through all blocks
+   * in the cache.
+   *
+   * @return the number of blocks evicted
+   */
+  @Override
+  public int evictBlocksByHfileName(String hfileName) {
+    int numEvicted = 0;
+    for (BlockCacheKey key : map.keySet()) {
+      if (key.getHfileName().equals(hfileName)) {
+        if (evictBlock(key)) {
+          ++numEvicted;
+        }
+      }
+    }
+    if (victimHandler != null) {
+      numEvicted += victimHandler.evictBlocksByHfileName(hfileName);
+    }
+    return numEvicted;
+  }
+
+  /**
+   * Updates the queues for a hit on the given block. Must hold the lock.
+   */
+  private void onHit(Node node) {
+    if (node.queue == window || node.queue == protectedQueue) {
+      node.queue.moveToFirst(node);
+    } else if (node.queue == probation) {
+      probation.remove(node);
+      protectedQueue.addFirst(node);
+      demoteProtectedOverflow();
+    }
+  }
+
+  /**
+   * Moves the least recently used blocks of the protected queue back to
+   * probation until it fits. Must hold the lock.
+   */
+  private void demoteProtectedOverflow() {
+    while (protectedQueue.bytes > protectedMaxSize && protectedQueue.last() != null) {
+      Node demoted = protectedQueue.last();
+      protectedQueue.remove(demoted);
+      probation.addFirst(demoted);
+    }
+  }
+
+  /**
+   * Moves the blocks overflowing the window to the main space through the
+   * admission filter, then evicts until the cache fits. Must hold the lock.
+   */
+  private void evict() {
+    long capacity = maxSize - overhead;
+    // the window keeps at least the block just cached
+    while (window.bytes > windowMaxSize && window.last() != window.first) {
+      Node candidate = window.last();
+      window.remove(candidate);
+      admit(candidate, capacity);
+    }
+    // only in-memory blocks make the cache overflow past the admission
+    while (blockBytes() > capacity) {
+      Node victim = probation.last();
+      if (victim == null) {
+        victim = protectedQueue.last();
+      }
+      if (victim == null) {
+        victim = window.last();
+      }
+      if (victim == null) {
+        break;
+      }
+      evictNode(victim, true);
+    }
+  }
+
+  /**
+   * Adds the given block, out of any queue, to the probation queue if there
+   * is room for it or if it was seen more often than all the blocks that
+   * would have to be evicted to make room, and evicts it to the victim handler
+   * otherwise. Must hold the lock.
+   */
+  private void admit(Node candidate, long capacity) {
+    long toFree = blockBytes() + candidate.heapSize() - capacity;
+    if (toFree > 0) {
+      int candidateFrequency = sketch.frequency(candidate.getCacheKey().hashCode());
+      // the victims, from the least recently used block of the main space on
+      Node victim = probation.last();
+      AccessQueue victimQueue = probation;
+      long freed = 0;
+      while (freed < toFree) {
+        if (victim == null && victimQueue == probation) {
+          victimQueue = protectedQueue;
+          victim = protectedQueue.last();
+          continue;
+        }
+        if (victim == null
+            || sketch.frequency(victim.getCacheKey().hashCode()) >= candidateFrequency) {
+          evictNode(candidate, true);
+          return;
+        }
+        freed += victim.heapSize();
+        victim = victim.prev;
+      }
+      while (freed > 0) {
+        Node evicted = probation.last();
+        if (evicted == null) {
+          evicted = protectedQueue.last();
+        }
+        freed -= evicted.heapSize();
+        evictNode(evicted, true);
+      }
+    }
+    probation.addFirst(candidate);
+  }
+
+  /**
+   * @return the size of the cached blocks
+   */
+  private long blockBytes() {
+    return window.bytes + probation.bytes + protectedQueue.bytes;
+  }
+
+  /**
+   * Evict the block, and it will be cached by the victim handler if exists &&
+   * block may be read again later. Must hold the lock.
+   * @param evictedForSpace true if the block makes room for another
+   */
+  private void evictNode(Node node, boolean evictedForSpace) {
+    if (node.queue != null) {
+      node.queue.remove(node);
+    }
+    map.remove(node.getCacheKey());
+    size.addAndGet(-node.heapSize());
+    elements.decrementAndGet();
+    stats.blockRemoved(node.heapSize(), CacheStats.getUnpackingGrowth(node.getBuffer()),
+        node.getCacheKey().getOwner());
+    stats.evicted(node.getCacheKey().getOwner());
+    if (evictedForSpace && victimHandler != null) {
+      // never wait for the victim cache while holding the lock
+      victimHandler.cacheBlockWithWait(node.getCacheKey(), node.getBuffer(),
+          node.getPriority() == CachedBlock.BlockPriority.MEMORY, false);
+    }
+  }
+
+  /**
+   * Get the maximum size of this cache.
+   * @return max size in bytes
+   */
+  public long getMaxSize() {
+    return this.maxSize;
+  }
+
+  @Override
+  public long getCurrentSize() {
+    return this.size.get();
+  }
+
+  @Override
+  public long getFreeSize() {
+    return getMaxSize() - getCurrentSize();
+  }
+
+  @Override
+  public long size() {
+    return this.elements.get();
+  }
+
+  @Override
+  public long getBlockCount() {
+    return this.elements.get();
+  }
+
+  @Override
+  public long getEvictedCount() {
+    return this.stats.getEvictedCount();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return this.stats;
+  }
+
+  // HeapSize implementation
+  @Override
+  public long heapSize() {
+    return getCurrentSize();
+  }
+
+  public final static long CACHE_FIXED_OVERHEAD = ClassSize.align(
+      (6 * Bytes.SIZEOF_LONG) + (13 * ClassSize.REFERENCE) + ClassSize.OBJECT)
+      + 3 * ClassSize.align(ClassSize.OBJECT + ClassSize.REFERENCE + Bytes.SIZEOF_LONG)
+      + ClassSize.REENTRANT_LOCK + ClassSize.ATOMIC_LONG * 3;
+
+  public static long calculateOverhead(long maxSize, long blockSize, int concurrency) {
+    long expectedBlocks = (long) Math.ceil(maxSize * 1.2 / blockSize);
+    return CACHE_FIXED_OVERHEAD + ClassSize.CONCURRENT_HASHMAP +
+        (expectedBlocks * ClassSize.CONCURRENT_HASHMAP_ENTRY) +
+        ((long) concurrency * ClassSize.CONCURRENT_HASHMAP_SEGMENT) +
+        FrequencySketch.estimateHeapSize(expectedBlocks);
+  }
+
+  @Override
+  public List<BlockCacheColumnFamilySummary> getBlockCacheColumnFamilySummaries(
+      Configuration conf) throws IOException {
+    return LruBlockCache.getBlockCacheColumnFamilySummaries(conf, map.values());
+  }
+
+  @Override
+  public void setVictimCache(BucketCache handler) {
+    assert victimHandler == null;
+    victimHandler = handler;
+  }
+
+  @Override
+  public void shutdown() {
+    if (victimHandler != null) {
+      victimHandler.shutdown();
+    }
+    this.scheduleThreadPool.shutdownNow();
+  }
+
+  /** Clears the cache. Used in tests. */
+  public void clearCache() {
+    policyLock.lock();
+    try {
+      for (Node node : map.values()) {
+        evictNode(node, false);
+      }
+    } finally {
+      policyLock.unlock();
+    }
+  }
+
+  /*
+   * Statistics thread.  Periodically prints the cache statistics to the log.
+   */
+  static class StatisticsThread extends Thread {
+    private final TinyLfuBlockCache cache;
+
+    public StatisticsThread(TinyLfuBlockCache cache) {
+      super("TinyLfuBlockCache.StatisticsThread");
+      setDaemon(true);
+      this.cache = cache;
+    }
+
+    @Override
+    public void run() {
+      cache.logStats();
+      cache.getStats().expireIdleTables();
+    }
+  }
+
+  public void logStats() {
+    if (!LOG.isDebugEnabled()) return;
+    long totalSize = heapSize();
+    LOG.debug("Stats: " +
+        "total=" + StringUtils.byteDesc(totalSize) + ", " +
+        "logical=" + StringUtils.byteDesc(stats.getLogicalSize()) + ", " +
+        "free=" + StringUtils.byteDesc(maxSize - totalSize) + ", " +
+        "max=" + StringUtils.byteDesc(this.maxSize) + ", " +
+        "blocks=" + size() + ", " +
+        "window=" + StringUtils.byteDesc(window.bytes) + ", " +
+        "probation=" + StringUtils.byteDesc(probation.bytes) + ", " +
+        "protected=" + StringUtils.byteDesc(protectedQueue.bytes) + ", " +
+        "accesses=" + stats.getRequestCount() + ", " +
+        "hits=" + stats.getHitCount() + ", " +
+        "hitRatio=" + (stats.getHitCount() == 0 ? "0" :
+            StringUtils.formatPercent(stats.getHitRatio(), 2)) + ", " +
+        "evicted=" + stats.getEvictedCount());
+  }
+
+  /**
+   * A cached block, linked in one of the queues.
+   */
+  private static class Node extends CachedBlock {
+    private static final long NODE_OVERHEAD = 3 * ClassSize.REFERENCE;
+
+    private AccessQueue queue;
+    private Node prev;
+    private Node next;
+
+    private Node(BlockCacheKey cacheKey, Cacheable buf, long sequence, boolean inMemory) {
+      super(cacheKey, buf, sequence, inMemory);
+    }
+
+    @Override
+    public long heapSize() {
+      return super.heapSize() + NODE_OVERHEAD;
+    }
+  }
+
+  /**
+   * A doubly linked queue of blocks, from the most to the least recently used.
+   */
+  private static class AccessQueue {
+    private Node first;
+    private Node last;
+    private long bytes;
+
+    void addFirst(Node node) {
+      node.queue = this;
+      node.prev = null;
+      node.next = first;
+      if (first == null) {
+        last = node;
+      } else {
+        first.prev = node;
+      }
+      first = node;
+      bytes += node.heapSize();
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      node.queue = null;
+      bytes -= node.heapSize();
+    }
+
+    void moveToFirst(Node node) {
+      if (first != node) {
+        remove(node);
+        addFirst(node);
+      }
+    }
+
+    /**
+     * @return the least recently used block, or null if the queue is empty
+     */
+    Node last() {
+      return last;
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * A block cache recording the accesses to another one in a
+ * {@link BlockCacheTrace}, for the {@link BlockCacheSimulator} to replay
+ * against other cache implementations and sizes. Enabled with
+ * {@link CacheConfig#BLOCKCACHE_TRACE_FILE_KEY}.
+ * <p>
+ * Recording stops once the trace reaches its maximum size, or on the first
+ * error writing it; the cache itself is not affected. Only the calls made
+ * through this class are seen, so the evictions the underlying cache does to
+ * free space are not traced.
+ */
+@InterfaceAudience.Private
+public class TracingBlockCache implements BlockCache, HeapSize {
+  static final Log LOG = LogFactory.getLog(TracingBlockCache.class);
+
+  private final BlockCache cache;
+  private final BlockCacheTrace.Writer trace;
+  private final long maxSize;
+  private volatile boolean tracing = true;
+
+  /**
+   * @param cache the cache to trace the accesses to
+   * @param traceFile the file to write the trace to
+   * @param maxSize the size of the trace after which recording stops
+   */
+  public TracingBlockCache(BlockCache cache, File traceFile, long maxSize)
+      throws IOException {
+    this(cache, new FileOutputStream(traceFile), maxSize);
+    LOG.info("Tracing the block cache accesses to " + traceFile + ", up to "
+        + StringUtils.humanReadableInt(maxSize));
+  }
+
+  TracingBlockCache(BlockCache cache, OutputStream os, long maxSize)
+      throws IOException {
+    this.cache = cache;
+    this.trace = new BlockCacheTrace.Writer(os);
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    cache.cacheBlock(cacheKey, buf, inMemory);
+    if (tracing) {
+      try {
+        trace.writeCache(cacheKey, buf, inMemory);
+        checkSize();
+      } catch (IOException ioe) {
+        stopTracing(ioe);
+      }
+    }
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+    cacheBlock(cacheKey, buf, false);
+  }
+
+  @Override
+  public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat) {
+    Cacheable block = cache.getBlock(cacheKey, caching, repeat);
+    if (tracing) {
+      try {
+        trace.writeGet(cacheKey, block, caching, repeat);
+        checkSize();
+      } catch (IOException ioe) {
+        stopTracing(ioe);
+      }
+    }
+    return block;
+  }
+
+  @Override
+  public boolean evictBlock(BlockCacheKey cacheKey) {
+    boolean evicted = cache.evictBlock(cacheKey);
+    if (evicted && tracing) {
+      try {
+        trace.writeEvict(cacheKey);
+      } catch (IOException ioe) {
+        stopTracing(ioe);
+      }
+    }
+    return evicted;
+  }
+
+  @Override
+  public int evictBlocksByHfileName(String hfileName) {
+    int evicted = cache.evictBlocksByHfileName(hfileName);
+    if (tracing) {
+      try {
+        trace.writeEvictFile(hfileName);
+      } catch (IOException ioe) {
+        stopTracing(ioe);
+      }
+    }
+    return evicted;
+  }
+
+  private void checkSize() {
+    if (trace.getSize() >= maxSize) {
+      stopTracing(null);
+    }
+  }
+
+  /**
+   * Stops recording and closes the trace.
+   * @param ioe the error writing the trace, or null if it is full
+   */
+  private synchronized void stopTracing(IOException ioe) {
+    if (!tracing) {
+      return;
+    }
+    if (ioe != null) {
+      LOG.warn("Stopped tracing the block cache accesses", ioe);
+    } else {
+      LOG.info("Stopped tracing the block cache accesses, the trace reached "
+          + StringUtils.humanReadableInt(maxSize));
+    }
+    closeTrace();
+  }
+
+  /**
+   * Stops recording and closes the trace, leaving the cache as it is.
+   */
+  synchronized void closeTrace() {
+    if (!tracing) {
+      return;
+    }
+    tracing = false;
+    try {
+      trace.close();
+    } catch (IOException ioe) {
+      LOG.warn("Failed to close the block cache trace", ioe);
+    }
+  }
+
+  /**
+   * @return whether the accesses are still being recorded
+   */
+  boolean isTracing() {
+    return tracing;
+  }
+
+  /**
+   * @return the traced cache
+   */
+  public BlockCache getBlockCache() {
+    return cache;
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return cache.getStats();
+  }
+
+  @Override
+  public void shutdown() {
+    closeTrace();
+    cache.shutdown();
+  }
+
+  @Override
+  public long heapSize() {
+    return cache instanceof HeapSize ? ((HeapSize) cache).heapSize() : 0;
+  }
+
+  @Override
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public long getFreeSize() {
+    return cache.getFreeSize();
+  }
+
+  @Override
+  public long getCurrentSize() {
+    return cache.getCurrentSize();
+  }
+
+  @Override
+  public long getEvictedCount() {
+    return cache.getEvictedCount();
+  }
+
+  @Override
+  public long getBlockCount() {
+    return cache.getBlockCount();
+  }
+
+  @Override
+  public List<BlockCacheColumnFamilySummary> getBlockCacheColumnFamilySummaries(
+      Configuration conf) throws IOException {
+    return cache.getBlockCacheColumnFamilySummaries(conf);
+  }
+}
@@ -30,6 +30,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
@@ -51,12 +52,14 @@ import org.apache.hadoop.hbase.io.HeapSize;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheColumnFamilySummary;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheOwner;
 import org.apache.hadoop.hbase.io.hfile.CacheStats;
 import org.apache.hadoop.hbase.io.hfile.Cacheable;
 import org.apache.hadoop.hbase.io.hfile.CacheableDeserializer;
 import org.apache.hadoop.hbase.io.hfile.CacheableDeserializerIdManager;
 import org.apache.hadoop.hbase.io.hfile.CombinedBlockCache;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock;
+import org.apache.hadoop.hbase.io.hfile.TableCacheStats;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.HasThread;
@@ -69,8 +72,8 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  * BucketCache uses {@link BucketAllocator} to allocate/free block, and use
  * {@link BucketCache#ramCache} and {@link BucketCache#backingMap} in order to
  * determine whether a given element hit. It could uses memory
- * {@link ByteBufferIOEngine} or file {@link FileIOEngine}to store/read the
- * block data.
+ * {@link ByteBufferIOEngine}, file {@link FileIOEngine} or memory-mapped file
+ * {@link FileMmapEngine} to store/read the block data.
  * 
  * Eviction is using similar algorithm as
  * {@link org.apache.hadoop.hbase.io.hfile.LruBlockCache}
@@ -251,13 +254,15 @@ public class BucketCache implements BlockCache, HeapSize {
       throws IOException {
     if (ioEngineName.startsWith("file:"))
       return new FileIOEngine(ioEngineName.substring(5), capacity);
+    else if (ioEngineName.startsWith("mmap:"))
+      return new FileMmapEngine(ioEngineName.substring(5), capacity);
     else if (ioEngineName.startsWith("offheap"))
       return new ByteBufferIOEngine(capacity, true);
     else if (ioEngineName.startsWith("heap"))
       return new ByteBufferIOEngine(capacity, false);
     else
       throw new IllegalArgumentException(
-          "Don't understand io engine name for cache - prefix with file:, heap or offheap");
+          "Don't understand io engine name for cache - prefix with file:, mmap:, heap or offheap");
   }
 
   /**
@@ -338,7 +343,7 @@ public class BucketCache implements BlockCache, HeapSize {
       return null;
     RAMQueueEntry re = ramCache.get(key);
     if (re != null) {
-      cacheStats.hit(caching);
+      cacheStats.hit(caching, key.getOwner());
       re.access(accessCount.incrementAndGet());
       return re.getData();
     }
@@ -355,7 +360,7 @@ public class BucketCache implements BlockCache, HeapSize {
           Cacheable cachedBlock = bucketEntry.deserializerReference(
               deserialiserMap).deserialize(bb, true);
           long timeTaken = System.nanoTime() - start;
-          cacheStats.hit(caching);
+          cacheStats.hit(caching, key.getOwner());
           cacheStats.ioHit(timeTaken);
           bucketEntry.access(accessCount.incrementAndGet());
           if (this.ioErrorStartTime > 0) {
@@ -372,7 +377,7 @@ public class BucketCache implements BlockCache, HeapSize {
         }
       }
     }
-    if(!repeat)cacheStats.miss(caching);
+    if(!repeat)cacheStats.miss(caching, key.getOwner());
     return null;
   }
 
@@ -392,6 +397,8 @@ public class BucketCache implements BlockCache, HeapSize {
         if (bucketEntry.equals(backingMap.remove(cacheKey))) {
           bucketAllocator.freeBlock(bucketEntry.offset());
           realCacheSize.addAndGet(-1 * bucketEntry.getLength());
+          cacheStats.blockRemoved(bucketEntry.getLength(), bucketEntry.unpackingGrowth,
+              bucketEntry.owner);
           if (removedBlock == null) {
             this.blockNumber.decrementAndGet();
           }
@@ -407,7 +414,7 @@ public class BucketCache implements BlockCache, HeapSize {
         }
       }
     }
-    cacheStats.evicted();
+    cacheStats.evicted(bucketEntry != null ? bucketEntry.owner : cacheKey.getOwner());
     return true;
   }
   
@@ -425,6 +432,7 @@ public class BucketCache implements BlockCache, HeapSize {
     @Override
     public void run() {
       bucketCache.logStats();
+      bucketCache.getStats().expireIdleTables();
     }
   }
   
@@ -441,6 +449,7 @@ public class BucketCache implements BlockCache, HeapSize {
         "free=" + StringUtils.byteDesc(freeSize) + ", " +
         "usedSize=" + StringUtils.byteDesc(usedSize) +", " +
         "cacheSize=" + StringUtils.byteDesc(cacheSize) +", " +
+        "logicalCacheSize=" + StringUtils.byteDesc(cacheStats.getLogicalSize()) + ", " +
         "accesses=" + cacheStats.getRequestCount() + ", " +
         "hits=" + cacheStats.getHitCount() + ", " +
         "IOhitsPerSecond=" + cacheStats.getIOHitsPerSecond() + ", " +
@@ -484,6 +493,10 @@ public class BucketCache implements BlockCache, HeapSize {
    * Free the space if the used size reaches acceptableSize() or one size block
    * couldn't be allocated. When freeing the space, we use the LRU algorithm and
    * ensure there must be some blocks evicted
+   * <p>
+   * The blocks of the tables over their maximum share of the cache go first,
+   * until these tables are back to {@link #DEFAULT_MIN_FACTOR} of their share.
+   * The blocks of the tables under their minimum share are not evicted.
    */
   private void freeSpace() {
     // Ensure only one freeSpace progress at a time
@@ -513,11 +526,37 @@ public class BucketCache implements BlockCache, HeapSize {
       msgBuffer.append("Free for total="
           + StringUtils.byteDesc(bytesToFreeWithoutExtra) + ", ");
 
+      long totalSize = bucketAllocator.getTotalSize();
+      Map<String, TableCacheStats> tablesOverMaxShare =
+          cacheStats.getTablesOverMaxShare(totalSize);
+      // One group per table over its share
+      Map<String, BucketEntryGroup> tableGroups = new HashMap<String, BucketEntryGroup>();
+      for (TableCacheStats table : tablesOverMaxShare.values()) {
+        long tableMinSize = (long) Math.floor(table.getMaxSize(totalSize)
+            * DEFAULT_MIN_FACTOR);
+        tableGroups.put(table.getTable(), new BucketEntryGroup(
+            table.getSize() - tableMinSize, blockSize, tableMinSize));
+        msgBuffer.append("Free for table " + table.getTable() + "="
+            + StringUtils.byteDesc(table.getSize() - tableMinSize) + ", ");
+      }
+      if (!tableGroups.isEmpty()) {
+        for (Map.Entry<BlockCacheKey, BucketEntry> bucketEntryWithKey : backingMap.entrySet()) {
+          BlockCacheOwner owner = bucketEntryWithKey.getValue().owner;
+          if (owner != null && tableGroups.containsKey(owner.getTable())) {
+            tableGroups.get(owner.getTable()).add(bucketEntryWithKey);
+          }
+        }
+        for (BucketEntryGroup tableGroup : tableGroups.values()) {
+          if (tableGroup.overflow() > 0) {
+            bytesToFreeWithoutExtra -= tableGroup.free(tableGroup.overflow());
+          }
+        }
+      }
+
       if (bytesToFreeWithoutExtra <= 0) {
         return;
       }
       long currentSize = bucketAllocator.getUsedSize();
-      long totalSize=bucketAllocator.getTotalSize();
       LOG.debug("Bucket cache free space started; Attempting to  " + msgBuffer.toString()
           + " of current used=" + StringUtils.byteDesc(currentSize)
           + ",actual cacheSize=" + StringUtils.byteDesc(realCacheSize.get())
@@ -537,6 +576,13 @@ public class BucketCache implements BlockCache, HeapSize {
       // Scan entire map putting bucket entry into appropriate bucket entry
       // group
       for (Map.Entry<BlockCacheKey, BucketEntry> bucketEntryWithKey : backingMap.entrySet()) {
+        BlockCacheOwner owner = bucketEntryWithKey.getValue().owner;
+        if (owner != null && owner.getMinShare() > 0.0f) {
+          TableCacheStats table = cacheStats.getTableStats().get(owner.getTable());
+          if (table != null && table.isUnderMinShare(totalSize)) {
+            continue;
+          }
+        }
         switch (bucketEntryWithKey.getValue().getPriority()) {
           case SINGLE: {
             bucketSingle.add(bucketEntryWithKey);
@@ -724,6 +770,8 @@ public class BucketCache implements BlockCache, HeapSize {
       for (int i = 0; i < done; ++i) {
         if (bucketEntries[i] != null) {
           backingMap.put(ramEntries[i].getKey(), bucketEntries[i]);
+          cacheStats.blockAdded(bucketEntries[i].getLength(),
+              bucketEntries[i].unpackingGrowth, bucketEntries[i].owner);
         }
         RAMQueueEntry ramCacheEntry = ramCache.remove(ramEntries[i].getKey());
         if (ramCacheEntry != null) {
@@ -731,7 +779,8 @@ public class BucketCache implements BlockCache, HeapSize {
         }
       }
 
-      if (bucketAllocator.getUsedSize() > acceptableSize()) {
+      if (bucketAllocator.getUsedSize() > acceptableSize() || !cacheStats
+          .getTablesOverMaxShare(bucketAllocator.getTotalSize()).isEmpty()) {
         freeSpace();
       }
     }
@@ -795,6 +844,9 @@ public class BucketCache implements BlockCache, HeapSize {
           backingMap, this.realCacheSize);
       backingMap = (ConcurrentHashMap<BlockCacheKey, BucketEntry>) ois
           .readObject();
+      for (BucketEntry entry : backingMap.values()) {
+        cacheStats.blockAdded(entry.getLength(), entry.unpackingGrowth);
+      }
       bucketAllocator = allocator;
       deserialiserMap = deserMap;
     } finally {
@@ -973,6 +1025,10 @@ public class BucketCache implements BlockCache, HeapSize {
     byte deserialiserIndex;
     private volatile long accessTime;
     private BlockPriority priority;
+    /** How many more bytes the block takes once unpacked */
+    int unpackingGrowth;
+    /** The table and family of the block, not persisted, see BlockCacheKey */
+    transient BlockCacheOwner owner;
 
     BucketEntry(long offset, int length, long accessTime, boolean inMemory) {
       setOffset(offset);
@@ -1140,6 +1196,8 @@ public class BucketCache implements BlockCache, HeapSize {
       BucketEntry bucketEntry = new BucketEntry(offset, len, accessTime,
           inMemory);
       bucketEntry.setDeserialiserReference(data.getDeserializer(), deserialiserMap);
+      bucketEntry.unpackingGrowth = CacheStats.getUnpackingGrowth(data);
+      bucketEntry.owner = key.getOwner();
       try {
         if (data instanceof HFileBlock) {
           ByteBuffer sliceBuf = ((HFileBlock) data).getBufferReadOnlyWithHeader();
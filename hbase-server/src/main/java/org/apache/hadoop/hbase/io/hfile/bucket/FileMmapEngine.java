@@ -0,0 +1,245 @@
+/**
+ * Copyright The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.DirectMemoryUtils;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * IO engine that stores data to a file on the local file system, which it
+ * maps into memory. Compared to {@link FileIOEngine}, a read or a write is a
+ * copy from or to the page cache, without a system call.
+ * <p>
+ * The file is mapped in segments of at most {@link #DEFAULT_SEGMENT_SIZE}
+ * bytes, as a single mapping can't be larger than 2GB. The segments are
+ * unmapped on shutdown rather than when they are garbage collected, so that
+ * the file can be mapped again right away, by a cache which retrieves its
+ * persisted state. Reads and writes which come after the shutdown fail with
+ * an IOException instead of touching the unmapped memory.
+ */
+@InterfaceAudience.Private
+public class FileMmapEngine implements IOEngine {
+  static final Log LOG = LogFactory.getLog(FileMmapEngine.class);
+
+  static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+  private final String filePath;
+  private final long capacity;
+  private final int segmentSize;
+  private RandomAccessFile raf;
+  private FileChannel fileChannel;
+  private MappedByteBuffer[] segments;
+
+  /** Guards the mappings against the unmapping on shutdown */
+  private final ReentrantReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+  private boolean shutdown = false;
+
+  public FileMmapEngine(String filePath, long capacity) throws IOException {
+    this(filePath, capacity, DEFAULT_SEGMENT_SIZE);
+  }
+
+  FileMmapEngine(String filePath, long capacity, int segmentSize)
+      throws IOException {
+    this.filePath = filePath;
+    this.capacity = capacity;
+    this.segmentSize = segmentSize;
+    try {
+      raf = new RandomAccessFile(filePath, "rw");
+    } catch (java.io.FileNotFoundException fex) {
+      LOG.error("Can't create bucket cache file " + filePath, fex);
+      throw fex;
+    }
+    try {
+      raf.setLength(capacity);
+      fileChannel = raf.getChannel();
+      int segmentCount = (int) ((capacity + segmentSize - 1) / segmentSize);
+      segments = new MappedByteBuffer[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        long position = (long) i * segmentSize;
+        segments[i] = fileChannel.map(FileChannel.MapMode.READ_WRITE, position,
+            Math.min(segmentSize, capacity - position));
+      }
+      LOG.info("Mapped " + StringUtils.byteDesc(capacity) + " in " + segmentCount
+          + " segments, on the path:" + filePath);
+    } catch (IOException ioex) {
+      LOG.error("Can't map bucket cache file " + filePath + " of "
+          + StringUtils.byteDesc(capacity), ioex);
+      unmap();
+      raf.close();
+      throw ioex;
+    }
+  }
+
+  /**
+   * The mapped file survives the engine, so it is able to support persistent
+   * storage for the cache
+   * @return true
+   */
+  @Override
+  public boolean isPersistent() {
+    return true;
+  }
+
+  /**
+   * Transfers data from the mapped file to the given byte buffer
+   * @param dstBuffer the given byte buffer into which bytes are to be written
+   * @param offset The offset in the file where the first byte to be read
+   * @throws IOException if the engine was shut down
+   */
+  @Override
+  public void read(ByteBuffer dstBuffer, long offset) throws IOException {
+    shutdownLock.readLock().lock();
+    try {
+      checkOpen();
+      checkBounds(offset, dstBuffer.remaining());
+      while (dstBuffer.hasRemaining()) {
+        ByteBuffer segment = segmentAt(offset);
+        segment.limit(Math.min(segment.limit(),
+            segment.position() + dstBuffer.remaining()));
+        offset += segment.remaining();
+        dstBuffer.put(segment);
+      }
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Transfers data from the given byte buffer to the mapped file
+   * @param srcBuffer the given byte buffer from which bytes are to be read
+   * @param offset The offset in the file where the first byte to be written
+   * @throws IOException if the engine was shut down
+   */
+  @Override
+  public void write(ByteBuffer srcBuffer, long offset) throws IOException {
+    shutdownLock.readLock().lock();
+    try {
+      checkOpen();
+      checkBounds(offset, srcBuffer.remaining());
+      while (srcBuffer.hasRemaining()) {
+        ByteBuffer segment = segmentAt(offset);
+        int len = Math.min(segment.remaining(), srcBuffer.remaining());
+        ByteBuffer src = srcBuffer.duplicate();
+        src.limit(src.position() + len);
+        segment.put(src);
+        srcBuffer.position(srcBuffer.position() + len);
+        offset += len;
+      }
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return a view of the segment holding the given offset of the file,
+   *         positioned at it
+   */
+  private ByteBuffer segmentAt(long offset) {
+    ByteBuffer segment = segments[(int) (offset / segmentSize)].duplicate();
+    segment.position((int) (offset % segmentSize));
+    return segment;
+  }
+
+  private void checkOpen() throws IOException {
+    if (shutdown) {
+      throw new IOException("Bucket cache file " + filePath + " is closed");
+    }
+  }
+
+  private void checkBounds(long offset, int len) throws IOException {
+    if (offset < 0 || offset + len > capacity) {
+      throw new IOException("Access of " + len + " bytes at offset " + offset
+          + " is out of the bounds of the " + capacity + " bytes of " + filePath);
+    }
+  }
+
+  /**
+   * Flushes the modified pages of the mapped file to the disk
+   * @throws IOException
+   */
+  @Override
+  public void sync() throws IOException {
+    shutdownLock.readLock().lock();
+    try {
+      checkOpen();
+      for (MappedByteBuffer segment : segments) {
+        segment.force();
+      }
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Flushes and unmaps the file, then closes it
+   */
+  @Override
+  public void shutdown() {
+    shutdownLock.writeLock().lock();
+    try {
+      if (shutdown) {
+        return;
+      }
+      shutdown = true;
+      for (MappedByteBuffer segment : segments) {
+        segment.force();
+      }
+      unmap();
+      fileChannel.close();
+      raf.close();
+    } catch (IOException ex) {
+      LOG.error("Can't shutdown cleanly", ex);
+    } finally {
+      shutdownLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Releases the mappings right away. A failure only delays it to the garbage
+   * collection of the segments.
+   */
+  private void unmap() {
+    if (segments == null) {
+      return;
+    }
+    boolean unmapped = true;
+    for (int i = 0; i < segments.length; i++) {
+      if (segments[i] != null && unmapped) {
+        try {
+          DirectMemoryUtils.destroyDirectByteBuffer(segments[i]);
+        } catch (Exception e) {
+          LOG.warn("Can't unmap " + filePath
+              + ", leaving it to the garbage collection", e);
+          unmapped = false;
+        }
+      }
+      segments[i] = null;
+    }
+  }
+}
@@ -315,6 +315,7 @@ MasterServices, Server {
   private ClusterStatusPublisher clusterStatusPublisherChore = null;
 
   private CatalogJanitor catalogJanitorChore;
+  private RegionMergeChore regionMergeChore;
   private LogCleaner logCleaner;
   private HFileCleaner hfileCleaner;
 
@@ -850,6 +851,8 @@ MasterServices, Server {
       this.balancerChore = getAndStartBalancerChore(this);
       this.catalogJanitorChore = new CatalogJanitor(this, this);
       startCatalogJanitorChore();
+      this.regionMergeChore = new RegionMergeChore(this, this.metricsMaster);
+      Threads.setDaemonThreadRunning(regionMergeChore.getThread());
     }
 
     status.markComplete("Initialization successful");
@@ -1176,6 +1179,9 @@ MasterServices, Server {
     if (this.catalogJanitorChore != null) {
       this.catalogJanitorChore.interrupt();
     }
+    if (this.regionMergeChore != null) {
+      this.regionMergeChore.interrupt();
+    }
     if (this.clusterStatusPublisherChore != null){
       clusterStatusPublisherChore.interrupt();
     }
@@ -100,6 +100,16 @@ public class MetricsMaster {
     masterSource.setRITOldestAge(timestamp);
   }
 
+  /**
+   * Record a run of the region merge chore
+   * @param merges number of merges dispatched
+   * @param backlog number of merges left for the next runs by the rate limit
+   */
+  public void addRegionMergeRun(int merges, int backlog) {
+    masterSource.incCounters("regionMergesDispatched", merges);
+    masterSource.setGauge("regionMergeBacklog", backlog);
+  }
+
   /**
    * Record a single instance of a snapshot
    * @param time time that the snapshot took
@@ -0,0 +1,171 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.master;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Chore;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerLoad;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+/**
+ * Chore that merges adjacent regions of a table which together are well under the split size,
+ * such as the regions left nearly empty by TTL expiry or bulk deletes, so that the number of
+ * regions does not only ever grow. Tables opt in with the {@link #MERGE_ENABLED_KEY} attribute
+ * of their descriptor.
+ * <p>
+ * The sizes are those last reported by the region servers. Each run dispatches at most
+ * hbase.master.region.merge.max.per.run merges, through
+ * {@link MasterServices#dispatchMergingRegions(HRegionInfo, HRegionInfo, boolean)}, and a region
+ * is in one merge per run at most; regions in transition are left alone. The region servers
+ * refuse to merge regions which still have references, so a merged region is only merged again
+ * once it has been compacted.
+ */
+@InterfaceAudience.Private
+public class RegionMergeChore extends Chore {
+  private static final Log LOG = LogFactory.getLog(RegionMergeChore.class);
+
+  /** Table descriptor attribute; set to true to have the small regions of the table merged. */
+  public static final String MERGE_ENABLED_KEY = "REGION_MERGE_ENABLED";
+  /** Fraction of the max file size of the table under which two regions are merged. */
+  public static final String MERGE_SIZE_RATIO_KEY = "hbase.master.region.merge.size.ratio";
+  /** Maximum number of merges dispatched per run. */
+  public static final String MAX_MERGES_PER_RUN_KEY = "hbase.master.region.merge.max.per.run";
+
+  private final MasterServices services;
+  private final MetricsMaster metrics;
+  private final float sizeRatio;
+  private final int maxMergesPerRun;
+  private final long defaultMaxFileSize;
+
+  RegionMergeChore(final MasterServices services, final MetricsMaster metrics) {
+    super(services.getServerName() + "-RegionMergeChore",
+      services.getConfiguration().getInt("hbase.master.region.merge.period", 300000),
+      services);
+    Configuration conf = services.getConfiguration();
+    this.services = services;
+    this.metrics = metrics;
+    this.sizeRatio = conf.getFloat(MERGE_SIZE_RATIO_KEY, 0.25f);
+    this.maxMergesPerRun = conf.getInt(MAX_MERGES_PER_RUN_KEY, 5);
+    this.defaultMaxFileSize = conf.getLong(HConstants.HREGION_MAX_FILESIZE,
+      HConstants.DEFAULT_MAX_FILE_SIZE);
+  }
+
+  @Override
+  protected void chore() {
+    try {
+      mergeSmallRegions();
+    } catch (IOException e) {
+      LOG.warn("Failed to merge small regions", e);
+    }
+  }
+
+  /**
+   * Dispatches the merges of the small regions of the tables that opted in.
+   * @return The number of merges dispatched.
+   */
+  int mergeSmallRegions() throws IOException {
+    Map<byte[], Integer> regionSizes = getRegionSizes();
+    RegionStates regionStates = services.getAssignmentManager().getRegionStates();
+    int merges = 0;
+    int backlog = 0;
+    for (HTableDescriptor htd : services.getTableDescriptors().getAll().values()) {
+      if (htd.isMetaTable() || !Boolean.parseBoolean(htd.getValue(MERGE_ENABLED_KEY))) {
+        continue;
+      }
+      long maxFileSize = htd.getMaxFileSize() > 0 ? htd.getMaxFileSize() : defaultMaxFileSize;
+      long maxMergedSizeMB = (long) (maxFileSize * sizeRatio) / (1024 * 1024);
+      List<HRegionInfo> regions = new ArrayList<HRegionInfo>();
+      for (HRegionInfo hri : regionStates.getRegionsOfTable(htd.getName())) {
+        if (!regionStates.isRegionInTransition(hri)) {
+          regions.add(hri);
+        }
+      }
+      List<Pair<HRegionInfo, HRegionInfo>> toMerge =
+          selectMerges(regions, regionSizes, maxMergedSizeMB);
+      for (Pair<HRegionInfo, HRegionInfo> pair : toMerge) {
+        if (merges >= maxMergesPerRun) {
+          ++backlog;
+          continue;
+        }
+        LOG.info("Merging small regions " + pair.getFirst().getRegionNameAsString() + " and "
+            + pair.getSecond().getRegionNameAsString() + " of " + htd.getNameAsString());
+        services.dispatchMergingRegions(pair.getFirst(), pair.getSecond(), false);
+        ++merges;
+      }
+    }
+    if (metrics != null) {
+      metrics.addRegionMergeRun(merges, backlog);
+    }
+    return merges;
+  }
+
+  /**
+   * @return The store file and memstore size of the online regions, in MB, by region name.
+   */
+  private Map<byte[], Integer> getRegionSizes() {
+    Map<byte[], Integer> regionSizes = new TreeMap<byte[], Integer>(Bytes.BYTES_COMPARATOR);
+    for (ServerLoad serverLoad : services.getServerManager().getOnlineServers().values()) {
+      for (RegionLoad regionLoad : serverLoad.getRegionsLoad().values()) {
+        regionSizes.put(regionLoad.getName(),
+          regionLoad.getStorefileSizeMB() + regionLoad.getMemStoreSizeMB());
+      }
+    }
+    return regionSizes;
+  }
+
+  /**
+   * Pairs up the adjacent regions which together are no larger than the given size. Regions
+   * whose size is unknown are not merged.
+   * @param regions The regions of a table, ordered by start key.
+   * @param regionSizes The size of the regions in MB, by region name.
+   * @param maxMergedSizeMB The maximum size of the merged region in MB.
+   * @return The pairs of regions to merge; no region is in two pairs.
+   */
+  static List<Pair<HRegionInfo, HRegionInfo>> selectMerges(List<HRegionInfo> regions,
+      Map<byte[], Integer> regionSizes, long maxMergedSizeMB) {
+    List<Pair<HRegionInfo, HRegionInfo>> result = new ArrayList<Pair<HRegionInfo, HRegionInfo>>();
+    for (int i = 0; i + 1 < regions.size(); ++i) {
+      HRegionInfo regionA = regions.get(i);
+      HRegionInfo regionB = regions.get(i + 1);
+      Integer sizeA = regionSizes.get(regionA.getRegionName());
+      Integer sizeB = regionSizes.get(regionB.getRegionName());
+      if (sizeA == null || sizeB == null || sizeA + sizeB > maxMergedSizeMB
+          || !HRegionInfo.areAdjacent(regionA, regionB)) {
+        continue;
+      }
+      result.add(new Pair<HRegionInfo, HRegionInfo>(regionA, regionB));
+      ++i;
+    }
+    return result;
+  }
+}
@@ -40,6 +40,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.RemoteExceptionHandler;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionThroughputController;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionThroughputControllerFactory;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.util.StringUtils;
@@ -61,6 +63,19 @@ public class CompactSplitThread implements CompactionRequestor {
   private final ThreadPoolExecutor splits;
   private final ThreadPoolExecutor mergePool;
 
+  private final CompactionThroughputController compactionThroughputController;
+
+  /** Whether to pick queued compactions fairly between tables, see {@link FairCompactionQueue} */
+  public static final String FAIR_QUEUE_KEY = "hbase.regionserver.compaction.queue.fair";
+  /** The wait that raises a queued compaction by one priority, with the fair queue */
+  public static final String FAIR_QUEUE_AGING_KEY = "hbase.regionserver.compaction.queue.aging";
+  /** The most compactions of a table that run at once with the fair queue; 0 for no limit */
+  public static final String MAX_COMPACTIONS_PER_TABLE_KEY =
+      "hbase.regionserver.compaction.max.per.table";
+
+  /** The running compactions, with the fair queue; null otherwise */
+  private final FairCompactionQueue.RunningCompactions runningCompactions;
+
   /**
    * Splitting should not take place if the total number of regions exceed this.
    * This is not a hard limit to the number of regions but it is a guideline to
@@ -88,8 +103,14 @@ public class CompactSplitThread implements CompactionRequestor {
 
     final String n = Thread.currentThread().getName();
 
-    this.largeCompactions = new ThreadPoolExecutor(largeThreads, largeThreads,
-        60, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+    if (conf.getBoolean(FAIR_QUEUE_KEY, false)) {
+      this.runningCompactions = new FairCompactionQueue.RunningCompactions(
+          conf.getInt(MAX_COMPACTIONS_PER_TABLE_KEY, 0));
+    } else {
+      this.runningCompactions = null;
+    }
+
+    this.largeCompactions = createCompactionPool(largeThreads, createCompactionQueue(),
         new ThreadFactory() {
           @Override
           public Thread newThread(Runnable r) {
@@ -99,8 +120,7 @@ public class CompactSplitThread implements CompactionRequestor {
           }
       });
     this.largeCompactions.setRejectedExecutionHandler(new Rejection());
-    this.smallCompactions = new ThreadPoolExecutor(smallThreads, smallThreads,
-        60, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+    this.smallCompactions = createCompactionPool(smallThreads, createCompactionQueue(),
         new ThreadFactory() {
           @Override
           public Thread newThread(Runnable r) {
@@ -131,6 +151,33 @@ public class CompactSplitThread implements CompactionRequestor {
             return t;
           }
         });
+
+    // compaction throughput controller
+    this.compactionThroughputController =
+        CompactionThroughputControllerFactory.create(server, conf);
+  }
+
+  /**
+   * Creates a pool of compaction threads. With a {@link FairCompactionQueue}, the threads are all
+   * started right away: a pool short of threads hands the tasks it is given directly to new
+   * threads, which would bypass the queue, its per table cap and its running counts.
+   */
+  static ThreadPoolExecutor createCompactionPool(int threads, BlockingQueue<Runnable> queue,
+      ThreadFactory threadFactory) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        queue, threadFactory);
+    if (queue instanceof FairCompactionQueue) {
+      pool.prestartAllCoreThreads();
+    }
+    return pool;
+  }
+
+  private BlockingQueue<Runnable> createCompactionQueue() {
+    if (this.runningCompactions == null) {
+      return new PriorityBlockingQueue<Runnable>();
+    }
+    return new FairCompactionQueue(this.runningCompactions,
+        conf.getLong(FAIR_QUEUE_AGING_KEY, 60 * 1000));
   }
 
   @Override
@@ -292,7 +339,7 @@ public class CompactSplitThread implements CompactionRequestor {
     }
     ThreadPoolExecutor pool = s.throttleCompaction(compaction.getRequest().getSize())
       ? largeCompactions : smallCompactions;
-    pool.execute(new CompactionRunner(s, r, compaction));
+    pool.execute(new CompactionRunner(s, r, compaction, priority != Store.NO_PRIORITY));
     if (LOG.isDebugEnabled()) {
       String type = (pool == smallCompactions) ? "Small " : "Large ";
       LOG.debug(type + "Compaction requested: " + compaction
@@ -310,6 +357,7 @@ public class CompactSplitThread implements CompactionRequestor {
     mergePool.shutdown();
     largeCompactions.shutdown();
     smallCompactions.shutdown();
+    compactionThroughputController.stop("Region server is stopping");
   }
 
   private void waitFor(ThreadPoolExecutor t, String name) {
@@ -355,16 +403,40 @@ public class CompactSplitThread implements CompactionRequestor {
     return this.regionSplitLimit;
   }
 
-  private class CompactionRunner implements Runnable, Comparable<CompactionRunner> {
+  private class CompactionRunner implements FairCompactionQueue.QueuedCompaction,
+      Comparable<CompactionRunner> {
     private final Store store;
     private final HRegion region;
     private final CompactionContext compaction;
+    /** Whether the priority was given with the request, rather than taken from the store */
+    private final boolean explicitPriority;
+    private final long queuedTime;
 
-    public CompactionRunner(Store store, HRegion region, CompactionContext compaction) {
+    public CompactionRunner(Store store, HRegion region, CompactionContext compaction,
+        boolean explicitPriority) {
       super();
       this.store = store;
       this.region = region;
       this.compaction = compaction;
+      this.explicitPriority = explicitPriority;
+      this.queuedTime = EnvironmentEdgeManager.currentTimeMillis();
+    }
+
+    @Override
+    public String getTableName() {
+      return region.getTableDesc().getNameAsString();
+    }
+
+    @Override
+    public String getRegionName() {
+      return region.getRegionNameAsString();
+    }
+
+    @Override
+    public int getPriority() {
+      // the store may have more or fewer files than when the compaction was queued
+      return explicitPriority ? compaction.getRequest().getPriority()
+          : store.getCompactPriority();
     }
     
     @Override
@@ -374,16 +446,32 @@ public class CompactSplitThread implements CompactionRequestor {
 
     @Override
     public void run() {
+      try {
+        doCompaction();
+      } finally {
+        if (runningCompactions != null) {
+          runningCompactions.finished(this);
+        }
+      }
+    }
+
+    private void doCompaction() {
       Preconditions.checkNotNull(server);
       if (server.isStopped()) {
         return;
       }
+      MetricsRegionServer metrics = server.getMetrics();
+      if (metrics != null) {
+        metrics.updateCompactionQueueWaitTime(getTableName(),
+            EnvironmentEdgeManager.currentTimeMillis() - queuedTime);
+      }
       this.compaction.getRequest().beforeExecute();
       try {
         // Note: please don't put single-compaction logic here;
         //       put it into region/store/etc. This is CST logic.
         long start = EnvironmentEdgeManager.currentTimeMillis();
-        boolean completed = region.compact(compaction, store);
+        boolean completed =
+            region.compact(compaction, store, compactionThroughputController);
         long now = EnvironmentEdgeManager.currentTimeMillis();
         LOG.info(((completed) ? "Completed" : "Aborted") + " compaction: " +
               this + "; duration=" + StringUtils.formatTimeDiff(now, start));
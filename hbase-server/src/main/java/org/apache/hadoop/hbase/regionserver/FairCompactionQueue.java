@@ -0,0 +1,391 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+
+/**
+ * A compaction queue that picks the compaction to run when a thread takes one, rather than when
+ * the compaction is queued. Queued compactions are ranked by the current priority of their
+ * store, improved by one for every aging period they have waited and worsened by one for every
+ * compaction of their table already running, so that a busy table cannot starve the others.
+ * A table runs at most the given number of compactions at once, across all the queues sharing
+ * the same {@link RunningCompactions}; its other compactions wait.
+ * <p>
+ * Tasks that are not {@link QueuedCompaction}s run first, in order.
+ */
+@InterfaceAudience.Private
+public class FairCompactionQueue extends AbstractQueue<Runnable>
+    implements BlockingQueue<Runnable> {
+
+  /**
+   * A compaction as the queue sees it. {@link RunningCompactions#finished(QueuedCompaction)}
+   * must be called when it is done.
+   */
+  public interface QueuedCompaction extends Runnable {
+    String getTableName();
+
+    String getRegionName();
+
+    /**
+     * @return The priority of the compaction now; lower is more urgent.
+     */
+    int getPriority();
+  }
+
+  /**
+   * The compactions running per table and per region, shared by the queues of a region server.
+   */
+  public static class RunningCompactions {
+    private final int maxPerTable;
+    private final Map<String, Integer> perTable = new HashMap<String, Integer>();
+    private final Map<String, Integer> perRegion = new HashMap<String, Integer>();
+    private final List<FairCompactionQueue> queues = new ArrayList<FairCompactionQueue>();
+
+    /**
+     * @param maxPerTable The most compactions a table runs at once; 0 for no limit.
+     */
+    public RunningCompactions(int maxPerTable) {
+      this.maxPerTable = maxPerTable;
+    }
+
+    synchronized boolean canStart(QueuedCompaction compaction) {
+      return maxPerTable <= 0 || getRunningForTable(compaction.getTableName()) < maxPerTable;
+    }
+
+    synchronized int getRunningForTable(String table) {
+      Integer count = perTable.get(table);
+      return (count == null) ? 0 : count;
+    }
+
+    synchronized int getRunningForRegion(String region) {
+      Integer count = perRegion.get(region);
+      return (count == null) ? 0 : count;
+    }
+
+    synchronized void started(QueuedCompaction compaction) {
+      perTable.put(compaction.getTableName(), getRunningForTable(compaction.getTableName()) + 1);
+      perRegion.put(compaction.getRegionName(),
+          getRunningForRegion(compaction.getRegionName()) + 1);
+    }
+
+    /**
+     * Called when a compaction taken from a queue is done, whether or not it succeeded.
+     */
+    public void finished(QueuedCompaction compaction) {
+      List<FairCompactionQueue> toSignal;
+      synchronized (this) {
+        decrement(perTable, compaction.getTableName());
+        decrement(perRegion, compaction.getRegionName());
+        toSignal = new ArrayList<FairCompactionQueue>(queues);
+      }
+      // the compactions of the table waiting in any queue may start now
+      for (FairCompactionQueue queue : toSignal) {
+        queue.signalAll();
+      }
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+      Integer count = counts.get(key);
+      if (count == null || count <= 1) {
+        counts.remove(key);
+      } else {
+        counts.put(key, count - 1);
+      }
+    }
+
+    synchronized void register(FairCompactionQueue queue) {
+      queues.add(queue);
+    }
+  }
+
+  private static final class Entry {
+    private final Runnable task;
+    private final long enqueueTime;
+
+    private Entry(Runnable task, long enqueueTime) {
+      this.task = task;
+      this.enqueueTime = enqueueTime;
+    }
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+  private final LinkedList<Entry> entries = new LinkedList<Entry>();
+  private final RunningCompactions running;
+  private final long agingMillis;
+
+  /**
+   * @param running The running compactions, shared with the other queues of the region server.
+   * @param agingMillis The wait that improves the rank of a compaction by one priority.
+   */
+  public FairCompactionQueue(RunningCompactions running, long agingMillis) {
+    this.running = running;
+    this.agingMillis = Math.max(1, agingMillis);
+    running.register(this);
+  }
+
+  @Override
+  public boolean offer(Runnable task) {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+    lock.lock();
+    try {
+      entries.add(new Entry(task, EnvironmentEdgeManager.currentTimeMillis()));
+      available.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(Runnable task) {
+    offer(task);
+  }
+
+  @Override
+  public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+    return offer(task);
+  }
+
+  @Override
+  public Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      Runnable task;
+      while ((task = dequeue()) == null) {
+        available.await();
+      }
+      return task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      Runnable task;
+      while ((task = dequeue()) == null) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = available.awaitNanos(nanos);
+      }
+      return task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable peek() {
+    lock.lock();
+    try {
+      Entry best = selectBest();
+      return (best == null) ? null : best.task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the best compaction that may start now, and counts it as running.
+   * @return The task; null if none may start.
+   */
+  private Runnable dequeue() {
+    Entry best = selectBest();
+    if (best == null) {
+      return null;
+    }
+    entries.remove(best);
+    if (best.task instanceof QueuedCompaction) {
+      running.started((QueuedCompaction) best.task);
+    }
+    return best.task;
+  }
+
+  private Entry selectBest() {
+    long now = EnvironmentEdgeManager.currentTimeMillis();
+    Entry best = null;
+    long bestRank = 0;
+    for (Entry entry : entries) {
+      if (!(entry.task instanceof QueuedCompaction)) {
+        return entry;
+      }
+      QueuedCompaction compaction = (QueuedCompaction) entry.task;
+      if (!running.canStart(compaction)) {
+        continue;
+      }
+      long rank = getRank(compaction, entry.enqueueTime, now);
+      if (best == null || rank < bestRank || (rank == bestRank
+          && compareRunning(compaction, (QueuedCompaction) best.task) < 0)) {
+        best = entry;
+        bestRank = rank;
+      }
+    }
+    return best;
+  }
+
+  private long getRank(QueuedCompaction compaction, long enqueueTime, long now) {
+    return (long) compaction.getPriority() + running.getRunningForTable(compaction.getTableName())
+        - (now - enqueueTime) / agingMillis;
+  }
+
+  /**
+   * Between compactions of the same rank, prefers the one whose region runs fewer compactions;
+   * then the one queued first, as the entries are in queueing order.
+   */
+  private int compareRunning(QueuedCompaction left, QueuedCompaction right) {
+    return running.getRunningForRegion(left.getRegionName())
+        - running.getRunningForRegion(right.getRegionName());
+  }
+
+  void signalAll() {
+    lock.lock();
+    try {
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      Iterator<Entry> it = entries.iterator();
+      while (it.hasNext()) {
+        if (it.next().task.equals(o)) {
+          it.remove();
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Drains the tasks in queueing order, whether or not they may start.
+   */
+  @Override
+  public int drainTo(Collection<? super Runnable> c, int maxElements) {
+    lock.lock();
+    try {
+      int n = 0;
+      while (n < maxElements && !entries.isEmpty()) {
+        c.add(entries.removeFirst().task);
+        ++n;
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return An iterator over a snapshot of the queued tasks, in queueing order.
+   */
+  @Override
+  public Iterator<Runnable> iterator() {
+    final List<Runnable> snapshot = new ArrayList<Runnable>();
+    lock.lock();
+    try {
+      for (Entry entry : entries) {
+        snapshot.add(entry.task);
+      }
+    } finally {
+      lock.unlock();
+    }
+    final Iterator<Runnable> it = snapshot.iterator();
+    return new Iterator<Runnable>() {
+      private Runnable last = null;
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public Runnable next() {
+        last = it.next();
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        FairCompactionQueue.this.remove(last);
+        last = null;
+      }
+    };
+  }
+}
@@ -37,6 +37,7 @@ import java.util.NavigableSet;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -91,6 +92,7 @@ import org.apache.hadoop.hbase.client.Row;
 import org.apache.hadoop.hbase.client.RowMutations;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.errorhandling.ForeignExceptionSnare;
+import org.apache.hadoop.hbase.exceptions.DoNotRetryIOException;
 import org.apache.hadoop.hbase.exceptions.DroppedSnapshotException;
 import org.apache.hadoop.hbase.exceptions.FailedSanityCheckException;
 import org.apache.hadoop.hbase.exceptions.NoSuchColumnFamilyException;
@@ -119,6 +121,8 @@ import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.SnapshotDescriptio
 import org.apache.hadoop.hbase.protobuf.generated.WALProtos.CompactionDescriptor;
 import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl.WriteEntry;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionThroughputController;
+import org.apache.hadoop.hbase.regionserver.compactions.NoLimitCompactionThroughputController;
 import org.apache.hadoop.hbase.regionserver.wal.HLog;
 import org.apache.hadoop.hbase.regionserver.wal.HLogFactory;
 import org.apache.hadoop.hbase.regionserver.wal.HLogKey;
@@ -251,6 +255,8 @@ public class HRegion implements HeapSize { // , Writable{
   protected final Configuration conf;
   private final Configuration baseConf;
   private final KeyValue.KVComparator comparator;
+  /** The shadow families of the table, see {@link HStore#SHADOW_FAMILY_KEY} */
+  private final Set<byte[]> shadowFamilies = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
   private final int rowLockWaitDuration;
   static final int DEFAULT_ROWLOCK_WAIT_DURATION = 30000;
 
@@ -467,6 +473,11 @@ public class HRegion implements HeapSize { // , Writable{
 
     this.isLoadingCfsOnDemandDefault = conf.getBoolean(LOAD_CFS_ON_DEMAND_CONFIG_KEY, true);
     this.htableDescriptor = htd;
+    for (HColumnDescriptor family : htd.getFamilies()) {
+      if (HStore.isShadowFamily(family)) {
+        this.shadowFamilies.add(family.getName());
+      }
+    }
     this.rsServices = rsServices;
     this.threadWakeFrequency = conf.getLong(HConstants.THREAD_WAKE_FREQUENCY, 10 * 1000);
     setHTableSpecificConf();
@@ -1104,6 +1115,11 @@ public class HRegion implements HeapSize { // , Writable{
     return this.htableDescriptor;
   }
 
+  /** @return the KeyValue comparator used by this region */
+  public KeyValue.KVComparator getComparator() {
+    return this.comparator;
+  }
+
   /** @return HLog in use for this region */
   public HLog getLog() {
     return this.log;
@@ -1213,6 +1229,15 @@ public class HRegion implements HeapSize { // , Writable{
    * @throws IOException e
    */
   public boolean compact(CompactionContext compaction, Store store) throws IOException {
+    return compact(compaction, store, NoLimitCompactionThroughputController.INSTANCE);
+  }
+
+  /**
+   * Runs the compaction, throttled by the given throughput controller.
+   * @see #compact(CompactionContext, Store)
+   */
+  public boolean compact(CompactionContext compaction, Store store,
+      CompactionThroughputController throughputController) throws IOException {
     assert compaction != null && compaction.hasSelection();
     assert !compaction.getRequest().getFiles().isEmpty();
     if (this.closing.get() || this.closed.get()) {
@@ -1251,7 +1276,7 @@ public class HRegion implements HeapSize { // , Writable{
         try {
           status.setStatus("Compacting store " + store);
           didPerformCompaction = true;
-          store.compact(compaction);
+          store.compact(compaction, throughputController);
         } catch (InterruptedIOException iioe) {
           String msg = "compaction interrupted";
           LOG.info(msg, iioe);
@@ -1677,12 +1702,48 @@ public class HRegion implements HeapSize { // , Writable{
   void prepareScanner(Scan scan) throws IOException {
     if(!scan.hasFamilies()) {
       // Adding all families to scanner
-      for(byte[] family: this.htableDescriptor.getFamiliesKeys()){
+      for(byte[] family: getDefaultFamilies()){
         scan.addFamily(family);
       }
     }
   }
 
+  /**
+   * @return The families of the table that operations naming no family apply to: all but the
+   *         shadow families, whose rows are not the rows of the region.
+   */
+  private List<byte[]> getDefaultFamilies() {
+    List<byte[]> families = new ArrayList<byte[]>(this.htableDescriptor.getFamiliesKeys());
+    if (!this.shadowFamilies.isEmpty()) {
+      families.removeAll(this.shadowFamilies);
+    }
+    return families;
+  }
+
+  /**
+   * @return Whether the given family is a shadow family, see {@link HStore#SHADOW_FAMILY_KEY}.
+   */
+  public boolean isShadowFamily(byte[] family) {
+    return this.shadowFamilies.contains(family);
+  }
+
+  /**
+   * @return Whether the given family map of a mutation or a get only names shadow families.
+   *         Such an operation works on rows of those families rather than rows of the region:
+   *         they are not locked nor checked against the boundaries of the region.
+   */
+  private boolean isShadowOperation(Map<byte[], ?> familyMap) {
+    if (this.shadowFamilies.isEmpty() || familyMap.isEmpty()) {
+      return false;
+    }
+    for (byte[] family : familyMap.keySet()) {
+      if (!this.shadowFamilies.contains(family)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   protected RegionScanner getScanner(Scan scan,
       List<KeyValueScanner> additionalScanners) throws IOException {
     startRegionOperation(Operation.SCAN);
@@ -1702,6 +1763,12 @@ public class HRegion implements HeapSize { // , Writable{
 
   protected RegionScanner instantiateRegionScanner(Scan scan,
       List<KeyValueScanner> additionalScanners) throws IOException {
+    if (scan.isReversed()) {
+      if (scan.getFilter() != null) {
+        scan.getFilter().setReversed(true);
+      }
+      return new ReversedRegionScannerImpl(scan, additionalScanners, this);
+    }
     return new RegionScannerImpl(scan, additionalScanners, this);
   }
 
@@ -1711,7 +1778,7 @@ public class HRegion implements HeapSize { // , Writable{
   void prepareDelete(Delete delete) throws IOException {
     // Check to see if this is a deleteRow insert
     if(delete.getFamilyMap().isEmpty()){
-      for(byte [] family : this.htableDescriptor.getFamiliesKeys()){
+      for(byte [] family : getDefaultFamilies()){
         // Don't eat the timestamp
         delete.deleteFamily(family, delete.getTimeStamp());
       }
@@ -1925,6 +1992,12 @@ public class HRegion implements HeapSize { // , Writable{
         if (!initialized) {
           if (!isReplay) {
             this.writeRequestsCount.increment();
+            for (Pair<Mutation, Integer> op : batchOp.operations) {
+              if (!isShadowOperation(op.getFirst().getFamilyMap())) {
+                byte[] row = op.getFirst().getRow();
+                recordRequestRow(row, 0, row.length);
+              }
+            }
             doPreMutationHook(batchOp);
           }
           initialized = true;
@@ -2054,24 +2127,27 @@ public class HRegion implements HeapSize { // , Writable{
           lastIndexExclusive++;
           continue;
         }
-        // If we haven't got any rows in our batch, we should block to
-        // get the next one.
-        boolean shouldBlock = numReadyToWrite == 0;
-        Integer acquiredLockId = null;
-        try {
-          acquiredLockId = getLock(providedLockId, mutation.getRow(),
-              shouldBlock);
-        } catch (IOException ioe) {
-          LOG.warn("Failed getting lock in batch put, row="
-                  + Bytes.toStringBinary(mutation.getRow()), ioe);
-        }
-        if (acquiredLockId == null) {
-          // We failed to grab another lock
-          assert !shouldBlock : "Should never fail to get lock when blocking";
-          break; // stop acquiring more rows for this batch
-        }
-        if (providedLockId == null) {
-          acquiredLocks.add(acquiredLockId);
+        // The rows of shadow families are not rows of the region, and are not locked
+        if (!isShadowOperation(familyMap)) {
+          // If we haven't got any rows in our batch, we should block to
+          // get the next one.
+          boolean shouldBlock = numReadyToWrite == 0;
+          Integer acquiredLockId = null;
+          try {
+            acquiredLockId = getLock(providedLockId, mutation.getRow(),
+                shouldBlock);
+          } catch (IOException ioe) {
+            LOG.warn("Failed getting lock in batch put, row="
+                    + Bytes.toStringBinary(mutation.getRow()), ioe);
+          }
+          if (acquiredLockId == null) {
+            // We failed to grab another lock
+            assert !shouldBlock : "Should never fail to get lock when blocking";
+            break; // stop acquiring more rows for this batch
+          }
+          if (providedLockId == null) {
+            acquiredLocks.add(acquiredLockId);
+          }
         }
         lastIndexExclusive++;
         numReadyToWrite++;
@@ -2139,6 +2215,8 @@ public class HRegion implements HeapSize { // , Writable{
           new MiniBatchOperationInProgress<Pair<Mutation, Integer>>(batchOp.operations, 
           batchOp.retCodeDetails, batchOp.walEditsFromCoprocessors, firstIndex, lastIndexExclusive);
         if (coprocessorHost.preBatchMutate(miniBatchOp)) return 0L;
+        mergeOperationsFromCoprocessors(miniBatchOp, familyMaps, firstIndex, lastIndexExclusive,
+          byteNow);
       }
 
       // ------------------------------------
@@ -2305,6 +2383,59 @@ public class HRegion implements HeapSize { // , Writable{
     }
   }
 
+  /**
+   * Folds the mutations coprocessors added in preBatchMutate into the family maps of the
+   * operations they were added for, so that they are written to the memstore, the WAL and,
+   * on failure, rolled back along with them. The family maps of those operations are
+   * replaced by copies; the client's mutations are not modified.
+   */
+  private void mergeOperationsFromCoprocessors(
+      MiniBatchOperationInProgress<Pair<Mutation, Integer>> miniBatchOp,
+      Map<byte[], List<? extends Cell>>[] familyMaps, int firstIndex, int lastIndexExclusive,
+      byte[] byteNow) throws IOException {
+    for (int i = firstIndex; i < lastIndexExclusive; i++) {
+      Mutation[] fromCP = miniBatchOp.getOperationsFromCoprocessors(i - firstIndex);
+      if (fromCP == null || miniBatchOp.getOperationStatus(i - firstIndex)
+          .getOperationStatusCode() != OperationStatusCode.NOT_RUN) {
+        continue;
+      }
+      Map<byte[], List<Cell>> merged = new TreeMap<byte[], List<Cell>>(Bytes.BYTES_COMPARATOR);
+      addToFamilyMap(merged, familyMaps[i]);
+      for (Mutation m : fromCP) {
+        if (!isShadowOperation(m.getFamilyMap())) {
+          checkRow(m.getRow(), "coprocessor batch mutation");
+        }
+        if (m instanceof Put) {
+          checkFamilies(m.getFamilyMap().keySet());
+          updateKVTimestamps(m.getFamilyMap().values(), byteNow);
+        } else if (m instanceof Delete) {
+          prepareDelete((Delete) m);
+          prepareDeleteTimestamps(m.getFamilyMap(), byteNow);
+        } else {
+          throw new DoNotRetryIOException("Only Puts and Deletes can be added to a batch, got "
+              + m.getClass().getSimpleName());
+        }
+        addToFamilyMap(merged, m.getFamilyMap());
+      }
+      Map<byte[], List<? extends Cell>> familyMap =
+          new TreeMap<byte[], List<? extends Cell>>(Bytes.BYTES_COMPARATOR);
+      familyMap.putAll(merged);
+      familyMaps[i] = familyMap;
+    }
+  }
+
+  private static void addToFamilyMap(Map<byte[], List<Cell>> target,
+      Map<byte[], List<? extends Cell>> source) {
+    for (Map.Entry<byte[], List<? extends Cell>> e : source.entrySet()) {
+      List<Cell> cells = target.get(e.getKey());
+      if (cells == null) {
+        cells = new ArrayList<Cell>(e.getValue().size());
+        target.put(e.getKey(), cells);
+      }
+      cells.addAll(e.getValue());
+    }
+  }
+
   //TODO, Think that gets/puts and deletes should be refactored a bit so that
   //the getting of the lock happens before, so that you would just pass it into
   //the methods. So in the case of checkAndMutate you could just do lockRow,
@@ -3445,14 +3576,14 @@ public class HRegion implements HeapSize { // , Writable{
     private KeyValue joinedContinuationRow = null;
     // KeyValue indicating that limit is reached when scanning
     private final KeyValue KV_LIMIT = new KeyValue();
-    private final byte [] stopRow;
+    protected final byte [] stopRow;
     private Filter filter;
     private int batch;
-    private int isScan;
+    protected int isScan;
     private boolean filterClosed = false;
     private long readPt;
     private long maxResultSize;
-    private HRegion region;
+    protected HRegion region;
 
     public HRegionInfo getRegionInfo() {
       return region.getRegionInfo();
@@ -3512,9 +3643,15 @@ public class HRegion implements HeapSize { // , Writable{
           joinedScanners.add(scanner);
         }
       }
-      this.storeHeap = new KeyValueHeap(scanners, comparator);
+      initializeKVHeap(scanners, joinedScanners, region);
+    }
+
+    protected void initializeKVHeap(List<KeyValueScanner> scanners,
+        List<KeyValueScanner> joinedScanners, HRegion region)
+        throws IOException {
+      this.storeHeap = new KeyValueHeap(scanners, region.comparator);
       if (!joinedScanners.isEmpty()) {
-        this.joinedHeap = new KeyValueHeap(joinedScanners, comparator);
+        this.joinedHeap = new KeyValueHeap(joinedScanners, region.comparator);
       }
     }
 
@@ -3564,7 +3701,13 @@ public class HRegion implements HeapSize { // , Writable{
         // This could be a new thread from the last time we called next().
         MultiVersionConsistencyControl.setThreadReadPoint(this.readPt);
 
-        return nextRaw(outResults, limit);
+        int resultCount = outResults.size();
+        boolean moreRows = nextRaw(outResults, limit);
+        if (outResults.size() > resultCount) {
+          KeyValue kv = outResults.get(resultCount);
+          recordRequestRow(kv.getBuffer(), kv.getRowOffset(), kv.getRowLength());
+        }
+        return moreRows;
       } finally {
         closeRegionOperation();
       }
@@ -3656,6 +3799,7 @@ public class HRegion implements HeapSize { // , Writable{
         throw new IllegalArgumentException("First parameter should be an empty list");
       }
       RpcCallContext rpcCall = RpcServer.getCurrentCall();
+      ServerSideScanMetrics scanMetrics = ServerSideScanMetrics.getThreadScanMetrics();
       // The loop here is used only when at some point during the next we determine
       // that due to effects of filters or otherwise, we have an empty row in the result.
       // Then we loop and try again. Otherwise, we must get out on the first iteration via return,
@@ -3693,9 +3837,16 @@ public class HRegion implements HeapSize { // , Writable{
             return false;
           }
 
+          if (scanMetrics != null) {
+            scanMetrics.addRowsExamined(1);
+          }
+
           // Check if rowkey filter wants to exclude this row. If so, loop to next.
           // Technically, if we hit limits before on this row, we don't need this call.
           if (filterRowKey(currentRow, offset, length)) {
+            if (scanMetrics != null) {
+              scanMetrics.addRowsFiltered(1);
+            }
             boolean moreRows = nextRow(currentRow, offset, length);
             if (!moreRows) return false;
             results.clear();
@@ -3724,6 +3875,9 @@ public class HRegion implements HeapSize { // , Writable{
             filter.filterRow(results);
           }
           if (isEmptyRow) {
+            if (scanMetrics != null) {
+              scanMetrics.addRowsFiltered(1);
+            }
             boolean moreRows = nextRow(currentRow, offset, length);
             if (!moreRows) return false;
             results.clear();
@@ -3766,6 +3920,9 @@ public class HRegion implements HeapSize { // , Writable{
         // Double check to prevent empty rows from appearing in result. It could be
         // the case when SingleColumnValueExcludeFilter is used.
         if (results.isEmpty()) {
+          if (scanMetrics != null) {
+            scanMetrics.addRowsFiltered(1);
+          }
           boolean moreRows = nextRow(currentRow, offset, length);
           if (!moreRows) return false;
           if (!stopRow) continue;
@@ -3796,7 +3953,7 @@ public class HRegion implements HeapSize { // , Writable{
       return true;
     }
 
-    private boolean isStopRow(byte [] currentRow, int offset, short length) {
+    protected boolean isStopRow(byte [] currentRow, int offset, short length) {
       return currentRow == null ||
           (stopRow != null &&
           comparator.compareRows(stopRow, 0, stopRow.length,
@@ -4413,14 +4570,16 @@ public class HRegion implements HeapSize { // , Writable{
    * @throws IOException read exceptions
    */
   public Result get(final Get get) throws IOException {
-    checkRow(get.getRow(), "Get");
+    if (!isShadowOperation(get.getFamilyMap())) {
+      checkRow(get.getRow(), "Get");
+    }
     // Verify families are all valid
     if (get.hasFamilies()) {
       for (byte [] family: get.familySet()) {
         checkFamily(family);
       }
     } else { // Adding all families to scanner
-      for (byte[] family: this.htableDescriptor.getFamiliesKeys()) {
+      for (byte[] family: getDefaultFamilies()) {
         get.addFamily(family);
       }
     }
@@ -4729,6 +4888,7 @@ public class HRegion implements HeapSize { // , Writable{
     // Lock row
     startRegionOperation(Operation.APPEND);
     this.writeRequestsCount.increment();
+    recordRequestRow(row, 0, row.length);
     WriteEntry w = null;
     try {
       Integer lid = getLock(null, row, true);
@@ -4897,6 +5057,7 @@ public class HRegion implements HeapSize { // , Writable{
     // Lock row
     startRegionOperation(Operation.INCREMENT);
     this.writeRequestsCount.increment();
+    recordRequestRow(row, 0, row.length);
     WriteEntry w = null;
     try {
       Integer lid = getLock(null, row, true);
@@ -5235,6 +5396,24 @@ public class HRegion implements HeapSize { // , Writable{
     // nothing
   }
 
+  /**
+   * @return true if the split policy may want to split the region on its request load, without
+   * the region being flushed or compacted, so that {@link #checkSplit()} should be called
+   * periodically.
+   */
+  boolean shouldCheckSplitPeriodically() {
+    return this.splitPolicy != null && this.splitPolicy.shouldCheckPeriodically();
+  }
+
+  /**
+   * Shows the row of a request served by this region to the split policy.
+   */
+  private void recordRequestRow(byte[] buffer, int offset, int length) {
+    if (this.splitPolicy != null) {
+      this.splitPolicy.requestServed(buffer, offset, length);
+    }
+  }
+
   /**
    * Return the splitpoint. null indicates the region isn't splittable
    * If the splitpoint isn't explicitly specified, it will go over the stores
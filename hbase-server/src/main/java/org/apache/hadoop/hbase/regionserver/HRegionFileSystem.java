@@ -615,16 +615,19 @@ public class HRegionFileSystem {
    * @param familyName Column Family Name
    * @param f File to create reference.
    * @param mergedDir
+   * @param shadow Whether the file belongs to a shadow family, whose rows may lie out of the
+   *          range of the region
    * @return Path to created reference.
    * @throws IOException
    */
   Path mergeStoreFile(final HRegionInfo mergedRegion, final String familyName,
-      final StoreFile f, final Path mergedDir)
+      final StoreFile f, final Path mergedDir, final boolean shadow)
       throws IOException {
     Path referenceDir = new Path(new Path(mergedDir,
         mergedRegion.getEncodedName()), familyName);
     // A whole reference to the store file.
-    Reference r = Reference.createTopReference(regionInfo.getStartKey());
+    Reference r = Reference.createTopReference(
+        shadow ? HConstants.EMPTY_START_ROW : regionInfo.getStartKey());
     // Add the referred-to regions name as a dot separated suffix.
     // See REF_NAME_REGEX regex above. The referred-to regions name is
     // up in the path of the passed in <code>f</code> -- parentdir is family,
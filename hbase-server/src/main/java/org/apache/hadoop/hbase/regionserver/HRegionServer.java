@@ -81,6 +81,7 @@ import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HConnectionManager;
 import org.apache.hadoop.hbase.client.Increment;
 import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.OperationWithAttributes;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.RowMutations;
@@ -172,6 +173,7 @@ import org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ScanRequest;
 import org.apache.hadoop.hbase.protobuf.generated.ClientProtos.ScanResponse;
 import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos;
 import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.Coprocessor;
+import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameInt64Pair;
 import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.NameStringPair;
 import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.RegionLoad;
 import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos.RegionSpecifier;
@@ -1347,6 +1349,9 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
             LOG.warn("Failed major compaction check on " + r, e);
           }
         }
+        if (r.shouldCheckSplitPeriodically()) {
+          this.instance.compactSplitThread.requestSplit(r);
+        }
       }
       iteration = (iteration == Long.MAX_VALUE) ? 0 : (iteration + 1);
     }
@@ -1482,10 +1487,25 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
     return hlogRoller;
   }
 
+  @Override
   public MetricsRegionServer getMetrics() {
     return this.metricsRegionServer;
   }
 
+  @Override
+  public double getCompactionPressure() {
+    double max = 0;
+    for (HRegion region : onlineRegions.values()) {
+      for (Store store : region.getStores().values()) {
+        double normCount = store.getCompactionPressure();
+        if (normCount > max) {
+          max = normCount;
+        }
+      }
+    }
+    return max;
+  }
+
   /**
    * @return Master address tracker instance.
    */
@@ -2740,7 +2760,7 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
           existence = region.getCoprocessorHost().preExists(clientGet);
         }
         if (existence == null) {
-          r = region.get(clientGet);
+          r = getWithScanMetrics(region, clientGet, builder);
           if (request.getExistenceOnly()) {
             boolean exists = r != null && !r.isEmpty();
             if (region.getCoprocessorHost() != null) {
@@ -2763,6 +2783,43 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
     }
   }
 
+  /**
+   * Do a get, counting the work done for it in the region server metrics if the get asks for
+   * scan metrics.
+   * @param response if not null, the counts are also added to it so they go back to the client.
+   *   MultiGetResponse and MultiResponse have no place for them, so batched gets pass null.
+   */
+  private Result getWithScanMetrics(HRegion region, Get get, GetResponse.Builder response)
+      throws IOException {
+    if (!isScanMetricsEnabled(get)) {
+      return region.get(get);
+    }
+    ServerSideScanMetrics scanMetrics = new ServerSideScanMetrics();
+    ServerSideScanMetrics.setThreadScanMetrics(scanMetrics);
+    try {
+      return region.get(get);
+    } finally {
+      ServerSideScanMetrics.setThreadScanMetrics(null);
+      Map<String, Long> metrics = scanMetrics.getMetricsMap();
+      metricsRegionServer.updateGetScanMetrics(metrics);
+      if (response != null) {
+        for (Map.Entry<String, Long> e : metrics.entrySet()) {
+          response.addScanMetrics(NameInt64Pair.newBuilder()
+            .setName(e.getKey()).setValue(e.getValue()));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return Whether the operation asks for server side scan metrics, with the
+   *         {@link Scan#SCAN_ATTRIBUTES_METRICS_ENABLE} attribute.
+   */
+  private static boolean isScanMetricsEnabled(OperationWithAttributes operation) {
+    byte[] enableMetrics = operation.getAttribute(Scan.SCAN_ATTRIBUTES_METRICS_ENABLE);
+    return enableMetrics != null && Bytes.toBoolean(enableMetrics);
+  }
+
   /**
    * Get multi data from a table.
    *
@@ -2797,7 +2854,7 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
             existence = region.getCoprocessorHost().preExists(clientGet);
           }
           if (existence == null) {
-            r = region.get(clientGet);
+            r = getWithScanMetrics(region, clientGet, null);
             if (request.getExistenceOnly()) {
               boolean exists = r != null && !r.isEmpty();
               if (region.getCoprocessorHost() != null) {
@@ -3010,20 +3067,32 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
             scan.setLoadColumnFamiliesOnDemand(region.isLoadingCfsOnDemandDefault());
           }
           region.prepareScanner(scan);
-          if (region.getCoprocessorHost() != null) {
-            scanner = region.getCoprocessorHost().preScannerOpen(scan);
-          }
-          if (scanner == null) {
-            scanner = region.getScanner(scan);
-          }
-          if (region.getCoprocessorHost() != null) {
-            scanner = region.getCoprocessorHost().postScannerOpen(scan, scanner);
+          // Opening the scanner seeks all the store files, which is most of the work of a
+          // short scan, so the metrics are attached to the thread before that
+          ServerSideScanMetrics scanMetrics = isScanMetricsEnabled(scan)
+              ? new ServerSideScanMetrics() : null;
+          ServerSideScanMetrics.setThreadScanMetrics(scanMetrics);
+          try {
+            if (region.getCoprocessorHost() != null) {
+              scanner = region.getCoprocessorHost().preScannerOpen(scan);
+            }
+            if (scanner == null) {
+              scanner = region.getScanner(scan);
+            }
+            if (region.getCoprocessorHost() != null) {
+              scanner = region.getCoprocessorHost().postScannerOpen(scan, scanner);
+            }
+          } finally {
+            ServerSideScanMetrics.setThreadScanMetrics(null);
           }
           rsh = addScanner(scanner, region);
           scannerName = rsh.scannerName;
           scannerId = Long.parseLong(scannerName);
 
           ttl = this.scannerLeaseTimeoutPeriod;
+          if (scanMetrics != null) {
+            rsh.enableScanMetrics(scanMetrics);
+          }
           if (scan.getPrefetching()) {
             rsh.enablePrefetching(scan.getCaching());
           }
@@ -3063,6 +3132,13 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
             ((PayloadCarryingRpcController) controller).setCellScanner(CellUtil
               .createCellScanner(cellScannables));
           }
+          ServerSideScanMetrics scanMetrics = rsh.getScanMetrics();
+          if (scanMetrics != null) {
+            for (Map.Entry<String, Long> e : scanMetrics.getMetricsMap().entrySet()) {
+              builder.addScanMetrics(NameInt64Pair.newBuilder()
+                .setName(e.getKey()).setValue(e.getValue()));
+            }
+          }
         }
 
         if (!moreResults || closeScanner) {
@@ -3208,7 +3284,7 @@ public class HRegionServer implements ClientProtos.ClientService.BlockingInterfa
           try {
             if (actionUnion.hasGet()) {
               Get get = ProtobufUtil.toGet(actionUnion.getGet());
-              Result r = region.get(get);
+              Result r = getWithScanMetrics(region, get, null);
               if (r != null) {
                 // Get a result with no data.  The data will be carried alongside pbs, not as pbs.
                 result = ProtobufUtil.toResultNoData(r);
@@ -56,6 +56,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.exceptions.InvalidHFileException;
 import org.apache.hadoop.hbase.exceptions.WrongRegionException;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheOwner;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.hfile.HFileDataBlockEncoder;
@@ -68,6 +69,9 @@ import org.apache.hadoop.hbase.protobuf.generated.WALProtos.CompactionDescriptor
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionProgress;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionThroughputController;
+import org.apache.hadoop.hbase.regionserver.compactions.DefaultCompactor;
+import org.apache.hadoop.hbase.regionserver.compactions.NoLimitCompactionThroughputController;
 import org.apache.hadoop.hbase.regionserver.compactions.OffPeakHours;
 import org.apache.hadoop.hbase.regionserver.wal.HLogUtil;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -113,6 +117,13 @@ public class HStore implements Store {
   public static final String BLOCKING_STOREFILES_KEY = "hbase.hstore.blockingStoreFiles";
   public static final int DEFAULT_COMPACTCHECKER_INTERVAL_MULTIPLIER = 1000;
   public static final int DEFAULT_BLOCKING_STOREFILE_COUNT = 7;
+  /**
+   * Column family configuration key marking the family as a shadow family. The rows of a shadow
+   * family live in their own keyspace rather than in the one of the region: they are not part of
+   * the operations that name no family, do not pick the split point, and are inherited whole by
+   * both daughters of a split and by the result of a merge.
+   */
+  public static final String SHADOW_FAMILY_KEY = "hbase.hstore.shadow";
 
   static final Log LOG = LogFactory.getLog(HStore.class);
 
@@ -170,6 +181,7 @@ public class HStore implements Store {
   private int pauseTime;
 
   private long blockingFileCount;
+  private int minFilesToCompact;
   private int compactionCheckMultiplier;
 
   /**
@@ -220,11 +232,19 @@ public class HStore implements Store {
 
     // Setting up cache configuration for this family
     this.cacheConf = new CacheConfig(conf, family);
+    this.cacheConf.setOwner(new BlockCacheOwner(
+        region.getTableDesc().getNameAsString(), family.getNameAsString(),
+        conf.getFloat(CacheConfig.BLOCKCACHE_TABLE_MAX_SHARE_KEY,
+            CacheConfig.DEFAULT_BLOCKCACHE_TABLE_MAX_SHARE),
+        conf.getFloat(CacheConfig.BLOCKCACHE_TABLE_MIN_SHARE_KEY,
+            CacheConfig.DEFAULT_BLOCKCACHE_TABLE_MIN_SHARE)));
 
     this.verifyBulkLoads = conf.getBoolean("hbase.hstore.bulkload.verify", false);
 
     this.blockingFileCount =
         conf.getInt(BLOCKING_STOREFILES_KEY, DEFAULT_BLOCKING_STOREFILE_COUNT);
+    this.minFilesToCompact = Math.max(2, conf.getInt("hbase.hstore.compaction.min",
+        conf.getInt("hbase.hstore.compactionThreshold", 3)));
     this.compactionCheckMultiplier = conf.getInt(
         COMPACTCHECKER_INTERVAL_MULTIPLIER_KEY, DEFAULT_COMPACTCHECKER_INTERVAL_MULTIPLIER);
     if (this.compactionCheckMultiplier <= 0) {
@@ -936,7 +956,14 @@ public class HStore implements Store {
    * @throws IOException
    * @return Storefile we compacted into or null if we failed or opted out early.
    */
+  @Override
   public List<StoreFile> compact(CompactionContext compaction) throws IOException {
+    return compact(compaction, NoLimitCompactionThroughputController.INSTANCE);
+  }
+
+  @Override
+  public List<StoreFile> compact(CompactionContext compaction,
+      CompactionThroughputController throughputController) throws IOException {
     assert compaction != null && compaction.hasSelection();
     CompactionRequest cr = compaction.getRequest();
     Collection<StoreFile> filesToCompact = cr.getFiles();
@@ -947,17 +974,31 @@ public class HStore implements Store {
       Preconditions.checkArgument(filesCompacting.containsAll(filesToCompact));
     }
 
+    // Files with nothing but expired cells are archived without reading them, unless they hold
+    // the max sequence id of the store, which expiry by timestamp says nothing about (think of
+    // a flush of old cells). The empty file compacted from those keeps the sequence id, or the
+    // region would replay flushed edits and reuse sequence ids when reopened.
+    boolean archiveOnly = cr.isAllFilesExpired()
+        && StoreFile.getMaxSequenceIdInList(filesToCompact, true) < getMaxSequenceId(true);
+
     // Ready to go. Have list of files to compact.
-    LOG.info("Starting compaction of " + filesToCompact.size() + " file(s) in "
-        + this + " of " + this.getRegionInfo().getRegionNameAsString()
-        + " into tmpdir=" + fs.getTempDir() + ", totalSize="
-        + StringUtils.humanReadableInt(cr.getSize()));
+    if (archiveOnly) {
+      LOG.info("Archiving " + filesToCompact.size() + " expired file(s) in " + this + " of "
+          + this.getRegionInfo().getRegionNameAsString() + " without compacting them, totalSize="
+          + StringUtils.humanReadableInt(cr.getSize()));
+    } else {
+      LOG.info("Starting compaction of " + filesToCompact.size() + " file(s) in "
+          + this + " of " + this.getRegionInfo().getRegionNameAsString()
+          + " into tmpdir=" + fs.getTempDir() + ", totalSize="
+          + StringUtils.humanReadableInt(cr.getSize()));
+    }
 
     long compactionStartTime = EnvironmentEdgeManager.currentTimeMillis();
     List<StoreFile> sfs = null;
     try {
       // Commence the compaction.
-      List<Path> newFiles = compaction.compact();
+      List<Path> newFiles = archiveOnly ? new ArrayList<Path>()
+          : compaction.compact(throughputController);
       // TODO: get rid of this!
       if (!this.conf.getBoolean("hbase.hstore.compaction.complete", true)) {
         LOG.warn("hbase.hstore.compaction.complete is set to false");
@@ -1068,7 +1109,13 @@ public class HStore implements Store {
       .append(". This selection was in queue for ")
       .append(StringUtils.formatTimeDiff(compactionStartTime, cr.getSelectionTime()))
       .append(", and took ").append(StringUtils.formatTimeDiff(now, compactionStartTime))
-      .append(" to execute.");
+      .append(" to execute");
+    CompactionProgress progress = getCompactionProgress();
+    if (progress != null && progress.totalThrottleTimeMs > 0) {
+      message.append(", of which it was throttled for ")
+        .append(StringUtils.formatTime(progress.totalThrottleTimeMs));
+    }
+    message.append(".");
     LOG.info(message.toString());
   }
 
@@ -1161,8 +1208,8 @@ public class HStore implements Store {
 
     try {
       // Ready to go. Have list of files to compact.
-      List<Path> newFiles =
-          this.storeEngine.getCompactor().compactForTesting(filesToCompact, isMajor);
+      List<Path> newFiles = ((DefaultCompactor)this.storeEngine.getCompactor())
+          .compactForTesting(filesToCompact, isMajor);
       for (Path newFile: newFiles) {
         // Move the compaction into place.
         StoreFile sf = moveFileIntoPlace(newFile);
@@ -1568,8 +1615,19 @@ public class HStore implements Store {
     }
   }
 
+  /**
+   * @return Whether the given family is a shadow family, see {@link #SHADOW_FAMILY_KEY}.
+   */
+  public static boolean isShadowFamily(HColumnDescriptor family) {
+    return Boolean.parseBoolean(family.getConfigurationValue(SHADOW_FAMILY_KEY));
+  }
+
   @Override
   public byte[] getSplitPoint() {
+    // The rows of a shadow family say nothing about where to split the region
+    if (isShadowFamily(this.family)) {
+      return null;
+    }
     this.lock.readLock().lock();
     try {
       // Should already be enforced by the split policy!
@@ -1620,7 +1678,9 @@ public class HStore implements Store {
         scanner = this.getCoprocessorHost().preStoreScannerOpen(this, scan, targetCols);
       }
       if (scanner == null) {
-        scanner = new StoreScanner(this, getScanInfo(), scan, targetCols);
+        scanner = scan.isReversed() ? new ReversedStoreScanner(this,
+            getScanInfo(), scan, targetCols) : new StoreScanner(this,
+            getScanInfo(), scan, targetCols);
       }
       return scanner;
     } finally {
@@ -1843,8 +1903,7 @@ public class HStore implements Store {
 
   @Override
   public boolean needsCompaction() {
-    return storeEngine.getCompactionPolicy().needsCompaction(
-        this.storeEngine.getStoreFileManager().getStorefiles(), filesCompacting);
+    return this.storeEngine.needsCompaction(this.filesCompacting);
   }
 
   @Override
@@ -1888,4 +1947,17 @@ public class HStore implements Store {
   public boolean hasTooManyStoreFiles() {
     return getStorefilesCount() > this.blockingFileCount;
   }
+
+  @Override
+  public double getCompactionPressure() {
+    int storefileCount = getStorefilesCount();
+    if (storefileCount <= this.minFilesToCompact) {
+      return 0.0;
+    }
+    if (this.blockingFileCount <= this.minFilesToCompact) {
+      return storefileCount > this.blockingFileCount ? 1.1 : 1.0;
+    }
+    return (double) (storefileCount - this.minFilesToCompact)
+        / (this.blockingFileCount - this.minFilesToCompact);
+  }
 }
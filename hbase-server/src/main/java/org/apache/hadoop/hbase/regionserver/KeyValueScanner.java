@@ -122,4 +122,34 @@ public interface KeyValueScanner {
    *         assumed.
    */
   public boolean isFileScanner();  
+
+  // Support for reversed scans
+
+  /**
+   * Seek the scanner at the first KeyValue of the row which is the previous
+   * row of the specified key.
+   * @param key seek value
+   * @return true if the scanner at the first valid KeyValue of the previous
+   *         row, false if there is no previous row (or none with a KeyValue
+   *         visible to the current read point)
+   */
+  public boolean seekToPreviousRow(KeyValue key) throws IOException;
+
+  /**
+   * Seek the scanner at or before the row of the specified KeyValue: it first
+   * tries to seek at or after the specified KeyValue within that row, and if
+   * that row has no such KeyValue it seeks to the previous row, as
+   * {@link #seekToPreviousRow(KeyValue)} does.
+   * @param key seek KeyValue
+   * @return true if the scanner is positioned at a valid KeyValue, false if
+   *         the specified row and all rows before it are exhausted
+   */
+  public boolean backwardSeek(KeyValue key) throws IOException;
+
+  /**
+   * Seek the scanner at the first KeyValue of the last row.
+   * @return true if scanner has values left, false if the underlying data is
+   *         empty
+   */
+  public boolean seekToLastRow() throws IOException;
 }
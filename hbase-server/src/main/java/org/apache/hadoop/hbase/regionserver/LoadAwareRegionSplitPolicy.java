@@ -0,0 +1,214 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.cliffc.high_scale_lib.Counter;
+
+/**
+ * A split policy that splits regions on their request load as well as on their size, as
+ * {@link IncreasingToUpperBoundRegionSplitPolicy} does. A region that serves more than
+ * {@value #REQUESTS_PER_SECOND_KEY} requests per second for {@value #SUSTAINED_PERIODS_KEY}
+ * periods in a row is split, whatever its size.
+ * <p>
+ * The rows of the requests are sampled into a fixed size reservoir per period, and a split on
+ * load is done at the row that divides the sampled requests of the last two periods most evenly,
+ * rather than at the midkey of the largest store, so that a hot key range is spread over both
+ * daughters. Splits on size still use the midkey, so that the daughters stay under the size
+ * bound. Regions using this policy are checked by the region server periodically, as a region
+ * that is mostly read is rarely flushed or compacted.
+ */
+@InterfaceAudience.Private
+public class LoadAwareRegionSplitPolicy extends IncreasingToUpperBoundRegionSplitPolicy {
+  private static final Log LOG = LogFactory.getLog(LoadAwareRegionSplitPolicy.class);
+
+  private static final String CONFIG_PREFIX = "hbase.regionserver.region.split.load.";
+  /** The request rate of a region, per second, past which it is split; 0 disables. */
+  public static final String REQUESTS_PER_SECOND_KEY = CONFIG_PREFIX + "requests.per.second";
+  /** The length of the periods the request rate is measured over, in milliseconds. */
+  public static final String PERIOD_MILLIS_KEY = CONFIG_PREFIX + "period.millis";
+  /** The number of periods in a row the request rate must be over the bound for a split. */
+  public static final String SUSTAINED_PERIODS_KEY = CONFIG_PREFIX + "sustained.periods";
+  /** The number of rows sampled per period. */
+  public static final String SAMPLE_SIZE_KEY = CONFIG_PREFIX + "sample.size";
+  /** One request out of this many is offered to the sample. */
+  public static final String SAMPLE_INTERVAL_KEY = CONFIG_PREFIX + "sample.interval";
+
+  private long maxRequestsPerSecond;
+  private long periodMillis;
+  private int sustainedPeriods;
+  private int sampleSize;
+  private int sampleInterval;
+
+  private final Counter requests = new Counter();
+  // Racy on purpose, it only picks the requests that are sampled.
+  private int unsampledRequests = 0;
+  private final Random random = new Random();
+
+  // Guarded by this
+  private List<byte[]> sample = new ArrayList<byte[]>();
+  private List<byte[]> previousSample = new ArrayList<byte[]>();
+  private long sampledInPeriod = 0;
+  private long periodStartTime;
+  private long periodStartRequests = 0;
+  private int hotPeriods = 0;
+
+  @Override
+  protected void configureForRegion(HRegion region) {
+    super.configureForRegion(region);
+    Configuration conf = getConf();
+    this.maxRequestsPerSecond = conf.getLong(REQUESTS_PER_SECOND_KEY, 5000);
+    this.periodMillis = Math.max(1, conf.getLong(PERIOD_MILLIS_KEY, 60000));
+    this.sustainedPeriods = Math.max(1, conf.getInt(SUSTAINED_PERIODS_KEY, 5));
+    this.sampleSize = Math.max(1, conf.getInt(SAMPLE_SIZE_KEY, 1000));
+    this.sampleInterval = Math.max(1, conf.getInt(SAMPLE_INTERVAL_KEY, 16));
+    this.periodStartTime = EnvironmentEdgeManager.currentTimeMillis();
+  }
+
+  @Override
+  protected void requestServed(byte[] buffer, int offset, int length) {
+    if (maxRequestsPerSecond <= 0) {
+      return;
+    }
+    requests.increment();
+    if (++unsampledRequests < sampleInterval) {
+      return;
+    }
+    unsampledRequests = 0;
+    addToSample(Arrays.copyOfRange(buffer, offset, offset + length));
+  }
+
+  private synchronized void addToSample(byte[] row) {
+    ++sampledInPeriod;
+    if (sample.size() < sampleSize) {
+      sample.add(row);
+    } else {
+      // Reservoir sampling: every sampled row of the period stays with the same probability
+      long index = (long) (random.nextDouble() * sampledInPeriod);
+      if (index < sampleSize) {
+        sample.set((int) index, row);
+      }
+    }
+  }
+
+  @Override
+  protected boolean shouldCheckPeriodically() {
+    return maxRequestsPerSecond > 0;
+  }
+
+  @Override
+  protected boolean shouldSplit() {
+    if (super.shouldSplit()) {
+      return true;
+    }
+    if (!isHot()) {
+      return false;
+    }
+    for (Store store : region.getStores().values()) {
+      if (!store.canSplit()) {
+        return false;
+      }
+    }
+    LOG.debug("ShouldSplit because " + region.getRegionNameAsString() + " served over "
+        + maxRequestsPerSecond + " requests per second for " + sustainedPeriods + " periods");
+    return true;
+  }
+
+  @Override
+  protected byte[] getSplitPoint() {
+    if (region.getExplicitSplitPoint() == null && isHot()) {
+      byte[] splitPoint = getLoadSplitPoint();
+      if (splitPoint != null) {
+        return splitPoint;
+      }
+    }
+    return super.getSplitPoint();
+  }
+
+  /**
+   * @return Whether the request rate has been over the bound for long enough.
+   */
+  synchronized boolean isHot() {
+    if (maxRequestsPerSecond <= 0) {
+      return false;
+    }
+    long now = EnvironmentEdgeManager.currentTimeMillis();
+    long elapsed = now - periodStartTime;
+    if (elapsed >= periodMillis) {
+      long requestCount = requests.get();
+      double rate = (requestCount - periodStartRequests) * 1000.0 / elapsed;
+      hotPeriods = (rate >= maxRequestsPerSecond) ? hotPeriods + 1 : 0;
+      previousSample = sample;
+      sample = new ArrayList<byte[]>();
+      sampledInPeriod = 0;
+      periodStartTime = now;
+      periodStartRequests = requestCount;
+    }
+    return hotPeriods >= sustainedPeriods;
+  }
+
+  /**
+   * @return The row that divides the sampled requests most evenly, or null if there are too few
+   *         samples or no row to split at.
+   */
+  synchronized byte[] getLoadSplitPoint() {
+    List<byte[]> rows = new ArrayList<byte[]>(previousSample.size() + sample.size());
+    rows.addAll(previousSample);
+    rows.addAll(sample);
+    if (rows.size() < Math.max(2, sampleSize / 10)) {
+      return null;
+    }
+    return getBalancedSplitRow(rows, region.getRegionInfo().getStartKey());
+  }
+
+  /**
+   * @param rows The sampled rows of the requests; sorted in place.
+   * @param startKey The start key of the region, which cannot be a split point.
+   * @return The row for which the number of sampled rows before it is the closest to half.
+   */
+  static byte[] getBalancedSplitRow(List<byte[]> rows, byte[] startKey) {
+    Collections.sort(rows, Bytes.BYTES_COMPARATOR);
+    byte[] splitRow = null;
+    long bestImbalance = Long.MAX_VALUE;
+    for (int i = 0; i < rows.size(); ++i) {
+      byte[] row = rows.get(i);
+      // i rows are before the first occurrence of the row
+      if ((i > 0 && Bytes.equals(row, rows.get(i - 1))) || Bytes.compareTo(row, startKey) <= 0) {
+        continue;
+      }
+      long imbalance = Math.abs(2L * i - rows.size());
+      if (imbalance < bestImbalance) {
+        bestImbalance = imbalance;
+        splitRow = row;
+      }
+    }
+    return splitRow;
+  }
+}
@@ -870,6 +870,71 @@ public class MemStore implements HeapSize {
     }
 
 
+    /**
+     * Seek to the first visible KeyValue of the row before the row of the
+     * given key. Rows whose KeyValues are all newer than the read point are
+     * skipped over.
+     * @param key seek value
+     * @return true if there is such a row, false otherwise
+     */
+    @Override
+    public synchronized boolean seekToPreviousRow(KeyValue key) {
+      KeyValue firstOnRow = KeyValue.createFirstOnRow(key.getBuffer(),
+          key.getRowOffset(), key.getRowLength());
+      while (true) {
+        KeyValue lastBeforeRow = getHighest(
+            getLast(kvsetAtCreation.headSet(firstOnRow, false)),
+            getLast(snapshotAtCreation.headSet(firstOnRow, false)));
+        if (lastBeforeRow == null) {
+          theNext = null;
+          return false;
+        }
+        KeyValue firstOnPreviousRow = KeyValue.createFirstOnRow(
+            lastBeforeRow.getBuffer(), lastBeforeRow.getRowOffset(),
+            lastBeforeRow.getRowLength());
+        if (seek(firstOnPreviousRow)
+            && comparator.compareRows(theNext, firstOnPreviousRow) == 0) {
+          return true;
+        }
+        // Nothing on that row is visible to us, go back one more row.
+        firstOnRow = firstOnPreviousRow;
+      }
+    }
+
+    @Override
+    public synchronized boolean backwardSeek(KeyValue key) {
+      if (seek(key) && comparator.compareRows(theNext, key) <= 0) {
+        return true;
+      }
+      return seekToPreviousRow(key);
+    }
+
+    @Override
+    public synchronized boolean seekToLastRow() {
+      KeyValue last = getHighest(getLast(kvsetAtCreation),
+          getLast(snapshotAtCreation));
+      if (last == null) {
+        theNext = null;
+        return false;
+      }
+      KeyValue firstOnLastRow = KeyValue.createFirstOnRow(last.getBuffer(),
+          last.getRowOffset(), last.getRowLength());
+      if (seek(firstOnLastRow)
+          && comparator.compareRows(theNext, firstOnLastRow) == 0) {
+        return true;
+      }
+      return seekToPreviousRow(last);
+    }
+
+    /*
+     * Returns the last KeyValue of the set, or null if it is empty. Goes
+     * through an iterator as the set may be modified concurrently.
+     */
+    private KeyValue getLast(NavigableSet<KeyValue> set) {
+      Iterator<KeyValue> it = set.descendingIterator();
+      return it.hasNext() ? it.next() : null;
+    }
+
     @Override
     public synchronized KeyValue peek() {
       //DebugPrint.println(" MS@" + hashCode() + " peek = " + getLowest());
@@ -17,6 +17,9 @@
  */
 package org.apache.hadoop.hbase.regionserver;
 
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
@@ -34,6 +37,19 @@ public class MetricsRegionServer {
   private MetricsRegionServerSource serverSource;
   private MetricsRegionServerWrapper regionServerWrapper;
 
+  /** The prefix of the per table histograms of the compaction queue wait times */
+  static final String COMPACTION_QUEUE_WAIT_TIME_PREFIX = "compactionQueueWaitTime_table_";
+
+  /** The prefix of the counters of the work done for the gets that ask for scan metrics */
+  static final String GET_SCAN_METRICS_PREFIX = "getScanMetrics_";
+
+  /** The number of store file reads served by the reference files of split daughters */
+  static final String REFERENCE_FILE_READS = "referenceFileReads";
+
+  /** The number and the total latency in ms of the client requests, for the throttling */
+  private final AtomicLong foregroundRequestCount = new AtomicLong(0);
+  private final AtomicLong foregroundLatencyTotal = new AtomicLong(0);
+
   public MetricsRegionServer(MetricsRegionServerWrapper regionServerWrapper) {
     this(regionServerWrapper,
         CompatibilitySingletonFactory.getInstance(MetricsRegionServerSourceFactory.class)
@@ -61,6 +77,7 @@ public class MetricsRegionServer {
       serverSource.incrSlowPut();
     }
     serverSource.updatePut(t);
+    updateForeground(t);
   }
 
   public void updateDelete(long t) {
@@ -68,6 +85,7 @@ public class MetricsRegionServer {
       serverSource.incrSlowDelete();
     }
     serverSource.updateDelete(t);
+    updateForeground(t);
   }
 
   public void updateGet(long t) {
@@ -75,6 +93,7 @@ public class MetricsRegionServer {
       serverSource.incrSlowGet();
     }
     serverSource.updateGet(t);
+    updateForeground(t);
   }
 
   public void updateIncrement(long t) {
@@ -82,6 +101,7 @@ public class MetricsRegionServer {
       serverSource.incrSlowIncrement();
     }
     serverSource.updateIncrement(t);
+    updateForeground(t);
   }
 
   public void updateAppend(long t) {
@@ -89,9 +109,55 @@ public class MetricsRegionServer {
       serverSource.incrSlowAppend();
     }
     serverSource.updateAppend(t);
+    updateForeground(t);
   }
 
   public void updateReplay(long t){
     serverSource.updateReplay(t);
   }
+
+  /**
+   * @param table The table of the compaction.
+   * @param t The time the compaction waited in the queue, in ms.
+   */
+  public void updateCompactionQueueWaitTime(String table, long t) {
+    serverSource.updateHistogram(COMPACTION_QUEUE_WAIT_TIME_PREFIX + table, t);
+  }
+
+  /**
+   * @param metrics The work done for a get, keyed by the scan metrics names.
+   */
+  public void updateGetScanMetrics(Map<String, Long> metrics) {
+    for (Map.Entry<String, Long> e : metrics.entrySet()) {
+      if (e.getValue() > 0) {
+        serverSource.incCounters(GET_SCAN_METRICS_PREFIX + e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  /**
+   * @param count The number of reference files a read went through.
+   */
+  public void incrReferenceFileReads(long count) {
+    serverSource.incCounters(REFERENCE_FILE_READS, count);
+  }
+
+  private void updateForeground(long t) {
+    foregroundRequestCount.incrementAndGet();
+    foregroundLatencyTotal.addAndGet(t);
+  }
+
+  /**
+   * @return The number of puts, deletes, gets, increments and appends since the start.
+   */
+  public long getForegroundRequestCount() {
+    return foregroundRequestCount.get();
+  }
+
+  /**
+   * @return The total latency of the requests of {@link #getForegroundRequestCount()}, in ms.
+   */
+  public long getForegroundLatencyTotal() {
+    return foregroundLatencyTotal.get();
+  }
 }
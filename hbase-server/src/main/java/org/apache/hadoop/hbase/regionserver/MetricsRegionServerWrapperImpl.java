@@ -27,11 +27,17 @@ import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.CacheStats;
+import org.apache.hadoop.hbase.io.hfile.MetaTierBlockCache;
+import org.apache.hadoop.hbase.io.hfile.TableCacheStats;
+import org.apache.hadoop.hbase.io.hfile.TracingBlockCache;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.zookeeper.ZooKeeperWatcher;
 import org.apache.hadoop.metrics2.MetricsExecutor;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -65,6 +71,8 @@ class MetricsRegionServerWrapperImpl
   private volatile long numPutsWithoutWAL = 0;
   private volatile long dataInMemoryWithoutWAL = 0;
   private volatile int percentFileLocal = 0;
+  private volatile Map<String, TableCacheStats> blockCacheTableStats =
+      Collections.emptyMap();
 
   private CacheStats cacheStats;
   private ScheduledExecutorService executor;
@@ -306,6 +314,74 @@ class MetricsRegionServerWrapperImpl
     return percentFileLocal;
   }
 
+  @Override
+  public long getBlockCacheMetaTierSize() {
+    MetaTierBlockCache metaTierCache = getMetaTierBlockCache();
+    if (metaTierCache == null) {
+      return 0;
+    }
+    return metaTierCache.getMetaTier().getCurrentSize();
+  }
+
+  @Override
+  public long getBlockCacheMetaTierHitCount() {
+    MetaTierBlockCache metaTierCache = getMetaTierBlockCache();
+    if (metaTierCache == null) {
+      return 0;
+    }
+    return metaTierCache.getMetaTierStats().getHitCount();
+  }
+
+  @Override
+  public long getBlockCacheMetaTierEvictedCount() {
+    MetaTierBlockCache metaTierCache = getMetaTierBlockCache();
+    if (metaTierCache == null) {
+      return 0;
+    }
+    return metaTierCache.getMetaTierStats().getEvictedCount();
+  }
+
+  /**
+   * @return the block cache if it has a tier for the index and Bloom blocks,
+   *         or null
+   */
+  private MetaTierBlockCache getMetaTierBlockCache() {
+    BlockCache cache = this.blockCache;
+    if (cache instanceof TracingBlockCache) {
+      cache = ((TracingBlockCache) cache).getBlockCache();
+    }
+    return cache instanceof MetaTierBlockCache ? (MetaTierBlockCache) cache : null;
+  }
+
+  @Override
+  public Collection<String> getBlockCacheTableNames() {
+    return blockCacheTableStats.keySet();
+  }
+
+  @Override
+  public long getBlockCacheTableSize(String table) {
+    TableCacheStats tableStats = blockCacheTableStats.get(table);
+    return tableStats == null ? 0 : tableStats.getSize();
+  }
+
+  @Override
+  public long getBlockCacheTableHitCount(String table) {
+    TableCacheStats tableStats = blockCacheTableStats.get(table);
+    return tableStats == null ? 0 : tableStats.getHitCount();
+  }
+
+  @Override
+  public long getBlockCacheTableMissCount(String table) {
+    TableCacheStats tableStats = blockCacheTableStats.get(table);
+    return tableStats == null ? 0 : tableStats.getMissCount();
+  }
+
+  @Override
+  public long getBlockCacheTableEvictedCount(String table) {
+    TableCacheStats tableStats = blockCacheTableStats.get(table);
+    return tableStats == null ? 0 : tableStats.getEvictedCount();
+  }
+
   @Override
   public long getUpdatesBlockedTime() {
     if (this.regionServer.cacheFlusher == null) {
@@ -407,6 +483,9 @@ class MetricsRegionServerWrapperImpl
       numPutsWithoutWAL = tempNumPutsWithoutWAL;
       dataInMemoryWithoutWAL = tempDataInMemoryWithoutWAL;
       percentFileLocal = tempPercentFileLocal;
+      // a combined cache sums up the usage of its caches on every call
+      blockCacheTableStats = cacheStats == null ? Collections.<String, TableCacheStats>emptyMap()
+          : new HashMap<String, TableCacheStats>(cacheStats.getTableStats());
     }
   }
 
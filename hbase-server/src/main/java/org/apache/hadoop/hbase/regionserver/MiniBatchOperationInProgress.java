@@ -19,6 +19,8 @@ package org.apache.hadoop.hbase.regionserver;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionObserver;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 
@@ -37,6 +39,7 @@ public class MiniBatchOperationInProgress<T> {
   private final WALEdit[] walEditsFromCoprocessors;
   private final int firstIndex;
   private final int lastIndexExclusive;
+  private Mutation[][] operationsFromCoprocessors;
 
   public MiniBatchOperationInProgress(T[] operations, OperationStatus[] retCodeDetails,
       WALEdit[] walEditsFromCoprocessors, int firstIndex, int lastIndexExclusive) {
@@ -97,6 +100,42 @@ public class MiniBatchOperationInProgress<T> {
     return this.walEditsFromCoprocessors[getAbsoluteIndex(index)];
   }
 
+  /**
+   * Adds Mutations to be applied together with the operation(Mutation) at the specified
+   * position. They are written to the memstore and to the same WALEdit as that operation,
+   * under the row locks and MVCC write entry the batch already holds, so they become visible
+   * atomically with it. They must be Puts or Deletes for rows of this region; locks are not
+   * taken on those rows. Only honoured when called from
+   * {@link RegionObserver#preBatchMutate(ObserverContext, MiniBatchOperationInProgress)}.
+   * @param index
+   * @param newOperations
+   */
+  public void addOperationsFromCP(int index, Mutation[] newOperations) {
+    if (this.operationsFromCoprocessors == null) {
+      this.operationsFromCoprocessors = new Mutation[this.operations.length][];
+    }
+    int absoluteIndex = getAbsoluteIndex(index);
+    Mutation[] existing = this.operationsFromCoprocessors[absoluteIndex];
+    if (existing == null) {
+      this.operationsFromCoprocessors[absoluteIndex] = newOperations;
+    } else {
+      Mutation[] merged = new Mutation[existing.length + newOperations.length];
+      System.arraycopy(existing, 0, merged, 0, existing.length);
+      System.arraycopy(newOperations, 0, merged, existing.length, newOperations.length);
+      this.operationsFromCoprocessors[absoluteIndex] = merged;
+    }
+  }
+
+  /**
+   * @param index
+   * @return The Mutations coprocessors added for the operation(Mutation) at the specified
+   *         position, or null if there are none.
+   */
+  public Mutation[] getOperationsFromCoprocessors(int index) {
+    return this.operationsFromCoprocessors == null ? null
+        : this.operationsFromCoprocessors[getAbsoluteIndex(index)];
+  }
+
   private int getAbsoluteIndex(int index) {
     if (index < 0 || this.firstIndex + index >= this.lastIndexExclusive) {
       throw new ArrayIndexOutOfBoundsException(index);
@@ -67,4 +67,22 @@ public abstract class NonLazyKeyValueScanner implements KeyValueScanner {
     // Not a file by default.
     return false;
   }
+
+  @Override
+  public boolean seekToPreviousRow(KeyValue key) throws IOException {
+    throw new NotImplementedException("seekToPreviousRow is not supported " +
+        "by " + getClass().getSimpleName());
+  }
+
+  @Override
+  public boolean backwardSeek(KeyValue key) throws IOException {
+    throw new NotImplementedException("backwardSeek is not supported " +
+        "by " + getClass().getSimpleName());
+  }
+
+  @Override
+  public boolean seekToLastRow() throws IOException {
+    throw new NotImplementedException("seekToLastRow is not supported " +
+        "by " + getClass().getSimpleName());
+  }
 }
@@ -530,7 +530,7 @@ public class RegionMergeTransaction {
       String familyName = Bytes.toString(entry.getKey());
       for (StoreFile storeFile : entry.getValue()) {
         fs_a.mergeStoreFile(this.mergedRegionInfo, familyName, storeFile,
-            this.mergesdir);
+            this.mergesdir, this.region_a.isShadowFamily(entry.getKey()));
       }
     }
     // Create reference file(s) of region B in mergedir
@@ -540,7 +540,7 @@ public class RegionMergeTransaction {
       String familyName = Bytes.toString(entry.getKey());
       for (StoreFile storeFile : entry.getValue()) {
         fs_b.mergeStoreFile(this.mergedRegionInfo, familyName, storeFile,
-            this.mergesdir);
+            this.mergesdir, this.region_b.isShadowFamily(entry.getKey()));
       }
     }
   }
@@ -71,6 +71,7 @@ public class RegionScannerHolder {
   private ScanPrefetcher prefetcher;
   private HRegion region;
   private int rows;
+  private ServerSideScanMetrics scanMetrics;
 
   RegionScanner scanner;
   long nextCallSeq = 0L;
@@ -249,6 +250,22 @@ public class RegionScannerHolder {
     prefetching = true;
   }
 
+  /**
+   * Start counting the work done on behalf of this scanner. The counts are
+   * collected by whichever thread runs the next scan, prefetcher or handler.
+   * @param scanMetrics the metrics the opening of the scanner was counted in
+   */
+  public void enableScanMetrics(ServerSideScanMetrics scanMetrics) {
+    this.scanMetrics = scanMetrics;
+  }
+
+  /**
+   * @return the metrics of this scanner, or null if not enabled
+   */
+  public ServerSideScanMetrics getScanMetrics() {
+    return scanMetrics;
+  }
+
   /**
    * This Callable abstracts calling a pre-fetch next. This is called on a
    * threadpool. It makes a pre-fetch next call with the same parameters as
@@ -300,6 +317,7 @@ public class RegionScannerHolder {
           MultiVersionConsistencyControl.setThreadReadPoint(scanner.getMvccReadPoint());
           region.startRegionOperation();
           try {
+            ServerSideScanMetrics.setThreadScanMetrics(scanMetrics);
             int i = 0;
             synchronized(scanner) {
               for (; i < rows
@@ -322,6 +340,7 @@ public class RegionScannerHolder {
             }
             region.readRequestsCount.add(i);
           } finally {
+            ServerSideScanMetrics.setThreadScanMetrics(null);
             region.closeRegionOperation();
           }
 
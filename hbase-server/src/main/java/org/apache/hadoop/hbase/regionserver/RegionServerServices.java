@@ -113,4 +113,15 @@ public interface RegionServerServices extends OnlineRegions, FavoredNodesForRegi
    * @return set of recovering regions on the hosting region server
    */
   public Map<String, HRegion> getRecoveringRegions();
+
+  /**
+   * @return The metrics of the region server; may be null.
+   */
+  public MetricsRegionServer getMetrics();
+
+  /**
+   * @return The highest compaction pressure of the stores of the region server, see
+   *         {@link Store#getCompactionPressure()}.
+   */
+  public double getCompactionPressure();
 }
@@ -63,6 +63,24 @@ public abstract class RegionSplitPolicy extends Configured {
    */
   protected abstract boolean shouldSplit();
 
+  /**
+   * Called with the row of every request served by the region, on the request path, so it must
+   * be cheap. The row is only valid for the duration of the call. The default does nothing.
+   * @param buffer Buffer holding the row
+   * @param offset Offset of the row in the buffer
+   * @param length Length of the row
+   */
+  protected void requestServed(byte[] buffer, int offset, int length) {
+  }
+
+  /**
+   * @return true if {@link #shouldSplit()} may change without the region being flushed or
+   * compacted, e.g. with its request load, so that the region server checks it periodically.
+   */
+  protected boolean shouldCheckPeriodically() {
+    return false;
+  }
+
   /**
    * @return the key at which the region should be split, or null
    * if it cannot be split. This will only be called if shouldSplit
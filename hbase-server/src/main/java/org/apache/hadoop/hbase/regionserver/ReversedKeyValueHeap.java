@@ -0,0 +1,213 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValue.KVComparator;
+
+/**
+ * ReversedKeyValueHeap is used for supporting reversed scanning. Compared with
+ * KeyValueHeap, its scanner comparator is different: rows are merged in
+ * descending order, while the KeyValues within one row keep their usual
+ * ascending order. Also, it does not support the forward seek operations
+ * ({@link #seek(KeyValue)}, {@link #reseek(KeyValue)} and
+ * {@link #requestSeek(KeyValue, boolean, boolean)}); use
+ * {@link #seekToPreviousRow(KeyValue)} and {@link #backwardSeek(KeyValue)}
+ * instead.
+ */
+@InterfaceAudience.Private
+public class ReversedKeyValueHeap extends KeyValueHeap {
+
+  /**
+   * @param scanners
+   * @param comparator
+   * @throws IOException
+   */
+  public ReversedKeyValueHeap(List<? extends KeyValueScanner> scanners,
+      KVComparator comparator) throws IOException {
+    super(scanners, new ReversedKVScannerComparator(comparator));
+  }
+
+  @Override
+  public boolean seek(KeyValue seekKey) throws IOException {
+    throw new IllegalStateException(
+        "seek cannot be called on ReversedKeyValueHeap");
+  }
+
+  @Override
+  public boolean reseek(KeyValue seekKey) throws IOException {
+    throw new IllegalStateException(
+        "reseek cannot be called on ReversedKeyValueHeap");
+  }
+
+  @Override
+  public boolean requestSeek(KeyValue key, boolean forward, boolean useBloom)
+      throws IOException {
+    throw new IllegalStateException(
+        "requestSeek cannot be called on ReversedKeyValueHeap");
+  }
+
+  @Override
+  public boolean seekToPreviousRow(KeyValue seekKey) throws IOException {
+    if (current == null) {
+      return false;
+    }
+    heap.add(current);
+    current = null;
+
+    KeyValueScanner scanner;
+    while ((scanner = heap.poll()) != null) {
+      KeyValue topKey = scanner.peek();
+      if (comparator.getComparator().compareRows(topKey, seekKey) < 0) {
+        // The top scanner is already on a row before the seek row, and so
+        // are all the others.
+        heap.add(scanner);
+        current = pollRealKV();
+        return current != null;
+      }
+
+      if (!scanner.seekToPreviousRow(seekKey)) {
+        scanner.close();
+      } else {
+        heap.add(scanner);
+      }
+    }
+
+    // Heap is returning empty, scanner is done
+    return false;
+  }
+
+  @Override
+  public boolean backwardSeek(KeyValue seekKey) throws IOException {
+    if (current == null) {
+      return false;
+    }
+    heap.add(current);
+    current = null;
+
+    KeyValueScanner scanner;
+    while ((scanner = heap.poll()) != null) {
+      KeyValue topKey = scanner.peek();
+      KVComparator kvComparator = comparator.getComparator();
+      if ((kvComparator.matchingRows(seekKey, topKey)
+          && kvComparator.compare(seekKey, topKey) <= 0)
+          || kvComparator.compareRows(seekKey, topKey) > 0) {
+        // The top scanner is at or after the seek key on the seek row, or on
+        // an earlier row, so no scanner needs to move.
+        heap.add(scanner);
+        current = pollRealKV();
+        return current != null;
+      }
+      if (!scanner.backwardSeek(seekKey)) {
+        scanner.close();
+      } else {
+        heap.add(scanner);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the current KeyValue and moves on. When the current scanner runs
+   * off the end of its row, it is sent back to the previous row rather than
+   * on to the next one.
+   */
+  @Override
+  public KeyValue next() throws IOException {
+    if (this.current == null) {
+      return null;
+    }
+    KeyValue kvReturn = this.current.next();
+    KeyValue kvNext = this.current.peek();
+    if (kvNext == null
+        || this.comparator.getComparator().compareRows(kvNext, kvReturn) > 0) {
+      if (this.current.seekToPreviousRow(kvReturn)) {
+        this.heap.add(this.current);
+      } else {
+        this.current.close();
+      }
+      this.current = pollRealKV();
+    } else {
+      KeyValueScanner topScanner = this.heap.peek();
+      if (topScanner != null
+          && this.comparator.compare(this.current, topScanner) > 0) {
+        this.heap.add(this.current);
+        this.current = pollRealKV();
+      }
+    }
+    return kvReturn;
+  }
+
+  /**
+   * Seeks every scanner of the heap to its last row, as is done when the heap
+   * is itself a scanner of another reversed heap. Scanners that already ran
+   * out were closed and dropped from the heap, so they are not seeked again.
+   */
+  @Override
+  public boolean seekToLastRow() throws IOException {
+    if (current == null) {
+      return false;
+    }
+    heap.add(current);
+    current = null;
+
+    List<KeyValueScanner> scanners = new ArrayList<KeyValueScanner>(heap);
+    heap.clear();
+    for (KeyValueScanner scanner : scanners) {
+      if (!scanner.seekToLastRow()) {
+        scanner.close();
+      } else {
+        heap.add(scanner);
+      }
+    }
+    current = pollRealKV();
+    return current != null;
+  }
+
+  /**
+   * In ReversedKVScannerComparator, we compare the row of scanners' peek
+   * values first, sorting rows in descending order, and then compare the
+   * KeyValues of the same row the way KVScannerComparator does.
+   */
+  private static class ReversedKVScannerComparator extends KVScannerComparator {
+
+    /**
+     * Constructor
+     * @param kvComparator
+     */
+    public ReversedKVScannerComparator(KVComparator kvComparator) {
+      super(kvComparator);
+    }
+
+    @Override
+    public int compare(KeyValue left, KeyValue right) {
+      int rowComparison = this.kvComparator.compareRows(left, right);
+      if (rowComparison != 0) {
+        return -rowComparison;
+      }
+      return super.compare(left, right);
+    }
+  }
+}
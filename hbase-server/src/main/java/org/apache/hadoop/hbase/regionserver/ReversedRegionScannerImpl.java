@@ -0,0 +1,109 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.HRegion.RegionScannerImpl;
+
+/**
+ * ReversedRegionScannerImpl extends from RegionScannerImpl, and is used to
+ * support reversed scanning.
+ */
+@InterfaceAudience.Private
+class ReversedRegionScannerImpl extends RegionScannerImpl {
+
+  /**
+   * @param scan
+   * @param additionalScanners
+   * @param region
+   * @throws IOException
+   */
+  ReversedRegionScannerImpl(Scan scan,
+      List<KeyValueScanner> additionalScanners, HRegion region)
+      throws IOException {
+    region.super(scan, additionalScanners, region);
+  }
+
+  /**
+   * Loading column families on demand is not supported by reversed scans, so
+   * the scanners of non-essential families join the main heap.
+   */
+  @Override
+  protected void initializeKVHeap(List<KeyValueScanner> scanners,
+      List<KeyValueScanner> joinedScanners, HRegion region) throws IOException {
+    scanners.addAll(joinedScanners);
+    this.storeHeap = new ReversedKeyValueHeap(scanners, region.getComparator());
+  }
+
+  /**
+   * The stop row of a reversed scan is its exclusive lower bound; for a Get
+   * (start row equal to stop row) it is inclusive.
+   */
+  @Override
+  protected boolean isStopRow(byte[] currentRow, int offset, short length) {
+    return currentRow == null
+        || (this.stopRow != null && this.region.getComparator().compareRows(
+            stopRow, 0, stopRow.length, currentRow, offset, length) >= -this.isScan);
+  }
+
+  /**
+   * Skips the rest of the current row by seeking every store to the row
+   * before it, instead of reading the remaining KeyValues.
+   */
+  @Override
+  protected boolean nextRow(byte[] currentRow, int offset, short length)
+      throws IOException {
+    this.storeHeap.seekToPreviousRow(KeyValue.createFirstOnRow(currentRow,
+        offset, length));
+    resetFilters();
+    // Calling the hook in CP which allows it to do a fast forward
+    if (this.region.getCoprocessorHost() != null) {
+      return this.region.getCoprocessorHost().postScannerFilterRow(this,
+          currentRow);
+    }
+    return true;
+  }
+
+  /**
+   * Moves the scanner on to the given row, which must not be after the
+   * current one since rows are visited in descending order.
+   */
+  @Override
+  public synchronized boolean reseek(byte[] row) throws IOException {
+    if (row == null) {
+      throw new IllegalArgumentException("Row cannot be null.");
+    }
+    boolean result = false;
+    this.region.startRegionOperation();
+    try {
+      // This could be a new thread from the last time we called next().
+      MultiVersionConsistencyControl.setThreadReadPoint(getMvccReadPoint());
+      result = this.storeHeap.backwardSeek(KeyValue.createFirstOnRow(row));
+    } finally {
+      this.region.closeRegionOperation();
+    }
+    return result;
+  }
+}
@@ -45,6 +45,9 @@ public class ScanQueryMatcher {
   private boolean stickyNextRow;
   private final byte[] stopRow;
 
+  /** Whether rows are visited in descending order, see {@link Scan#isReversed()} */
+  private final boolean isReversed;
+
   private final TimeRange tr;
 
   private final Filter filter;
@@ -148,6 +151,7 @@ public class ScanQueryMatcher {
     this.rowComparator = scanInfo.getComparator().getRawComparator();
     this.deletes =  new ScanDeleteTracker();
     this.stopRow = scan.getStopRow();
+    this.isReversed = scan.isReversed();
     this.startKey = KeyValue.createFirstDeleteFamilyOnRow(scan.getStartRow(),
         scanInfo.getFamily());
     this.filter = scan.getFilter();
@@ -253,13 +257,22 @@ public class ScanQueryMatcher {
 
     int ret = this.rowComparator.compareRows(row, this.rowOffset, this.rowLength,
         bytes, offset, rowLength);
-    if (ret <= -1) {
-      return MatchCode.DONE;
-    } else if (ret >= 1) {
-      // could optimize this, if necessary?
-      // Could also be called SEEK_TO_CURRENT_ROW, but this
-      // should be rare/never happens.
-      return MatchCode.SEEK_NEXT_ROW;
+    if (!this.isReversed) {
+      if (ret <= -1) {
+        return MatchCode.DONE;
+      } else if (ret >= 1) {
+        // could optimize this, if necessary?
+        // Could also be called SEEK_TO_CURRENT_ROW, but this
+        // should be rare/never happens.
+        return MatchCode.SEEK_NEXT_ROW;
+      }
+    } else {
+      // Rows come in descending order, so a smaller row is the next one.
+      if (ret <= -1) {
+        return MatchCode.SEEK_NEXT_ROW;
+      } else if (ret >= 1) {
+        return MatchCode.DONE;
+      }
     }
 
     // optimize case.
@@ -426,6 +439,15 @@ public class ScanQueryMatcher {
   }
 
   public boolean moreRowsMayExistAfter(KeyValue kv) {
+    if (this.isReversed) {
+      if (!Bytes.equals(stopRow, HConstants.EMPTY_END_ROW) &&
+          rowComparator.compareRows(kv.getBuffer(), kv.getRowOffset(),
+              kv.getRowLength(), stopRow, 0, stopRow.length) <= 0) {
+        // KV <= STOPROW, and we are going down: nothing left.
+        return false;
+      }
+      return true;
+    }
     if (!Bytes.equals(stopRow , HConstants.EMPTY_END_ROW) &&
         rowComparator.compareRows(kv.getBuffer(),kv.getRowOffset(),
             kv.getRowLength(), stopRow, 0, stopRow.length) >= 0) {
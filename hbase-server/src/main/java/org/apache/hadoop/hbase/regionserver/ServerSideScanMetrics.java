@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+/**
+ * Counts the work a region server does on behalf of one client scanner:
+ * blocks served from the block cache or read from the filesystem, cells and
+ * rows examined and filtered, and store scanner seeks and reseeks.
+ * <p>
+ * The instance for the scanner being served is attached to the handler (or
+ * prefetcher) thread while the scanner is opened and for the duration of every
+ * next() call, the same way the MVCC read point is, so that the HFile readers
+ * deep down the scanner stack can update it without having it passed along.
+ * Gets asking for metrics are counted the same way, into the region server
+ * metrics. The counters are atomic because
+ * parallel seeks may update them from several threads at once.
+ */
+@InterfaceAudience.Private
+public class ServerSideScanMetrics {
+  private static final ThreadLocal<ServerSideScanMetrics> perThreadScanMetrics =
+      new ThreadLocal<ServerSideScanMetrics>();
+
+  private final AtomicLong blocksReadFromCache = new AtomicLong();
+  private final AtomicLong blocksReadFromFs = new AtomicLong();
+  private final AtomicLong bytesReadFromFs = new AtomicLong();
+  private final AtomicLong cellsExamined = new AtomicLong();
+  private final AtomicLong cellsFiltered = new AtomicLong();
+  private final AtomicLong rowsExamined = new AtomicLong();
+  private final AtomicLong rowsFiltered = new AtomicLong();
+  private final AtomicLong seeks = new AtomicLong();
+  private final AtomicLong reseeks = new AtomicLong();
+
+  /**
+   * @return the scan metrics attached to the current thread, or null if the
+   *         request being served did not ask for them
+   */
+  public static ServerSideScanMetrics getThreadScanMetrics() {
+    return perThreadScanMetrics.get();
+  }
+
+  /**
+   * Attach the given scan metrics to the current thread. Pass null to detach;
+   * handler threads are pooled, so callers must always do so when done.
+   */
+  public static void setThreadScanMetrics(ServerSideScanMetrics scanMetrics) {
+    perThreadScanMetrics.set(scanMetrics);
+  }
+
+  /**
+   * Record a block served from the block cache, if the current thread is
+   * tracking scan metrics.
+   */
+  public static void blockReadFromCache() {
+    ServerSideScanMetrics metrics = perThreadScanMetrics.get();
+    if (metrics != null) {
+      metrics.blocksReadFromCache.incrementAndGet();
+    }
+  }
+
+  /**
+   * Record a block read from the filesystem, if the current thread is
+   * tracking scan metrics.
+   * @param onDiskSize the number of bytes read, including the block header
+   */
+  public static void blockReadFromFs(long onDiskSize) {
+    ServerSideScanMetrics metrics = perThreadScanMetrics.get();
+    if (metrics != null) {
+      metrics.blocksReadFromFs.incrementAndGet();
+      metrics.bytesReadFromFs.addAndGet(onDiskSize);
+    }
+  }
+
+  public void addCellsExamined(long count) {
+    cellsExamined.addAndGet(count);
+  }
+
+  public void addCellsFiltered(long count) {
+    cellsFiltered.addAndGet(count);
+  }
+
+  public void addRowsExamined(long count) {
+    rowsExamined.addAndGet(count);
+  }
+
+  public void addRowsFiltered(long count) {
+    rowsFiltered.addAndGet(count);
+  }
+
+  public void addSeeks(long count) {
+    seeks.addAndGet(count);
+  }
+
+  public void addReseeks(long count) {
+    reseeks.addAndGet(count);
+  }
+
+  /**
+   * Get all of the values since the last time this function was called,
+   * keyed by the counter names {@link ScanMetrics} knows about.
+   *
+   * Calling this function resets all counters back to 0.
+   */
+  public Map<String, Long> getMetricsMap() {
+    Map<String, Long> metrics = new HashMap<String, Long>();
+    metrics.put(ScanMetrics.BLOCKS_READ_FROM_CACHE_METRIC_NAME, blocksReadFromCache.getAndSet(0));
+    metrics.put(ScanMetrics.BLOCKS_READ_FROM_FS_METRIC_NAME, blocksReadFromFs.getAndSet(0));
+    metrics.put(ScanMetrics.BYTES_READ_FROM_FS_METRIC_NAME, bytesReadFromFs.getAndSet(0));
+    metrics.put(ScanMetrics.CELLS_EXAMINED_METRIC_NAME, cellsExamined.getAndSet(0));
+    metrics.put(ScanMetrics.CELLS_FILTERED_METRIC_NAME, cellsFiltered.getAndSet(0));
+    metrics.put(ScanMetrics.ROWS_EXAMINED_METRIC_NAME, rowsExamined.getAndSet(0));
+    metrics.put(ScanMetrics.ROWS_FILTERED_METRIC_NAME, rowsFiltered.getAndSet(0));
+    metrics.put(ScanMetrics.SEEKS_METRIC_NAME, seeks.getAndSet(0));
+    metrics.put(ScanMetrics.RESEEKS_METRIC_NAME, reseeks.getAndSet(0));
+    return metrics;
+  }
+}
@@ -607,6 +607,13 @@ public class SplitTransaction {
   private void splitStoreFile(final byte[] family, final StoreFile sf) throws IOException {
     HRegionFileSystem fs = this.parent.getRegionFileSystem();
     String familyName = Bytes.toString(family);
+    if (this.parent.isShadowFamily(family)) {
+      // The rows of a shadow family are not split along with the region: each daughter
+      // references the whole file.
+      fs.splitStoreFile(this.hri_a, familyName, sf, HConstants.EMPTY_START_ROW, true);
+      fs.splitStoreFile(this.hri_b, familyName, sf, HConstants.EMPTY_START_ROW, true);
+      return;
+    }
     fs.splitStoreFile(this.hri_a, familyName, sf, this.splitrow, false);
     fs.splitStoreFile(this.hri_b, familyName, sf, this.splitrow, true);
   }
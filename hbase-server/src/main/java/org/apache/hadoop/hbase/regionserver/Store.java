@@ -39,6 +39,7 @@ import org.apache.hadoop.hbase.protobuf.generated.WALProtos.CompactionDescriptor
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionProgress;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionThroughputController;
 
 /**
  * Interface for objects that hold a column family in a Region. Its a memstore and a set of zero or
@@ -174,6 +175,19 @@ public interface Store extends HeapSize, StoreConfigInformation {
 
   public List<StoreFile> compact(CompactionContext compaction) throws IOException;
 
+  /**
+   * Runs the compaction, throttled by the given throughput controller.
+   */
+  public List<StoreFile> compact(CompactionContext compaction,
+      CompactionThroughputController throughputController) throws IOException;
+
+  /**
+   * @return How close the store is to blocking updates because of its number of store files:
+   *         0 at the minimum number of files to compact or below, 1 at the blocking number of
+   *         files, and above 1 once updates are blocked.
+   */
+  public double getCompactionPressure();
+
   /**
    * @return true if we should run a major compaction.
    */
@@ -56,6 +56,7 @@ import org.apache.hadoop.hbase.regionserver.compactions.Compactor;
 import org.apache.hadoop.hbase.util.BloomFilter;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
 import org.apache.hadoop.hbase.util.BloomFilterWriter;
+import org.apache.hadoop.hbase.util.BloomRowPrefix;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.ChecksumType;
 import org.apache.hadoop.hbase.util.Writables;
@@ -101,6 +102,10 @@ public class StoreFile {
   public static final byte[] BLOOM_FILTER_TYPE_KEY =
       Bytes.toBytes("BLOOM_FILTER_TYPE");
 
+  /** Row prefix of ROWPREFIX Bloom filters in FileInfo */
+  public static final byte[] BLOOM_FILTER_ROWPREFIX_KEY =
+      Bytes.toBytes("BLOOM_FILTER_ROWPREFIX");
+
   /** Delete Family Count in FileInfo */
   public static final byte[] DELETE_FAMILY_COUNT =
       Bytes.toBytes("DELETE_FAMILY_COUNT");
@@ -332,6 +337,14 @@ public class StoreFile {
     return Bytes.toLong(metadataMap.get(BULKLOAD_TIME_KEY));
   }
 
+  /**
+   * @param key the file info key
+   * @return the value of the key in the file info, or null if not set
+   */
+  public byte[] getMetadataValue(byte[] key) {
+    return metadataMap.get(key);
+  }
+
   /**
    * @return the cached value of HDFS blocks distribution. The cached value is
    * calculated when store file is opened.
@@ -731,6 +744,7 @@ public class StoreFile {
     private final BloomFilterWriter generalBloomFilterWriter;
     private final BloomFilterWriter deleteFamilyBloomFilterWriter;
     private final BloomType bloomType;
+    private final BloomRowPrefix bloomRowPrefix;
     private byte[] lastBloomKey;
     private int lastBloomKeyOffset, lastBloomKeyLen;
     private KVComparator kvComparator;
@@ -799,6 +813,21 @@ public class StoreFile {
 
       this.kvComparator = comparator;
 
+      BloomRowPrefix rowPrefix = null;
+      if (bloomType == BloomType.ROWPREFIX) {
+        try {
+          rowPrefix = BloomRowPrefix.fromConf(conf);
+        } catch (IllegalArgumentException e) {
+          LOG.warn("Invalid row prefix for the Bloom filter of " + path, e);
+        }
+        if (rowPrefix == null) {
+          LOG.warn("No row prefix for the ROWPREFIX Bloom filter of " + path
+              + ", writing it without Bloom filter");
+          bloomType = BloomType.NONE;
+        }
+      }
+      this.bloomRowPrefix = rowPrefix;
+
       generalBloomFilterWriter = BloomFilterFactory.createGeneralBloomAtWrite(
           conf, cacheConf, bloomType,
           (int) Math.min(maxKeys, Integer.MAX_VALUE), writer);
@@ -889,12 +918,17 @@ public class StoreFile {
           case ROWCOL:
             newKey = ! kvComparator.matchingRowColumn(kv, lastKv);
             break;
+          case ROWPREFIX:
+            newKey = ! Bytes.equals(kv.getBuffer(), kv.getRowOffset(),
+                getRowPrefixLength(kv), lastKv.getBuffer(),
+                lastKv.getRowOffset(), getRowPrefixLength(lastKv));
+            break;
           case NONE:
             newKey = false;
             break;
           default:
             throw new IOException("Invalid Bloom filter type: " + bloomType +
-                " (ROW or ROWCOL expected)");
+                " (ROW, ROWCOL or ROWPREFIX expected)");
           }
         }
         if (newKey) {
@@ -905,6 +939,7 @@ public class StoreFile {
            * 2 Types of Filtering:
            *  1. Row = Row
            *  2. RowCol = Row + Qualifier
+           *  3. RowPrefix = the prefix of Row
            */
           byte[] bloomKey;
           int bloomKeyOffset, bloomKeyLen;
@@ -925,9 +960,14 @@ public class StoreFile {
             bloomKeyOffset = 0;
             bloomKeyLen = bloomKey.length;
             break;
+          case ROWPREFIX:
+            bloomKey = kv.getBuffer();
+            bloomKeyOffset = kv.getRowOffset();
+            bloomKeyLen = getRowPrefixLength(kv);
+            break;
           default:
             throw new IOException("Invalid Bloom filter type: " + bloomType +
-                " (ROW or ROWCOL expected)");
+                " (ROW, ROWCOL or ROWPREFIX expected)");
           }
           generalBloomFilterWriter.add(bloomKey, bloomKeyOffset, bloomKeyLen);
           if (lastBloomKey != null
@@ -948,6 +988,11 @@ public class StoreFile {
       }
     }
 
+    private int getRowPrefixLength(KeyValue kv) {
+      return bloomRowPrefix.getPrefixLength(kv.getBuffer(), kv.getRowOffset(),
+          kv.getRowLength());
+    }
+
     private void appendDeleteFamilyBloomFilter(final KeyValue kv)
         throws IOException {
       if (!kv.isDeleteFamily()) {
@@ -1009,6 +1054,10 @@ public class StoreFile {
         writer.addGeneralBloomFilter(generalBloomFilterWriter);
         writer.appendFileInfo(BLOOM_FILTER_TYPE_KEY,
             Bytes.toBytes(bloomType.toString()));
+        if (bloomRowPrefix != null) {
+          writer.appendFileInfo(BLOOM_FILTER_ROWPREFIX_KEY,
+              bloomRowPrefix.toBytes());
+        }
         if (lastBloomKey != null) {
           writer.appendFileInfo(LAST_BLOOM_KEY, Arrays.copyOfRange(
               lastBloomKey, lastBloomKeyOffset, lastBloomKeyOffset
@@ -1070,6 +1119,7 @@ public class StoreFile {
     protected BloomFilter generalBloomFilter = null;
     protected BloomFilter deleteFamilyBloomFilter = null;
     protected BloomType bloomFilterType;
+    private BloomRowPrefix bloomRowPrefix;
     private final HFile.Reader reader;
     protected TimeRangeTracker timeRangeTracker = null;
     protected long sequenceID = -1;
@@ -1202,6 +1252,14 @@ public class StoreFile {
      */
      boolean passesBloomFilter(Scan scan,
         final SortedSet<byte[]> columns) {
+      // Row prefix Bloom filters apply to all the scans within a prefix
+      if (this.bloomFilterType == BloomType.ROWPREFIX) {
+        BloomRowPrefix rowPrefix = this.bloomRowPrefix;
+        byte[] prefix = rowPrefix == null ? null : rowPrefix.getScanPrefix(scan);
+        return prefix == null
+            || passesGeneralBloomFilter(prefix, 0, prefix.length, null, 0, 0);
+      }
+
       // Multi-column non-get scans will use Bloom filters through the
       // lower-level API function that this function calls.
       if (!scan.isGetScan()) {
@@ -1298,6 +1356,15 @@ public class StoreFile {
               colOffset, colLen);
           break;
 
+        case ROWPREFIX:
+          if (col != null) {
+            throw new RuntimeException("Row prefix Bloom filter called with " +
+                "column specified");
+          }
+          key = Arrays.copyOfRange(row, rowOffset, rowOffset
+              + bloomRowPrefix.getPrefixLength(row, rowOffset, rowLen));
+          break;
+
         default:
           return true;
       }
@@ -1378,11 +1445,14 @@ public class StoreFile {
           && Bytes.equals(scan.getStopRow(), HConstants.EMPTY_END_ROW)) {
         return true;
       }
-      KeyValue startKeyValue = KeyValue.createFirstOnRow(scan.getStartRow());
-      KeyValue stopKeyValue = KeyValue.createLastOnRow(scan.getStopRow());
+      // A reversed scan goes from its start row down to its stop row
+      byte[] smallestScanRow = scan.isReversed() ? scan.getStopRow() : scan.getStartRow();
+      byte[] largestScanRow = scan.isReversed() ? scan.getStartRow() : scan.getStopRow();
+      KeyValue smallestScanKeyValue = KeyValue.createFirstOnRow(smallestScanRow);
+      KeyValue largestScanKeyValue = KeyValue.createLastOnRow(largestScanRow);
       boolean nonOverLapping = (getComparator().compare(this.getFirstKey(),
-        stopKeyValue.getKey()) > 0 && !Bytes.equals(scan.getStopRow(), HConstants.EMPTY_END_ROW))
-          || getComparator().compare(this.getLastKey(), startKeyValue.getKey()) < 0;
+        largestScanKeyValue.getKey()) > 0 && !Bytes.equals(largestScanRow, HConstants.EMPTY_END_ROW))
+          || getComparator().compare(this.getLastKey(), smallestScanKeyValue.getKey()) < 0;
       return !nonOverLapping;
     }
 
@@ -1393,6 +1463,19 @@ public class StoreFile {
       if (b != null) {
         bloomFilterType = BloomType.valueOf(Bytes.toString(b));
       }
+      if (bloomFilterType == BloomType.ROWPREFIX) {
+        b = fi.get(BLOOM_FILTER_ROWPREFIX_KEY);
+        try {
+          if (b == null) {
+            throw new IllegalArgumentException("No row prefix in FileInfo");
+          }
+          bloomRowPrefix = BloomRowPrefix.fromBytes(b);
+        } catch (IllegalArgumentException e) {
+          LOG.error("Bad row prefix Bloom filter for " + reader.getName()
+              + " -- proceeding without", e);
+          bloomFilterType = BloomType.NONE;
+        }
+      }
 
       lastBloomKey = fi.get(LAST_BLOOM_KEY);
       byte[] cnt = fi.get(DELETE_FAMILY_COUNT);
@@ -32,6 +32,8 @@ import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.HalfStoreFileReader;
+import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.regionserver.StoreFile.Reader;
 
@@ -176,6 +178,70 @@ public class StoreFileScanner implements KeyValueScanner {
     }
   }
 
+  @Override
+  public boolean seekToPreviousRow(KeyValue key) throws IOException {
+    try {
+      try {
+        KeyValue firstOnRow = KeyValue.createFirstOnRow(key.getBuffer(),
+            key.getRowOffset(), key.getRowLength());
+        while (true) {
+          seekCount.incrementAndGet();
+          // seekBefore steps back into the previous block through the block
+          // index when the row starts a block.
+          if (!hfs.seekBefore(firstOnRow.getBuffer(), firstOnRow.getKeyOffset(),
+              firstOnRow.getKeyLength())) {
+            close();
+            return false;
+          }
+          KeyValue lastOnPreviousRow = hfs.getKeyValue();
+          KeyValue firstOnPreviousRow = KeyValue.createFirstOnRow(
+              lastOnPreviousRow.getBuffer(), lastOnPreviousRow.getRowOffset(),
+              lastOnPreviousRow.getRowLength());
+          if (seek(firstOnPreviousRow)
+              && cur.matchingRow(firstOnPreviousRow.getBuffer(),
+                  firstOnPreviousRow.getRowOffset(), firstOnPreviousRow.getRowLength())) {
+            return true;
+          }
+          // Nothing on that row is visible at our read point, go back again.
+          firstOnRow = firstOnPreviousRow;
+        }
+      } finally {
+        realSeekDone = true;
+      }
+    } catch (IOException ioe) {
+      throw new IOException("Could not seekToPreviousRow " + this + " to key "
+          + key, ioe);
+    }
+  }
+
+  @Override
+  public boolean seekToLastRow() throws IOException {
+    byte[] lastKey = reader.getLastKey();
+    if (lastKey == null) {
+      close();
+      return false;
+    }
+    KeyValue lastKV = KeyValue.createKeyValueFromKey(lastKey, 0, lastKey.length);
+    KeyValue firstOnLastRow = KeyValue.createFirstOnRow(lastKV.getBuffer(),
+        lastKV.getRowOffset(), lastKV.getRowLength());
+    if (seek(firstOnLastRow) && cur.matchingRow(lastKV.getBuffer(),
+        lastKV.getRowOffset(), lastKV.getRowLength())) {
+      return true;
+    }
+    return seekToPreviousRow(lastKV);
+  }
+
+  @Override
+  public boolean backwardSeek(KeyValue key) throws IOException {
+    // seek() lands at or after the key, so anything but the key's own row
+    // is a later one.
+    if (seek(key) && cur.matchingRow(key.getBuffer(), key.getRowOffset(),
+        key.getRowLength())) {
+      return true;
+    }
+    return seekToPreviousRow(key);
+  }
+
   protected boolean skipKVsNewerThanReadpoint() throws IOException {
     long readPoint = MultiVersionConsistencyControl.getThreadReadPoint();
 
@@ -340,6 +406,14 @@ public class StoreFileScanner implements KeyValueScanner {
     return true;
   }
 
+  /**
+   * @return whether this scanner reads a half of a file of the parent of a
+   *         split, through a reference
+   */
+  boolean isReferenceFile() {
+    return reader instanceof HalfStoreFileReader;
+  }
+
   Reader getReaderForTesting() {
     return reader;
   }
@@ -381,4 +455,33 @@ public class StoreFileScanner implements KeyValueScanner {
     return reader.passesTimerangeFilter(scan, oldestUnexpiredTS)
         && reader.passesKeyRangeFilter(scan) && reader.passesBloomFilter(scan, columns);
   }
+
+  /**
+   * Lets the underlying HFile scanner skip the data blocks holding no cell of
+   * the scan's time range, or only expired ones, if the file has cells outside
+   * of them. Raw scans return delete markers of any timestamp, and reversed
+   * scans step back over blocks, so neither skips. Call before the first seek.
+   *
+   * @param scan the scan this scanner is opened for
+   * @param oldestUnexpiredTS the oldest timestamp not expired by the TTL
+   */
+  public void setScanTimeRange(Scan scan, long oldestUnexpiredTS) {
+    if (scan.isRaw() || scan.isReversed()) {
+      return;
+    }
+    TimeRange timeRange = scan.getTimeRange();
+    long minTimestamp = Math.max(timeRange.getMin(), oldestUnexpiredTS);
+    TimeRangeTracker fileTimeRange = reader.timeRangeTracker;
+    if (fileTimeRange != null && fileTimeRange.getMinimumTimestamp() >= minTimestamp
+        && fileTimeRange.getMaximumTimestamp() < timeRange.getMax()) {
+      // every cell of the file is in the range, no block to skip
+      return;
+    }
+    try {
+      hfs.setTimeRange(minTimestamp, timeRange.getMax());
+    } catch (IOException e) {
+      LOG.warn("Could not load the block time ranges of "
+          + reader.getHFileReader().getName() + ", reading all its blocks", e);
+    }
+  }
 }
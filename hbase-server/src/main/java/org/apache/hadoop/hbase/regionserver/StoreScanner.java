@@ -79,6 +79,13 @@ public class StoreScanner extends NonLazyKeyValueScanner
    */
   private long kvsScanned = 0;
 
+  /**
+   * Seeks and reseeks not yet added to the {@link ServerSideScanMetrics} of
+   * the request being served.
+   */
+  private long unreportedSeeks = 0;
+  private long unreportedReseeks = 0;
+
   /** We don't ever expect to change this, the constant is just for clarity. */
   static final boolean LAZY_SEEK_ENABLED_BY_DEFAULT = true;
   public static final String STORESCANNER_PARALLEL_SEEK_ENABLE =
@@ -145,24 +152,20 @@ public class StoreScanner extends NonLazyKeyValueScanner
 
     // Pass columns to try to filter out unnecessary StoreFiles.
     List<KeyValueScanner> scanners = getScannersNoCompaction();
+    setScanTimeRange(scanners);
+    countReferenceFileReads(scanners);
 
     // Seek all scanners to the start of the Row (or if the exact matching row
     // key does not exist, then to the start of the next matching Row).
     // Always check bloom filter to optimize the top row seek for delete
-    // family marker.
-    if (explicitColumnQuery && lazySeekEnabledGlobally) {
-      for (KeyValueScanner scanner : scanners) {
-        scanner.requestSeek(matcher.getStartKey(), false, true);
-      }
-    } else {
-      if (!isParallelSeekEnabled) {
-        for (KeyValueScanner scanner : scanners) {
-          scanner.seek(matcher.getStartKey());
-        }
-      } else {
-        parallelSeek(scanners, matcher.getStartKey());
-      }
+    // family marker. The seek is counted right away, as a scanner that finds nothing is
+    // dropped from the region's heap and never gets to report it from next().
+    ServerSideScanMetrics scanMetrics = ServerSideScanMetrics.getThreadScanMetrics();
+    if (scanMetrics != null) {
+      scanMetrics.addSeeks(1);
     }
+    seekScanners(scanners, matcher.getStartKey(), explicitColumnQuery
+        && lazySeekEnabledGlobally, isParallelSeekEnabled);
 
     // set storeLimit
     this.storeLimit = scan.getMaxResultsPerColumnFamily();
@@ -171,7 +174,7 @@ public class StoreScanner extends NonLazyKeyValueScanner
     this.storeOffset = scan.getRowOffsetPerColumnFamily();
 
     // Combine all seeked scanners with a heap
-    heap = new KeyValueHeap(scanners, store.getComparator());
+    resetKVHeap(scanners, store.getComparator());
 
     this.store.addChangedReaderObserver(this);
   }
@@ -227,16 +230,10 @@ public class StoreScanner extends NonLazyKeyValueScanner
     scanners = selectScannersFrom(scanners);
 
     // Seek all scanners to the initial key
-    if (!isParallelSeekEnabled) {
-      for (KeyValueScanner scanner : scanners) {
-        scanner.seek(matcher.getStartKey());
-      }
-    } else {
-      parallelSeek(scanners, matcher.getStartKey());
-    }
+    seekScanners(scanners, matcher.getStartKey(), false, isParallelSeekEnabled);
 
     // Combine all seeked scanners with a heap
-    heap = new KeyValueHeap(scanners, store.getComparator());
+    resetKVHeap(scanners, store.getComparator());
   }
 
   /** Constructor for testing. */
@@ -258,14 +255,42 @@ public class StoreScanner extends NonLazyKeyValueScanner
         Long.MAX_VALUE, earliestPutTs, oldestUnexpiredTS);
 
     // Seek all scanners to the initial key
-    if (!isParallelSeekEnabled) {
+    seekScanners(scanners, matcher.getStartKey(), false, isParallelSeekEnabled);
+    resetKVHeap(scanners, scanInfo.getComparator());
+  }
+
+  /**
+   * Seek the specified scanners with the given key
+   * @param scanners
+   * @param seekKey
+   * @param isLazy true if using lazy seek
+   * @param isParallelSeek true if using parallel seek
+   * @throws IOException
+   */
+  protected void seekScanners(List<? extends KeyValueScanner> scanners,
+      KeyValue seekKey, boolean isLazy, boolean isParallelSeek)
+      throws IOException {
+    if (isLazy) {
       for (KeyValueScanner scanner : scanners) {
-        scanner.seek(matcher.getStartKey());
+        scanner.requestSeek(seekKey, false, true);
       }
     } else {
-      parallelSeek(scanners, matcher.getStartKey());
+      if (!isParallelSeek) {
+        for (KeyValueScanner scanner : scanners) {
+          scanner.seek(seekKey);
+        }
+      } else {
+        parallelSeek(scanners, seekKey);
+      }
     }
-    heap = new KeyValueHeap(scanners, scanInfo.getComparator());
+  }
+
+  /**
+   * Combine the given, already seeked, scanners with a heap.
+   */
+  protected void resetKVHeap(List<? extends KeyValueScanner> scanners,
+      KeyValue.KVComparator comparator) throws IOException {
+    heap = new KeyValueHeap(scanners, comparator);
   }
 
   /**
@@ -298,10 +323,7 @@ public class StoreScanner extends NonLazyKeyValueScanner
     List<KeyValueScanner> scanners =
         new ArrayList<KeyValueScanner>(allScanners.size());
 
-    // We can only exclude store files based on TTL if minVersions is set to 0.
-    // Otherwise, we might have to return KVs that have technically expired.
-    long expiredTimestampCutoff = minVersions == 0 ? oldestUnexpiredTS :
-        Long.MIN_VALUE;
+    long expiredTimestampCutoff = getExpiredTimestampCutoff();
 
     // include only those scan files which pass all filters
     for (KeyValueScanner kvs : allScanners) {
@@ -317,6 +339,53 @@ public class StoreScanner extends NonLazyKeyValueScanner
     return scanners;
   }
 
+  /**
+   * Lets the store file scanners of a user scan skip the data blocks with
+   * nothing in the scan's time range, before seeking them.
+   */
+  private void setScanTimeRange(List<KeyValueScanner> scanners) {
+    long expiredTimestampCutoff = getExpiredTimestampCutoff();
+    for (KeyValueScanner kvs : scanners) {
+      if (kvs instanceof StoreFileScanner) {
+        ((StoreFileScanner) kvs).setScanTimeRange(scan, expiredTimestampCutoff);
+      }
+    }
+  }
+
+  /**
+   * Counts the files selected for a new user scan that are references to the
+   * files of the parent of a split, which the daughters read until they are
+   * compacted. Reopening the scanners after a flush or compaction is not
+   * another read.
+   */
+  private void countReferenceFileReads(List<KeyValueScanner> scanners) {
+    if (!(store instanceof HStore) || ((HStore) store).getHRegion() == null) {
+      return;
+    }
+    RegionServerServices rsServices = ((HStore) store).getHRegion().getRegionServerServices();
+    if (rsServices == null || rsServices.getMetrics() == null) {
+      return;
+    }
+    int references = 0;
+    for (KeyValueScanner kvs : scanners) {
+      if (kvs instanceof StoreFileScanner && ((StoreFileScanner) kvs).isReferenceFile()) {
+        ++references;
+      }
+    }
+    if (references > 0) {
+      rsServices.getMetrics().incrReferenceFileReads(references);
+    }
+  }
+
+  /**
+   * @return the timestamp below which cells are expired and can be skipped
+   */
+  private long getExpiredTimestampCutoff() {
+    // We can only exclude store files based on TTL if minVersions is set to 0.
+    // Otherwise, we might have to return KVs that have technically expired.
+    return minVersions == 0 ? oldestUnexpiredTS : Long.MIN_VALUE;
+  }
+
   @Override
   public synchronized KeyValue peek() {
     if (this.heap == null) {
@@ -348,6 +417,7 @@ public class StoreScanner extends NonLazyKeyValueScanner
   public synchronized boolean seek(KeyValue key) throws IOException {
     // reset matcher state, in case that underlying store changed
     checkReseek();
+    ++unreportedSeeks;
     return this.heap.seek(key);
   }
 
@@ -359,6 +429,26 @@ public class StoreScanner extends NonLazyKeyValueScanner
    */
   @Override
   public synchronized boolean next(List<KeyValue> outResult, int limit) throws IOException {
+    ServerSideScanMetrics scanMetrics = ServerSideScanMetrics.getThreadScanMetrics();
+    if (scanMetrics == null) {
+      return nextInternal(outResult, limit);
+    }
+    int resultsBefore = outResult.size();
+    long kvsScannedBefore = this.kvsScanned;
+    try {
+      return nextInternal(outResult, limit);
+    } finally {
+      long examined = this.kvsScanned - kvsScannedBefore;
+      scanMetrics.addCellsExamined(examined);
+      scanMetrics.addCellsFiltered(examined - (outResult.size() - resultsBefore));
+      scanMetrics.addSeeks(unreportedSeeks);
+      scanMetrics.addReseeks(unreportedReseeks);
+      unreportedSeeks = 0;
+      unreportedReseeks = 0;
+    }
+  }
+
+  private boolean nextInternal(List<KeyValue> outResult, int limit) throws IOException {
     if (checkReseek()) {
       return true;
     }
@@ -398,8 +488,7 @@ public class StoreScanner extends NonLazyKeyValueScanner
     LOOP: while((kv = this.heap.peek()) != null) {
       ++kvsScanned;
       // Check that the heap gives us KVs in an increasing order.
-      assert prevKV == null || comparator == null || comparator.compare(prevKV, kv) <= 0 :
-        "Key " + prevKV + " followed by a " + "smaller key " + kv + " in cf " + store;
+      checkScanOrder(prevKV, kv, comparator);
       prevKV = kv;
 
       ScanQueryMatcher.MatchCode qcode = matcher.match(kv);
@@ -420,7 +509,7 @@ public class StoreScanner extends NonLazyKeyValueScanner
             if (!matcher.moreRowsMayExistAfter(kv)) {
               return false;
             }
-            reseek(matcher.getKeyForNextRow(kv));
+            seekToNextRow(kv);
             break LOOP;
           }
 
@@ -435,9 +524,9 @@ public class StoreScanner extends NonLazyKeyValueScanner
             if (!matcher.moreRowsMayExistAfter(kv)) {
               return false;
             }
-            reseek(matcher.getKeyForNextRow(kv));
+            seekToNextRow(kv);
           } else if (qcode == ScanQueryMatcher.MatchCode.INCLUDE_AND_SEEK_NEXT_COL) {
-            reseek(matcher.getKeyForNextColumn(kv));
+            seekAsDirection(matcher.getKeyForNextColumn(kv));
           } else {
             this.heap.next();
           }
@@ -461,11 +550,11 @@ public class StoreScanner extends NonLazyKeyValueScanner
             return false;
           }
 
-          reseek(matcher.getKeyForNextRow(kv));
+          seekToNextRow(kv);
           break;
 
         case SEEK_NEXT_COL:
-          reseek(matcher.getKeyForNextColumn(kv));
+          seekAsDirection(matcher.getKeyForNextColumn(kv));
           break;
 
         case SKIP:
@@ -475,7 +564,7 @@ public class StoreScanner extends NonLazyKeyValueScanner
         case SEEK_NEXT_USING_HINT:
           KeyValue nextKV = matcher.getNextKeyHint(kv);
           if (nextKV != null) {
-            reseek(nextKV);
+            seekAsDirection(nextKV);
           } else {
             heap.next();
           }
@@ -554,17 +643,13 @@ public class StoreScanner extends NonLazyKeyValueScanner
      * to get a limited set of scanners? We did so in the constructor and we
      * could have done it now by storing the scan object from the constructor */
     List<KeyValueScanner> scanners = getScannersNoCompaction();
+    setScanTimeRange(scanners);
+    ++unreportedSeeks;
 
-    if (!isParallelSeekEnabled) {
-      for (KeyValueScanner scanner : scanners) {
-        scanner.seek(lastTopKey);
-      }
-    } else {
-      parallelSeek(scanners, lastTopKey);
-    }
+    seekScanners(scanners, lastTopKey, false, isParallelSeekEnabled);
 
     // Combine all seeked scanners with a heap
-    heap = new KeyValueHeap(scanners, store.getComparator());
+    resetKVHeap(scanners, store.getComparator());
 
     // Reset the state of the Query Matcher and set to top row.
     // Only reset and call setRow if the row changes; avoids confusing the
@@ -584,12 +669,43 @@ public class StoreScanner extends NonLazyKeyValueScanner
     }
   }
 
+  /**
+   * Check whether scan as expected order
+   * @param prevKV
+   * @param kv
+   * @param comparator
+   * @throws IOException
+   */
+  protected void checkScanOrder(KeyValue prevKV, KeyValue kv,
+      KeyValue.KVComparator comparator) throws IOException {
+    // Check that the heap gives us KVs in an increasing order.
+    assert prevKV == null || comparator == null
+        || comparator.compare(prevKV, kv) <= 0 : "Key " + prevKV
+        + " followed by a " + "smaller key " + kv + " in cf " + store;
+  }
+
+  protected boolean seekToNextRow(KeyValue kv) throws IOException {
+    return reseek(matcher.getKeyForNextRow(kv));
+  }
+
+  /**
+   * Do a reseek in a normal StoreScanner(scan forward)
+   * @param kv
+   * @return true if scanner has values left, false if end of scanner
+   * @throws IOException
+   */
+  protected boolean seekAsDirection(KeyValue kv)
+      throws IOException {
+    return reseek(kv);
+  }
+
   @Override
   public synchronized boolean reseek(KeyValue kv) throws IOException {
     //Heap will not be null, if this is called from next() which.
     //If called from RegionScanner.reseek(...) make sure the scanner
     //stack is reset if needed.
     checkReseek();
+    ++unreportedReseeks;
     if (explicitColumnQuery && lazySeekEnabledGlobally) {
       return heap.requestSeek(kv, true, useRowColBloom);
     }
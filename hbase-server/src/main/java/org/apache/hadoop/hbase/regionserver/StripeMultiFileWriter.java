@@ -0,0 +1,279 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.compactions.Compactor;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Writes the key values of a flush or a compaction into one file per stripe, tagging each file
+ * with the start and end rows of its stripe. Key values must be appended in order.
+ */
+@InterfaceAudience.Private
+public abstract class StripeMultiFileWriter implements Compactor.CellSink {
+  private static final Log LOG = LogFactory.getLog(StripeMultiFileWriter.class);
+
+  /** Creates the writers of the stripes, as needed. */
+  public interface WriterFactory {
+    StoreFile.Writer createWriter() throws IOException;
+  }
+
+  protected WriterFactory writerFactory;
+  /** The writers of the stripes; null for the stripes nothing was written to. */
+  protected List<StoreFile.Writer> existingWriters;
+  /** The start rows of the stripes and the end row of the last one. */
+  protected List<byte[]> boundaries;
+
+  /**
+   * @param factory The factory of the writers; must be set before any key value is appended.
+   */
+  public void init(WriterFactory factory) {
+    this.writerFactory = factory;
+  }
+
+  /**
+   * Closes the writers, after tagging the files with their stripes.
+   * @param maxSeqId The max sequence id of the files.
+   * @param isMajor Whether the deletes were dropped.
+   * @return The paths of the files written.
+   */
+  public List<Path> commitWriters(long maxSeqId, boolean isMajor) throws IOException {
+    preCommitWriters();
+    assert this.existingWriters.size() == this.boundaries.size() - 1;
+    if (!this.existingWriters.isEmpty() && !hasWriters()) {
+      // write an empty file all the same, to keep track of the max sequence id; see HBASE-6059
+      this.existingWriters.set(0, this.writerFactory.createWriter());
+    }
+    LOG.debug("Writing files for " + (this.boundaries.size() - 1) + " stripe(s)");
+    List<Path> paths = new ArrayList<Path>();
+    for (int i = 0; i < this.existingWriters.size(); ++i) {
+      StoreFile.Writer writer = this.existingWriters.get(i);
+      if (writer == null) {
+        continue;
+      }
+      writer.appendFileInfo(StripeStoreFileManager.STRIPE_START_KEY, this.boundaries.get(i));
+      writer.appendFileInfo(StripeStoreFileManager.STRIPE_END_KEY, this.boundaries.get(i + 1));
+      writer.appendMetadata(maxSeqId, isMajor);
+      writer.close();
+      paths.add(writer.getPath());
+    }
+    this.existingWriters = null;
+    return paths;
+  }
+
+  /**
+   * Closes the writers without tagging the files.
+   * @return The paths of the files written, to delete.
+   */
+  public List<Path> abortWriters() {
+    preAbortWriters();
+    List<Path> paths = new ArrayList<Path>();
+    for (StoreFile.Writer writer : this.existingWriters) {
+      if (writer == null) {
+        continue;
+      }
+      try {
+        writer.close();
+      } catch (Exception ex) {
+        LOG.error("Failed to close the writer of " + writer.getPath(), ex);
+      }
+      paths.add(writer.getPath());
+    }
+    this.existingWriters = null;
+    return paths;
+  }
+
+  /**
+   * Adds the writer being written to, and the boundaries not known yet, to the lists.
+   */
+  protected abstract void preCommitWriters() throws IOException;
+
+  /**
+   * Adds the writer being written to to the list.
+   */
+  protected abstract void preAbortWriters();
+
+  private boolean hasWriters() {
+    for (StoreFile.Writer writer : this.existingWriters) {
+      if (writer != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected static boolean isOpen(byte[] row) {
+    return row.length == 0;
+  }
+
+  protected static int compareRow(KeyValue kv, byte[] row) {
+    return Bytes.compareTo(
+        kv.getBuffer(), kv.getRowOffset(), kv.getRowLength(), row, 0, row.length);
+  }
+
+  protected static void sanityCheckLeft(byte[] left, KeyValue kv) throws IOException {
+    if (!isOpen(left) && compareRow(kv, left) < 0) {
+      throw new IOException("The first row " + Bytes.toStringBinary(kv.getRow())
+          + " is lower than the start row " + Bytes.toStringBinary(left));
+    }
+  }
+
+  protected static void sanityCheckRight(byte[] right, KeyValue kv) throws IOException {
+    if (!isOpen(right) && compareRow(kv, right) >= 0) {
+      throw new IOException("The row " + Bytes.toStringBinary(kv.getRow())
+          + " is not lower than the end row " + Bytes.toStringBinary(right));
+    }
+  }
+
+  /**
+   * Writes into the given stripes, as flushes and L0 compactions do. The files of the stripes
+   * are created as the first key value of each is appended.
+   */
+  public static class BoundaryMultiWriter extends StripeMultiFileWriter {
+    private StoreFile.Writer currentWriter;
+    private int currentIndex = 0;
+    private byte[] currentEndRow;
+
+    /**
+     * @param targetBoundaries The start rows of the stripes to write into and the end row of the
+     *          last one.
+     */
+    public BoundaryMultiWriter(List<byte[]> targetBoundaries) {
+      assert targetBoundaries.size() >= 2;
+      this.boundaries = targetBoundaries;
+      this.existingWriters = new ArrayList<StoreFile.Writer>(targetBoundaries.size() - 1);
+      this.currentEndRow = targetBoundaries.get(1);
+    }
+
+    @Override
+    public void append(KeyValue kv) throws IOException {
+      if (this.currentWriter == null && this.existingWriters.isEmpty()) {
+        sanityCheckLeft(this.boundaries.get(0), kv);
+      }
+      while (!isOpen(this.currentEndRow) && compareRow(kv, this.currentEndRow) >= 0) {
+        if (this.currentIndex + 2 >= this.boundaries.size()) {
+          sanityCheckRight(this.currentEndRow, kv);
+        }
+        this.existingWriters.add(this.currentWriter);
+        this.currentWriter = null;
+        ++this.currentIndex;
+        this.currentEndRow = this.boundaries.get(this.currentIndex + 1);
+      }
+      if (this.currentWriter == null) {
+        this.currentWriter = this.writerFactory.createWriter();
+      }
+      this.currentWriter.append(kv);
+    }
+
+    @Override
+    protected void preCommitWriters() throws IOException {
+      preAbortWriters();
+      while (this.existingWriters.size() < this.boundaries.size() - 1) {
+        this.existingWriters.add(null);
+      }
+    }
+
+    @Override
+    protected void preAbortWriters() {
+      if (this.currentWriter != null) {
+        this.existingWriters.add(this.currentWriter);
+        this.currentWriter = null;
+      }
+    }
+  }
+
+  /**
+   * Writes the rows between a start and an end row into up to a given number of stripes of
+   * about a given number of key values each, as stripe splits do. The boundaries of the new
+   * stripes are the first rows of their files; a row is never split across stripes.
+   */
+  public static class SizeMultiWriter extends StripeMultiFileWriter {
+    private final int targetCount;
+    private final long targetKvs;
+    private final byte[] left;
+    private final byte[] right;
+
+    private StoreFile.Writer currentWriter;
+    private KeyValue lastKv;
+    private long kvsInCurrentWriter = 0;
+
+    /**
+     * @param targetCount The most stripes to write.
+     * @param targetKvs The number of key values to write into each stripe but the last.
+     * @param left The start row of the first stripe.
+     * @param right The end row of the last stripe.
+     */
+    public SizeMultiWriter(int targetCount, long targetKvs, byte[] left, byte[] right) {
+      this.targetCount = targetCount;
+      this.targetKvs = targetKvs;
+      this.left = left;
+      this.right = right;
+      this.boundaries = new ArrayList<byte[]>(targetCount + 1);
+      this.boundaries.add(left);
+      this.existingWriters = new ArrayList<StoreFile.Writer>(targetCount);
+    }
+
+    @Override
+    public void append(KeyValue kv) throws IOException {
+      if (this.currentWriter == null) {
+        sanityCheckLeft(this.left, kv);
+        this.currentWriter = this.writerFactory.createWriter();
+      } else if (this.kvsInCurrentWriter >= this.targetKvs
+          && this.existingWriters.size() + 1 < this.targetCount
+          && compareRow(kv, this.lastKv.getRow()) != 0) {
+        this.existingWriters.add(this.currentWriter);
+        this.boundaries.add(kv.getRow());
+        this.currentWriter = this.writerFactory.createWriter();
+        this.kvsInCurrentWriter = 0;
+      }
+      this.currentWriter.append(kv);
+      this.lastKv = kv;
+      ++this.kvsInCurrentWriter;
+    }
+
+    @Override
+    protected void preCommitWriters() throws IOException {
+      if (this.lastKv != null) {
+        sanityCheckRight(this.right, this.lastKv);
+      }
+      preAbortWriters();
+      if (this.existingWriters.isEmpty()) {
+        this.existingWriters.add(null);
+      }
+      this.boundaries.add(this.right);
+    }
+
+    @Override
+    protected void preAbortWriters() {
+      if (this.currentWriter != null) {
+        this.existingWriters.add(this.currentWriter);
+        this.currentWriter = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Configuration class for stripe store and compactions.
+ * See {@link StripeStoreEngine} for the overview of the stripe store.
+ */
+@InterfaceAudience.Private
+public class StripeStoreConfig {
+  static final Log LOG = LogFactory.getLog(StripeStoreConfig.class);
+
+  /** The minimum number of files to compact within a stripe. */
+  public static final String MIN_FILES_KEY = "hbase.store.stripe.compaction.minFiles";
+  /** The maximum number of files to compact within a stripe. */
+  public static final String MAX_FILES_KEY = "hbase.store.stripe.compaction.maxFiles";
+  /** The minimum number of files in L0 to compact them into the stripes. */
+  public static final String MIN_FILES_L0_KEY = "hbase.store.stripe.compaction.minFilesL0";
+  /** The size a stripe grows to before it is split into several stripes when compacted. */
+  public static final String SIZE_TO_SPLIT_KEY = "hbase.store.stripe.sizeToSplit";
+  /** The number of stripes a stripe is split into. */
+  public static final String SPLIT_PARTS_KEY = "hbase.store.stripe.splitPartCount";
+  /** The number of stripes L0 is compacted into when the store has no stripes yet. */
+  public static final String INITIAL_STRIPE_COUNT_KEY = "hbase.store.stripe.initialStripeCount";
+
+  private final int level0CompactMinFiles;
+  private final int stripeCompactMinFiles;
+  private final int stripeCompactMaxFiles;
+  private final long sizeToSplitAt;
+  private final int splitPartCount;
+  private final int initialCount;
+
+  public StripeStoreConfig(Configuration config, StoreConfigInformation sci) {
+    this.level0CompactMinFiles = Math.max(1, config.getInt(MIN_FILES_L0_KEY, 4));
+    // every flush writes a file into each stripe; make sure not to compact tiny files too often
+    int minFiles = config.getInt("hbase.hstore.compaction.min",
+        config.getInt("hbase.hstore.compactionThreshold", 3));
+    this.stripeCompactMinFiles = Math.max(2, config.getInt(MIN_FILES_KEY, Math.max(4, minFiles)));
+    this.stripeCompactMaxFiles = Math.max(this.stripeCompactMinFiles, config.getInt(
+        MAX_FILES_KEY, config.getInt("hbase.hstore.compaction.max", 10)));
+    this.splitPartCount = Math.max(2, config.getInt(SPLIT_PARTS_KEY, 2));
+    this.initialCount = Math.max(1, config.getInt(INITIAL_STRIPE_COUNT_KEY, 1));
+
+    long flushSize = sci.getMemstoreFlushSize();
+    if (flushSize == 0) {
+      flushSize = 128 * 1024 * 1024;
+    }
+    long defaultSplitSize = flushSize * this.level0CompactMinFiles * 4 * this.splitPartCount;
+    this.sizeToSplitAt = config.getLong(SIZE_TO_SPLIT_KEY, defaultSplitSize);
+
+    LOG.info("Stripe store config: " + this);
+  }
+
+  /**
+   * @return the minimum number of files to compact within a stripe
+   */
+  public int getStripeCompactMinFiles() {
+    return stripeCompactMinFiles;
+  }
+
+  /**
+   * @return the maximum number of files to compact within a stripe
+   */
+  public int getStripeCompactMaxFiles() {
+    return stripeCompactMaxFiles;
+  }
+
+  /**
+   * @return the minimum number of files in L0 to compact them into the stripes
+   */
+  public int getLevel0MinFiles() {
+    return level0CompactMinFiles;
+  }
+
+  /**
+   * @return the total size of the files of a stripe above which it is split
+   */
+  public long getSplitSize() {
+    return sizeToSplitAt;
+  }
+
+  /**
+   * @return the number of stripes a stripe is split into
+   */
+  public int getSplitCount() {
+    return splitPartCount;
+  }
+
+  /**
+   * @return the number of stripes L0 is compacted into when the store has no stripes yet
+   */
+  public int getInitialCount() {
+    return initialCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("L0 min files %d; stripe files %d to %d; split size %d into %d; "
+        + "initial stripes %d", level0CompactMinFiles, stripeCompactMinFiles,
+        stripeCompactMaxFiles, sizeToSplitAt, splitPartCount, initialCount);
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue.KVComparator;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionThroughputController;
+import org.apache.hadoop.hbase.regionserver.compactions.StripeCompactionPolicy;
+import org.apache.hadoop.hbase.regionserver.compactions.StripeCompactor;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The storage engine that splits the key space of a store into stripes, contiguous row ranges
+ * each with its own files, which are compacted separately. Flushes write one file per stripe.
+ * Files that span several stripes, such as those flushed before there were any, are kept in
+ * L0 and compacted into the stripes. A stripe that grows too large is split when compacted.
+ * <p>
+ * As compactions of a stripe drop its deletes, the store needs no major compactions, and
+ * compactions only rewrite the data of the stripes that change. A Get reads the files of L0 and
+ * of one stripe only; a scan, the files of the stripes it covers. Enable with
+ * {@link StoreEngine#STORE_ENGINE_CLASS_KEY}, per table or column family. The store has more
+ * files than with the default engine, so hbase.hstore.blockingStoreFiles should be raised.
+ * See {@link StripeStoreConfig} for the settings.
+ */
+@InterfaceAudience.Private
+public class StripeStoreEngine extends StoreEngine<StripeStoreFlusher,
+    StripeCompactionPolicy, StripeCompactor, StripeStoreFileManager> {
+  static final Log LOG = LogFactory.getLog(StripeStoreEngine.class);
+
+  @Override
+  public boolean needsCompaction(List<StoreFile> filesCompacting) {
+    return this.compactionPolicy.needsCompactions(this.storeFileManager, filesCompacting);
+  }
+
+  @Override
+  public CompactionContext createCompaction() {
+    return new StripeCompaction();
+  }
+
+  @Override
+  protected void createComponents(
+      Configuration conf, Store store, KVComparator comparator) throws IOException {
+    StripeStoreConfig config = new StripeStoreConfig(conf, store);
+    this.compactionPolicy = new StripeCompactionPolicy(conf, store, config);
+    this.storeFileManager = new StripeStoreFileManager(comparator, conf);
+    this.storeFlusher = new StripeStoreFlusher(conf, store, this.storeFileManager);
+    this.compactor = new StripeCompactor(conf, store);
+  }
+
+  /**
+   * Represents one instance of stripe compaction, with the necessary context and flow.
+   */
+  private class StripeCompaction extends CompactionContext {
+    private StripeCompactionPolicy.StripeCompactionRequest stripeRequest = null;
+
+    @Override
+    public List<StoreFile> preSelect(List<StoreFile> filesCompacting) {
+      return compactionPolicy.preSelectFilesForCoprocessor(storeFileManager, filesCompacting);
+    }
+
+    @Override
+    public boolean select(List<StoreFile> filesCompacting, boolean isUserCompaction,
+        boolean mayUseOffPeak, boolean forceMajor) throws IOException {
+      this.stripeRequest = compactionPolicy.selectCompaction(
+          storeFileManager, filesCompacting, mayUseOffPeak);
+      this.request = (this.stripeRequest == null)
+          ? new CompactionRequest(new ArrayList<StoreFile>()) : this.stripeRequest.getRequest();
+      return this.stripeRequest != null;
+    }
+
+    @Override
+    public void forceSelect(CompactionRequest request) {
+      super.forceSelect(request);
+      if (this.stripeRequest != null) {
+        this.stripeRequest.setRequest(this.request);
+      } else {
+        LOG.warn("Stripe store is forced to take an arbitrary file list and compact it.");
+        this.stripeRequest = compactionPolicy.createEmptyRequest(storeFileManager, this.request);
+      }
+    }
+
+    @Override
+    public List<Path> compact(CompactionThroughputController throughputController)
+        throws IOException {
+      Preconditions.checkArgument(this.stripeRequest != null, "Cannot compact without selection");
+      return this.stripeRequest.execute(compactor, throughputController);
+    }
+  }
+}
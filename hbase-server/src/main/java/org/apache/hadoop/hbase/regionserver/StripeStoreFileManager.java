@@ -0,0 +1,571 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValue.KVComparator;
+import org.apache.hadoop.hbase.regionserver.compactions.StripeCompactionPolicy;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Stripe implementation of StoreFileManager. Not thread safe, relies on the locking in HStore;
+ * can be read outside of the lock, as its state is replaced atomically.
+ * <p>
+ * The rows of the store are divided into stripes, contiguous row ranges that do not overlap
+ * and together cover all the rows, each with its own files. The stripe a file was written for
+ * is recorded in its file info as the start and the end row of the stripe. Files without a
+ * stripe, such as bulk loaded files or the files of a store that has no stripes yet, and files
+ * that do not fit the current stripes, are in level 0 (L0), which is read for every request.
+ * <p>
+ * Stripes are only recorded in the files, so empty stripes are not kept over a reopen; the
+ * stripes next to them just grow to cover their rows.
+ */
+@InterfaceAudience.Private
+public class StripeStoreFileManager
+    implements StoreFileManager, StripeCompactionPolicy.StripeInformationProvider {
+  static final Log LOG = LogFactory.getLog(StripeStoreFileManager.class);
+
+  /** The start row of the stripe of a file, in its file info. */
+  public static final byte[] STRIPE_START_KEY = Bytes.toBytes("STRIPE_START_KEY");
+  /** The end row of the stripe of a file, in its file info. */
+  public static final byte[] STRIPE_END_KEY = Bytes.toBytes("STRIPE_END_KEY");
+
+  /** The start row of the first stripe and the end row of the last one, i.e. infinity. */
+  public static final byte[] OPEN_KEY = HConstants.EMPTY_BYTE_ARRAY;
+
+  /**
+   * The files of the store. Immutable, replaced as a whole when the files change.
+   */
+  private static class State {
+    /** The end rows of all the stripes but the last, i.e. the start rows of all but the first */
+    byte[][] stripeEndRows = new byte[0][];
+    /** The files of each stripe, sorted by sequence id */
+    ArrayList<ImmutableList<StoreFile>> stripeFiles = new ArrayList<ImmutableList<StoreFile>>();
+    /** The files in L0, sorted by sequence id */
+    ImmutableList<StoreFile> level0Files = ImmutableList.of();
+    /** All the files, sorted by sequence id */
+    ImmutableList<StoreFile> allFiles = ImmutableList.of();
+  }
+
+  /**
+   * A stripe being laid out: its row range and its files.
+   */
+  private static class Stripe {
+    final byte[] startRow;
+    final byte[] endRow;
+    final List<StoreFile> files = new ArrayList<StoreFile>();
+
+    Stripe(byte[] startRow, byte[] endRow) {
+      this.startRow = startRow;
+      this.endRow = endRow;
+    }
+  }
+
+  /** Orders stripes by their start rows, then by their end rows. */
+  private static final Comparator<Stripe> STRIPE_ORDER = new Comparator<Stripe>() {
+    @Override
+    public int compare(Stripe left, Stripe right) {
+      int result = compareStartRows(left.startRow, right.startRow);
+      return result != 0 ? result : compareEndRows(left.endRow, right.endRow);
+    }
+  };
+
+  private volatile State state = new State();
+
+  private final KVComparator kvComparator;
+  private final int blockingFileCount;
+
+  public StripeStoreFileManager(KVComparator kvComparator, Configuration conf) {
+    this.kvComparator = kvComparator;
+    this.blockingFileCount = conf.getInt(
+        HStore.BLOCKING_STOREFILES_KEY, HStore.DEFAULT_BLOCKING_STOREFILE_COUNT);
+  }
+
+  @Override
+  public void loadFiles(List<StoreFile> storeFiles) {
+    List<StoreFile> level0Files = new ArrayList<StoreFile>();
+    List<StoreFile> stripeFiles = new ArrayList<StoreFile>();
+    for (StoreFile sf : storeFiles) {
+      if (hasStripe(sf)) {
+        stripeFiles.add(sf);
+      } else {
+        level0Files.add(sf);
+      }
+    }
+    List<Stripe> stripes = removeOverlaps(groupByStripe(stripeFiles), level0Files);
+    if (!level0Files.isEmpty()) {
+      LOG.debug("Loaded " + level0Files.size() + " file(s) into L0");
+    }
+    setState(stripes, level0Files);
+  }
+
+  @Override
+  public void insertNewFile(StoreFile sf) {
+    State s = this.state;
+    List<Stripe> stripes = toStripes(s);
+    List<StoreFile> level0Files = new ArrayList<StoreFile>(s.level0Files);
+    int index = findStripe(s, sf);
+    if (index < 0) {
+      level0Files.add(sf);
+    } else {
+      stripes.get(index).files.add(sf);
+    }
+    setState(stripes, level0Files);
+  }
+
+  @Override
+  public void addCompactionResults(
+      Collection<StoreFile> compactedFiles, Collection<StoreFile> results) {
+    State s = this.state;
+    Set<StoreFile> compacted = new HashSet<StoreFile>(compactedFiles);
+    List<StoreFile> level0Files = new ArrayList<StoreFile>();
+    for (StoreFile sf : s.level0Files) {
+      if (!compacted.contains(sf)) {
+        level0Files.add(sf);
+      }
+    }
+    List<StoreFile> resultStripeFiles = new ArrayList<StoreFile>();
+    for (StoreFile sf : results) {
+      if (hasStripe(sf)) {
+        resultStripeFiles.add(sf);
+      } else {
+        LOG.warn("Compaction result " + sf + " has no stripe, adding it to L0");
+        level0Files.add(sf);
+      }
+    }
+    List<Stripe> written = removeOverlaps(groupByStripe(resultStripeFiles), level0Files);
+
+    // The stripes the compaction wrote replace the ones they overlap, which may have been split
+    // or compacted into fewer stripes. The files of the replaced stripes that were not compacted,
+    // such as those flushed meanwhile, go into the new stripe that fits them, or else into L0.
+    List<Stripe> stripes = new ArrayList<Stripe>(written);
+    for (Stripe stripe : toStripes(s)) {
+      boolean replaced = false;
+      for (Stripe newStripe : written) {
+        if (overlap(stripe, newStripe)) {
+          replaced = true;
+          break;
+        }
+      }
+      if (!replaced) {
+        stripe.files.removeAll(compacted);
+        stripes.add(stripe);
+        continue;
+      }
+      for (StoreFile sf : stripe.files) {
+        if (compacted.contains(sf)) {
+          continue;
+        }
+        Stripe target = null;
+        for (Stripe newStripe : written) {
+          if (fits(sf, newStripe)) {
+            target = newStripe;
+            break;
+          }
+        }
+        if (target != null) {
+          target.files.add(sf);
+        } else {
+          level0Files.add(sf);
+        }
+      }
+    }
+    Collections.sort(stripes, STRIPE_ORDER);
+    setState(removeOverlaps(stripes, level0Files), level0Files);
+  }
+
+  @Override
+  public ImmutableCollection<StoreFile> clearFiles() {
+    ImmutableList<StoreFile> result = this.state.allFiles;
+    this.state = new State();
+    return result;
+  }
+
+  @Override
+  public Collection<StoreFile> getStorefiles() {
+    return this.state.allFiles;
+  }
+
+  @Override
+  public int getStorefileCount() {
+    return this.state.allFiles.size();
+  }
+
+  /**
+   * Gets the files of L0 and of the stripes the rows of the request are in.
+   */
+  @Override
+  public Collection<StoreFile> getFilesForScanOrGet(
+      boolean isGet, byte[] startRow, byte[] stopRow) {
+    State s = this.state;
+    if (s.stripeFiles.isEmpty()) {
+      return s.level0Files;
+    }
+    int first = findStripeForRow(s, startRow);
+    int last = (isGet || first == s.stripeFiles.size() - 1) ? first
+        : (isOpen(stopRow) ? s.stripeFiles.size() - 1 : findStripeForRow(s, stopRow));
+    List<StoreFile> result = new ArrayList<StoreFile>(s.level0Files);
+    for (int i = first; i <= last; ++i) {
+      result.addAll(s.stripeFiles.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the files of L0, then those of the stripe of the target row and of the stripes before
+   * it, the newest files of each first.
+   */
+  @Override
+  public Iterator<StoreFile> getCandidateFilesForRowKeyBefore(final KeyValue targetKey) {
+    State s = this.state;
+    List<StoreFile> candidates = new ArrayList<StoreFile>(Lists.reverse(s.level0Files));
+    if (!s.stripeFiles.isEmpty()) {
+      byte[] targetRow = targetKey.getRow();
+      for (int i = findStripeForRow(s, targetRow); i >= 0; --i) {
+        candidates.addAll(Lists.reverse(s.stripeFiles.get(i)));
+      }
+    }
+    return candidates.iterator();
+  }
+
+  /**
+   * Removes the stripe files that only have rows before the candidate, which cannot have a
+   * better one.
+   */
+  @Override
+  public Iterator<StoreFile> updateCandidateFilesForRowKeyBefore(
+      Iterator<StoreFile> candidateFiles, final KeyValue targetKey, final KeyValue candidate) {
+    byte[] candidateRow = candidate.getRow();
+    List<StoreFile> remaining = new ArrayList<StoreFile>();
+    while (candidateFiles.hasNext()) {
+      StoreFile sf = candidateFiles.next();
+      if (hasStripe(sf)) {
+        byte[] endRow = sf.getMetadataValue(STRIPE_END_KEY);
+        if (!isOpen(endRow) && Bytes.compareTo(endRow, candidateRow) <= 0) {
+          continue;
+        }
+      }
+      remaining.add(sf);
+    }
+    return remaining.iterator();
+  }
+
+  /**
+   * Splits on the boundary between stripes that best balances the sizes of the stripes on both
+   * sides. Stores with fewer than two stripes split like the default store, in the middle of
+   * their largest file.
+   */
+  @Override
+  public byte[] getSplitPoint() throws IOException {
+    State s = this.state;
+    if (s.allFiles.isEmpty()) {
+      return null;
+    }
+    int stripeCount = s.stripeFiles.size();
+    long[] sizes = new long[stripeCount];
+    long totalSize = 0;
+    for (int i = 0; i < stripeCount; ++i) {
+      sizes[i] = getTotalFileSize(s.stripeFiles.get(i));
+      totalSize += sizes[i];
+    }
+    int bestIndex = -1;
+    long bestImbalance = Long.MAX_VALUE;
+    long leftSize = 0;
+    for (int i = 1; i < stripeCount; ++i) {
+      leftSize += sizes[i - 1];
+      long imbalance = Math.abs(totalSize - 2 * leftSize);
+      if (leftSize > 0 && leftSize < totalSize && imbalance < bestImbalance) {
+        bestIndex = i;
+        bestImbalance = imbalance;
+      }
+    }
+    if (bestIndex > 0) {
+      return s.stripeEndRows[bestIndex - 1];
+    }
+    StoreFile largestFile = StoreUtils.getLargestFile(s.allFiles);
+    return largestFile == null ? null : largestFile.getFileSplitPoint(this.kvComparator);
+  }
+
+  /**
+   * As the default store does while in trouble, or with L0 only. Otherwise, maps the priority
+   * approximately to the range of a default store, L0 counting for every stripe, so that a
+   * store with many stripes is not always compacted first due to the number of its files.
+   */
+  @Override
+  public int getStoreCompactionPriority() {
+    State s = this.state;
+    int fileCount = s.allFiles.size();
+    if (s.stripeFiles.isEmpty() || this.blockingFileCount <= fileCount) {
+      return this.blockingFileCount - fileCount;
+    }
+    int level0Count = s.level0Files.size();
+    int stripeCount = s.stripeFiles.size();
+    int priority = (int) Math.ceil(
+        ((double) (this.blockingFileCount - fileCount + level0Count) / stripeCount) - level0Count);
+    return (priority <= HStore.PRIORITY_USER) ? (HStore.PRIORITY_USER + 1) : priority;
+  }
+
+  @Override
+  public List<StoreFile> getLevel0Files() {
+    return this.state.level0Files;
+  }
+
+  @Override
+  public List<ImmutableList<StoreFile>> getStripes() {
+    return Collections.unmodifiableList(this.state.stripeFiles);
+  }
+
+  @Override
+  public int getStripeCount() {
+    return this.state.stripeFiles.size();
+  }
+
+  @Override
+  public byte[] getStartRow(int stripeIndex) {
+    return stripeIndex == 0 ? OPEN_KEY : this.state.stripeEndRows[stripeIndex - 1];
+  }
+
+  @Override
+  public byte[] getEndRow(int stripeIndex) {
+    byte[][] stripeEndRows = this.state.stripeEndRows;
+    return stripeIndex == stripeEndRows.length ? OPEN_KEY : stripeEndRows[stripeIndex];
+  }
+
+  @Override
+  public List<byte[]> getStripeBoundaries() {
+    State s = this.state;
+    if (s.stripeFiles.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<byte[]> boundaries = new ArrayList<byte[]>(s.stripeEndRows.length + 2);
+    boundaries.add(OPEN_KEY);
+    boundaries.addAll(Arrays.asList(s.stripeEndRows));
+    boundaries.add(OPEN_KEY);
+    return boundaries;
+  }
+
+  /**
+   * Sets the state of the store.
+   * @param stripes The stripes, in order and not overlapping; each starts where the previous one
+   *          ends, whatever its start row.
+   * @param level0Files The files in L0.
+   */
+  private void setState(List<Stripe> stripes, List<StoreFile> level0Files) {
+    State newState = new State();
+    newState.stripeEndRows = new byte[Math.max(0, stripes.size() - 1)][];
+    List<StoreFile> allFiles = new ArrayList<StoreFile>(level0Files);
+    for (int i = 0; i < stripes.size(); ++i) {
+      Stripe stripe = stripes.get(i);
+      if (i > 0) {
+        newState.stripeEndRows[i - 1] = stripe.startRow;
+      }
+      newState.stripeFiles.add(sortFiles(stripe.files));
+      allFiles.addAll(stripe.files);
+    }
+    newState.level0Files = sortFiles(level0Files);
+    newState.allFiles = sortFiles(allFiles);
+    this.state = newState;
+  }
+
+  private static ImmutableList<StoreFile> sortFiles(List<StoreFile> files) {
+    List<StoreFile> sorted = new ArrayList<StoreFile>(files);
+    Collections.sort(sorted, StoreFile.Comparators.SEQ_ID);
+    return ImmutableList.copyOf(sorted);
+  }
+
+  /**
+   * @return The stripes of the state, with their row ranges and modifiable lists of files.
+   */
+  private static List<Stripe> toStripes(State s) {
+    int stripeCount = s.stripeFiles.size();
+    List<Stripe> stripes = new ArrayList<Stripe>(stripeCount);
+    for (int i = 0; i < stripeCount; ++i) {
+      Stripe stripe = new Stripe(i == 0 ? OPEN_KEY : s.stripeEndRows[i - 1],
+          i == stripeCount - 1 ? OPEN_KEY : s.stripeEndRows[i]);
+      stripe.files.addAll(s.stripeFiles.get(i));
+      stripes.add(stripe);
+    }
+    return stripes;
+  }
+
+  /**
+   * @param files Files with stripes.
+   * @return The stripes of the files, in order.
+   */
+  private static List<Stripe> groupByStripe(List<StoreFile> files) {
+    List<Stripe> stripes = new ArrayList<Stripe>();
+    for (StoreFile sf : files) {
+      byte[] startRow = sf.getMetadataValue(STRIPE_START_KEY);
+      byte[] endRow = sf.getMetadataValue(STRIPE_END_KEY);
+      Stripe stripe = null;
+      for (Stripe existing : stripes) {
+        if (Bytes.equals(existing.startRow, startRow) && Bytes.equals(existing.endRow, endRow)) {
+          stripe = existing;
+          break;
+        }
+      }
+      if (stripe == null) {
+        stripe = new Stripe(startRow, endRow);
+        stripes.add(stripe);
+      }
+      stripe.files.add(sf);
+    }
+    Collections.sort(stripes, STRIPE_ORDER);
+    return stripes;
+  }
+
+  /**
+   * Moves the files of the stripes that overlap the stripes before them into L0.
+   * @param stripes The stripes, in order.
+   * @param level0Files The files in L0, added to.
+   * @return The stripes that do not overlap.
+   */
+  private static List<Stripe> removeOverlaps(List<Stripe> stripes, List<StoreFile> level0Files) {
+    List<Stripe> result = new ArrayList<Stripe>(stripes.size());
+    for (Stripe stripe : stripes) {
+      Stripe previous = result.isEmpty() ? null : result.get(result.size() - 1);
+      if (previous != null && overlap(previous, stripe)) {
+        LOG.warn("Stripe [" + Bytes.toStringBinary(stripe.startRow) + ", "
+            + Bytes.toStringBinary(stripe.endRow) + ") overlaps the stripe before it, "
+            + "adding its " + stripe.files.size() + " file(s) to L0");
+        level0Files.addAll(stripe.files);
+      } else {
+        result.add(stripe);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return The index of the stripe the file fits in, or -1 if it has no stripe or does not
+   *         fit any.
+   */
+  private static int findStripe(State s, StoreFile sf) {
+    if (s.stripeFiles.isEmpty() || !hasStripe(sf)) {
+      return -1;
+    }
+    int first = findStripeForRow(s, sf.getMetadataValue(STRIPE_START_KEY));
+    byte[] endRow = sf.getMetadataValue(STRIPE_END_KEY);
+    int last = s.stripeFiles.size() - 1;
+    if (!isOpen(endRow)) {
+      // the rows of the file are lower than its end row
+      int index = Arrays.binarySearch(s.stripeEndRows, endRow, Bytes.BYTES_COMPARATOR);
+      last = index >= 0 ? index : -(index + 1);
+    }
+    return first == last ? first : -1;
+  }
+
+  /**
+   * @return The index of the stripe the row is in; the first stripe for an open row.
+   */
+  private static int findStripeForRow(State s, byte[] row) {
+    if (isOpen(row)) {
+      return 0;
+    }
+    int index = Arrays.binarySearch(s.stripeEndRows, row, Bytes.BYTES_COMPARATOR);
+    return index >= 0 ? index + 1 : -(index + 1);
+  }
+
+  /**
+   * @return Whether the file has a valid stripe in its file info.
+   */
+  private static boolean hasStripe(StoreFile sf) {
+    byte[] startRow = sf.getMetadataValue(STRIPE_START_KEY);
+    byte[] endRow = sf.getMetadataValue(STRIPE_END_KEY);
+    if (startRow == null || endRow == null) {
+      return false;
+    }
+    if (!isOpen(startRow) && !isOpen(endRow) && Bytes.compareTo(startRow, endRow) >= 0) {
+      LOG.warn("File " + sf + " has an invalid stripe [" + Bytes.toStringBinary(startRow)
+          + ", " + Bytes.toStringBinary(endRow) + ")");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return Whether the rows of the stripe of the file are all in the given stripe.
+   */
+  private static boolean fits(StoreFile sf, Stripe stripe) {
+    return compareStartRows(stripe.startRow, sf.getMetadataValue(STRIPE_START_KEY)) <= 0
+        && compareEndRows(sf.getMetadataValue(STRIPE_END_KEY), stripe.endRow) <= 0;
+  }
+
+  private static boolean overlap(Stripe left, Stripe right) {
+    return isLower(left.startRow, right.endRow) && isLower(right.startRow, left.endRow);
+  }
+
+  /**
+   * @return Whether the start row is lower than the end row.
+   */
+  private static boolean isLower(byte[] startRow, byte[] endRow) {
+    return isOpen(startRow) || isOpen(endRow) || Bytes.compareTo(startRow, endRow) < 0;
+  }
+
+  /** Compares start rows, the open start row being the lowest. */
+  private static int compareStartRows(byte[] left, byte[] right) {
+    if (isOpen(left) || isOpen(right)) {
+      return (isOpen(left) ? 0 : 1) - (isOpen(right) ? 0 : 1);
+    }
+    return Bytes.compareTo(left, right);
+  }
+
+  /** Compares end rows, the open end row being the highest. */
+  private static int compareEndRows(byte[] left, byte[] right) {
+    if (isOpen(left) || isOpen(right)) {
+      return (isOpen(left) ? 1 : 0) - (isOpen(right) ? 1 : 0);
+    }
+    return Bytes.compareTo(left, right);
+  }
+
+  private static boolean isOpen(byte[] row) {
+    return row != null && row.length == 0;
+  }
+
+  private static long getTotalFileSize(Collection<StoreFile> files) {
+    long size = 0;
+    for (StoreFile sf : files) {
+      StoreFile.Reader r = sf.getReader();
+      if (r != null) {
+        size += r.length();
+      }
+    }
+    return size;
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.monitoring.MonitoredTask;
+import org.apache.hadoop.hbase.util.CollectionBackedScanner;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Stripe implementation of StoreFlusher. Flushes into one file per stripe, so that the data
+ * needs no compaction to get into the stripes; flushes into a single file in L0 while the
+ * store has no stripes.
+ */
+@InterfaceAudience.Private
+public class StripeStoreFlusher extends StoreFlusher {
+  private static final Log LOG = LogFactory.getLog(StripeStoreFlusher.class);
+  private final Object flushLock = new Object();
+  private final StripeStoreFileManager stripes;
+
+  public StripeStoreFlusher(Configuration conf, Store store, StripeStoreFileManager stripes) {
+    super(conf, store);
+    this.stripes = stripes;
+  }
+
+  @Override
+  public List<Path> flushSnapshot(SortedSet<KeyValue> snapshot, long cacheFlushSeqNum,
+      final TimeRangeTracker tracker, AtomicLong flushedSize, MonitoredTask status)
+      throws IOException {
+    List<Path> result = new ArrayList<Path>();
+    final int kvCount = snapshot.size();
+    if (kvCount == 0) return result; // don't flush if there are no entries
+
+    long smallestReadPoint = store.getSmallestReadPoint();
+    KeyValueScanner memstoreScanner =
+        new CollectionBackedScanner(snapshot, store.getComparator());
+    InternalScanner scanner = preCreateCoprocScanner(memstoreScanner);
+    if (scanner == null) {
+      scanner = createStoreScanner(smallestReadPoint, memstoreScanner);
+    }
+    scanner = postCreateCoprocScanner(scanner);
+    if (scanner == null) {
+      return result; // NULL scanner returned from coprocessor hooks means skip normal processing
+    }
+
+    long flushed = 0;
+    try {
+      synchronized (flushLock) {
+        List<byte[]> boundaries = this.stripes.getStripeBoundaries();
+        if (boundaries.isEmpty()) {
+          flushed = flushToLevel0(scanner, kvCount, tracker, smallestReadPoint, cacheFlushSeqNum,
+              status, result);
+        } else {
+          flushed = flushToStripes(scanner, boundaries, kvCount, tracker, smallestReadPoint,
+              cacheFlushSeqNum, status, result);
+        }
+      }
+    } finally {
+      flushedSize.set(flushed);
+      scanner.close();
+    }
+    LOG.info("Flushed, sequenceid=" + cacheFlushSeqNum + ", memsize="
+        + StringUtils.humanReadableInt(flushed) + ", into " + result.size() + " tmp file(s)");
+    return result;
+  }
+
+  private long flushToLevel0(InternalScanner scanner, int kvCount, TimeRangeTracker tracker,
+      long smallestReadPoint, long cacheFlushSeqNum, MonitoredTask status, List<Path> result)
+      throws IOException {
+    status.setStatus("Flushing " + store + ": creating writer");
+    StoreFile.Writer writer = createWriter(kvCount, tracker);
+    long flushed;
+    try {
+      flushed = performFlush(scanner, writer, smallestReadPoint);
+    } finally {
+      finalizeWriter(writer, cacheFlushSeqNum, status);
+    }
+    result.add(writer.getPath());
+    return flushed;
+  }
+
+  private long flushToStripes(InternalScanner scanner, List<byte[]> boundaries,
+      final int kvCount, final TimeRangeTracker tracker, long smallestReadPoint,
+      long cacheFlushSeqNum, MonitoredTask status, List<Path> result) throws IOException {
+    status.setStatus("Flushing " + store + " into " + (boundaries.size() - 1) + " stripe(s)");
+    StripeMultiFileWriter mw = new StripeMultiFileWriter.BoundaryMultiWriter(boundaries);
+    mw.init(new StripeMultiFileWriter.WriterFactory() {
+      @Override
+      public StoreFile.Writer createWriter() throws IOException {
+        return StripeStoreFlusher.this.createWriter(kvCount, tracker);
+      }
+    });
+    boolean success = false;
+    long flushed;
+    try {
+      flushed = performFlush(scanner, mw, smallestReadPoint);
+      success = true;
+    } finally {
+      if (!success) {
+        for (Path leftoverFile : mw.abortWriters()) {
+          try {
+            store.getFileSystem().delete(leftoverFile, false);
+          } catch (Exception ex) {
+            LOG.error("Failed to delete the leftover file " + leftoverFile
+                + " after an unfinished flush.", ex);
+          }
+        }
+      }
+    }
+    status.setStatus("Flushing " + store + ": closing flushed files");
+    result.addAll(mw.commitWriters(cacheFlushSeqNum, false));
+    return flushed;
+  }
+
+  private StoreFile.Writer createWriter(int kvCount, TimeRangeTracker tracker)
+      throws IOException {
+    StoreFile.Writer writer = store.createWriterInTmp(
+        kvCount, store.getFamily().getCompression(), false, true);
+    writer.setTimeRangeTracker(tracker);
+    return writer;
+  }
+}
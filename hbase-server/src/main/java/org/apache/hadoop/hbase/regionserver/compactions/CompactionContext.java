@@ -66,9 +66,11 @@ public abstract class CompactionContext {
 
   /**
    * Runs the compaction based on current selection. select/forceSelect must have been called.
+   * @param throughputController Limits the write throughput of the compaction.
    * @return The new file paths resulting from compaction.
    */
-  public abstract List<Path> compact() throws IOException;
+  public abstract List<Path> compact(CompactionThroughputController throughputController)
+      throws IOException;
 
   public CompactionRequest getRequest() {
     assert hasSelection();
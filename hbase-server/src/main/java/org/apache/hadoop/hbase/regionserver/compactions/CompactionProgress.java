@@ -37,6 +37,8 @@ public class CompactionProgress {
   public long totalCompactingKVs;
   /** the completed count of key values in currently running compaction */
   public long currentCompactedKVs = 0;
+  /** the time spent throttled by the throughput controller, in milliseconds */
+  public long totalThrottleTimeMs = 0;
 
   /** Constructor
    * @param totalCompactingKVs the total Key/Value pairs to be compacted
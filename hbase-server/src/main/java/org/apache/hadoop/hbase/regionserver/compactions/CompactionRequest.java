@@ -46,6 +46,8 @@ public class CompactionRequest implements Comparable<CompactionRequest> {
   // was this compaction promoted to an off-peak
   private boolean isOffPeak = false;
   private boolean isMajor = false;
+  // every cell of the selected files is past the TTL
+  private boolean isAllFilesExpired = false;
   private int priority = Store.NO_PRIORITY;
   private Collection<StoreFile> filesToCompact;
 
@@ -93,6 +95,7 @@ public class CompactionRequest implements Comparable<CompactionRequest> {
     this.filesToCompact = new ArrayList<StoreFile>(other.getFiles());
     this.isOffPeak = other.isOffPeak;
     this.isMajor = other.isMajor;
+    this.isAllFilesExpired = other.isAllFilesExpired;
     this.priority = other.priority;
     this.selectionTime = other.selectionTime;
     this.timeInNanos = other.timeInNanos;
@@ -192,6 +195,18 @@ public class CompactionRequest implements Comparable<CompactionRequest> {
     this.isMajor = isMajor;
   }
 
+  /**
+   * @return Whether every cell of the selected files is past the TTL of the family, so that
+   *         the files can be archived without being read and rewritten.
+   */
+  public boolean isAllFilesExpired() {
+    return this.isAllFilesExpired;
+  }
+
+  public void setAllFilesExpired(boolean value) {
+    this.isAllFilesExpired = value;
+  }
+
   @Override
   public String toString() {
     String fsList = Joiner.on(", ").join(
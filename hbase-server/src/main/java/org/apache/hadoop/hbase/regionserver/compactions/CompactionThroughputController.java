@@ -0,0 +1,57 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.regionserver.RegionServerServices;
+
+/**
+ * Controls the write throughput of the compactions of a region server. Compactors call
+ * {@link #control(String, long)} as they write, and sleep for the time it returns.
+ */
+@InterfaceAudience.Private
+public interface CompactionThroughputController extends Stoppable {
+
+  /**
+   * Sets up the controller for the region server, whose compaction pressure and foreground
+   * latency it may track.
+   */
+  void setup(RegionServerServices server);
+
+  /**
+   * Starts to control the throughput of a compaction.
+   * @param compactionName The unique name of the compaction.
+   */
+  void start(String compactionName);
+
+  /**
+   * Controls the throughput of a compaction, sleeping as needed to keep it under its limit.
+   * @param compactionName The name of the compaction.
+   * @param size The total size the compaction has written so far.
+   * @return The time slept, in milliseconds.
+   */
+  long control(String compactionName, long size) throws InterruptedException;
+
+  /**
+   * Finishes controlling the throughput of a compaction, whether it completed or not.
+   * @param compactionName The name of the compaction.
+   */
+  void finish(String compactionName);
+}
@@ -18,16 +18,17 @@
 package org.apache.hadoop.hbase.regionserver.compactions;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Scan;
@@ -52,6 +53,7 @@ import org.apache.hadoop.util.StringUtils;
 @InterfaceAudience.Private
 public abstract class Compactor {
   private static final Log LOG = LogFactory.getLog(Compactor.class);
+  private static final AtomicInteger NAME_COUNTER = new AtomicInteger(0);
   protected CompactionProgress progress;
   protected Configuration conf;
   protected Store store;
@@ -75,32 +77,6 @@ public abstract class Compactor {
     void append(KeyValue kv) throws IOException;
   }
 
-  /**
-   * Do a minor/major compaction on an explicit set of storefiles from a Store.
-   * @param request the requested compaction
-   * @return Product of compaction or an empty list if all cells expired or deleted and nothing made
-   *         it through the compaction.
-   * @throws IOException
-   */
-  public abstract List<Path> compact(final CompactionRequest request) throws IOException;
-
-  /**
-   * Compact a list of files for testing. Creates a fake {@link CompactionRequest} to pass to
-   * {@link #compact(CompactionRequest)};
-   * @param filesToCompact the files to compact. These are used as the compactionSelection for the
-   *          generated {@link CompactionRequest}.
-   * @param isMajor true to major compact (prune all deletes, max versions, etc)
-   * @return Product of compaction or an empty list if all cells expired or deleted and nothing made
-   *         it through the compaction.
-   * @throws IOException
-   */
-  public List<Path> compactForTesting(final Collection<StoreFile> filesToCompact, boolean isMajor)
-      throws IOException {
-    CompactionRequest cr = new CompactionRequest(filesToCompact);
-    cr.setIsMajor(isMajor);
-    return this.compact(cr);
-  }
-
   public CompactionProgress getProgress() {
     return this.progress;
   }
@@ -191,41 +167,76 @@ public abstract class Compactor {
     return store.getCoprocessorHost().preCompact(store, scanner, scanType, request);
   }
 
+  /**
+   * Writes the output of the scanner to the writer, throttled by the throughput controller.
+   * @return false if the store was closed before the compaction could finish.
+   */
   @SuppressWarnings("deprecation")
-  protected boolean performCompaction(InternalScanner scanner,
-      CellSink writer, long smallestReadPoint) throws IOException {
-    int bytesWritten = 0;
+  protected boolean performCompaction(InternalScanner scanner, CellSink writer,
+      long smallestReadPoint, CompactionThroughputController throughputController)
+      throws IOException {
+    long bytesWritten = 0;
+    long bytesWrittenProgress = 0;
+    long compactedKVs = 0;
+    long throttleTimeMs = 0;
     // Since scanner.next() can return 'false' but still be delivering data,
     // we have to use a do/while loop.
     List<KeyValue> kvs = new ArrayList<KeyValue>();
     // Limit to "hbase.hstore.compaction.kv.max" (default 10) to avoid OOME
     int closeCheckInterval = HStore.getCloseCheckInterval();
-    boolean hasMore;
-    do {
-      hasMore = scanner.next(kvs, compactionKVMax);
-      // output to writer:
-      for (KeyValue kv : kvs) {
-        if (kv.getMemstoreTS() <= smallestReadPoint) {
-          kv.setMemstoreTS(0);
-        }
-        writer.append(kv);
-        // update progress per key
-        ++progress.currentCompactedKVs;
-
-        // check periodically to see if a system stop is requested
-        if (closeCheckInterval > 0) {
-          bytesWritten += kv.getLength();
-          if (bytesWritten > closeCheckInterval) {
-            bytesWritten = 0;
-            if (!store.areWritesEnabled()) return false;
+    String compactionName = store.getRegionInfo().getRegionNameAsString() + "#"
+        + store.getColumnFamilyName() + "#" + NAME_COUNTER.getAndIncrement();
+    throughputController.start(compactionName);
+    try {
+      boolean hasMore;
+      do {
+        hasMore = scanner.next(kvs, compactionKVMax);
+        // output to writer:
+        for (KeyValue kv : kvs) {
+          if (kv.getMemstoreTS() <= smallestReadPoint) {
+            kv.setMemstoreTS(0);
+          }
+          writer.append(kv);
+          int len = kv.getLength();
+          ++compactedKVs;
+          bytesWrittenProgress += len;
+          throttleTimeMs += throughputController.control(compactionName, bytesWrittenProgress);
+
+          // check periodically to see if a system stop is requested
+          if (closeCheckInterval > 0) {
+            bytesWritten += len;
+            if (bytesWritten > closeCheckInterval) {
+              bytesWritten = 0;
+              if (!store.areWritesEnabled()) return false;
+            }
           }
         }
-      }
-      kvs.clear();
-    } while (hasMore);
+        kvs.clear();
+        updateProgress(compactedKVs, throttleTimeMs);
+        compactedKVs = 0;
+        throttleTimeMs = 0;
+      } while (hasMore);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while throttling compaction "
+          + compactionName);
+    } finally {
+      updateProgress(compactedKVs, throttleTimeMs);
+      throughputController.finish(compactionName);
+    }
     return true;
   }
 
+  /**
+   * Adds a batch of cells to the progress, which the key ranges of a compaction share.
+   */
+  private void updateProgress(long compactedKVs, long throttleTimeMs) {
+    synchronized (this.progress) {
+      this.progress.currentCompactedKVs += compactedKVs;
+      this.progress.totalThrottleTimeMs += throttleTimeMs;
+    }
+  }
+
   protected void abortWriter(final StoreFile.Writer writer) throws IOException {
     writer.close();
     store.getFileSystem().delete(writer.getPath(), false);
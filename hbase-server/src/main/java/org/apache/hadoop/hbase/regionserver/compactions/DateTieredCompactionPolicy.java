@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreUtils;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+
+/**
+ * Compaction policy for time series data, which is mostly appended in time order and mostly
+ * read by recent time ranges. Groups the store files into time windows by their max
+ * timestamps, and only compacts files of the same window together, so that old data is not
+ * rewritten along with new data over and over again.
+ * <p>
+ * The windows grow exponentially with age: the newest windows span the base window size, and
+ * every window per tier older windows are that many times larger, e.g. with the default 6 hour
+ * base window and 4 windows per tier, 4 windows of 6 hours, then 4 of a day, then 4 of 4 days.
+ * The newest window is compacted with the ratio based selection as files are flushed; older
+ * windows are compacted into a single file each once they have two files or more. Files older
+ * than the max age are left alone. As the files of different windows hold different time
+ * ranges, scans of a time range skip the files of the other windows, and whole windows expire
+ * at once when the column family has a TTL.
+ * <p>
+ * Periodic major compactions would merge all the windows, so they are not run; user requested
+ * major compactions and compactions of references are run as with the ratio based policy.
+ * Enable by setting hbase.hstore.defaultengine.compactionpolicy.class to this class, per table
+ * or column family.
+ */
+@InterfaceAudience.Private
+public class DateTieredCompactionPolicy extends RatioBasedCompactionPolicy {
+  private static final Log LOG = LogFactory.getLog(DateTieredCompactionPolicy.class);
+
+  private static final String CONFIG_PREFIX = "hbase.hstore.compaction.date.tiered.";
+  /** The size of the newest windows, in milliseconds. */
+  public static final String BASE_WINDOW_MILLIS_KEY = CONFIG_PREFIX + "base.window.millis";
+  /** The number of windows of each size before the windows grow that many times larger. */
+  public static final String WINDOWS_PER_TIER_KEY = CONFIG_PREFIX + "windows.per.tier";
+  /** The age of the files, by max timestamp, past which they are not compacted any more. */
+  public static final String MAX_STOREFILE_AGE_MILLIS_KEY =
+      CONFIG_PREFIX + "max.storefile.age.millis";
+
+  private final long baseWindowMillis;
+  private final int windowsPerTier;
+  private final long maxStoreFileAgeMillis;
+
+  public DateTieredCompactionPolicy(Configuration conf, StoreConfigInformation storeConfigInfo) {
+    super(conf, storeConfigInfo);
+    this.baseWindowMillis = Math.max(1, conf.getLong(BASE_WINDOW_MILLIS_KEY, 6 * 3600 * 1000L));
+    this.windowsPerTier = Math.max(2, conf.getInt(WINDOWS_PER_TIER_KEY, 4));
+    this.maxStoreFileAgeMillis = conf.getLong(MAX_STOREFILE_AGE_MILLIS_KEY, Long.MAX_VALUE);
+    LOG.info("Date tiered compaction: base window " + baseWindowMillis + " ms, "
+        + windowsPerTier + " windows per tier, max file age " + maxStoreFileAgeMillis + " ms");
+  }
+
+  @Override
+  public CompactionRequest selectCompaction(Collection<StoreFile> candidateFiles,
+      final List<StoreFile> filesCompacting, final boolean isUserCompaction,
+      final boolean mayUseOffPeak, final boolean forceMajor) throws IOException {
+    if (forceMajor || StoreUtils.hasReferences(candidateFiles)) {
+      return super.selectCompaction(
+          candidateFiles, filesCompacting, isUserCompaction, mayUseOffPeak, forceMajor);
+    }
+    ArrayList<StoreFile> candidates = getCurrentEligibleFiles(
+        new ArrayList<StoreFile>(candidateFiles), filesCompacting);
+    long now = EnvironmentEdgeManager.currentTimeMillis();
+
+    // Whole windows past the TTL go at once, without compacting them with anything else
+    long cfTtl = this.storeConfigInfo.getStoreFileTtl();
+    if (comConf.shouldDeleteExpired() && cfTtl != Long.MAX_VALUE) {
+      ArrayList<StoreFile> expired = selectExpiredStoreFiles(candidates, now - cfTtl);
+      if (expired != null) {
+        CompactionRequest result = new CompactionRequest(expired);
+        result.setAllFilesExpired(true);
+        return result;
+      }
+    }
+
+    ArrayList<StoreFile> selection = selectWindowFiles(candidates, now, mayUseOffPeak);
+    CompactionRequest result = new CompactionRequest(selection);
+    result.setOffPeak(!selection.isEmpty() && mayUseOffPeak);
+    return result;
+  }
+
+  /**
+   * @param candidates The files that may be compacted, ordered from oldest to newest.
+   * @return The files of the newest window that needs compacting; empty if none does.
+   */
+  ArrayList<StoreFile> selectWindowFiles(ArrayList<StoreFile> candidates, long now,
+      boolean mayUseOffPeak) throws IOException {
+    long oldestToCompact = (maxStoreFileAgeMillis >= now) ? Long.MIN_VALUE
+        : now - maxStoreFileAgeMillis;
+    // Group the files from newest to oldest; each window takes the files up to the first one
+    // older than it, so that every window is a contiguous run of files. A file newer than its
+    // window, as with data written out of order, stays with the files around it.
+    List<ArrayList<StoreFile>> windows = new ArrayList<ArrayList<StoreFile>>();
+    Window window = new Window(baseWindowMillis, now / baseWindowMillis);
+    boolean hasIncoming = false;
+    ArrayList<StoreFile> current = null;
+    for (int i = candidates.size() - 1; i >= 0; --i) {
+      StoreFile file = candidates.get(i);
+      long maxTimestamp = file.getReader().getMaxTimestamp();
+      if (maxTimestamp < oldestToCompact) {
+        break;
+      }
+      maxTimestamp = Math.max(0, maxTimestamp);
+      if (current == null || window.compareToTimestamp(maxTimestamp) > 0) {
+        if (current == null) {
+          hasIncoming = window.compareToTimestamp(maxTimestamp) <= 0;
+        }
+        while (window.compareToTimestamp(maxTimestamp) > 0) {
+          window = window.nextWindow();
+        }
+        current = new ArrayList<StoreFile>();
+        windows.add(current);
+      }
+      current.add(0, file);
+    }
+
+    // The newest window that needs compacting
+    for (int i = 0; i < windows.size(); ++i) {
+      ArrayList<StoreFile> files = windows.get(i);
+      boolean isIncoming = (i == 0) && hasIncoming;
+      ArrayList<StoreFile> selection;
+      if (isIncoming) {
+        selection = files.size() < comConf.getMinFilesToCompact() ? new ArrayList<StoreFile>()
+            : applyCompactionPolicy(new ArrayList<StoreFile>(files), mayUseOffPeak, false);
+        if (selection.size() < comConf.getMinFilesToCompact()) {
+          selection.clear();
+        }
+      } else {
+        selection = files.size() < 2 ? new ArrayList<StoreFile>() : files;
+      }
+      if (!selection.isEmpty()) {
+        if (selection.size() > comConf.getMaxFilesToCompact()) {
+          selection.subList(comConf.getMaxFilesToCompact(), selection.size()).clear();
+        }
+        LOG.debug("Selected " + selection.size() + " file(s) of time window " + i
+            + (isIncoming ? " (incoming)" : "") + " for compaction");
+        return selection;
+      }
+    }
+    return new ArrayList<StoreFile>();
+  }
+
+  /**
+   * Periodic major compactions would merge all the windows into one file.
+   */
+  @Override
+  public boolean isMajorCompaction(Collection<StoreFile> filesToCompact) throws IOException {
+    return false;
+  }
+
+  @Override
+  public boolean needsCompaction(Collection<StoreFile> storeFiles,
+      List<StoreFile> filesCompacting) {
+    ArrayList<StoreFile> candidates = getCurrentEligibleFiles(
+        new ArrayList<StoreFile>(storeFiles), filesCompacting);
+    long now = EnvironmentEdgeManager.currentTimeMillis();
+    long cfTtl = this.storeConfigInfo.getStoreFileTtl();
+    if (comConf.shouldDeleteExpired() && cfTtl != Long.MAX_VALUE) {
+      for (StoreFile file : candidates) {
+        if (file.getReader().getMaxTimestamp() < now - cfTtl) {
+          return true;
+        }
+      }
+    }
+    try {
+      return !selectWindowFiles(candidates, now, false).isEmpty();
+    } catch (IOException e) {
+      LOG.warn("Failed to check whether the store needs compaction", e);
+      return super.needsCompaction(storeFiles, filesCompacting);
+    }
+  }
+
+  /**
+   * A time window: the window of the given size at the given position, i.e. from
+   * size * position inclusive to size * (position + 1) exclusive.
+   */
+  private final class Window {
+    private final long windowMillis;
+    private final long divPosition;
+
+    private Window(long windowMillis, long divPosition) {
+      this.windowMillis = windowMillis;
+      this.divPosition = divPosition;
+    }
+
+    /**
+     * @return The window before this one, the next tier's window containing it if this one is
+     *         the first of its size in the larger window.
+     */
+    Window nextWindow() {
+      if (divPosition % windowsPerTier > 0) {
+        return new Window(windowMillis, divPosition - 1);
+      }
+      return new Window(windowMillis * windowsPerTier, divPosition / windowsPerTier - 1);
+    }
+
+    /**
+     * @return A positive number if the window is after the timestamp, negative if before, 0 if
+     *         the window contains it.
+     */
+    int compareToTimestamp(long timestamp) {
+      long startMillis = windowMillis * divPosition;
+      if (timestamp < startMillis) {
+        return 1;
+      }
+      return (timestamp - startMillis >= windowMillis) ? -1 : 0;
+    }
+  }
+}
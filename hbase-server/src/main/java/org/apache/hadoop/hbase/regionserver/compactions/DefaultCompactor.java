@@ -20,33 +20,97 @@ package org.apache.hadoop.hbase.regionserver.compactions;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValue.KVComparator;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.hfile.HFileBlockIndex;
+import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
 import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.ScanType;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.regionserver.StoreFileScanner;
+import org.apache.hadoop.hbase.regionserver.StoreScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.util.StringUtils;
 
 /**
  * Compact passed set of files. Create an instance and then call {@link #compact(CompactionRequest)}
  */
 @InterfaceAudience.Private
 public class DefaultCompactor extends Compactor {
+  private static final Log LOG = LogFactory.getLog(DefaultCompactor.class);
+
+  /**
+   * The number of key ranges a large major compaction is split into, each compacted by its own
+   * thread into its own file. 1, the default, compacts into a single file.
+   */
+  public static final String PARALLEL_RANGES_KEY = "hbase.hstore.compaction.parallel.ranges";
+  /** The total size of the files of a major compaction below which it is not split. */
+  public static final String PARALLEL_MIN_SIZE_KEY = "hbase.hstore.compaction.parallel.min.size";
+
+  private final int parallelRanges;
+  private final long parallelMinSize;
+
   public DefaultCompactor(final Configuration conf, final Store store) {
     super(conf, store);
+    this.parallelRanges = Math.max(1, conf.getInt(PARALLEL_RANGES_KEY, 1));
+    this.parallelMinSize = conf.getLong(PARALLEL_MIN_SIZE_KEY, 1024L * 1024 * 1024);
   }
 
   /**
    * Do a minor/major compaction on an explicit set of storefiles from a Store.
+   * @param request the requested compaction
+   * @return Product of compaction or an empty list if all cells expired or deleted and nothing made
+   *         it through the compaction.
+   * @throws IOException
    */
   public List<Path> compact(final CompactionRequest request) throws IOException {
+    return compact(request, NoLimitCompactionThroughputController.INSTANCE);
+  }
+
+  /**
+   * Do a minor/major compaction on an explicit set of storefiles from a Store.
+   * @param request the requested compaction
+   * @param throughputController Limits the write throughput of the compaction.
+   * @return Product of compaction or an empty list if all cells expired or deleted and nothing made
+   *         it through the compaction.
+   * @throws IOException
+   */
+  public List<Path> compact(final CompactionRequest request,
+      CompactionThroughputController throughputController) throws IOException {
     FileDetails fd = getFileDetails(request.getFiles(), request.isMajor());
     this.progress = new CompactionProgress(fd.maxKeyCount);
 
+    if (this.parallelRanges > 1 && request.isMajor() && request.getSize() >= this.parallelMinSize) {
+      List<byte[]> splitRows = getSplitRows(request.getFiles(), this.parallelRanges,
+          store.getComparator());
+      if (!splitRows.isEmpty()) {
+        return compactRanges(request, fd, splitRows, throughputController);
+      }
+    }
+
     List<StoreFileScanner> scanners = createFileScanners(request.getFiles());
 
     StoreFile.Writer writer = null;
@@ -72,7 +136,8 @@ public class DefaultCompactor extends Compactor {
         // because we need record the max seq id for the store file, see HBASE-6059
         writer = store.createWriterInTmp(fd.maxKeyCount, this.compactionCompression, true,
             fd.maxMVCCReadpoint >= smallestReadPoint);
-        boolean finished = performCompaction(scanner, writer, smallestReadPoint);
+        boolean finished =
+            performCompaction(scanner, writer, smallestReadPoint, throughputController);
         if (!finished) {
           abortWriter(writer);
           writer = null;
@@ -94,4 +159,287 @@ public class DefaultCompactor extends Compactor {
     }
     return newFiles;
   }
+
+  /**
+   * Compacts the files into one file per key range, each range on its own thread. The files are
+   * returned only if all the ranges succeed, so that the store commits them all at once.
+   * Coprocessors see one compaction scanner per range.
+   * @param splitRows The rows between the ranges, in order.
+   */
+  private List<Path> compactRanges(final CompactionRequest request, final FileDetails fd,
+      List<byte[]> splitRows, final CompactionThroughputController throughputController)
+      throws IOException {
+    final long smallestReadPoint = store.getSmallestReadPoint();
+    int rangeCount = splitRows.size() + 1;
+    // the ranges hold about the same share of the input
+    final long rangeMaxKeyCount = (fd.maxKeyCount + rangeCount - 1) / rangeCount;
+    LOG.info("Compacting " + request.getFiles().size() + " file(s) of " + store + " into "
+        + rangeCount + " key ranges in parallel");
+    final List<StoreFile.Writer> writers =
+        Collections.synchronizedList(new ArrayList<StoreFile.Writer>());
+    ExecutorService pool = Executors.newFixedThreadPool(rangeCount,
+        Threads.newDaemonThreadFactory("compaction-" + store.getColumnFamilyName() + "-range"));
+    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(rangeCount);
+    IOException failure = null;
+    try {
+      for (int i = 0; i < rangeCount; ++i) {
+        final byte[] startRow = (i == 0) ? HConstants.EMPTY_START_ROW : splitRows.get(i - 1);
+        final byte[] endRow = (i == splitRows.size()) ? HConstants.EMPTY_END_ROW
+            : splitRows.get(i);
+        results.add(pool.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws IOException {
+            return compactRange(request, fd, startRow, endRow, rangeMaxKeyCount,
+                smallestReadPoint, throughputController, writers);
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        try {
+          if (!result.get() && failure == null) {
+            failure = new InterruptedIOException("Aborting compaction of store " + store
+                + " in region " + store.getRegionInfo().getRegionNameAsString()
+                + " because it was interrupted.");
+          }
+        } catch (CancellationException e) {
+          // cancelled after another range failed
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = (e.getCause() instanceof IOException) ? (IOException) e.getCause()
+                : new IOException(e.getCause());
+          }
+          // no point in finishing the other ranges
+          for (Future<Boolean> other : results) {
+            other.cancel(true);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          failure = new InterruptedIOException("Interrupted while waiting for the compaction of "
+              + store);
+          break;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    if (failure != null) {
+      try {
+        // the cancelled ranges may still be writing
+        pool.awaitTermination(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      abortWriters(writers);
+      throw failure;
+    }
+
+    List<Path> newFiles = new ArrayList<Path>(writers.size());
+    for (StoreFile.Writer writer : writers) {
+      writer.appendMetadata(fd.maxSeqId, request.isMajor());
+      writer.close();
+      newFiles.add(writer.getPath());
+    }
+    return newFiles;
+  }
+
+  /**
+   * Compacts the rows of the files from the start row inclusive to the end row exclusive into a
+   * new file, added to the writers whether or not it completes.
+   * @param maxKeyCount The estimated number of cells in the range.
+   * @return false if the store was closed before the compaction could finish.
+   */
+  private boolean compactRange(CompactionRequest request, FileDetails fd, byte[] startRow,
+      byte[] endRow, long maxKeyCount, long smallestReadPoint,
+      CompactionThroughputController throughputController, List<StoreFile.Writer> writers)
+      throws IOException {
+    // the read point and the positional reads are per thread
+    MultiVersionConsistencyControl.setThreadReadPoint(smallestReadPoint);
+    List<StoreFileScanner> scanners =
+        StoreFileScanner.getScannersForStoreFiles(request.getFiles(), false, true, true);
+    InternalScanner scanner = null;
+    try {
+      ScanType scanType = ScanType.COMPACT_DROP_DELETES;
+      scanner = preCreateCoprocScanner(request, scanType, fd.earliestPutTs, scanners);
+      if (scanner == null) {
+        Scan scan = new Scan();
+        scan.setMaxVersions(store.getFamily().getMaxVersions());
+        scan.setStartRow(startRow);
+        scanner = new StoreScanner(store, store.getScanInfo(), scan, scanners, scanType,
+            smallestReadPoint, fd.earliestPutTs);
+      }
+      scanners = null;
+      scanner = new RowRangeScanner(scanner, startRow, endRow, store.getComparator());
+      scanner = postCreateCoprocScanner(request, scanType, scanner);
+      if (scanner == null) {
+        return true;
+      }
+      StoreFile.Writer writer = store.createWriterInTmp(maxKeyCount,
+          this.compactionCompression, true, fd.maxMVCCReadpoint >= smallestReadPoint);
+      writers.add(writer);
+      return performCompaction(scanner, writer, smallestReadPoint, throughputController);
+    } finally {
+      if (scanner != null) {
+        scanner.close();
+      } else if (scanners != null) {
+        for (StoreFileScanner sfs : scanners) {
+          sfs.close();
+        }
+      }
+    }
+  }
+
+  private void abortWriters(List<StoreFile.Writer> writers) {
+    for (StoreFile.Writer writer : writers) {
+      try {
+        abortWriter(writer);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete the leftover file " + writer.getPath()
+            + " after an unfinished compaction", e);
+      }
+    }
+  }
+
+  /**
+   * Splits the key space of the files into ranges of about the same size, using the root level
+   * keys of their block indexes, the midkeys of the largest index blocks or data blocks.
+   * @param rangeCount The number of ranges wanted.
+   * @return Up to rangeCount - 1 rows, in order, that start the ranges after the first one;
+   *         empty if the files cannot be split.
+   */
+  static List<byte[]> getSplitRows(Collection<StoreFile> files, int rangeCount,
+      final KVComparator comparator) throws IOException {
+    // every root level key starts about size / root count bytes of its file
+    List<Pair<byte[], Long>> rowSizes = new ArrayList<Pair<byte[], Long>>();
+    long totalSize = 0;
+    for (StoreFile file : files) {
+      StoreFile.Reader reader = file.getReader();
+      if (reader == null || reader.getHFileReader() == null) {
+        continue;
+      }
+      HFileBlockIndex.BlockIndexReader index =
+          reader.getHFileReader().getDataBlockIndexReader();
+      int rootCount = (index == null) ? 0 : index.getRootBlockCount();
+      if (rootCount == 0) {
+        continue;
+      }
+      long size = Math.max(1, reader.length() / rootCount);
+      for (int i = 0; i < rootCount; ++i) {
+        byte[] key = index.getRootBlockKey(i);
+        KeyValue kv = KeyValue.createKeyValueFromKey(key, 0, key.length);
+        rowSizes.add(new Pair<byte[], Long>(kv.getRow(), size));
+        totalSize += size;
+      }
+    }
+    Collections.sort(rowSizes, new Comparator<Pair<byte[], Long>>() {
+      @Override
+      public int compare(Pair<byte[], Long> left, Pair<byte[], Long> right) {
+        byte[] l = left.getFirst();
+        byte[] r = right.getFirst();
+        return comparator.compareRows(l, 0, l.length, r, 0, r.length);
+      }
+    });
+
+    List<byte[]> splitRows = new ArrayList<byte[]>(rangeCount - 1);
+    double rangeSize = (double) totalSize / rangeCount;
+    long sizeBefore = 0;
+    byte[] lastRow = null;
+    for (Pair<byte[], Long> rowSize : rowSizes) {
+      byte[] row = rowSize.getFirst();
+      if (splitRows.size() == rangeCount - 1) {
+        break;
+      }
+      if (sizeBefore >= rangeSize * (splitRows.size() + 1) && lastRow != null
+          && comparator.compareRows(row, 0, row.length, lastRow, 0, lastRow.length) > 0) {
+        splitRows.add(row);
+      }
+      if (lastRow == null
+          || comparator.compareRows(row, 0, row.length, lastRow, 0, lastRow.length) > 0) {
+        lastRow = row;
+      }
+      sizeBefore += rowSize.getSecond();
+    }
+    if (LOG.isDebugEnabled() && !splitRows.isEmpty()) {
+      StringBuilder sb = new StringBuilder();
+      for (byte[] row : splitRows) {
+        sb.append(" [").append(Bytes.toStringBinary(row)).append("]");
+      }
+      LOG.debug("Split " + StringUtils.humanReadableInt(totalSize) + " of files at" + sb);
+    }
+    return splitRows;
+  }
+
+  /**
+   * Limits a compaction scanner to the rows of its range. The store scanners start at the start
+   * row already; the rows before it are only skipped for the scanners coprocessors create.
+   */
+  private static class RowRangeScanner implements InternalScanner {
+    private final InternalScanner delegate;
+    private final byte[] startRow;
+    private final byte[] endRow;
+    private final KVComparator comparator;
+    private boolean done = false;
+
+    RowRangeScanner(InternalScanner delegate, byte[] startRow, byte[] endRow,
+        KVComparator comparator) {
+      this.delegate = delegate;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.comparator = comparator;
+    }
+
+    @Override
+    public boolean next(List<KeyValue> results) throws IOException {
+      return next(results, -1);
+    }
+
+    @Override
+    public boolean next(List<KeyValue> results, int limit) throws IOException {
+      if (done) {
+        return false;
+      }
+      int start = results.size();
+      boolean hasMore = delegate.next(results, limit);
+      Iterator<KeyValue> it = results.listIterator(start);
+      while (it.hasNext()) {
+        KeyValue kv = it.next();
+        if (!Bytes.equals(endRow, HConstants.EMPTY_END_ROW) && comparator.compareRows(
+            kv.getBuffer(), kv.getRowOffset(), kv.getRowLength(), endRow, 0, endRow.length) >= 0) {
+          it.remove();
+          while (it.hasNext()) {
+            it.next();
+            it.remove();
+          }
+          done = true;
+          return false;
+        }
+        if (startRow.length > 0 && comparator.compareRows(kv.getBuffer(), kv.getRowOffset(),
+            kv.getRowLength(), startRow, 0, startRow.length) < 0) {
+          it.remove();
+        }
+      }
+      return hasMore;
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
+  /**
+   * Compact a list of files for testing. Creates a fake {@link CompactionRequest} to pass to
+   * {@link #compact(CompactionRequest)};
+   * @param filesToCompact the files to compact. These are used as the compactionSelection for the
+   *          generated {@link CompactionRequest}.
+   * @param isMajor true to major compact (prune all deletes, max versions, etc)
+   * @return Product of compaction or an empty list if all cells expired or deleted and nothing made
+   *         it through the compaction.
+   * @throws IOException
+   */
+  public List<Path> compactForTesting(final Collection<StoreFile> filesToCompact, boolean isMajor)
+      throws IOException {
+    CompactionRequest cr = new CompactionRequest(filesToCompact);
+    cr.setIsMajor(isMajor);
+    return this.compact(cr);
+  }
 }
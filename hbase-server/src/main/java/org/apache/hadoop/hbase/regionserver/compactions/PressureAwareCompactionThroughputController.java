@@ -0,0 +1,283 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.Chore;
+import org.apache.hadoop.hbase.regionserver.MetricsRegionServer;
+import org.apache.hadoop.hbase.regionserver.RegionServerServices;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.Threads;
+
+/**
+ * Limits the write throughput of the compactions of a region server, shared evenly between the
+ * compactions running at the same time. The limit is tuned periodically:
+ * <ul>
+ * <li>off-peak, it is the off-peak limit, unlimited by default;</li>
+ * <li>otherwise it goes from the lower bound to the higher bound as the compaction pressure of
+ * the region server grows, i.e. as the store files of its most loaded store approach
+ * hbase.hstore.blockingStoreFiles, and is lifted when updates are blocked;</li>
+ * <li>and it is lowered, not below the lower bound, in proportion to the average latency of
+ * the foreground requests over the last period when it exceeds the target latency.</li>
+ * </ul>
+ */
+@InterfaceAudience.Private
+public class PressureAwareCompactionThroughputController extends Configured implements
+    CompactionThroughputController {
+  private static final Log LOG =
+      LogFactory.getLog(PressureAwareCompactionThroughputController.class);
+
+  public static final String HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_HIGHER_BOUND =
+      "hbase.hstore.compaction.throughput.higher.bound";
+  private static final long DEFAULT_HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_HIGHER_BOUND =
+      20L * 1024 * 1024;
+
+  public static final String HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_LOWER_BOUND =
+      "hbase.hstore.compaction.throughput.lower.bound";
+  private static final long DEFAULT_HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_LOWER_BOUND =
+      10L * 1024 * 1024;
+
+  public static final String HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_OFFPEAK =
+      "hbase.hstore.compaction.throughput.offpeak";
+  private static final long DEFAULT_HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_OFFPEAK =
+      Long.MAX_VALUE;
+
+  public static final String HBASE_HSTORE_COMPACTION_LATENCY_TARGET =
+      "hbase.hstore.compaction.throughput.latency.target";
+  private static final long DEFAULT_HBASE_HSTORE_COMPACTION_LATENCY_TARGET = 50;
+
+  public static final String HBASE_HSTORE_COMPACTION_THROUGHPUT_TUNE_PERIOD =
+      "hbase.hstore.compaction.throughput.tune.period";
+  private static final int DEFAULT_HSTORE_COMPACTION_THROUGHPUT_TUNE_PERIOD = 60 * 1000;
+
+  public static final String HBASE_HSTORE_COMPACTION_THROUGHPUT_CONTROL_CHECK_INTERVAL =
+      "hbase.hstore.compaction.throughput.control.check.interval";
+
+  /**
+   * Stores the information of one controlled compaction.
+   */
+  private static final class ActiveCompaction {
+    private final long startTime;
+    private long lastControlTime;
+    private long lastControlSize;
+    private long totalSleepTime = 0;
+    private long numberOfSleeps = 0;
+
+    private ActiveCompaction() {
+      this.startTime = EnvironmentEdgeManager.currentTimeMillis();
+      this.lastControlTime = this.startTime;
+      this.lastControlSize = 0;
+    }
+  }
+
+  private long maxThroughputHigherBound;
+  private long maxThroughputLowerBound;
+  private long maxThroughputOffpeak;
+  private long latencyTarget;
+  private int tuningPeriod;
+  private long controlPerSize;
+  private OffPeakHours offPeakHours;
+
+  private RegionServerServices server;
+  private Chore tuner;
+  private volatile double maxThroughput;
+  private volatile boolean stopped = false;
+
+  /** The foreground request counters of the region server at the last tuning. */
+  private long lastRequestCount = 0;
+  private long lastRequestLatencyTotal = 0;
+
+  private final ConcurrentMap<String, ActiveCompaction> activeCompactions =
+      new ConcurrentHashMap<String, ActiveCompaction>();
+
+  @Override
+  public void setConf(Configuration conf) {
+    super.setConf(conf);
+    if (conf == null) {
+      return;
+    }
+    this.maxThroughputHigherBound = conf.getLong(
+        HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_HIGHER_BOUND,
+        DEFAULT_HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_HIGHER_BOUND);
+    this.maxThroughputLowerBound = Math.min(this.maxThroughputHigherBound, conf.getLong(
+        HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_LOWER_BOUND,
+        DEFAULT_HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_LOWER_BOUND));
+    this.maxThroughputOffpeak = conf.getLong(HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_OFFPEAK,
+        DEFAULT_HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_OFFPEAK);
+    this.latencyTarget = conf.getLong(HBASE_HSTORE_COMPACTION_LATENCY_TARGET,
+        DEFAULT_HBASE_HSTORE_COMPACTION_LATENCY_TARGET);
+    this.tuningPeriod = conf.getInt(HBASE_HSTORE_COMPACTION_THROUGHPUT_TUNE_PERIOD,
+        DEFAULT_HSTORE_COMPACTION_THROUGHPUT_TUNE_PERIOD);
+    // check every lower bound bytes by default, i.e. about once a second at the lower bound
+    this.controlPerSize = conf.getLong(HBASE_HSTORE_COMPACTION_THROUGHPUT_CONTROL_CHECK_INTERVAL,
+        this.maxThroughputLowerBound);
+    this.offPeakHours = OffPeakHours.getInstance(conf);
+    this.maxThroughput = this.maxThroughputLowerBound;
+    LOG.info("Compaction throughput configurations, higher bound: "
+        + throughputDesc(maxThroughputHigherBound) + ", lower bound "
+        + throughputDesc(maxThroughputLowerBound) + ", off peak: "
+        + throughputDesc(maxThroughputOffpeak) + ", latency target: " + latencyTarget
+        + " ms, tuning period: " + tuningPeriod + " ms");
+  }
+
+  @Override
+  public void setup(final RegionServerServices server) {
+    this.server = server;
+    this.tuner = new Chore("CompactionThroughputTuner", this.tuningPeriod, this) {
+      @Override
+      protected void chore() {
+        tune();
+      }
+    };
+    Threads.setDaemonThreadRunning(this.tuner.getThread());
+  }
+
+  /**
+   * Sets the limit from the off-peak hours, the compaction pressure and the foreground latency.
+   */
+  void tune() {
+    if (this.offPeakHours.isOffPeakHour()) {
+      setMaxThroughput(this.maxThroughputOffpeak);
+      return;
+    }
+    double compactionPressure = this.server.getCompactionPressure();
+    if (compactionPressure > 1.0) {
+      // updates are blocked, no limit
+      setMaxThroughput(Double.MAX_VALUE);
+      return;
+    }
+    double throughput = this.maxThroughputLowerBound
+        + (this.maxThroughputHigherBound - this.maxThroughputLowerBound) * compactionPressure;
+    double averageLatency = getAverageForegroundLatency();
+    if (this.latencyTarget > 0 && averageLatency > this.latencyTarget) {
+      throughput = Math.max(this.maxThroughputLowerBound,
+          throughput * this.latencyTarget / averageLatency);
+    }
+    setMaxThroughput(throughput);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Compaction pressure " + compactionPressure + ", average foreground latency "
+          + averageLatency + " ms, compaction throughput limit "
+          + throughputDesc(this.maxThroughput));
+    }
+  }
+
+  /**
+   * @return The average latency of the foreground requests since the last call, in
+   *         milliseconds; 0 if there were none.
+   */
+  private double getAverageForegroundLatency() {
+    MetricsRegionServer metrics = this.server.getMetrics();
+    if (metrics == null) {
+      return 0;
+    }
+    long requestCount = metrics.getForegroundRequestCount();
+    long latencyTotal = metrics.getForegroundLatencyTotal();
+    long requests = requestCount - this.lastRequestCount;
+    long latency = latencyTotal - this.lastRequestLatencyTotal;
+    this.lastRequestCount = requestCount;
+    this.lastRequestLatencyTotal = latencyTotal;
+    return requests > 0 ? (double) latency / requests : 0;
+  }
+
+  void setMaxThroughput(double maxThroughput) {
+    this.maxThroughput = maxThroughput;
+  }
+
+  double getMaxThroughput() {
+    return this.maxThroughput;
+  }
+
+  @Override
+  public void start(String compactionName) {
+    this.activeCompactions.put(compactionName, new ActiveCompaction());
+  }
+
+  @Override
+  public long control(String compactionName, long size) throws InterruptedException {
+    ActiveCompaction compaction = this.activeCompactions.get(compactionName);
+    if (compaction == null || size - compaction.lastControlSize < this.controlPerSize) {
+      return 0;
+    }
+    // the limit of the region server is shared between the running compactions
+    double maxThroughputPerCompaction = this.maxThroughput / this.activeCompactions.size();
+    long minTimeAllowed = (long) ((size - compaction.lastControlSize) * 1000
+        / maxThroughputPerCompaction);
+    long elapsedTime = EnvironmentEdgeManager.currentTimeMillis() - compaction.lastControlTime;
+    compaction.lastControlSize = size;
+    long sleepTime = 0;
+    if (elapsedTime < minTimeAllowed) {
+      sleepTime = minTimeAllowed - elapsedTime;
+      Thread.sleep(sleepTime);
+      compaction.numberOfSleeps++;
+      compaction.totalSleepTime += sleepTime;
+    }
+    compaction.lastControlTime = EnvironmentEdgeManager.currentTimeMillis();
+    return sleepTime;
+  }
+
+  @Override
+  public void finish(String compactionName) {
+    ActiveCompaction compaction = this.activeCompactions.remove(compactionName);
+    if (compaction == null) {
+      return;
+    }
+    long elapsedTime = Math.max(1,
+        EnvironmentEdgeManager.currentTimeMillis() - compaction.startTime);
+    LOG.info(compactionName + " average throughput is "
+        + throughputDesc(compaction.lastControlSize, elapsedTime) + ", slept "
+        + compaction.numberOfSleeps + " time(s) and total slept time is "
+        + compaction.totalSleepTime + " ms. " + this.activeCompactions.size()
+        + " active compactions remaining, total limit is " + throughputDesc(this.maxThroughput));
+  }
+
+  private static String throughputDesc(long deltaSize, long elapsedTime) {
+    return throughputDesc((double) deltaSize / elapsedTime * 1000);
+  }
+
+  private static String throughputDesc(double speed) {
+    if (speed >= Long.MAX_VALUE) {
+      return "unlimited";
+    }
+    return String.format("%.2f MB/sec", speed / 1024 / 1024);
+  }
+
+  @Override
+  public void stop(String why) {
+    this.stopped = true;
+  }
+
+  @Override
+  public boolean isStopped() {
+    return this.stopped;
+  }
+
+  @Override
+  public String toString() {
+    return "PressureAwareCompactionThroughputController [maxThroughput="
+        + throughputDesc(this.maxThroughput) + ", activeCompactions="
+        + this.activeCompactions.size() + "]";
+  }
+}
@@ -53,7 +53,7 @@ public class RatioBasedCompactionPolicy extends CompactionPolicy {
     super(conf, storeConfigInfo);
   }
 
-  private ArrayList<StoreFile> getCurrentEligibleFiles(
+  protected ArrayList<StoreFile> getCurrentEligibleFiles(
       ArrayList<StoreFile> candidateFiles, final List<StoreFile> filesCompacting) {
     // candidates = all storefiles not already in compaction queue
     if (!filesCompacting.isEmpty()) {
@@ -100,7 +100,9 @@ public class RatioBasedCompactionPolicy extends CompactionPolicy {
         ArrayList<StoreFile> expiredSelection = selectExpiredStoreFiles(
             candidateSelection, EnvironmentEdgeManager.currentTimeMillis() - cfTtl);
         if (expiredSelection != null) {
-          return new CompactionRequest(expiredSelection);
+          CompactionRequest result = new CompactionRequest(expiredSelection);
+          result.setAllFilesExpired(true);
+          return result;
         }
       }
       candidateSelection = skipLargeFiles(candidateSelection);
@@ -139,7 +141,7 @@ public class RatioBasedCompactionPolicy extends CompactionPolicy {
    * @return A CompactSelection contains the expired store files as
    *         filesToCompact
    */
-  private ArrayList<StoreFile> selectExpiredStoreFiles(
+  protected ArrayList<StoreFile> selectExpiredStoreFiles(
       ArrayList<StoreFile> candidates, long maxExpiredTimeStamp) {
     if (candidates == null || candidates.size() == 0) return null;
     ArrayList<StoreFile> expiredStoreFiles = null;
@@ -324,7 +326,7 @@ public class RatioBasedCompactionPolicy extends CompactionPolicy {
     }
     // TODO: Use better method for determining stamp of last major (HBASE-2990)
     long lowTimestamp = StoreUtils.getLowestTimestamp(filesToCompact);
-    long now = System.currentTimeMillis();
+    long now = EnvironmentEdgeManager.currentTimeMillis();
     if (lowTimestamp > 0l && lowTimestamp < (now - mcTime)) {
       // Major compaction time has elapsed.
       long cfTtl = this.storeConfigInfo.getStoreFileTtl();
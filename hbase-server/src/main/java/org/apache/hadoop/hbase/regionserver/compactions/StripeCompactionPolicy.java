@@ -0,0 +1,409 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.apache.hadoop.hbase.regionserver.StripeStoreFileManager.OPEN_KEY;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreUtils;
+import org.apache.hadoop.hbase.regionserver.StripeStoreConfig;
+import org.apache.hadoop.hbase.regionserver.StripeStoreFileManager;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Stripe store implementation of compaction policy. In order of preference, compacts:
+ * <ol>
+ * <li>all the files of a store with references, as left by a region split, into new
+ * stripes;</li>
+ * <li>the files of L0 into the current stripes, or into the initial stripes if there are
+ * none;</li>
+ * <li>the files of the stripe with the most files; a stripe that grew too large is split into
+ * several.</li>
+ * </ol>
+ * A compaction of all the files of a stripe while L0 is empty drops the deletes, as all the
+ * data of its rows is in the stripe, so regular major compactions of the whole store are not
+ * needed. Compactions of different stripes may run at the same time; L0 is only compacted while
+ * nothing else is.
+ */
+@InterfaceAudience.Private
+public class StripeCompactionPolicy extends CompactionPolicy {
+  private static final Log LOG = LogFactory.getLog(StripeCompactionPolicy.class);
+
+  private final Configuration conf;
+  private final StripeStoreConfig config;
+
+  public StripeCompactionPolicy(
+      Configuration conf, StoreConfigInformation storeConfigInfo, StripeStoreConfig config) {
+    super(conf, storeConfigInfo);
+    this.conf = conf;
+    this.config = config;
+  }
+
+  /**
+   * The stripes of a store, as the policy sees them.
+   */
+  public interface StripeInformationProvider {
+    /** @return All the files of the store. */
+    Collection<StoreFile> getStorefiles();
+
+    /** @return The start row of the stripe; an empty array if it is the first one. */
+    byte[] getStartRow(int stripeIndex);
+
+    /** @return The end row of the stripe; an empty array if it is the last one. */
+    byte[] getEndRow(int stripeIndex);
+
+    /** @return The files in L0. */
+    List<StoreFile> getLevel0Files();
+
+    /** @return The start rows of all the stripes and the end row of the last; empty if none. */
+    List<byte[]> getStripeBoundaries();
+
+    /** @return The files of each stripe. */
+    List<ImmutableList<StoreFile>> getStripes();
+
+    /** @return The number of stripes. */
+    int getStripeCount();
+  }
+
+  /**
+   * @return All the files that are not compacting, which a coprocessor may select from.
+   */
+  public List<StoreFile> preSelectFilesForCoprocessor(
+      StripeInformationProvider si, List<StoreFile> filesCompacting) {
+    List<StoreFile> candidates = new ArrayList<StoreFile>(si.getStorefiles());
+    candidates.removeAll(filesCompacting);
+    return candidates;
+  }
+
+  /**
+   * Creates a request to compact files selected otherwise than by the policy, as by a
+   * coprocessor: into the current stripes, or into the initial stripes if there are none.
+   */
+  public StripeCompactionRequest createEmptyRequest(
+      StripeInformationProvider si, CompactionRequest request) {
+    if (si.getStripeCount() > 0) {
+      return new BoundaryStripeCompactionRequest(request, si.getStripeBoundaries());
+    }
+    return new SplitStripeCompactionRequest(request, OPEN_KEY, OPEN_KEY,
+        config.getInitialCount(), getTargetKvs(request.getFiles(), config.getInitialCount()));
+  }
+
+  /**
+   * @param si The stripes of the store.
+   * @param filesCompacting The files compacting.
+   * @param isOffpeak Whether it is off-peak hours.
+   * @return The compaction to run, or null if none is needed.
+   */
+  public StripeCompactionRequest selectCompaction(StripeInformationProvider si,
+      List<StoreFile> filesCompacting, boolean isOffpeak) throws IOException {
+    Collection<StoreFile> allFiles = si.getStorefiles();
+    if (StoreUtils.hasReferences(allFiles)) {
+      if (!filesCompacting.isEmpty()) {
+        return null;
+      }
+      LOG.debug("There are references in the store; compacting all files");
+      SplitStripeCompactionRequest request = new SplitStripeCompactionRequest(allFiles,
+          OPEN_KEY, OPEN_KEY, config.getInitialCount(),
+          getTargetKvs(allFiles, config.getInitialCount()));
+      request.setDropDeletes(true);
+      return request;
+    }
+
+    List<StoreFile> level0Files = si.getLevel0Files();
+    if (level0Files.size() >= config.getLevel0MinFiles()) {
+      if (!filesCompacting.isEmpty()) {
+        return null;
+      }
+      LOG.debug("Compacting " + level0Files.size() + " file(s) of L0 into "
+          + (si.getStripeCount() > 0 ? si.getStripeCount() + " stripe(s)" : "new stripes"));
+      return createEmptyRequest(si, new CompactionRequest(level0Files));
+    }
+    if (!Collections.disjoint(level0Files, filesCompacting)) {
+      return null;
+    }
+    return selectStripeCompaction(si, filesCompacting, level0Files.isEmpty());
+  }
+
+  /**
+   * Selects the stripe with the most files that is not compacting.
+   */
+  private StripeCompactionRequest selectStripeCompaction(StripeInformationProvider si,
+      List<StoreFile> filesCompacting, boolean canDropDeletes) {
+    List<ImmutableList<StoreFile>> stripes = si.getStripes();
+    int bestIndex = -1;
+    boolean bestNeedsSplit = false;
+    for (int i = 0; i < stripes.size(); ++i) {
+      List<StoreFile> stripe = stripes.get(i);
+      if (stripe.isEmpty() || !Collections.disjoint(stripe, filesCompacting)) {
+        continue;
+      }
+      boolean needsSplit = needsSplit(stripe);
+      if (!needsSplit && stripe.size() < config.getStripeCompactMinFiles()) {
+        continue;
+      }
+      if (bestIndex < 0 || (needsSplit && !bestNeedsSplit)
+          || (needsSplit == bestNeedsSplit && stripe.size() > stripes.get(bestIndex).size())) {
+        bestIndex = i;
+        bestNeedsSplit = needsSplit;
+      }
+    }
+    if (bestIndex < 0) {
+      return null;
+    }
+
+    List<StoreFile> stripe = stripes.get(bestIndex);
+    byte[] startRow = si.getStartRow(bestIndex);
+    byte[] endRow = si.getEndRow(bestIndex);
+    StripeCompactionRequest request;
+    if (bestNeedsSplit) {
+      LOG.debug("Splitting stripe " + bestIndex + " with " + stripe.size() + " file(s) into "
+          + config.getSplitCount());
+      request = new SplitStripeCompactionRequest(stripe, startRow, endRow,
+          config.getSplitCount(), getTargetKvs(stripe, config.getSplitCount()));
+    } else {
+      // the newest files, compacting the same old large files over and over again otherwise
+      List<StoreFile> files = stripe.subList(
+          Math.max(0, stripe.size() - config.getStripeCompactMaxFiles()), stripe.size());
+      LOG.debug("Compacting " + files.size() + " of the " + stripe.size()
+          + " file(s) of stripe " + bestIndex);
+      List<byte[]> boundaries = new ArrayList<byte[]>(2);
+      boundaries.add(startRow);
+      boundaries.add(endRow);
+      request = new BoundaryStripeCompactionRequest(files, boundaries);
+    }
+    request.setDropDeletes(
+        canDropDeletes && request.getRequest().getFiles().size() == stripe.size());
+    return request;
+  }
+
+  /**
+   * @return Whether some compaction is needed.
+   */
+  public boolean needsCompactions(StripeInformationProvider si, List<StoreFile> filesCompacting) {
+    if (StoreUtils.hasReferences(si.getStorefiles())) {
+      return filesCompacting.isEmpty();
+    }
+    List<StoreFile> level0Files = si.getLevel0Files();
+    if (level0Files.size() >= config.getLevel0MinFiles()) {
+      return filesCompacting.isEmpty();
+    }
+    if (!Collections.disjoint(level0Files, filesCompacting)) {
+      return false;
+    }
+    for (List<StoreFile> stripe : si.getStripes()) {
+      if (!stripe.isEmpty() && Collections.disjoint(stripe, filesCompacting)
+          && (stripe.size() >= config.getStripeCompactMinFiles() || needsSplit(stripe))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Lays the files out into stripes from their file info, as the store does when it opens, and
+   * checks them as {@link #needsCompactions(StripeInformationProvider, List)} does. The stripe
+   * store engine passes its own stripes instead.
+   */
+  @Override
+  public boolean needsCompaction(Collection<StoreFile> storeFiles,
+      List<StoreFile> filesCompacting) {
+    StripeStoreFileManager stripes = new StripeStoreFileManager(KeyValue.COMPARATOR, conf);
+    stripes.loadFiles(new ArrayList<StoreFile>(storeFiles));
+    return needsCompactions(stripes, filesCompacting);
+  }
+
+  /**
+   * The stripes drop the deletes as they are compacted, so the store never needs a major
+   * compaction.
+   */
+  @Override
+  public boolean isMajorCompaction(Collection<StoreFile> filesToCompact) throws IOException {
+    return false;
+  }
+
+  @Override
+  public boolean throttleCompaction(long compactionSize) {
+    return compactionSize > comConf.getThrottlePoint();
+  }
+
+  /**
+   * @return Whether the stripe is too large and can be split, which needs at least two rows.
+   */
+  private boolean needsSplit(List<StoreFile> stripe) {
+    if (getTotalFileSize(stripe) <= config.getSplitSize()) {
+      return false;
+    }
+    if (stripe.size() > 1) {
+      return true;
+    }
+    StoreFile.Reader r = stripe.get(0).getReader();
+    if (r == null || r.getFirstKey() == null || r.getLastKey() == null) {
+      return false;
+    }
+    return !Bytes.equals(KeyValue.createKeyValueFromKey(r.getFirstKey()).getRow(),
+        KeyValue.createKeyValueFromKey(r.getLastKey()).getRow());
+  }
+
+  private static long getTotalFileSize(Collection<StoreFile> files) {
+    long size = 0;
+    for (StoreFile sf : files) {
+      StoreFile.Reader r = sf.getReader();
+      if (r != null) {
+        size += r.length();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return The number of key values to write in each of the given number of files.
+   */
+  private static long getTargetKvs(Collection<StoreFile> files, int fileCount) {
+    long kvCount = 0;
+    for (StoreFile sf : files) {
+      StoreFile.Reader r = sf.getReader();
+      if (r != null) {
+        kvCount += r.getEntries();
+      }
+    }
+    return Math.max(1, kvCount / fileCount);
+  }
+
+  /**
+   * A compaction of the stripe store: the compaction request and the way to run it.
+   */
+  public abstract static class StripeCompactionRequest {
+    protected CompactionRequest request;
+    protected boolean dropDeletes = false;
+
+    protected StripeCompactionRequest(CompactionRequest request) {
+      this.request = request;
+    }
+
+    /**
+     * Runs the compaction.
+     * @param compactor The compactor.
+     * @param throughputController Limits the write throughput of the compaction.
+     * @return The new files.
+     */
+    public abstract List<Path> execute(StripeCompactor compactor,
+        CompactionThroughputController throughputController) throws IOException;
+
+    public CompactionRequest getRequest() {
+      return this.request;
+    }
+
+    public void setRequest(CompactionRequest request) {
+      this.request = request;
+    }
+
+    /**
+     * @param dropDeletes Whether the compaction has all the data of the rows it writes, and may
+     *          drop the deletes.
+     */
+    public void setDropDeletes(boolean dropDeletes) {
+      this.dropDeletes = dropDeletes;
+    }
+  }
+
+  /**
+   * A compaction that writes into the given stripes, as L0 compactions or compactions within
+   * a stripe do.
+   */
+  public static class BoundaryStripeCompactionRequest extends StripeCompactionRequest {
+    private final List<byte[]> targetBoundaries;
+
+    /**
+     * @param request The compaction request.
+     * @param targetBoundaries The start rows of the stripes to write and the end row of the
+     *          last one.
+     */
+    public BoundaryStripeCompactionRequest(CompactionRequest request,
+        List<byte[]> targetBoundaries) {
+      super(request);
+      this.targetBoundaries = targetBoundaries;
+    }
+
+    public BoundaryStripeCompactionRequest(Collection<StoreFile> files,
+        List<byte[]> targetBoundaries) {
+      this(new CompactionRequest(files), targetBoundaries);
+    }
+
+    @Override
+    public List<Path> execute(StripeCompactor compactor,
+        CompactionThroughputController throughputController) throws IOException {
+      return compactor.compact(this.request, this.targetBoundaries, this.dropDeletes,
+          throughputController);
+    }
+  }
+
+  /**
+   * A compaction that writes the rows between a start and an end row into new stripes of about
+   * the same number of key values.
+   */
+  public static class SplitStripeCompactionRequest extends StripeCompactionRequest {
+    private final byte[] startRow;
+    private final byte[] endRow;
+    private final int targetCount;
+    private final long targetKvs;
+
+    /**
+     * @param request The compaction request.
+     * @param startRow The start row of the first new stripe.
+     * @param endRow The end row of the last new stripe.
+     * @param targetCount The most stripes to write.
+     * @param targetKvs The number of key values to write in each stripe but the last.
+     */
+    public SplitStripeCompactionRequest(CompactionRequest request, byte[] startRow,
+        byte[] endRow, int targetCount, long targetKvs) {
+      super(request);
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.targetCount = targetCount;
+      this.targetKvs = targetKvs;
+    }
+
+    public SplitStripeCompactionRequest(Collection<StoreFile> files, byte[] startRow,
+        byte[] endRow, int targetCount, long targetKvs) {
+      this(new CompactionRequest(files), startRow, endRow, targetCount, targetKvs);
+    }
+
+    @Override
+    public List<Path> execute(StripeCompactor compactor,
+        CompactionThroughputController throughputController) throws IOException {
+      return compactor.compact(this.request, this.targetCount, this.targetKvs, this.startRow,
+          this.endRow, this.dropDeletes, throughputController);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.ScanType;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFileScanner;
+import org.apache.hadoop.hbase.regionserver.StripeMultiFileWriter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Compacts the files of a stripe store into one file per stripe, see
+ * {@link StripeMultiFileWriter}.
+ */
+@InterfaceAudience.Private
+public class StripeCompactor extends Compactor {
+  private static final Log LOG = LogFactory.getLog(StripeCompactor.class);
+
+  public StripeCompactor(Configuration conf, Store store) {
+    super(conf, store);
+  }
+
+  /**
+   * Compacts files into the given stripes.
+   * @param request The compaction request.
+   * @param targetBoundaries The start rows of the stripes and the end row of the last one.
+   * @param dropDeletes Whether to drop the deletes.
+   * @param throughputController Limits the write throughput of the compaction.
+   * @return The new files.
+   */
+  public List<Path> compact(CompactionRequest request, List<byte[]> targetBoundaries,
+      boolean dropDeletes, CompactionThroughputController throughputController)
+      throws IOException {
+    if (LOG.isDebugEnabled()) {
+      StringBuilder sb = new StringBuilder();
+      for (byte[] boundary : targetBoundaries) {
+        sb.append(" [").append(Bytes.toStringBinary(boundary)).append("]");
+      }
+      LOG.debug("Compacting into the stripes with boundaries" + sb);
+    }
+    StripeMultiFileWriter writer = new StripeMultiFileWriter.BoundaryMultiWriter(
+        targetBoundaries);
+    return compactInternal(writer, request, dropDeletes, throughputController);
+  }
+
+  /**
+   * Compacts the files between two rows into new stripes of about the same size.
+   * @param request The compaction request.
+   * @param targetCount The most stripes to write.
+   * @param targetKvs The number of key values to write into each stripe but the last.
+   * @param left The start row of the first stripe.
+   * @param right The end row of the last stripe.
+   * @param dropDeletes Whether to drop the deletes.
+   * @param throughputController Limits the write throughput of the compaction.
+   * @return The new files.
+   */
+  public List<Path> compact(CompactionRequest request, int targetCount, long targetKvs,
+      byte[] left, byte[] right, boolean dropDeletes,
+      CompactionThroughputController throughputController) throws IOException {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Compacting into up to " + targetCount + " stripes of " + targetKvs
+          + " key values in [" + Bytes.toStringBinary(left) + "], ["
+          + Bytes.toStringBinary(right) + "]");
+    }
+    StripeMultiFileWriter writer = new StripeMultiFileWriter.SizeMultiWriter(
+        targetCount, targetKvs, left, right);
+    return compactInternal(writer, request, dropDeletes, throughputController);
+  }
+
+  private List<Path> compactInternal(StripeMultiFileWriter mw, CompactionRequest request,
+      boolean dropDeletes, CompactionThroughputController throughputController)
+      throws IOException {
+    final Collection<StoreFile> filesToCompact = request.getFiles();
+    final FileDetails fd = getFileDetails(filesToCompact, dropDeletes);
+    this.progress = new CompactionProgress(fd.maxKeyCount);
+
+    long smallestReadPoint = setSmallestReadPoint();
+    List<StoreFileScanner> scanners = createFileScanners(filesToCompact);
+
+    boolean finished = false;
+    InternalScanner scanner = null;
+    try {
+      ScanType scanType =
+          dropDeletes ? ScanType.COMPACT_DROP_DELETES : ScanType.COMPACT_RETAIN_DELETES;
+      scanner = preCreateCoprocScanner(request, scanType, fd.earliestPutTs, scanners);
+      if (scanner == null) {
+        scanner = createScanner(store, scanners, scanType, smallestReadPoint, fd.earliestPutTs);
+      }
+      scanner = postCreateCoprocScanner(request, scanType, scanner);
+      if (scanner == null) {
+        // NULL scanner returned from coprocessor hooks means skip normal processing.
+        return new ArrayList<Path>();
+      }
+
+      // Create the writers even if no kv (empty store files are also ok),
+      // because we need to record the max seq id for the store files, see HBASE-6059
+      final Compression.Algorithm compression = this.compactionCompression;
+      final boolean needMvcc = fd.maxMVCCReadpoint >= smallestReadPoint;
+      mw.init(new StripeMultiFileWriter.WriterFactory() {
+        @Override
+        public StoreFile.Writer createWriter() throws IOException {
+          return store.createWriterInTmp(fd.maxKeyCount, compression, true, needMvcc);
+        }
+      });
+
+      // the scanner closes the store file scanners, or they are closed below if none is created
+      scanners = null;
+      finished = performCompaction(scanner, mw, smallestReadPoint, throughputController);
+      if (!finished) {
+        throw new InterruptedIOException("Aborting compaction of store " + store
+            + " in region " + store.getRegionInfo().getRegionNameAsString()
+            + " because it was interrupted.");
+      }
+    } finally {
+      if (scanner != null) {
+        try {
+          scanner.close();
+        } catch (Throwable t) {
+          // Don't fail the compaction if this fails.
+          LOG.error("Failed to close the scanner after compaction.", t);
+        }
+      } else if (scanners != null) {
+        for (StoreFileScanner sfs : scanners) {
+          sfs.close();
+        }
+      }
+      if (!finished) {
+        for (Path leftoverFile : mw.abortWriters()) {
+          try {
+            store.getFileSystem().delete(leftoverFile, false);
+          } catch (Exception ex) {
+            LOG.error("Failed to delete the leftover file " + leftoverFile
+                + " after an unfinished compaction.", ex);
+          }
+        }
+      }
+    }
+
+    assert finished : "We should have exited the method on all error paths";
+    List<Path> newFiles = mw.commitWriters(fd.maxSeqId, dropDeletes);
+    assert !newFiles.isEmpty() : "Should have produced an empty file to preserve metadata.";
+    return newFiles;
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.hadoop.hbase.executor.EventHandler;
 import org.apache.hadoop.hbase.executor.EventType;
 import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
 import org.apache.hadoop.hbase.regionserver.MultiVersionConsistencyControl;
+import org.apache.hadoop.hbase.regionserver.ServerSideScanMetrics;
 
 /**
  * Handler to seek storefiles in parallel.
@@ -40,6 +41,7 @@ public class ParallelSeekHandler extends EventHandler {
   private KeyValue keyValue;
   private long readPoint;
   private CountDownLatch latch;
+  private ServerSideScanMetrics scanMetrics;
   private Throwable err = null;
 
   public ParallelSeekHandler(KeyValueScanner scanner,KeyValue keyValue,
@@ -49,17 +51,20 @@ public class ParallelSeekHandler extends EventHandler {
     this.keyValue = keyValue;
     this.readPoint = readPoint;
     this.latch = latch;
+    this.scanMetrics = ServerSideScanMetrics.getThreadScanMetrics();
   }
 
   @Override
   public void process() {
     try {
       MultiVersionConsistencyControl.setThreadReadPoint(readPoint);
+      ServerSideScanMetrics.setThreadScanMetrics(scanMetrics);
       scanner.seek(keyValue);
     } catch (IOException e) {
       LOG.error("", e);
       setErr(e);
     } finally {
+      ServerSideScanMetrics.setThreadScanMetrics(null);
       latch.countDown();
     }
   }
@@ -0,0 +1,261 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hbase.util;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+/**
+ * A <i>blocked</i> Bloom filter, which sets all the bits of a key in one
+ * block of {@link #BLOCK_BYTES} bytes, the size of a cache line, rather than
+ * all over the filter. A lookup hashes the key once and touches one cache
+ * line, where a {@link ByteBloomFilter} hashes it twice and touches up to one
+ * cache line a hash function.
+ * <p>
+ * The keys do not spread evenly over the blocks, so a blocked filter has a
+ * somewhat higher false positive rate than a classic one of the same size.
+ * The filter is sized for the target error rate taking this into account,
+ * holding a few percent fewer keys than a classic filter would.
+ * <p>
+ * Folding keeps blocks whole, folding blocks onto blocks. Only used as the
+ * chunks of a {@link CompoundBloomFilter}.
+ *
+ * @see <a href="http://algo2.iti.kit.edu/documents/cacheefficientbloomfilters-jea.pdf">
+ *      Cache-, Hash- and Space-Efficient Bloom Filters</a>
+ */
+@InterfaceAudience.Private
+public class BlockedByteBloomFilter extends ByteBloomFilter {
+
+  /** The size of the block the bits of a key are set in: a cache line */
+  public static final int BLOCK_BYTES = 64;
+
+  private static final int BLOCK_BITS = BLOCK_BYTES * 8;
+
+  private static final int BLOCK_BIT_MASK = BLOCK_BITS - 1;
+
+  /** Added to the hash before deriving each bit from it */
+  private static final int GOLDEN_RATIO = 0x9e3779b9;
+
+  /** The most hash functions a filter is sized for */
+  private static final int MAX_HASH_COUNT = 16;
+
+  private BlockedByteBloomFilter(int hashType) {
+    super(hashType);
+  }
+
+  /**
+   * Increases the given byte size of a blocked Bloom filter until it can be
+   * folded by the given factor, or by as much as a filter of about that size
+   * can be folded, keeping blocks whole.
+   *
+   * @param byteSizeHint
+   * @param foldFactor
+   * @return Foldable byte size
+   */
+  public static int computeBlockedByteSize(int byteSizeHint, int foldFactor) {
+    long unit = BLOCK_BYTES;
+    while (foldFactor-- > 0 && unit << 1 <= byteSizeHint) {
+      unit <<= 1;
+    }
+    long byteSizeLong = Math.max(1, (byteSizeHint + unit - 1) / unit) * unit;
+    if (byteSizeLong > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("byteSize=" + byteSizeLong + " too "
+          + "large for byteSizeHint=" + byteSizeHint + ", foldFactor="
+          + foldFactor);
+    }
+    return (int) byteSizeLong;
+  }
+
+  /**
+   * The false positive rate of a blocked Bloom filter. The number of keys in
+   * a block follows a Poisson distribution, and a lookup is as likely to be a
+   * false positive as one in a classic Bloom filter of the size of a block
+   * holding that many keys.
+   *
+   * @param keysPerBlock the average number of keys in a block
+   * @param hashCount
+   * @return the false positive rate
+   */
+  public static double blockedErrorRate(double keysPerBlock, int hashCount) {
+    double errorRate = 0;
+    // in logarithms, not to underflow with many keys a block
+    double logProbability = -keysPerBlock;
+    double logKeysPerBlock = Math.log(keysPerBlock);
+    // the approximation of actualErrorRate is too optimistic this small
+    double logBitUnset = Math.log(1 - 1.0 / BLOCK_BITS) * hashCount;
+    int maxKeysInBlock =
+        (int) (keysPerBlock + 10 * Math.sqrt(keysPerBlock)) + 10;
+    for (int keys = 1; keys <= maxKeysInBlock; keys++) {
+      logProbability += logKeysPerBlock - Math.log(keys);
+      errorRate += Math.exp(logProbability)
+          * Math.pow(1 - Math.exp(logBitUnset * keys), hashCount);
+    }
+    return errorRate;
+  }
+
+  /**
+   * The maximum number of keys we can put into a blocked Bloom filter of a
+   * certain size to get the given error rate, with the given number of hash
+   * functions.
+   *
+   * @param bitSize
+   * @param errorRate
+   * @param hashCount
+   * @return the maximum number of keys, or 0 if not even one key can be
+   *         inserted at the target error rate
+   */
+  public static int computeBlockedMaxKeys(long bitSize, double errorRate,
+      int hashCount) {
+    // never more than a classic Bloom filter of the same size holds
+    long low = 0;
+    long high = Math.min(Integer.MAX_VALUE, idealMaxKeys(bitSize, errorRate));
+    while (low < high) {
+      long mid = (low + high + 1) >>> 1;
+      if (blockedErrorRate(mid * 1.0 * BLOCK_BITS / bitSize, hashCount)
+          <= errorRate) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return (int) low;
+  }
+
+  /**
+   * Creates a blocked Bloom filter of the given size, with the number of
+   * hash functions that lets it hold the most keys at the given error rate.
+   *
+   * @param byteSizeHint the desired number of bytes for the Bloom filter bit
+   *          array. Will be increased so that folding is possible.
+   * @param errorRate target false positive rate of the Bloom filter
+   * @param hashType Bloom filter hash function type
+   * @param foldFactor
+   * @return the new Bloom filter of the desired size
+   */
+  public static BlockedByteBloomFilter createBySize(int byteSizeHint,
+      double errorRate, int hashType, int foldFactor) {
+    BlockedByteBloomFilter bbf = new BlockedByteBloomFilter(hashType);
+
+    bbf.byteSize = computeBlockedByteSize(byteSizeHint, foldFactor);
+    long bitSize = bbf.byteSize * 8;
+    bbf.maxKeys = 0;
+    bbf.hashCount = MAX_HASH_COUNT;
+    for (int hashCount = 1; hashCount <= MAX_HASH_COUNT; hashCount++) {
+      int maxKeys = computeBlockedMaxKeys(bitSize, errorRate, hashCount);
+      if (maxKeys > bbf.maxKeys) {
+        bbf.maxKeys = maxKeys;
+        bbf.hashCount = hashCount;
+      }
+    }
+    // a filter too small for the error rate still takes a key at a time
+    bbf.maxKeys = Math.max(1, bbf.maxKeys);
+
+    return bbf;
+  }
+
+  @Override
+  public BlockedByteBloomFilter createAnother() {
+    BlockedByteBloomFilter bbf = new BlockedByteBloomFilter(hashType);
+    bbf.byteSize = byteSize;
+    bbf.hashCount = hashCount;
+    bbf.maxKeys = maxKeys;
+    return bbf;
+  }
+
+  @Override
+  public double actualErrorRate() {
+    return blockedErrorRate(keyCount * 1.0 * BLOCK_BITS / (byteSize * 8),
+        hashCount);
+  }
+
+  @Override
+  protected int getFoldUnit() {
+    return BLOCK_BYTES;
+  }
+
+  @Override
+  public void add(byte[] buf, int offset, int len) {
+    int keyHash = hash.hash(buf, offset, len, 0);
+    int blockBitOffset = getBlock(keyHash, (int) byteSize) * BLOCK_BITS;
+    int bitHash = keyHash;
+    for (int i = 0; i < hashCount; i++) {
+      bitHash = mix(bitHash + GOLDEN_RATIO);
+      set(blockBitOffset + (bitHash & BLOCK_BIT_MASK));
+    }
+
+    ++keyCount;
+  }
+
+  @Override
+  public boolean contains(byte[] buf, int offset, int length,
+      ByteBuffer theBloom) {
+    if (theBloom == null) {
+      theBloom = bloom;
+    }
+
+    if (theBloom.limit() != byteSize) {
+      throw new IllegalArgumentException("Bloom does not match expected size:"
+          + " theBloom.limit()=" + theBloom.limit() + ", byteSize=" + byteSize);
+    }
+
+    return contains(buf, offset, length, theBloom.array(),
+        theBloom.arrayOffset(), (int) byteSize, hash, hashCount);
+  }
+
+  public static boolean contains(byte[] buf, int offset, int length,
+      byte[] bloomArray, int bloomOffset, int bloomSize, Hash hash,
+      int hashCount) {
+    int keyHash = hash.hash(buf, offset, length, 0);
+    int blockBitOffset = getBlock(keyHash, bloomSize) * BLOCK_BITS;
+    int bitHash = keyHash;
+    for (int i = 0; i < hashCount; i++) {
+      bitHash = mix(bitHash + GOLDEN_RATIO);
+      if (!get(blockBitOffset + (bitHash & BLOCK_BIT_MASK), bloomArray,
+          bloomOffset)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The block of a key. Taking the hash modulo the number of blocks keeps
+   * the keys of blocks folded together in the block they are folded into.
+   */
+  private static int getBlock(int keyHash, int bloomSize) {
+    return (int) ((keyHash & 0xffffffffL) % (bloomSize / BLOCK_BYTES));
+  }
+
+  /**
+   * Derives the bits within the block from the hash of the key, so that the
+   * key is hashed only once. The finalization step of MurmurHash3, applied
+   * once a bit: combining two hashes as {@link ByteBloomFilter} does sets
+   * bits too much alike within a block this small.
+   */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -81,6 +81,28 @@ public final class BloomFilterFactory {
   public static final String IO_STOREFILE_BLOOM_BLOCK_SIZE =
       "io.storefile.bloom.block.size";
 
+  /**
+   * Whether to write blocked Bloom filters, which set and test all the bits
+   * of a key in one cache line. Can be set per column family.
+   */
+  public static final String IO_STOREFILE_BLOOM_BLOCKED =
+      "io.storefile.bloom.blocked";
+
+  /**
+   * The length of the row prefix ROWPREFIX Bloom filters are keyed on. Set
+   * either this or {@link #IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER} in the
+   * column family configuration.
+   */
+  public static final String IO_STOREFILE_BLOOM_ROWPREFIX_LENGTH =
+      "io.storefile.bloom.rowprefix.length";
+
+  /**
+   * The delimiter ending the row prefix ROWPREFIX Bloom filters are keyed on,
+   * in the escaped form of {@link Bytes#toBytesBinary(String)}.
+   */
+  public static final String IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER =
+      "io.storefile.bloom.rowprefix.delimiter";
+
   /** Maximum number of times a Bloom filter can be "folded" if oversized */
   private static final int MAX_ALLOWED_FOLD_FACTOR = 7;
 
@@ -109,6 +131,9 @@ public final class BloomFilterFactory {
       case CompoundBloomFilterBase.VERSION:
         return new CompoundBloomFilter(meta, reader);
 
+      case CompoundBloomFilterBase.BLOCKED_VERSION:
+        return new CompoundBloomFilter(meta, reader, true);
+
       default:
         throw new IllegalArgumentException(
           "Bad bloom filter format version " + version
@@ -150,6 +175,14 @@ public final class BloomFilterFactory {
     return conf.getInt(IO_STOREFILE_BLOOM_BLOCK_SIZE, 128 * 1024);
   }
 
+  /**
+   * @return true if Bloom filters are to be written blocked in the given
+   * configuration
+   */
+  public static boolean isBlockedBloom(Configuration conf) {
+    return conf.getBoolean(IO_STOREFILE_BLOOM_BLOCKED, false);
+  }
+
   /**
   * @return max key for the Bloom filter from the configuration
   */
@@ -202,7 +235,8 @@ public final class BloomFilterFactory {
       CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(
           getBloomBlockSize(conf), err, Hash.getHashType(conf), maxFold,
           cacheConf.shouldCacheBloomsOnWrite(), bloomType == BloomType.ROWCOL
-              ? KeyValue.KEY_COMPARATOR : Bytes.BYTES_RAWCOMPARATOR);
+              ? KeyValue.KEY_COMPARATOR : Bytes.BYTES_RAWCOMPARATOR,
+          isBlockedBloom(conf));
       writer.addInlineBlockWriter(bloomWriter);
       return bloomWriter;
     } else {
@@ -256,7 +290,8 @@ public final class BloomFilterFactory {
       CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(
           getBloomBlockSize(conf), err, Hash.getHashType(conf),
           maxFold,
-          cacheConf.shouldCacheBloomsOnWrite(), Bytes.BYTES_RAWCOMPARATOR);
+          cacheConf.shouldCacheBloomsOnWrite(), Bytes.BYTES_RAWCOMPARATOR,
+          isBlockedBloom(conf));
       writer.addInlineBlockWriter(bloomWriter);
       return bloomWriter;
     } else {
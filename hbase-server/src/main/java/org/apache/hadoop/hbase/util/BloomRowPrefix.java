@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Scan;
+
+/**
+ * The prefix of the row that
+ * {@link org.apache.hadoop.hbase.regionserver.BloomType#ROWPREFIX} Bloom
+ * filters are keyed on: either the first bytes of the row up to a fixed
+ * length, or the bytes of the row before the first occurrence of a delimiter.
+ * Rows shorter than the length, or without the delimiter, are keyed on as a
+ * whole.
+ * <p>
+ * The prefix of a prefix is the prefix itself, so a prefix can be looked up
+ * as a row.
+ */
+@InterfaceAudience.Private
+public final class BloomRowPrefix {
+  private static final String LENGTH = "length=";
+  private static final String DELIMITER = "delimiter=";
+
+  /** The length of the prefix, or 0 if delimited */
+  private final int fixedLength;
+  /** The delimiter ending the prefix, or null if of a fixed length */
+  private final byte[] delimiter;
+
+  private BloomRowPrefix(int fixedLength, byte[] delimiter) {
+    this.fixedLength = fixedLength;
+    this.delimiter = delimiter;
+  }
+
+  /**
+   * @param length the length of the prefix
+   * @return the prefix of the first bytes of the row
+   */
+  public static BloomRowPrefix fixedLength(int length) {
+    if (length <= 0) {
+      throw new IllegalArgumentException("Invalid row prefix length: " + length);
+    }
+    return new BloomRowPrefix(length, null);
+  }
+
+  /**
+   * @param delimiter the bytes ending the prefix, not part of it
+   * @return the prefix of the bytes of the row before the delimiter
+   */
+  public static BloomRowPrefix delimited(byte[] delimiter) {
+    if (delimiter == null || delimiter.length == 0) {
+      throw new IllegalArgumentException("Empty row prefix delimiter");
+    }
+    return new BloomRowPrefix(0, delimiter.clone());
+  }
+
+  /**
+   * @param conf the configuration of the column family
+   * @return the row prefix set with
+   *         {@link BloomFilterFactory#IO_STOREFILE_BLOOM_ROWPREFIX_LENGTH} or
+   *         {@link BloomFilterFactory#IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER}
+   *         in the configuration, or null if neither is set
+   * @throws IllegalArgumentException if both are set, or to invalid values
+   */
+  public static BloomRowPrefix fromConf(Configuration conf) {
+    String length = conf.get(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_LENGTH, "");
+    String delimiter = conf.get(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER, "");
+    if (!length.isEmpty() && !delimiter.isEmpty()) {
+      throw new IllegalArgumentException("Both a row prefix length and a row "
+          + "prefix delimiter configured");
+    } else if (!length.isEmpty()) {
+      try {
+        return fixedLength(Integer.parseInt(length.trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid row prefix length: " + length, e);
+      }
+    } else if (!delimiter.isEmpty()) {
+      return delimited(Bytes.toBytesBinary(delimiter));
+    }
+    return null;
+  }
+
+  /**
+   * @return the row prefix as stored in the file info
+   */
+  public byte[] toBytes() {
+    return Bytes.toBytes(toString());
+  }
+
+  /**
+   * @param b the row prefix as stored in the file info
+   * @return the row prefix
+   * @throws IllegalArgumentException if not a row prefix
+   */
+  public static BloomRowPrefix fromBytes(byte[] b) {
+    String s = Bytes.toString(b);
+    if (s.startsWith(LENGTH)) {
+      try {
+        return fixedLength(Integer.parseInt(s.substring(LENGTH.length())));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid row prefix: " + s, e);
+      }
+    } else if (s.startsWith(DELIMITER)) {
+      return delimited(Bytes.toBytesBinary(s.substring(DELIMITER.length())));
+    }
+    throw new IllegalArgumentException("Invalid row prefix: " + s);
+  }
+
+  /**
+   * @return the length of the prefix of the given row
+   */
+  public int getPrefixLength(byte[] row, int offset, int length) {
+    if (delimiter == null) {
+      return Math.min(fixedLength, length);
+    }
+    int index = indexOfDelimiter(row, offset, length);
+    return index < 0 ? length : index;
+  }
+
+  /**
+   * @return the position of the first delimiter in the row relative to its
+   *         offset, or -1 if none
+   */
+  private int indexOfDelimiter(byte[] row, int offset, int length) {
+    outer:
+    for (int i = 0; i <= length - delimiter.length; i++) {
+      for (int j = 0; j < delimiter.length; j++) {
+        if (row[offset + i + j] != delimiter[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * The prefix shared by all the rows a scan may return. All the rows from
+   * a row that has a prefix in full (of the fixed length, or followed by the
+   * delimiter) up to the first row greater than any row starting with that
+   * prefix have it. Covers scans whose stop row has the same prefix, and
+   * scans up to the next prefix.
+   *
+   * @return the prefix of the rows of the scan, or null if they may have
+   *         different prefixes
+   */
+  public byte[] getScanPrefix(Scan scan) {
+    byte[] startRow = scan.getStartRow();
+    if (scan.isGetScan()) {
+      return Arrays.copyOf(startRow,
+          getPrefixLength(startRow, 0, startRow.length));
+    }
+
+    // a reversed scan goes from its start row down to its stop row
+    byte[] lowerRow = scan.isReversed() ? scan.getStopRow() : startRow;
+    byte[] upperRow = scan.isReversed() ? startRow : scan.getStopRow();
+
+    int prefixLength;
+    int sharedLength;
+    if (delimiter == null) {
+      if (lowerRow.length < fixedLength) {
+        return null;
+      }
+      prefixLength = fixedLength;
+      sharedLength = fixedLength;
+    } else {
+      prefixLength = indexOfDelimiter(lowerRow, 0, lowerRow.length);
+      if (prefixLength < 0) {
+        return null;
+      }
+      sharedLength = prefixLength + delimiter.length;
+    }
+
+    // rows up to the successor of the shared bytes start with them, all the
+    // rows to the end of the table if there is none
+    byte[] successor = successor(lowerRow, sharedLength);
+    if (successor != null) {
+      if (upperRow.length == 0) {
+        return null;
+      }
+      int comp = Bytes.compareTo(upperRow, successor);
+      if (comp > 0 || (comp == 0 && scan.isReversed())) {
+        return null;
+      }
+    }
+    return Arrays.copyOf(lowerRow, prefixLength);
+  }
+
+  /**
+   * @return the first row greater than all the rows starting with the given
+   *         bytes, or null if there is none
+   */
+  private static byte[] successor(byte[] row, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (row[i] != (byte) 0xff) {
+        byte[] successor = Arrays.copyOf(row, i + 1);
+        successor[i]++;
+        return successor;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return delimiter == null ? LENGTH + fixedLength
+        : DELIMITER + Bytes.toStringBinary(delimiter);
+  }
+}
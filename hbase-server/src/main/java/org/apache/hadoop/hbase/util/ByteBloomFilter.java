@@ -244,7 +244,7 @@ public class ByteBloomFilter implements BloomFilter, BloomFilterWriter {
     return (int) byteSizeLong;
   }
 
-  private static int optimalFunctionCount(int maxKeys, long bitSize) {
+  static int optimalFunctionCount(int maxKeys, long bitSize) {
     long i = bitSize / maxKeys;
     double result = Math.ceil(Math.log(2) * i);
     if (result > Integer.MAX_VALUE){
@@ -253,8 +253,8 @@ public class ByteBloomFilter implements BloomFilter, BloomFilterWriter {
     return (int)result;
   }
 
-  /** Private constructor used by other constructors. */
-  private ByteBloomFilter(int hashType) {
+  /** Constructor used by other constructors and by subclasses. */
+  protected ByteBloomFilter(int hashType) {
     this.hashType = hashType;
     this.hash = Hash.getInstance(hashType);
   }
@@ -497,6 +497,14 @@ public class ByteBloomFilter implements BloomFilter, BloomFilterWriter {
     return hashType;
   }
 
+  /**
+   * @return the number of bytes a fold keeps together. The byte size of a
+   *         folded filter remains a multiple of this.
+   */
+  protected int getFoldUnit() {
+    return 1;
+  }
+
   @Override
   public void compactBloom() {
     // see if the actual size is exponentially smaller than expected.
@@ -504,9 +512,11 @@ public class ByteBloomFilter implements BloomFilter, BloomFilterWriter {
       int pieces = 1;
       int newByteSize = (int)this.byteSize;
       int newMaxKeys = this.maxKeys;
+      int foldUnit = getFoldUnit();
 
       // while exponentially smaller & folding is lossless
-      while ( (newByteSize & 1) == 0 && newMaxKeys > (this.keyCount<<1) ) {
+      while (newByteSize % (foldUnit << 1) == 0
+          && newMaxKeys > (this.keyCount<<1) ) {
         pieces <<= 1;
         newByteSize >>= 1;
         newMaxKeys >>= 1;
@@ -62,7 +62,22 @@ public class CompoundBloomFilter extends CompoundBloomFilterBase
    */
   public CompoundBloomFilter(DataInput meta, HFile.Reader reader)
       throws IOException {
+    this(meta, reader, false);
+  }
+
+  /**
+   * De-serialization for compound Bloom filter metadata. Must be consistent
+   * with what {@link CompoundBloomFilterWriter} does.
+   *
+   * @param meta serialized Bloom filter metadata without any magic blocks
+   * @param blocked whether the chunks are {@link BlockedByteBloomFilter}s, as
+   *          told by the version of the metadata
+   * @throws IOException
+   */
+  public CompoundBloomFilter(DataInput meta, HFile.Reader reader,
+      boolean blocked) throws IOException {
     this.reader = reader;
+    this.blocked = blocked;
 
     totalByteSize = meta.readLong();
     hashCount = meta.readInt();
@@ -107,9 +122,15 @@ public class CompoundBloomFilter extends CompoundBloomFilterBase
       }
 
       ByteBuffer bloomBuf = bloomBlock.getBufferReadOnly();
-      result = ByteBloomFilter.contains(key, keyOffset, keyLength,
-          bloomBuf.array(), bloomBuf.arrayOffset() + bloomBlock.headerSize(),
-          bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount);
+      if (blocked) {
+        result = BlockedByteBloomFilter.contains(key, keyOffset, keyLength,
+            bloomBuf.array(), bloomBuf.arrayOffset() + bloomBlock.headerSize(),
+            bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount);
+      } else {
+        result = ByteBloomFilter.contains(key, keyOffset, keyLength,
+            bloomBuf.array(), bloomBuf.arrayOffset() + bloomBlock.headerSize(),
+            bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount);
+      }
     }
 
     if (numQueriesPerChunk != null && block >= 0) {
@@ -170,6 +191,8 @@ public class CompoundBloomFilter extends CompoundBloomFilterBase
     sb.append(ByteBloomFilter.formatStats(this));
     sb.append(ByteBloomFilter.STATS_RECORD_SEP + 
         "Number of chunks: " + numChunks);
+    sb.append(ByteBloomFilter.STATS_RECORD_SEP +
+        "Blocked: " + blocked);
     sb.append(ByteBloomFilter.STATS_RECORD_SEP + 
         "Comparator: " + comparator.getClass().getSimpleName());
     return sb.toString();
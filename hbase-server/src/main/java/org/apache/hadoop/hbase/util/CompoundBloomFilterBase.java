@@ -39,6 +39,12 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
    */
   public static final int VERSION = 3;
 
+  /**
+   * The Bloom filter version of compound Bloom filters made of
+   * {@link BlockedByteBloomFilter} chunks. Same metadata as {@link #VERSION}.
+   */
+  public static final int BLOCKED_VERSION = 4;
+
   /** Target error rate for configuring the filter and for information */
   protected float errorRate;
 
@@ -49,10 +55,20 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
 
   /** Hash function type to use, as defined in {@link Hash} */
   protected int hashType;
+
+  /** Whether the chunks are {@link BlockedByteBloomFilter}s */
+  protected boolean blocked;
   
   /** Comparator used to compare Bloom filter keys */
   protected RawComparator<byte[]> comparator;
 
+  /**
+   * @return whether the chunks are {@link BlockedByteBloomFilter}s
+   */
+  public boolean isBlocked() {
+    return blocked;
+  }
+
   @Override
   public long getMaxKeys() {
     return totalMaxKeys;
@@ -90,9 +90,35 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
   public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
       int hashType, int maxFold, boolean cacheOnWrite,
       RawComparator<byte[]> comparator) {
-    chunkByteSize = ByteBloomFilter.computeFoldableByteSize(
-        chunkByteSizeHint * 8L, maxFold);
+    this(chunkByteSizeHint, errorRate, hashType, maxFold, cacheOnWrite,
+        comparator, false);
+  }
+
+  /**
+   * @param chunkByteSizeHint
+   *          each chunk's size in bytes. The real chunk size might be different
+   *          as required by the fold factor.
+   * @param errorRate
+   *          target false positive rate
+   * @param hashType
+   *          hash function type to use
+   * @param maxFold
+   *          maximum degree of folding allowed
+   * @param blocked
+   *          whether to write {@link BlockedByteBloomFilter} chunks
+   */
+  public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
+      int hashType, int maxFold, boolean cacheOnWrite,
+      RawComparator<byte[]> comparator, boolean blocked) {
+    if (blocked) {
+      chunkByteSize = BlockedByteBloomFilter.computeBlockedByteSize(
+          chunkByteSizeHint, maxFold);
+    } else {
+      chunkByteSize = ByteBloomFilter.computeFoldableByteSize(
+          chunkByteSizeHint * 8L, maxFold);
+    }
 
+    this.blocked = blocked;
     this.errorRate = errorRate;
     this.hashType = hashType;
     this.maxFold = maxFold;
@@ -174,8 +200,13 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
 
       if (prevChunk == null) {
         // First chunk
-        chunk = ByteBloomFilter.createBySize(chunkByteSize, errorRate,
-            hashType, maxFold);
+        if (blocked) {
+          chunk = BlockedByteBloomFilter.createBySize(chunkByteSize, errorRate,
+              hashType, maxFold);
+        } else {
+          chunk = ByteBloomFilter.createBySize(chunkByteSize, errorRate,
+              hashType, maxFold);
+        }
       } else {
         // Use the same parameters as the last chunk, but a new array and
         // a zero key count.
@@ -233,7 +264,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
      */
     @Override
     public void write(DataOutput out) throws IOException {
-      out.writeInt(VERSION);
+      out.writeInt(blocked ? BLOCKED_VERSION : VERSION);
 
       out.writeLong(getByteSize());
       out.writeInt(prevChunk.getHashCount());
@@ -31,8 +31,10 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileDataBlockEncoderImpl;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.util.Bytes;
 
@@ -47,6 +49,13 @@ public class HFilePerformanceEvaluation {
   private static final int ROW_COUNT = 1000000;
   private static final int RFILE_BLOCKSIZE = 8 * 1024;
 
+  /** The block sizes and encodings to compare the cost of seeks in */
+  private static final int[] SEEK_BLOCKSIZES = { 8 * 1024, 64 * 1024, 256 * 1024 };
+  private static final DataBlockEncoding[] SEEK_ENCODINGS = { DataBlockEncoding.NONE,
+      DataBlockEncoding.PREFIX, DataBlockEncoding.ROW_INDEX };
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
   static final Log LOG =
     LogFactory.getLog(HFilePerformanceEvaluation.class.getName());
 
@@ -111,6 +120,28 @@ public class HFilePerformanceEvaluation {
       }
     });
 
+    runSeekBenchmarks(conf, fs);
+  }
+
+  /**
+   * Compares random seeks into cached blocks of KeyValues across block sizes
+   * and data block encodings.
+   */
+  private void runSeekBenchmarks(Configuration conf, FileSystem fs)
+      throws Exception {
+    Path kvf = fs.makeQualified(new Path("performanceevaluation.kvfile"));
+    for (int blockSize : SEEK_BLOCKSIZES) {
+      for (DataBlockEncoding encoding : SEEK_ENCODINGS) {
+        if (fs.exists(kvf)) {
+          fs.delete(kvf, true);
+        }
+        LOG.info("Block size " + blockSize + ", encoding " + encoding);
+        runBenchmark(new KeyValueWriteBenchmark(conf, fs, kvf, ROW_COUNT,
+            blockSize, encoding), ROW_COUNT);
+        runBenchmark(new CachedRandomSeekBenchmark(conf, fs, kvf, ROW_COUNT),
+            ROW_COUNT);
+      }
+    }
   }
 
   protected void runBenchmark(RowOrientedBenchmark benchmark, int rowCount)
@@ -200,7 +231,7 @@ public class HFilePerformanceEvaluation {
       writer.append(format(i), generateValue());
     }
 
-    private byte[] generateValue() {
+    protected byte[] generateValue() {
       random.nextBytes(bytes);
       return bytes;
     }
@@ -217,6 +248,42 @@ public class HFilePerformanceEvaluation {
 
   }
 
+  static KeyValue keyValue(final int i, final byte[] value) {
+    return new KeyValue(format(i), FAMILY, QUALIFIER, 1L, KeyValue.Type.Put,
+        value);
+  }
+
+  /**
+   * Writes KeyValues, one per row, with the given block size and encoding.
+   */
+  static class KeyValueWriteBenchmark extends SequentialWriteBenchmark {
+    private final int blockSize;
+    private final DataBlockEncoding encoding;
+
+    public KeyValueWriteBenchmark(Configuration conf, FileSystem fs, Path mf,
+        int totalRows, int blockSize, DataBlockEncoding encoding) {
+      super(conf, fs, mf, totalRows);
+      this.blockSize = blockSize;
+      this.encoding = encoding;
+    }
+
+    @Override
+    void setUp() throws Exception {
+      writer =
+        HFile.getWriterFactoryNoCache(conf)
+            .withPath(fs, mf)
+            .withBlockSize(blockSize)
+            .withDataBlockEncoder(new HFileDataBlockEncoderImpl(encoding))
+            .withComparator(KeyValue.KEY_COMPARATOR)
+            .create();
+    }
+
+    @Override
+    void doRow(int i) throws Exception {
+      writer.append(keyValue(i, generateValue()));
+    }
+  }
+
   static abstract class ReadBenchmark extends RowOrientedBenchmark {
 
     protected HFile.Reader reader;
@@ -333,6 +400,42 @@ public class HFilePerformanceEvaluation {
     }
   }
 
+  /**
+   * Seeks to random KeyValues once all the blocks are cached, so that the
+   * time goes into the seeks within blocks.
+   */
+  static class CachedRandomSeekBenchmark extends ReadBenchmark {
+    private Random random = new Random();
+
+    public CachedRandomSeekBenchmark(Configuration conf, FileSystem fs,
+        Path mf, int totalRows) {
+      super(conf, fs, mf, totalRows);
+    }
+
+    @Override
+    void setUp() throws Exception {
+      super.setUp();
+      // load all the blocks into the cache
+      HFileScanner scanner = this.reader.getScanner(true, false);
+      if (scanner.seekTo()) {
+        while (scanner.next()) {
+          // nothing to do
+        }
+      }
+    }
+
+    @Override
+    void doRow(int i) throws Exception {
+      HFileScanner scanner = this.reader.getScanner(true, true);
+      byte[] key = keyValue(random.nextInt(totalRows), null).getKey();
+      if (scanner.seekTo(key) != 0) {
+        LOG.info("Not able to seekTo " + Bytes.toStringBinary(key));
+        return;
+      }
+      PerformanceEvaluationCommons.assertKey(key, scanner.getKey());
+    }
+  }
+
   static class GaussianRandomReadBenchmark extends ReadBenchmark {
 
     private RandomData randomData = new RandomDataImpl();
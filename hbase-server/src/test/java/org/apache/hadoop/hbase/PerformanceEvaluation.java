@@ -176,6 +176,14 @@ public class PerformanceEvaluation extends Configured implements Tool {
         "Run random seek scan with both start and stop row (max 1000 rows)");
     addCommandDescriptor(RandomScanWithRange10000Test.class, "scanRange10000",
         "Run random seek scan with both start and stop row (max 10000 rows)");
+    addCommandDescriptor(ReversedScanWithRange10Test.class, "reverseScanRange10",
+        "Run scanRange10 as a reversed scan over the same rows");
+    addCommandDescriptor(ReversedScanWithRange100Test.class, "reverseScanRange100",
+        "Run scanRange100 as a reversed scan over the same rows");
+    addCommandDescriptor(ReversedScanWithRange1000Test.class, "reverseScanRange1000",
+        "Run scanRange1000 as a reversed scan over the same rows");
+    addCommandDescriptor(ReversedScanWithRange10000Test.class, "reverseScanRange10000",
+        "Run scanRange10000 as a reversed scan over the same rows");
     addCommandDescriptor(RandomWriteTest.class, "randomWrite",
         "Run random write test");
     addCommandDescriptor(SequentialReadTest.class, "sequentialRead",
@@ -184,6 +192,8 @@ public class PerformanceEvaluation extends Configured implements Tool {
         "Run sequential write test");
     addCommandDescriptor(ScanTest.class, "scan",
         "Run scan test (read every row)");
+    addCommandDescriptor(ReversedScanTest.class, "reverseScan",
+        "Run scan test as a reversed scan (read every row, last to first)");
     addCommandDescriptor(FilteredScanTest.class, "filterScan",
         "Run scan test using a filter to find a specific row based on it's value (make sure to use --rows=20)");
   }
@@ -932,7 +942,7 @@ public class PerformanceEvaluation extends Configured implements Tool {
     @Override
     void testRow(final int i) throws IOException {
       Pair<byte[], byte[]> startAndStopRow = getStartAndStopRow();
-      Scan scan = new Scan(startAndStopRow.getFirst(), startAndStopRow.getSecond());
+      Scan scan = createScan(startAndStopRow);
       scan.addColumn(FAMILY_NAME, QUALIFIER_NAME);
       ResultScanner s = this.table.getScanner(scan);
       int count = 0;
@@ -951,6 +961,13 @@ public class PerformanceEvaluation extends Configured implements Tool {
 
     protected abstract Pair<byte[],byte[]> getStartAndStopRow();
 
+    /**
+     * @return A scan of the rows from the start row, inclusive, to the stop row, exclusive.
+     */
+    protected Scan createScan(Pair<byte[], byte[]> startAndStopRow) {
+      return new Scan(startAndStopRow.getFirst(), startAndStopRow.getSecond());
+    }
+
     protected Pair<byte[], byte[]> generateStartAndStopRows(int maxRange) {
       int start = this.rand.nextInt(Integer.MAX_VALUE) % totalRows;
       int stop = start + maxRange;
@@ -1008,6 +1025,78 @@ public class PerformanceEvaluation extends Configured implements Tool {
     }
   }
 
+  /**
+   * Scans the same rows as {@link RandomScanWithRangeTest} does, from the last one back to the
+   * start row, to compare reversed scans with forward ones.
+   */
+  static abstract class ReversedScanWithRangeTest extends RandomScanWithRangeTest {
+    ReversedScanWithRangeTest(Configuration conf, TestOptions options, Status status) {
+      super(conf, options, status);
+    }
+
+    /**
+     * @return The last and the row before the first of the rows the forward scan would read.
+     */
+    @Override
+    protected Pair<byte[], byte[]> generateStartAndStopRows(int maxRange) {
+      int start = this.rand.nextInt(Integer.MAX_VALUE) % totalRows;
+      int stop = start + maxRange;
+      return new Pair<byte[], byte[]>(format(stop - 1),
+          start == 0 ? HConstants.EMPTY_END_ROW : format(start - 1));
+    }
+
+    @Override
+    protected Scan createScan(Pair<byte[], byte[]> startAndStopRow) {
+      Scan scan = super.createScan(startAndStopRow);
+      scan.setReversed(true);
+      return scan;
+    }
+  }
+
+  static class ReversedScanWithRange10Test extends ReversedScanWithRangeTest {
+    ReversedScanWithRange10Test(Configuration conf, TestOptions options, Status status) {
+      super(conf, options, status);
+    }
+
+    @Override
+    protected Pair<byte[], byte[]> getStartAndStopRow() {
+      return generateStartAndStopRows(10);
+    }
+  }
+
+  static class ReversedScanWithRange100Test extends ReversedScanWithRangeTest {
+    ReversedScanWithRange100Test(Configuration conf, TestOptions options, Status status) {
+      super(conf, options, status);
+    }
+
+    @Override
+    protected Pair<byte[], byte[]> getStartAndStopRow() {
+      return generateStartAndStopRows(100);
+    }
+  }
+
+  static class ReversedScanWithRange1000Test extends ReversedScanWithRangeTest {
+    ReversedScanWithRange1000Test(Configuration conf, TestOptions options, Status status) {
+      super(conf, options, status);
+    }
+
+    @Override
+    protected Pair<byte[], byte[]> getStartAndStopRow() {
+      return generateStartAndStopRows(1000);
+    }
+  }
+
+  static class ReversedScanWithRange10000Test extends ReversedScanWithRangeTest {
+    ReversedScanWithRange10000Test(Configuration conf, TestOptions options, Status status) {
+      super(conf, options, status);
+    }
+
+    @Override
+    protected Pair<byte[], byte[]> getStartAndStopRow() {
+      return generateStartAndStopRows(10000);
+    }
+  }
+
   static class RandomReadTest extends Test {
     RandomReadTest(Configuration conf, TestOptions options, Status status) {
       super(conf, options, status);
@@ -1073,6 +1162,37 @@ public class PerformanceEvaluation extends Configured implements Tool {
 
   }
 
+  /**
+   * Reads the rows of {@link ScanTest} with a reversed scan, from the last one back to the
+   * start row.
+   */
+  static class ReversedScanTest extends Test {
+    private ResultScanner testScanner;
+
+    ReversedScanTest(Configuration conf, TestOptions options, Status status) {
+      super(conf, options, status);
+    }
+
+    @Override
+    void testTakedown() throws IOException {
+      if (this.testScanner != null) {
+        this.testScanner.close();
+      }
+      super.testTakedown();
+    }
+
+    @Override
+    void testRow(final int i) throws IOException {
+      if (this.testScanner == null) {
+        Scan scan = new Scan(format(this.startRow + this.perClientRunRows - 1));
+        scan.setReversed(true);
+        scan.addColumn(FAMILY_NAME, QUALIFIER_NAME);
+        this.testScanner = table.getScanner(scan);
+      }
+      testScanner.next();
+    }
+  }
+
   static class SequentialReadTest extends Test {
     SequentialReadTest(Configuration conf, TestOptions options, Status status) {
       super(conf, options, status);
@@ -69,6 +69,7 @@ import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
 import org.apache.hadoop.hbase.filter.PrefixFilter;
 import org.apache.hadoop.hbase.filter.QualifierFilter;
 import org.apache.hadoop.hbase.filter.RegexStringComparator;
@@ -4661,10 +4662,26 @@ public class TestFromClientSide {
     ScanMetrics scanMetricsWithClose = getScanMetrics(scanWithClose);
     assertEquals("Did not access all the regions in the table", numOfRegions,
         scanMetricsWithClose.countOfRegions.get());
+
+    // the region servers report back the work they did for the scan
+    assertTrue(scanMetricsWithClose.countOfRowsExamined.get() >= numRecords);
+    assertTrue(scanMetricsWithClose.countOfCellsExamined.get() >= numRecords);
+    // including the seeks done while opening the scanner of every region
+    assertTrue(scanMetricsWithClose.countOfSeeks.get() >= numOfRegions);
+
+    // gets get the same counts back, when they ask for them
+    Get get = new Get(Bytes.toBytes("z1"));
+    ht.get(get);
+    assertEquals(null, get.getAttribute(Scan.SCAN_ATTRIBUTES_METRICS_DATA));
+    get.setAttribute(Scan.SCAN_ATTRIBUTES_METRICS_ENABLE, Bytes.toBytes(Boolean.TRUE));
+    assertFalse(ht.get(get).isEmpty());
+    ScanMetrics getMetrics = getScanMetrics(get);
+    assertEquals(1, getMetrics.countOfRowsExamined.get());
+    assertTrue(getMetrics.countOfCellsExamined.get() >= 1);
   }
 
-  private ScanMetrics getScanMetrics(Scan scan) throws Exception {
-    byte[] serializedMetrics = scan.getAttribute(Scan.SCAN_ATTRIBUTES_METRICS_DATA);
+  private ScanMetrics getScanMetrics(OperationWithAttributes operation) throws Exception {
+    byte[] serializedMetrics = operation.getAttribute(Scan.SCAN_ATTRIBUTES_METRICS_DATA);
     assertTrue("Serialized metrics were not found.", serializedMetrics != null);
 
 
@@ -4949,5 +4966,85 @@ public class TestFromClientSide {
     assertEquals(1, bar.length);
     assertEquals(2, bar[0].size());
   }
+
+  @Test
+  public void testReversedScanAcrossRegions() throws Exception {
+    byte [] TABLE = Bytes.toBytes("testReversedScanAcrossRegions");
+    HTable ht = TEST_UTIL.createTable(TABLE, FAMILY);
+    int numOfRegions = TEST_UTIL.createMultiRegions(ht, FAMILY);
+    assertTrue(numOfRegions > 1);
+    int rowCount = TEST_UTIL.loadTable(ht, FAMILY);
+
+    // Full table, starting from the last row of the last region
+    Scan scan = new Scan();
+    scan.setReversed(true);
+    assertEquals(rowCount, countReversed(ht, scan, null, null));
+
+    // Start row is inclusive and stop row is exclusive, as for forward scans
+    byte [] start = Bytes.toBytes("fff");
+    byte [] stop = Bytes.toBytes("bbb");
+    int expected = 0;
+    ResultScanner scanner = ht.getScanner(new Scan(stop, start));
+    for (Result result : scanner) {
+      if (Bytes.compareTo(result.getRow(), stop) > 0) {
+        expected++;
+      }
+    }
+    scanner.close();
+    scan = new Scan(start, stop);
+    scan.setReversed(true);
+    // the forward scan above missed fff, which the reversed scan includes
+    assertEquals(expected + 1, countReversed(ht, scan, start, stop));
+  }
+
+  private int countReversed(HTable ht, Scan scan, byte [] start, byte [] stop)
+  throws IOException {
+    ResultScanner scanner = ht.getScanner(scan);
+    int count = 0;
+    byte [] previousRow = null;
+    for (Result result : scanner) {
+      if (start != null) {
+        assertTrue(Bytes.compareTo(result.getRow(), start) <= 0);
+      }
+      if (stop != null) {
+        assertTrue(Bytes.compareTo(result.getRow(), stop) > 0);
+      }
+      if (previousRow != null) {
+        assertTrue(Bytes.compareTo(previousRow, result.getRow()) > 0);
+      }
+      previousRow = result.getRow();
+      count++;
+    }
+    scanner.close();
+    return count;
+  }
+
+  @Test
+  public void testMultiRowRangeScanSkipsRegions() throws Exception {
+    byte [] TABLE = Bytes.toBytes("testMultiRowRangeScanSkipsRegions");
+    HTable ht = TEST_UTIL.createTable(TABLE, FAMILY);
+    TEST_UTIL.createMultiRegions(ht, FAMILY);
+    TEST_UTIL.loadTable(ht, FAMILY);
+
+    // [ccc, cce) lies in region [ccc, ddd), (mmm, mmz] in region [mmm, nnn)
+    List<MultiRowRangeFilter.RowRange> ranges = new ArrayList<MultiRowRangeFilter.RowRange>();
+    ranges.add(new MultiRowRangeFilter.RowRange(Bytes.toBytes("mmm"), false,
+        Bytes.toBytes("mmz"), true));
+    ranges.add(new MultiRowRangeFilter.RowRange(Bytes.toBytes("ccc"), true,
+        Bytes.toBytes("cce"), false));
+    Scan scan = new Scan();
+    scan.setFilter(new MultiRowRangeFilter(ranges));
+    scan.setAttribute(Scan.SCAN_ATTRIBUTES_METRICS_ENABLE, Bytes.toBytes(Boolean.TRUE));
+    ResultScanner scanner = ht.getScanner(scan);
+    List<String> rows = new ArrayList<String>();
+    for (Result result : scanner) {
+      rows.add(Bytes.toString(result.getRow()));
+    }
+    scanner.close();
+    assertEquals(Arrays.asList("ccc", "ccd", "mmn", "mmo", "mmp", "mmq", "mmr", "mms",
+        "mmt", "mmu", "mmv", "mmw", "mmx", "mmy", "mmz"), rows);
+    // only the two regions holding the ranges were opened
+    assertEquals(2, getScanMetrics(scan).countOfRegions.get());
+  }
 }
 
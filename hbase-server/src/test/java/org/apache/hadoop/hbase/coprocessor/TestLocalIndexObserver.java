@@ -0,0 +1,343 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.coprocessor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Coprocessor;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.MediumTests;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HBaseAdmin;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(MediumTests.class)
+public class TestLocalIndexObserver {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] INDEX_FAMILY =
+      Bytes.toBytes(LocalIndexObserver.DEFAULT_INDEX_FAMILY);
+  private static final byte[] COLOR = Bytes.toBytes("color");
+  private static final byte[] SIZE = Bytes.toBytes("size");
+  private static final byte[] OTHER = Bytes.toBytes("other");
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TEST_UTIL.startMiniCluster();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  @Test
+  public void testEntryRows() {
+    LocalIndexObserver.IndexedColumn column =
+        new LocalIndexObserver.IndexedColumn(FAMILY, COLOR, (byte) 1);
+    byte[] entryRow = LocalIndexObserver.getEntryRow(column, Bytes.toBytes("red"),
+        Bytes.toBytes("row1"));
+    assertTrue(Bytes.startsWith(entryRow,
+        LocalIndexObserver.getEntryPrefix(column, Bytes.toBytes("red"))));
+    assertArrayEquals(Bytes.toBytes("row1"), LocalIndexObserver.getDataRow(entryRow));
+    assertNull(LocalIndexObserver.getDataRow(LocalIndexObserver.STATE_ROW));
+    assertNull(LocalIndexObserver.getDataRow(
+        LocalIndexObserver.getEntryPrefix(column, Bytes.toBytes("red"))));
+  }
+
+  @Test
+  public void testLookups() throws Exception {
+    byte[] tableName = Bytes.toBytes("testLookups");
+    HTable table = createTable(tableName, new byte[][] { Bytes.toBytes("m") });
+    for (int i = 0; i < 26; i++) {
+      Put put = new Put(Bytes.toBytes(String.valueOf((char) ('a' + i))));
+      put.add(FAMILY, COLOR, Bytes.toBytes(i % 2 == 0 ? "red" : "blue"));
+      put.add(FAMILY, SIZE, Bytes.toBytes(i % 3));
+      put.add(FAMILY, OTHER, Bytes.toBytes(i));
+      table.put(put);
+    }
+    assertEquals(13, lookup(table, COLOR, Bytes.toBytes("red"), null).size());
+    assertEquals(13, lookup(table, COLOR, Bytes.toBytes("blue"), null).size());
+    assertEquals(9, lookup(table, SIZE, Bytes.toBytes(0), null).size());
+    assertEquals(0, lookup(table, COLOR, Bytes.toBytes("green"), null).size());
+
+    // the scan's columns and row range apply
+    Scan scan = new Scan(Bytes.toBytes("c"), Bytes.toBytes("p"));
+    scan.addColumn(FAMILY, OTHER);
+    List<Result> results = lookup(table, COLOR, Bytes.toBytes("red"), scan);
+    assertEquals(7, results.size());
+    assertEquals("c", Bytes.toString(results.get(0).getRow()));
+    assertEquals("o", Bytes.toString(results.get(6).getRow()));
+    assertEquals(1, results.get(0).size());
+    assertArrayEquals(Bytes.toBytes(2), results.get(0).getValue(FAMILY, OTHER));
+
+    // updates and deletes move the rows between values
+    Put put = new Put(Bytes.toBytes("a"));
+    put.add(FAMILY, COLOR, Bytes.toBytes("green"));
+    table.put(put);
+    table.delete(new Delete(Bytes.toBytes("c")));
+    Delete delete = new Delete(Bytes.toBytes("e"));
+    delete.deleteColumn(FAMILY, COLOR);
+    table.delete(delete);
+    assertEquals(10, lookup(table, COLOR, Bytes.toBytes("red"), null).size());
+    results = lookup(table, COLOR, Bytes.toBytes("green"), null);
+    assertEquals(1, results.size());
+    assertEquals("a", Bytes.toString(results.get(0).getRow()));
+
+    // deleting the latest version brings back the previous value
+    delete = new Delete(Bytes.toBytes("a"));
+    delete.deleteColumn(FAMILY, COLOR);
+    table.delete(delete);
+    assertEquals(0, lookup(table, COLOR, Bytes.toBytes("green"), null).size());
+    assertEquals(11, lookup(table, COLOR, Bytes.toBytes("red"), null).size());
+
+    // one entry per row and indexed column, plus the state row of each region
+    assertEquals(24 + 25 + 2, countIndexRows(tableName));
+    // scans of the whole table do not return the entries
+    assertEquals(25, TEST_UTIL.countRows(table));
+
+    try {
+      lookup(table, OTHER, Bytes.toBytes(0), null);
+      fail("A lookup on a column that is not indexed should fail");
+    } catch (IOException e) {
+      // expected
+    }
+    table.close();
+  }
+
+  @Test
+  public void testLookupWithHintingFilter() throws Exception {
+    byte[] tableName = Bytes.toBytes("testLookupWithHintingFilter");
+    HTable table = createTable(tableName, new byte[][] { Bytes.toBytes("m") });
+    for (int i = 0; i < 26; i++) {
+      Put put = new Put(Bytes.toBytes(String.valueOf((char) ('a' + i))));
+      put.add(FAMILY, COLOR, Bytes.toBytes(i % 2 == 0 ? "red" : "blue"));
+      put.add(FAMILY, OTHER, Bytes.toBytes(i));
+      table.put(put);
+    }
+    // the filter seeks past the rows out of its ranges with SEEK_NEXT_USING_HINT
+    List<RowRange> ranges = new ArrayList<RowRange>();
+    ranges.add(new RowRange(Bytes.toBytes("b"), true, Bytes.toBytes("f"), false));
+    ranges.add(new RowRange(Bytes.toBytes("k"), true, Bytes.toBytes("p"), true));
+    Scan scan = new Scan();
+    scan.setFilter(new MultiRowRangeFilter(ranges));
+    List<Result> results = lookup(table, COLOR, Bytes.toBytes("red"), scan);
+    assertEquals(Arrays.asList("c", "e", "k", "m", "o"), getRows(results));
+
+    // the same, reseeking the lookup of a region past the rows the filter skips
+    HRegion region = null;
+    for (HRegion candidate : TEST_UTIL.getHBaseCluster().getRegions(tableName)) {
+      if (candidate.getStartKey().length == 0) {
+        region = candidate;
+      }
+    }
+    scan = createLookup(COLOR, Bytes.toBytes("red"), new Scan());
+    scan.setFilter(new MultiRowRangeFilter(ranges));
+    RegionScanner scanner = region.getCoprocessorHost().preScannerOpen(scan);
+    try {
+      List<KeyValue> kvs = new ArrayList<KeyValue>();
+      assertTrue(scanner.reseek(Bytes.toBytes("b")));
+      scanner.next(kvs);
+      assertEquals("c", Bytes.toString(kvs.get(0).getRow()));
+      kvs.clear();
+      assertTrue(scanner.reseek(Bytes.toBytes("k")));
+      scanner.next(kvs);
+      assertEquals("k", Bytes.toString(kvs.get(0).getRow()));
+      kvs.clear();
+      // no red row of the first region is left after "l"
+      scanner.reseek(Bytes.toBytes("l"));
+      assertFalse(scanner.next(kvs));
+      assertTrue(kvs.isEmpty());
+    } finally {
+      scanner.close();
+    }
+    table.close();
+  }
+
+  @Test
+  public void testSplitAndMerge() throws Exception {
+    byte[] tableName = Bytes.toBytes("testSplitAndMerge");
+    HTable table = createTable(tableName, null);
+    for (int i = 0; i < 100; i++) {
+      Put put = new Put(Bytes.toBytes(String.format("row%03d", i)));
+      put.add(FAMILY, COLOR, Bytes.toBytes(i % 4 == 0 ? "red" : "blue"));
+      table.put(put);
+    }
+    HBaseAdmin admin = TEST_UTIL.getHBaseAdmin();
+    admin.flush(tableName);
+    admin.split(tableName, Bytes.toBytes("row050"));
+    for (int i = 0; i < 100 && TEST_UTIL.getHBaseCluster().getRegions(tableName).size() < 2;
+        i++) {
+      Thread.sleep(100);
+    }
+    List<HRegion> regions = TEST_UTIL.getHBaseCluster().getRegions(tableName);
+    assertEquals(2, regions.size());
+    // the daughters inherit the index of the parent: no rebuild is needed
+    for (HRegion region : regions) {
+      assertTrue(getObserver(region).isIndexReady());
+    }
+    assertEquals(25, lookup(table, COLOR, Bytes.toBytes("red"), null).size());
+    assertEquals(75, lookup(table, COLOR, Bytes.toBytes("blue"), null).size());
+    // the entries of the other daughter are dropped by compactions
+    for (HRegion region : regions) {
+      region.compactStores(true);
+    }
+    for (int i = 0; i < 100 && countIndexRows(tableName) != 100 + 2; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(100 + 2, countIndexRows(tableName));
+    assertEquals(100, TEST_UTIL.countRows(table));
+
+    // the merged region gets the entries of both
+    admin.mergeRegions(regions.get(0).getRegionInfo().getEncodedNameAsBytes(),
+        regions.get(1).getRegionInfo().getEncodedNameAsBytes(), false);
+    for (int i = 0; i < 100 && TEST_UTIL.getHBaseCluster().getRegions(tableName).size() != 1;
+        i++) {
+      Thread.sleep(100);
+    }
+    regions = TEST_UTIL.getHBaseCluster().getRegions(tableName);
+    assertEquals(1, regions.size());
+    assertTrue(getObserver(regions.get(0)).isIndexReady());
+    assertEquals(25, lookup(table, COLOR, Bytes.toBytes("red"), null).size());
+    assertEquals(75, lookup(table, COLOR, Bytes.toBytes("blue"), null).size());
+    table.close();
+  }
+
+  private HTable createTable(byte[] tableName, byte[][] splitKeys) throws Exception {
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    htd.addFamily(new HColumnDescriptor(FAMILY).setMaxVersions(3));
+    HColumnDescriptor indexFamily = new HColumnDescriptor(INDEX_FAMILY);
+    indexFamily.setConfiguration(HStore.SHADOW_FAMILY_KEY, "true");
+    htd.addFamily(indexFamily);
+    Map<String, String> args = new HashMap<String, String>();
+    args.put(LocalIndexObserver.INDEXED_COLUMNS_KEY,
+        Bytes.toString(FAMILY) + ":" + Bytes.toString(COLOR) + " "
+            + Bytes.toString(FAMILY) + ":" + Bytes.toString(SIZE));
+    htd.addCoprocessor(LocalIndexObserver.class.getName(), null, Coprocessor.PRIORITY_USER,
+        args);
+    TEST_UTIL.getHBaseAdmin().createTable(htd, splitKeys);
+    TEST_UTIL.waitTableAvailable(tableName);
+    waitForIndexes(tableName);
+    return new HTable(TEST_UTIL.getConfiguration(), tableName);
+  }
+
+  private void waitForIndexes(byte[] tableName) throws InterruptedException {
+    for (HRegion region : TEST_UTIL.getHBaseCluster().getRegions(tableName)) {
+      LocalIndexObserver observer = getObserver(region);
+      for (int i = 0; i < 100 && !observer.isIndexReady(); i++) {
+        Thread.sleep(100);
+      }
+      assertTrue("Index of " + region + " not ready", observer.isIndexReady());
+    }
+  }
+
+  private static LocalIndexObserver getObserver(HRegion region) {
+    return (LocalIndexObserver) region.getCoprocessorHost()
+        .findCoprocessor(LocalIndexObserver.class.getName());
+  }
+
+  /**
+   * Counts the index rows held by the regions of the table, in or out of their range.
+   */
+  private int countIndexRows(byte[] tableName) throws IOException {
+    int count = 0;
+    for (HRegion region : TEST_UTIL.getHBaseCluster().getRegions(tableName)) {
+      Scan scan = new Scan();
+      scan.addFamily(INDEX_FAMILY);
+      RegionScanner scanner = region.getScanner(scan);
+      try {
+        List<KeyValue> kvs = new ArrayList<KeyValue>();
+        boolean more;
+        do {
+          kvs.clear();
+          more = scanner.next(kvs);
+          if (!kvs.isEmpty()) {
+            count++;
+          }
+        } while (more);
+      } finally {
+        scanner.close();
+      }
+    }
+    return count;
+  }
+
+  private static List<String> getRows(List<Result> results) {
+    List<String> rows = new ArrayList<String>();
+    for (Result result : results) {
+      rows.add(Bytes.toString(result.getRow()));
+    }
+    return rows;
+  }
+
+  private static Scan createLookup(byte[] qualifier, byte[] value, Scan scan) {
+    scan.setAttribute(LocalIndexObserver.LOOKUP_COLUMN_ATTRIBUTE,
+        Bytes.add(FAMILY, Bytes.toBytes(":"), qualifier));
+    scan.setAttribute(LocalIndexObserver.LOOKUP_VALUE_ATTRIBUTE, value);
+    return scan;
+  }
+
+  private List<Result> lookup(HTable table, byte[] qualifier, byte[] value, Scan scan)
+      throws IOException {
+    scan = createLookup(qualifier, value, scan == null ? new Scan() : scan);
+    List<Result> results = new ArrayList<Result>();
+    ResultScanner scanner = table.getScanner(scan);
+    try {
+      for (Result result : scanner) {
+        for (KeyValue kv : result.raw()) {
+          if (kv.matchingQualifier(qualifier)) {
+            assertArrayEquals(value, kv.getValue());
+          }
+        }
+        results.add(result);
+      }
+    } finally {
+      scanner.close();
+    }
+    return results;
+  }
+}
@@ -21,7 +21,9 @@ package org.apache.hadoop.hbase.filter;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.TreeSet;
 
 import org.apache.hadoop.hbase.SmallTests;
@@ -184,6 +186,19 @@ public class TestFilterSerialization {
       ProtobufUtil.toFilter(ProtobufUtil.toFilter(keyOnlyFilter))));
   }
 
+  @Test
+  public void testMultiRowRangeFilter() throws Exception {
+    List<MultiRowRangeFilter.RowRange> ranges = new ArrayList<MultiRowRangeFilter.RowRange>();
+    ranges.add(new MultiRowRangeFilter.RowRange(Bytes.toBytes("30"), true,
+      Bytes.toBytes("40"), false));
+    ranges.add(new MultiRowRangeFilter.RowRange(Bytes.toBytes("10"), false,
+      Bytes.toBytes("20"), true));
+    ranges.add(new MultiRowRangeFilter.RowRange(Bytes.toBytes("60"), true, null, false));
+    MultiRowRangeFilter multiRowRangeFilter = new MultiRowRangeFilter(ranges);
+    assertTrue(multiRowRangeFilter.areSerializedFieldsEqual(
+      ProtobufUtil.toFilter(ProtobufUtil.toFilter(multiRowRangeFilter))));
+  }
+
   @Test
   public void testMultipleColumnPrefixFilter() throws Exception {
     // empty array
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestMultiRowRangeFilter {
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  @Test
+  public void testSortAndMerge() {
+    List<RowRange> ranges = new ArrayList<RowRange>();
+    ranges.add(new RowRange(Bytes.toBytes("50"), true, Bytes.toBytes("60"), false));
+    ranges.add(new RowRange(Bytes.toBytes("10"), true, Bytes.toBytes("20"), false));
+    // overlaps [10, 20)
+    ranges.add(new RowRange(Bytes.toBytes("15"), true, Bytes.toBytes("30"), false));
+    // touches [50, 60) at an inclusive start row
+    ranges.add(new RowRange(Bytes.toBytes("60"), true, Bytes.toBytes("70"), false));
+    // touches [10, 30) but neither end includes 30
+    ranges.add(new RowRange(Bytes.toBytes("30"), false, Bytes.toBytes("40"), false));
+    List<RowRange> merged = new MultiRowRangeFilter(ranges).getRowRanges();
+    assertEquals(3, merged.size());
+    assertEquals(new RowRange(Bytes.toBytes("10"), true, Bytes.toBytes("30"), false),
+      merged.get(0));
+    assertEquals(new RowRange(Bytes.toBytes("30"), false, Bytes.toBytes("40"), false),
+      merged.get(1));
+    assertEquals(new RowRange(Bytes.toBytes("50"), true, Bytes.toBytes("70"), false),
+      merged.get(2));
+
+    // a range open at the end swallows the ones after it
+    ranges.add(new RowRange(Bytes.toBytes("35"), true, null, false));
+    merged = new MultiRowRangeFilter(ranges).getRowRanges();
+    assertEquals(2, merged.size());
+    assertEquals(new RowRange(Bytes.toBytes("30"), false, null, false), merged.get(1));
+  }
+
+  @Test
+  public void testInvalidRange() {
+    List<RowRange> ranges = new ArrayList<RowRange>();
+    ranges.add(new RowRange(Bytes.toBytes("20"), true, Bytes.toBytes("10"), false));
+    try {
+      new MultiRowRangeFilter(ranges);
+      fail("A range whose start row is after its stop row should be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSeekHints() throws Exception {
+    MultiRowRangeFilter filter = new MultiRowRangeFilter(twoRanges());
+
+    // before the first range: seek to its start row
+    assertNextRow(filter, "05", ReturnCode.SEEK_NEXT_USING_HINT, "10");
+    assertNextRow(filter, "10", ReturnCode.INCLUDE, null);
+    assertNextRow(filter, "15", ReturnCode.INCLUDE, null);
+    // the stop row of [10, 20) is excluded, the start row of (30, 40] too
+    assertNextRow(filter, "20", ReturnCode.SEEK_NEXT_USING_HINT, "30\u0000");
+    assertNextRow(filter, "30", ReturnCode.SEEK_NEXT_USING_HINT, "30\u0000");
+    assertNextRow(filter, "35", ReturnCode.INCLUDE, null);
+    assertNextRow(filter, "40", ReturnCode.INCLUDE, null);
+    assertFalse(filter.filterAllRemaining());
+    assertTrue(filter.filterRowKey(Bytes.toBytes("41"), 0, 2));
+    assertTrue(filter.filterAllRemaining());
+  }
+
+  @Test
+  public void testReversedSeekHints() throws Exception {
+    MultiRowRangeFilter filter = new MultiRowRangeFilter(twoRanges());
+    filter.setReversed(true);
+
+    // after the last range: seek back to its stop row
+    assertNextRow(filter, "45", ReturnCode.SEEK_NEXT_USING_HINT, "40");
+    assertNextRow(filter, "40", ReturnCode.INCLUDE, null);
+    assertNextRow(filter, "35", ReturnCode.INCLUDE, null);
+    assertNextRow(filter, "25", ReturnCode.SEEK_NEXT_USING_HINT, "20");
+    // the excluded stop row of [10, 20) is skipped without a hint
+    assertTrue(filter.filterRowKey(Bytes.toBytes("20"), 0, 2));
+    assertNextRow(filter, "10", ReturnCode.INCLUDE, null);
+    assertFalse(filter.filterAllRemaining());
+    assertTrue(filter.filterRowKey(Bytes.toBytes("05"), 0, 2));
+    assertTrue(filter.filterAllRemaining());
+  }
+
+  @Test
+  public void testNextRangeStartRow() {
+    MultiRowRangeFilter filter = new MultiRowRangeFilter(twoRanges());
+    assertArrayEquals(Bytes.toBytes("10"), filter.getNextRangeStartRow(new byte[0]));
+    assertArrayEquals(Bytes.toBytes("15"), filter.getNextRangeStartRow(Bytes.toBytes("15")));
+    assertArrayEquals(Bytes.toBytes("30"), filter.getNextRangeStartRow(Bytes.toBytes("20")));
+    assertArrayEquals(Bytes.toBytes("40"), filter.getNextRangeStartRow(Bytes.toBytes("40")));
+    assertNull(filter.getNextRangeStartRow(Bytes.toBytes("41")));
+  }
+
+  /**
+   * @return [10, 20) and (30, 40]
+   */
+  private List<RowRange> twoRanges() {
+    List<RowRange> ranges = new ArrayList<RowRange>();
+    ranges.add(new RowRange(Bytes.toBytes("30"), false, Bytes.toBytes("40"), true));
+    ranges.add(new RowRange(Bytes.toBytes("10"), true, Bytes.toBytes("20"), false));
+    return ranges;
+  }
+
+  private void assertNextRow(MultiRowRangeFilter filter, String row, ReturnCode code,
+      String hintRow) throws Exception {
+    byte[] rowBytes = Bytes.toBytes(row);
+    filter.reset();
+    assertFalse(filter.filterRowKey(rowBytes, 0, rowBytes.length));
+    KeyValue kv = new KeyValue(rowBytes, FAMILY, QUALIFIER, Bytes.toBytes(row));
+    assertEquals(code, filter.filterKeyValue(kv));
+    if (hintRow != null) {
+      assertArrayEquals(Bytes.toBytes(hintRow), filter.getNextKeyHint(kv).getRow());
+    }
+  }
+}
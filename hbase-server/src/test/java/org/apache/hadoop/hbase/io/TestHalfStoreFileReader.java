@@ -20,6 +20,7 @@
 package org.apache.hadoop.hbase.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -31,6 +32,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.*;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.HFile;
@@ -210,6 +212,54 @@ public class TestHalfStoreFileReader {
       assertNull(foundKeyValue);
     }
 
+  /**
+   * Tests the halves of a file that is all on one side of the split key: the half holding
+   * the file reads it with the scanner of the file, and the other one is skipped by scans.
+   */
+  @Test
+  public void testHalfCoveringFile() throws IOException {
+    String root_dir = TEST_UTIL.getDataTestDir().toString();
+    Path p = new Path(root_dir, "testHalfCoveringFile");
+    Configuration conf = TEST_UTIL.getConfiguration();
+    FileSystem fs = FileSystem.get(conf);
+    CacheConfig cacheConf = new CacheConfig(conf);
+
+    HFile.Writer w = HFile.getWriterFactory(conf, cacheConf)
+        .withPath(fs, p)
+        .withBlockSize(1024)
+        .withComparator(KeyValue.KEY_COMPARATOR)
+        .create();
+    List<KeyValue> items = genSomeKeys();
+    for (KeyValue kv : items) {
+      w.append(kv);
+    }
+    w.close();
+
+    byte[] splitRow = _b("row_9999");
+    HalfStoreFileReader bottom = new HalfStoreFileReader(fs, p, cacheConf,
+        new Reference(splitRow, Reference.Range.bottom), DataBlockEncoding.NONE);
+    bottom.loadFileInfo();
+    HFileScanner scanner = bottom.getScanner(false, false);
+    assertFalse(scanner.getClass().getName().startsWith(HalfStoreFileReader.class.getName()));
+    assertTrue(scanner.seekTo());
+    int count = 0;
+    do {
+      assertEquals(items.get(count++), scanner.getKeyValue());
+    } while (scanner.next());
+    assertEquals(SIZE, count);
+    assertTrue(Bytes.equals(items.get(SIZE - 1).getKey(), bottom.getLastKey()));
+    Scan scan = new Scan(_b("row_0500"), _b("row_0600"));
+    assertTrue(bottom.passesKeyRangeFilter(scan));
+    bottom.close(true);
+
+    HalfStoreFileReader top = new HalfStoreFileReader(fs, p, cacheConf,
+        new Reference(splitRow, Reference.Range.top), DataBlockEncoding.NONE);
+    top.loadFileInfo();
+    assertNull(top.getFirstKey());
+    assertFalse(top.passesKeyRangeFilter(scan));
+    top.close(true);
+  }
+
   private KeyValue doTestOfSeekBefore(Path p, FileSystem fs, Reference bottom, KeyValue seekBefore,
                                         CacheConfig cacheConfig)
             throws IOException {
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.test.RedundantKVGenerator;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests that seeks through the row index of {@link DataBlockEncoding#ROW_INDEX}
+ * land where going through the KeyValues one by one does.
+ */
+@Category(SmallTests.class)
+@RunWith(Parameterized.class)
+public class TestRowIndexDataBlockEncoder {
+  private static final int ENCODED_DATA_OFFSET =
+      HConstants.HFILEBLOCK_HEADER_SIZE + DataBlockEncoding.ID_SIZE;
+
+  private final boolean includesMemstoreTS;
+  private final Random random = new Random(42);
+
+  @Parameters
+  public static Collection<Object[]> parameters() {
+    return HBaseTestingUtility.BOOLEAN_PARAMETERIZED;
+  }
+
+  public TestRowIndexDataBlockEncoder(boolean includesMemstoreTS) {
+    this.includesMemstoreTS = includesMemstoreTS;
+  }
+
+  private List<KeyValue> generateKeyValues(int rows) {
+    List<KeyValue> kvs = new ArrayList<KeyValue>();
+    for (int row = 0; row < rows; row++) {
+      int columns = 1 + random.nextInt(5);
+      for (int column = 0; column < columns; column++) {
+        KeyValue kv = new KeyValue(Bytes.toBytes(String.format("row%05d", 2 * row)),
+            Bytes.toBytes("f"), Bytes.toBytes("q" + column), 1L,
+            new byte[random.nextInt(50)]);
+        kv.setMemstoreTS(includesMemstoreTS ? random.nextInt(100000) : 0);
+        kvs.add(kv);
+      }
+    }
+    return kvs;
+  }
+
+  private ByteBuffer encode(DataBlockEncoder encoder, ByteBuffer keyValues)
+      throws IOException {
+    HFileBlockEncodingContext encodingCtx = encoder.newDataBlockEncodingContext(
+        Compression.Algorithm.NONE, DataBlockEncoding.ROW_INDEX,
+        HConstants.HFILEBLOCK_DUMMY_HEADER);
+    encoder.encodeKeyValues(keyValues, includesMemstoreTS, encodingCtx);
+    byte[] encoded = encodingCtx.getUncompressedBytesWithHeader();
+    return ByteBuffer.wrap(encoded, ENCODED_DATA_OFFSET,
+        encoded.length - ENCODED_DATA_OFFSET).slice();
+  }
+
+  private DataBlockEncoder.EncodedSeeker createSeeker(DataBlockEncoder encoder,
+      ByteBuffer keyValues) throws IOException {
+    DataBlockEncoder.EncodedSeeker seeker =
+        encoder.createSeeker(KeyValue.KEY_COMPARATOR, includesMemstoreTS);
+    seeker.setCurrentBuffer(encode(encoder, keyValues));
+    return seeker;
+  }
+
+  private static void assertSamePosition(DataBlockEncoder.EncodedSeeker expected,
+      DataBlockEncoder.EncodedSeeker actual) {
+    assertTrue(Bytes.equals(expected.getKeyValueBuffer().array(),
+        actual.getKeyValueBuffer().array()));
+    assertEquals(expected.getKeyValue().getMemstoreTS(),
+        actual.getKeyValue().getMemstoreTS());
+  }
+
+  @Test
+  public void testSize() throws IOException {
+    List<KeyValue> kvs = generateKeyValues(100);
+    ByteBuffer keyValues =
+        RedundantKVGenerator.convertKvToByteBuffer(kvs, includesMemstoreTS);
+    ByteBuffer copy = encode(new CopyKeyDataBlockEncoder(), keyValues);
+    ByteBuffer rowIndex = encode(new RowIndexDataBlockEncoder(), keyValues);
+    // the row count and one offset a row
+    assertEquals(copy.limit() + Bytes.SIZEOF_INT + 100 * Bytes.SIZEOF_INT,
+        rowIndex.limit());
+  }
+
+  @Test
+  public void testSeekLikeLinearScan() throws IOException {
+    List<KeyValue> kvs = generateKeyValues(1000);
+    ByteBuffer keyValues =
+        RedundantKVGenerator.convertKvToByteBuffer(kvs, includesMemstoreTS);
+    DataBlockEncoder.EncodedSeeker linear =
+        createSeeker(new CopyKeyDataBlockEncoder(), keyValues);
+    DataBlockEncoder.EncodedSeeker indexed =
+        createSeeker(new RowIndexDataBlockEncoder(), keyValues);
+
+    // the KeyValues of the block, and keys between and around them
+    List<KeyValue> keys = new ArrayList<KeyValue>(kvs);
+    for (int row = -1; row <= 2000; row++) {
+      byte[] rowKey = Bytes.toBytes(String.format("row%05d", row));
+      keys.add(KeyValue.createFirstOnRow(rowKey));
+      keys.add(KeyValue.createLastOnRow(rowKey));
+    }
+    KeyValue firstKv = kvs.get(0);
+    for (KeyValue kv : keys) {
+      for (boolean seekBefore : new boolean[] { false, true }) {
+        if (seekBefore && KeyValue.COMPARATOR.compare(kv, firstKv) <= 0) {
+          // left to the previous block
+          continue;
+        }
+        linear.rewind();
+        indexed.rewind();
+        assertEquals(
+            linear.seekToKeyInBlock(kv.getBuffer(), kv.getKeyOffset(),
+                kv.getKeyLength(), seekBefore),
+            indexed.seekToKeyInBlock(kv.getBuffer(), kv.getKeyOffset(),
+                kv.getKeyLength(), seekBefore));
+        assertSamePosition(linear, indexed);
+        assertEquals(linear.next(), indexed.next());
+        assertSamePosition(linear, indexed);
+      }
+    }
+
+    // reseeks go on from the current position
+    linear.rewind();
+    indexed.rewind();
+    for (int i = 0; i < kvs.size(); i += 1 + random.nextInt(10)) {
+      KeyValue kv = kvs.get(i);
+      assertEquals(0, linear.seekToKeyInBlock(kv.getBuffer(), kv.getKeyOffset(),
+          kv.getKeyLength(), false));
+      assertEquals(0, indexed.seekToKeyInBlock(kv.getBuffer(), kv.getKeyOffset(),
+          kv.getKeyLength(), false));
+      assertSamePosition(linear, indexed);
+    }
+  }
+
+  @Test
+  public void testDecode() throws IOException {
+    List<KeyValue> kvs = generateKeyValues(100);
+    ByteBuffer keyValues =
+        RedundantKVGenerator.convertKvToByteBuffer(kvs, includesMemstoreTS);
+    RowIndexDataBlockEncoder encoder = new RowIndexDataBlockEncoder();
+    ByteBuffer encoded = encode(encoder, keyValues);
+    ByteBuffer decoded = encoder.decodeKeyValues(new DataInputStream(
+        new ByteArrayInputStream(encoded.array(), encoded.arrayOffset(),
+            encoded.limit())), includesMemstoreTS);
+    keyValues.rewind();
+    decoded.rewind();
+    assertEquals(keyValues, decoded);
+
+    ByteBuffer firstKey = encoder.getFirstKeyInBlock(encoded);
+    assertTrue(Bytes.equals(kvs.get(0).getKey(), Bytes.toBytes(firstKey)));
+  }
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the per table accounting of the block cache, and the table shares.
+ */
+@Category(SmallTests.class)
+public class TestBlockCacheTableShares {
+  private static final int BLOCK_SIZE = 10000;
+  /** Room for about a hundred blocks */
+  private static final long MAX_SIZE = 100 * (BLOCK_SIZE + 200)
+      + LruBlockCache.calculateOverhead(100 * BLOCK_SIZE, BLOCK_SIZE, 16);
+
+  @Test
+  public void testTableAccounting() throws Exception {
+    LruBlockCache cache = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    Item[] f1Blocks = generateBlocks(10, "f1file", new BlockCacheOwner("t1", "f1"));
+    Item[] f2Blocks = generateBlocks(5, "f2file", new BlockCacheOwner("t1", "f2"));
+    Item[] t2Blocks = generateBlocks(3, "t2file", new BlockCacheOwner("t2", "f1"));
+    Item[] unowned = generateBlocks(4, "unowned", null);
+    for (Item[] blocks : new Item[][] { f1Blocks, f2Blocks, t2Blocks, unowned }) {
+      for (Item block : blocks) {
+        assertNull(cache.getBlock(block.cacheKey, true, false));
+        cache.cacheBlock(block.cacheKey, block);
+      }
+    }
+    assertEquals(2, cache.getStats().getTableStats().size());
+    TableCacheStats t1 = cache.getStats().getTableStats().get("t1");
+    TableCacheStats t2 = cache.getStats().getTableStats().get("t2");
+    long blockHeapSize = cachedHeapSize(f1Blocks[0]);
+    assertEquals(15, t1.getBlockCount());
+    assertEquals(15 * blockHeapSize, t1.getSize());
+    assertEquals(10 * blockHeapSize, t1.getFamilySizes().get("f1").longValue());
+    assertEquals(5 * blockHeapSize, t1.getFamilySizes().get("f2").longValue());
+    assertEquals(3 * blockHeapSize, t2.getSize());
+    assertEquals(15, t1.getMissCount());
+    assertEquals(3, t2.getMissCount());
+
+    // the lookups don't need to know the owner
+    for (int i = 0; i < f1Blocks.length; i++) {
+      assertNotNull(cache.getBlock(new BlockCacheKey("f1file", i), true, false));
+    }
+    assertEquals(10, t1.getHitCount());
+    assertEquals(0, t2.getHitCount());
+
+    assertEquals(10, cache.evictBlocksByHfileName("f1file"));
+    assertEquals(5, t1.getBlockCount());
+    assertEquals(0, t1.getFamilySizes().get("f1").longValue());
+    assertEquals(10, t1.getEvictedCount());
+    assertEquals(0, t2.getEvictedCount());
+    cache.evictBlocksByHfileName("f2file");
+    cache.evictBlocksByHfileName("t2file");
+    assertEquals(0, t1.getSize());
+    assertEquals(0, t2.getSize());
+  }
+
+  @Test
+  public void testMaxShare() throws Exception {
+    LruBlockCache cache = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    Item[] others = generateBlocks(20, "other", new BlockCacheOwner("t2", "f"));
+    for (Item block : others) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    // the cache is far from full, the table is held to its share anyway
+    BlockCacheOwner owner = new BlockCacheOwner("t1", "f", 0.2f, 0.0f);
+    for (Item block : generateBlocks(60, "capped", owner)) {
+      cache.cacheBlock(block.cacheKey, block);
+      TableCacheStats t1 = cache.getStats().getTableStats().get("t1");
+      assertTrue(t1.getSize() <= t1.getMaxSize(MAX_SIZE));
+    }
+    TableCacheStats t1 = cache.getStats().getTableStats().get("t1");
+    assertTrue(t1.getEvictedCount() > 0);
+    assertTrue(t1.getBlockCount() >= 15);
+    // the other table kept all its blocks
+    for (Item block : others) {
+      assertTrue(cache.containsBlock(block.cacheKey));
+    }
+    assertEquals(0, cache.getStats().getTableStats().get("t2").getEvictedCount());
+  }
+
+  @Test
+  public void testMinShare() throws Exception {
+    LruBlockCache cache = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    BlockCacheOwner owner = new BlockCacheOwner("t1", "f", 1.0f, 0.3f);
+    Item[] protectedBlocks = generateBlocks(25, "protected", owner);
+    for (Item block : protectedBlocks) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    // a scan of another table, several times the size of the cache
+    for (Item block : generateBlocks(500, "scan", new BlockCacheOwner("t2", "f"))) {
+      cache.cacheBlock(block.cacheKey, block);
+      assertTrue(cache.getCurrentSize() <= cache.getMaxSize());
+    }
+    assertTrue(cache.getStats().getTableStats().get("t2").getEvictedCount() > 0);
+    for (Item block : protectedBlocks) {
+      assertTrue(cache.containsBlock(block.cacheKey));
+    }
+    assertEquals(0, cache.getStats().getTableStats().get("t1").getEvictedCount());
+  }
+
+  @Test
+  public void testIdleTablesExpire() throws Exception {
+    LruBlockCache cache = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    Item[] t1Blocks = generateBlocks(3, "t1file", new BlockCacheOwner("t1", "f1"));
+    Item[] t2Blocks = generateBlocks(3, "t2file", new BlockCacheOwner("t2", "f1"));
+    for (Item block : t1Blocks) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    for (Item block : t2Blocks) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    CacheStats stats = cache.getStats();
+    stats.expireIdleTables();
+    assertEquals(2, stats.getTableStats().size());
+
+    // t1 is dropped, t2 is still read from
+    cache.evictBlocksByHfileName("t1file");
+    cache.evictBlocksByHfileName("t2file");
+    assertNull(cache.getBlock(t2Blocks[0].cacheKey, true, false));
+    stats.expireIdleTables();
+    assertEquals(1, stats.getTableStats().size());
+    assertNotNull(stats.getTableStats().get("t2"));
+    stats.expireIdleTables();
+    assertEquals(0, stats.getTableStats().size());
+
+    // a table caching blocks again starts over
+    cache.cacheBlock(t1Blocks[0].cacheKey, t1Blocks[0]);
+    assertEquals(1, stats.getTableStats().get("t1").getBlockCount());
+    cache.shutdown();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidShares() {
+    new BlockCacheOwner("t1", "f", 0.2f, 0.3f);
+  }
+
+  private static long cachedHeapSize(Item block) {
+    return new CachedBlock(block.cacheKey, block, 0).heapSize();
+  }
+
+  private static Item[] generateBlocks(int numBlocks, String hfileName,
+      BlockCacheOwner owner) {
+    Item[] blocks = new Item[numBlocks];
+    for (int i = 0; i < numBlocks; i++) {
+      blocks[i] = new Item(hfileName, i, BLOCK_SIZE, owner);
+    }
+    return blocks;
+  }
+
+  private static class Item implements Cacheable {
+    final BlockCacheKey cacheKey;
+    final int size;
+
+    Item(String hfileName, long offset, int size, BlockCacheOwner owner) {
+      this.cacheKey = new BlockCacheKey(hfileName, offset, DataBlockEncoding.NONE,
+          BlockType.DATA, owner);
+      this.size = size;
+    }
+
+    @Override
+    public long heapSize() {
+      return ClassSize.align(size);
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return 0;
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return null;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination) {
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return BlockType.DATA;
+    }
+  }
+}
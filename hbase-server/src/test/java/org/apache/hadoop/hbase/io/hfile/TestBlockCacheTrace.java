@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the recording of block cache traces and their replay.
+ */
+@Category(SmallTests.class)
+public class TestBlockCacheTrace {
+  private static final int BLOCK_SIZE = 10000;
+
+  private static long maxSize(int blocks) {
+    return blocks * (BLOCK_SIZE + 200)
+        + LruBlockCache.calculateOverhead(blocks * BLOCK_SIZE, BLOCK_SIZE, 16);
+  }
+
+  /**
+   * Looks up the block, caching it on a miss, the way the HFile readers do.
+   */
+  private static void read(BlockCache cache, Item block) {
+    if (cache.getBlock(block.cacheKey, true, false) == null) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+  }
+
+  @Test
+  public void testRecordAndRead() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TracingBlockCache cache = new TracingBlockCache(
+        new LruBlockCache(maxSize(100), BLOCK_SIZE, false), out, Long.MAX_VALUE);
+    Item index = new Item("file1", 0, BlockType.LEAF_INDEX);
+    Item data = new Item("file1", 12345678901L, BlockType.DATA);
+    read(cache, index);
+    read(cache, data);
+    read(cache, data);
+    cache.evictBlock(index.cacheKey);
+    cache.evictBlocksByHfileName("file1");
+    read(cache, new Item("file2", 0, BlockType.DATA));
+    cache.closeTrace();
+    assertFalse(cache.isTracing());
+
+    BlockCacheTrace.Reader reader =
+        new BlockCacheTrace.Reader(new ByteArrayInputStream(out.toByteArray()));
+    BlockCacheTrace.Record record = reader.next();
+    assertEquals(BlockCacheTrace.Op.GET, record.getOp());
+    assertEquals(index.cacheKey, record.getCacheKey());
+    assertFalse(record.isHit());
+    assertTrue(record.isCaching());
+    record = reader.next();
+    assertEquals(BlockCacheTrace.Op.CACHE, record.getOp());
+    assertEquals(BlockType.LEAF_INDEX, record.getBlockType());
+    assertEquals(index.heapSize(), record.getHeapSize());
+    assertEquals(BLOCK_SIZE, record.getSerializedLength());
+    assertEquals(BlockCacheTrace.Op.GET, reader.next().getOp());
+    assertEquals(BlockCacheTrace.Op.CACHE, reader.next().getOp());
+    record = reader.next();
+    assertEquals(BlockCacheTrace.Op.GET, record.getOp());
+    assertEquals(12345678901L, record.getCacheKey().getOffset());
+    assertTrue(record.isHit());
+    assertEquals(BlockType.DATA, record.getBlockType());
+    assertEquals(BlockCacheTrace.Op.EVICT, reader.next().getOp());
+    record = reader.next();
+    assertEquals(BlockCacheTrace.Op.EVICT_FILE, record.getOp());
+    assertEquals("file1", record.getHfileName());
+    record = reader.next();
+    assertEquals("file2", record.getCacheKey().getHfileName());
+    assertEquals(BlockCacheTrace.Op.CACHE, reader.next().getOp());
+    assertNull(reader.next());
+    reader.close();
+  }
+
+  @Test
+  public void testMaxSize() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TracingBlockCache cache = new TracingBlockCache(
+        new LruBlockCache(maxSize(100), BLOCK_SIZE, false), out, 1000);
+    for (int i = 0; i < 1000 && cache.isTracing(); i++) {
+      read(cache, new Item("file", i, BlockType.DATA));
+    }
+    assertFalse(cache.isTracing());
+    int size = out.size();
+    assertTrue(size >= 1000 && size < 1100);
+    read(cache, new Item("file", 1000, BlockType.DATA));
+    assertEquals(size, out.size());
+  }
+
+  @Test
+  public void testReplay() throws IOException {
+    // a working set of 50 blocks, read ten times over
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TracingBlockCache traced = new TracingBlockCache(
+        new LruBlockCache(maxSize(100), BLOCK_SIZE, false), out, Long.MAX_VALUE);
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 50; i++) {
+        read(traced, new Item("file", i, BlockType.DATA));
+      }
+    }
+    traced.closeTrace();
+    assertEquals(450, traced.getStats().getHitCount());
+
+    // a cache large enough hits as the traced one did
+    LruBlockCache large = new LruBlockCache(maxSize(100), BLOCK_SIZE, false);
+    BlockCacheSimulator.ReplayResult result = BlockCacheSimulator.replay(
+        new BlockCacheTrace.Reader(new ByteArrayInputStream(out.toByteArray())), large);
+    assertEquals(450, result.tracedHits);
+    assertEquals(50, result.tracedMisses);
+    assertEquals(0.9, result.getTracedHitRatio(), 0.001);
+    // the lookups and the first caching of each block
+    assertEquals(550, result.records);
+    assertEquals(450, large.getStats().getHitCount());
+    assertEquals(50, large.getStats().getMissCount());
+    assertEquals(50, large.getBlockCount());
+    assertEquals(0, large.getStats().getEvictedCount());
+
+    // a cache too small for the working set keeps evicting
+    LruBlockCache small = new LruBlockCache(maxSize(20), BLOCK_SIZE, false);
+    BlockCacheSimulator.replay(
+        new BlockCacheTrace.Reader(new ByteArrayInputStream(out.toByteArray())), small);
+    assertTrue(small.getStats().getHitCount() < 450);
+    assertTrue(small.getStats().getEvictedCount() > 0);
+    assertTrue(small.getCurrentSize() <= small.getMaxSize());
+  }
+
+  private static class Item implements Cacheable {
+    final BlockCacheKey cacheKey;
+    final BlockType blockType;
+
+    Item(String hfileName, long offset, BlockType blockType) {
+      this.cacheKey = new BlockCacheKey(hfileName, offset, DataBlockEncoding.NONE,
+          blockType);
+      this.blockType = blockType;
+    }
+
+    @Override
+    public long heapSize() {
+      return ClassSize.align(BLOCK_SIZE);
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return BLOCK_SIZE;
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return null;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination) {
+      destination.position(destination.position() + BLOCK_SIZE);
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return blockType;
+    }
+  }
+}
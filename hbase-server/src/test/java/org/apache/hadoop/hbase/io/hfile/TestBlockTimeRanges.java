@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the skipping of the data blocks outside of the time range of a
+ * scanner, using the {@link BlockTimeRanges} of an HFile.
+ */
+@Category(SmallTests.class)
+public class TestBlockTimeRanges {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int ROWS = 100;
+
+  private Configuration conf;
+  private FileSystem fs;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = FileSystem.get(conf);
+  }
+
+  private static KeyValue put(int row, long timestamp) {
+    return new KeyValue(Bytes.toBytes(String.format("row%03d", row)), FAMILY, QUALIFIER,
+        timestamp, Bytes.toBytes("value"));
+  }
+
+  /**
+   * Writes a file of a few cells per block, where the timestamp of each row
+   * is its number, and the given delete marker.
+   */
+  private HFile.Reader writeFile(String name, KeyValue deleteMarker) throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name);
+    HFile.Writer writer = HFile.getWriterFactoryNoCache(conf)
+        .withPath(fs, path)
+        .withBlockSize(put(0, 0).getLength() * 2)
+        .withComparator(KeyValue.KEY_COMPARATOR)
+        .create();
+    for (int i = 0; i < ROWS; i++) {
+      KeyValue kv = put(i, i);
+      if (deleteMarker != null
+          && KeyValue.COMPARATOR.compare(deleteMarker, kv) < 0) {
+        writer.append(deleteMarker);
+        deleteMarker = null;
+      }
+      writer.append(kv);
+    }
+    writer.close();
+    HFile.Reader reader = HFile.createReader(fs, path, new CacheConfig(conf));
+    reader.loadFileInfo();
+    return reader;
+  }
+
+  private static List<Long> scan(HFileScanner scanner) throws IOException {
+    List<Long> timestamps = new ArrayList<Long>();
+    if (scanner.seekTo()) {
+      do {
+        timestamps.add(scanner.getKeyValue().getTimestamp());
+      } while (scanner.next());
+    }
+    return timestamps;
+  }
+
+  @Test
+  public void testRangesWritten() throws IOException {
+    HFile.Reader reader = writeFile("testRangesWritten", null);
+    BlockTimeRanges ranges = ((HFileReaderV2) reader).getBlockTimeRanges();
+    assertNotNull(ranges);
+    assertEquals(reader.getTrailer().getDataIndexCount(), ranges.size());
+    assertEquals(reader.getTrailer().getFirstDataBlockOffset(), ranges.getOffset(0));
+    assertEquals(reader.getTrailer().getLastDataBlockOffset(),
+        ranges.getOffset(ranges.size() - 1));
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(i, ranges.indexOf(ranges.getOffset(i)));
+    }
+    assertEquals(-1, ranges.indexOf(ranges.getOffset(1) - 1));
+    reader.close();
+  }
+
+  @Test
+  public void testSkipOnNext() throws IOException {
+    HFile.Reader reader = writeFile("testSkipOnNext", null);
+    int blocks = reader.getTrailer().getDataIndexCount();
+    assertTrue(blocks > 10);
+
+    HFileScanner scanner = reader.getScanner(false, true);
+    long readsBefore = HFile.dataBlockReadCnt.get();
+    assertEquals(ROWS, scan(scanner).size());
+    assertEquals(blocks, HFile.dataBlockReadCnt.get() - readsBefore);
+
+    scanner = reader.getScanner(false, true);
+    scanner.setTimeRange(50, 60);
+    readsBefore = HFile.dataBlockReadCnt.get();
+    List<Long> timestamps = scan(scanner);
+    long reads = HFile.dataBlockReadCnt.get() - readsBefore;
+    // the first block, then only the ones holding the range
+    assertTrue("Read " + reads + " of " + blocks + " blocks", reads < blocks / 2);
+    for (long ts = 50; ts < 60; ts++) {
+      assertTrue(timestamps.contains(ts));
+    }
+    // the rows of the first block, and of the blocks around the range
+    assertEquals(0L, (long) timestamps.get(0));
+    assertTrue(timestamps.size() < ROWS / 2);
+    for (int i = 1; i < timestamps.size(); i++) {
+      assertTrue(timestamps.get(i) > timestamps.get(i - 1));
+    }
+    assertTrue(timestamps.get(timestamps.size() - 1) < 70);
+
+    // a full range reads everything again
+    scanner.setTimeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    assertEquals(ROWS, scan(scanner).size());
+    reader.close();
+  }
+
+  @Test
+  public void testSkipOnSeek() throws IOException {
+    HFile.Reader reader = writeFile("testSkipOnSeek", null);
+    HFileScanner scanner = reader.getScanner(false, true);
+    scanner.setTimeRange(50, 60);
+    // the block holding the key is skipped: the seek lands after the key
+    assertEquals(HConstants.INDEX_KEY_MAGIC, scanner.seekTo(put(10, 10).getKey()));
+    long ts = scanner.getKeyValue().getTimestamp();
+    assertTrue(ts > 10 && ts <= 50);
+    // the block holding the key overlaps the range
+    assertEquals(0, scanner.reseekTo(put(55, 55).getKey()));
+    assertEquals(55, scanner.getKeyValue().getTimestamp());
+    assertEquals(0, scanner.seekTo(put(50, 50).getKey()));
+    assertEquals(50, scanner.getKeyValue().getTimestamp());
+    // no block after the one holding the key overlaps the range: the scanner
+    // stops at the end of that block
+    assertEquals(0, scanner.reseekTo(put(80, 80).getKey()));
+    int remaining = 0;
+    while (scanner.next()) {
+      remaining++;
+    }
+    assertTrue(remaining < 5);
+    reader.close();
+  }
+
+  @Test
+  public void testDeleteMarkerPreventsSkip() throws IOException {
+    // a marker newer than the range masks older cells in the range
+    KeyValue marker = new KeyValue(Bytes.toBytes("row020"), FAMILY, QUALIFIER, 70,
+        KeyValue.Type.DeleteColumn);
+    HFile.Reader reader = writeFile("testDeleteMarkerPreventsSkip", marker);
+    HFileScanner scanner = reader.getScanner(false, true);
+    scanner.setTimeRange(60, 65);
+    boolean markerSeen = false;
+    assertTrue(scanner.seekTo());
+    do {
+      markerSeen |= scanner.getKeyValue().isDelete();
+    } while (scanner.next());
+    assertTrue(markerSeen);
+
+    // but not a range after it
+    scanner = reader.getScanner(false, true);
+    scanner.setTimeRange(80, 85);
+    markerSeen = false;
+    assertTrue(scanner.seekTo());
+    do {
+      markerSeen |= scanner.getKeyValue().isDelete();
+    } while (scanner.next());
+    assertFalse(markerSeen);
+    reader.close();
+  }
+
+  @Test
+  public void testNoRangesForRawKeys() throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), "testNoRangesForRawKeys");
+    HFile.Writer writer = HFile.getWriterFactoryNoCache(conf)
+        .withPath(fs, path)
+        .withBlockSize(64)
+        .create();
+    for (int i = 0; i < ROWS; i++) {
+      writer.append(Bytes.toBytes(String.format("key%03d", i)), Bytes.toBytes("value"));
+    }
+    writer.close();
+    HFile.Reader reader = HFile.createReader(fs, path, new CacheConfig(conf));
+    reader.loadFileInfo();
+    assertNull(((HFileReaderV2) reader).getBlockTimeRanges());
+    HFileScanner scanner = reader.getScanner(false, true);
+    scanner.setTimeRange(50, 60);
+    int count = 0;
+    assertTrue(scanner.seekTo());
+    do {
+      count++;
+    } while (scanner.next());
+    assertEquals(ROWS, count);
+    reader.close();
+  }
+}
@@ -220,6 +220,14 @@ public class TestHFileWriterV2 {
     // the root block index offset in version 2) because we are not testing
     // intermediate-level index blocks here.
 
+    // The block time ranges sort before the other meta blocks.
+    HFileBlock rangesBlock = blockReader.readBlockData(curBlockPos, -1, -1, false);
+    assertEquals(BlockType.META, rangesBlock.getBlockType());
+    BlockTimeRanges ranges = new BlockTimeRanges();
+    ranges.readFields(rangesBlock.getByteStream());
+    assertEquals(blocksRead, ranges.size());
+    curBlockPos += rangesBlock.getOnDiskSizeWithHeader();
+
     int metaCounter = 0;
     while (fsdis.getPos() < trailer.getLoadOnOpenDataOffset()) {
       LOG.info("Current offset: " + fsdis.getPos() + ", scanning until " +
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the separate tier of the block cache for the index and Bloom blocks.
+ */
+@Category(SmallTests.class)
+public class TestMetaTierBlockCache {
+  private static final int BLOCK_SIZE = 10000;
+  /** Room for about a hundred blocks in either cache */
+  private static final long MAX_SIZE = 100 * (BLOCK_SIZE + 200)
+      + LruBlockCache.calculateOverhead(100 * BLOCK_SIZE, BLOCK_SIZE, 16);
+
+  private LruBlockCache metaTier;
+  private LruBlockCache dataCache;
+  private MetaTierBlockCache cache;
+
+  @Before
+  public void setUp() {
+    metaTier = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    dataCache = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    cache = new MetaTierBlockCache(metaTier, dataCache);
+  }
+
+  @Test
+  public void testRouting() {
+    Item[] index = generateBlocks(10, "file", BlockType.LEAF_INDEX);
+    Item[] blooms = generateBlocks(10, "bloom", BlockType.BLOOM_CHUNK);
+    Item[] data = generateBlocks(10, "data", BlockType.DATA);
+    for (Item[] blocks : new Item[][] { index, blooms, data }) {
+      for (Item block : blocks) {
+        assertNull(cache.getBlock(block.cacheKey, true, false));
+        cache.cacheBlock(block.cacheKey, block);
+      }
+    }
+    assertEquals(20, metaTier.getBlockCount());
+    assertEquals(10, dataCache.getBlockCount());
+    assertEquals(30, cache.getBlockCount());
+    for (Item[] blocks : new Item[][] { index, blooms, data }) {
+      for (Item block : blocks) {
+        assertNotNull(cache.getBlock(block.cacheKey, true, false));
+      }
+    }
+    assertEquals(20, cache.getMetaTierStats().getHitCount());
+    assertEquals(30, cache.getStats().getHitCount());
+    // the misses are counted once, by the data cache
+    assertEquals(30, cache.getStats().getMissCount());
+    assertEquals(0, cache.getMetaTierStats().getMissCount());
+
+    assertEquals(10, cache.evictBlocksByHfileName("file"));
+    assertEquals(10, metaTier.getBlockCount());
+    assertTrue(cache.evictBlock(data[0].cacheKey));
+    assertFalse(cache.evictBlock(data[0].cacheKey));
+    assertEquals(9, dataCache.getBlockCount());
+  }
+
+  @Test
+  public void testScanDoesNotEvictIndex() {
+    Item[] index = generateBlocks(50, "index", BlockType.LEAF_INDEX);
+    for (Item block : index) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    // a scan several times the size of the data cache
+    for (Item block : generateBlocks(500, "scan", BlockType.DATA)) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    assertTrue(dataCache.getEvictedCount() > 0);
+    for (Item block : index) {
+      assertNotNull(cache.getBlock(block.cacheKey, true, false));
+    }
+    assertEquals(0, metaTier.getEvictedCount());
+    assertFalse(cache.checkTierSize());
+  }
+
+  @Test
+  public void testTierTooSmall() {
+    for (Item block : generateBlocks(300, "index", BlockType.LEAF_INDEX)) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    assertTrue(metaTier.getEvictedCount() > 0);
+    assertTrue(cache.checkTierSize());
+    // warns about the evictions since the last check only
+    assertFalse(cache.checkTierSize());
+  }
+
+  private static Item[] generateBlocks(int numBlocks, String hfileName,
+      BlockType blockType) {
+    Item[] blocks = new Item[numBlocks];
+    for (int i = 0; i < numBlocks; i++) {
+      blocks[i] = new Item(hfileName, i, BLOCK_SIZE, blockType);
+    }
+    return blocks;
+  }
+
+  private static class Item implements Cacheable {
+    final BlockCacheKey cacheKey;
+    final int size;
+    final BlockType blockType;
+
+    Item(String hfileName, long offset, int size, BlockType blockType) {
+      this.cacheKey = new BlockCacheKey(hfileName, offset);
+      this.size = size;
+      this.blockType = blockType;
+    }
+
+    @Override
+    public long heapSize() {
+      return ClassSize.align(size);
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return 0;
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return null;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination) {
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return blockType;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests caching data blocks in their on-disk, compressed form.
+ */
+@Category(SmallTests.class)
+public class TestPackedBlockCaching {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final int ROWS = 1000;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private LruBlockCache blockCache;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = FileSystem.get(conf);
+    blockCache = new LruBlockCache(8 * 1024 * 1024, 64 * 1024, false);
+  }
+
+  private CacheConfig cacheConfig(boolean cacheOnWrite, boolean cacheCompressed) {
+    return new CacheConfig(blockCache, true, false, cacheOnWrite, false, false,
+        false, cacheCompressed);
+  }
+
+  private static KeyValue kv(int row) {
+    return new KeyValue(Bytes.toBytes(String.format("row%05d", row)),
+        Bytes.toBytes("f"), Bytes.toBytes("q"), 1L,
+        Bytes.toBytes("a rather compressible value, a rather compressible value"));
+  }
+
+  private Path writeFile(String name, CacheConfig cacheConf) throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name);
+    HFile.Writer writer = HFile.getWriterFactory(conf, cacheConf)
+        .withPath(fs, path)
+        .withBlockSize(4096)
+        .withCompression(Compression.Algorithm.GZ)
+        .withComparator(KeyValue.KEY_COMPARATOR)
+        .create();
+    for (int i = 0; i < ROWS; i++) {
+      writer.append(kv(i));
+    }
+    writer.close();
+    return path;
+  }
+
+  private static List<KeyValue> scan(HFile.Reader reader) throws IOException {
+    List<KeyValue> kvs = new ArrayList<KeyValue>();
+    HFileScanner scanner = reader.getScanner(true, true);
+    if (scanner.seekTo()) {
+      do {
+        kvs.add(scanner.getKeyValue());
+      } while (scanner.next());
+    }
+    return kvs;
+  }
+
+  private void assertScansAll(HFile.Reader reader) throws IOException {
+    List<KeyValue> kvs = scan(reader);
+    assertEquals(ROWS, kvs.size());
+    for (int i = 0; i < ROWS; i++) {
+      assertTrue(KeyValue.COMPARATOR.compare(kv(i), kvs.get(i)) == 0);
+      assertTrue(Bytes.equals(kv(i).getValue(), kvs.get(i).getValue()));
+    }
+  }
+
+  private static HFileBlock cachedDataBlock(BlockCache cache, HFile.Reader reader) {
+    return (HFileBlock) cache.getBlock(new BlockCacheKey(reader.getName(),
+        reader.getTrailer().getFirstDataBlockOffset()), false, false);
+  }
+
+  @Test
+  public void testCacheOnRead() throws IOException {
+    Path path = writeFile("testCacheOnRead", cacheConfig(false, false));
+    HFile.Reader reader = HFile.createReader(fs, path, cacheConfig(false, true));
+    reader.loadFileInfo();
+    assertScansAll(reader);
+    long hits = blockCache.getStats().getHitCount();
+    // served from the cache the second time
+    assertScansAll(reader);
+    assertTrue(blockCache.getStats().getHitCount()
+        >= hits + reader.getTrailer().getDataIndexCount());
+
+    HFileBlock block = cachedDataBlock(blockCache, reader);
+    assertNotNull(block);
+    assertTrue(block.isPacked());
+    assertTrue(block.getUnpackedSize() > 2 * block.getOnDiskSizeWithHeader());
+    CacheStats stats = blockCache.getStats();
+    assertTrue(stats.getLogicalSize() > 2 * stats.getPhysicalSize());
+    reader.close();
+  }
+
+  @Test
+  public void testUncompressedCaching() throws IOException {
+    Path path = writeFile("testUncompressedCaching", cacheConfig(false, false));
+    HFile.Reader reader = HFile.createReader(fs, path, cacheConfig(false, false));
+    reader.loadFileInfo();
+    assertScansAll(reader);
+    assertFalse(cachedDataBlock(blockCache, reader).isPacked());
+    CacheStats stats = blockCache.getStats();
+    assertTrue(stats.getPhysicalSize() > 0);
+    assertEquals(stats.getPhysicalSize(), stats.getLogicalSize());
+    reader.close();
+  }
+
+  @Test
+  public void testCacheOnWrite() throws IOException {
+    Path path = writeFile("testCacheOnWrite", cacheConfig(true, true));
+    HFile.Reader reader = HFile.createReader(fs, path, cacheConfig(false, true));
+    reader.loadFileInfo();
+    HFileBlock block = cachedDataBlock(blockCache, reader);
+    assertNotNull(block);
+    assertTrue(block.isPacked());
+    long misses = blockCache.getStats().getMissCount();
+    assertScansAll(reader);
+    // all the data blocks came from the cache
+    assertEquals(misses, blockCache.getStats().getMissCount());
+    reader.close();
+  }
+
+  @Test
+  public void testSerialization() throws IOException {
+    Path path = writeFile("testSerialization", cacheConfig(false, false));
+    HFile.Reader reader = HFile.createReader(fs, path, cacheConfig(false, true));
+    reader.loadFileInfo();
+    assertScansAll(reader);
+    HFileBlock block = cachedDataBlock(blockCache, reader);
+    assertTrue(block.isPacked());
+
+    // the way BucketCache stores and restores it
+    ByteBuffer serialized = ByteBuffer.allocate(block.getSerializedLength());
+    block.serialize(serialized);
+    HFileBlock deserialized =
+        (HFileBlock) block.getDeserializer().deserialize(serialized, true);
+    assertTrue(deserialized.isPacked());
+    assertEquals(block, deserialized);
+    assertEquals(block.getDeserializer().getDeserialiserIdentifier(),
+        deserialized.getDeserializer().getDeserialiserIdentifier());
+
+    HFileBlock.FSReader fsReader = ((HFileReaderV2) reader).getUncachedBlockReader();
+    HFileBlock unpacked = fsReader.unpack(deserialized);
+    assertFalse(unpacked.isPacked());
+    assertEquals(block.getUnpackedSize(), unpacked.getBufferReadOnlyWithHeader().limit());
+    HFileBlock read = fsReader.readBlockData(block.getOffset(), -1, -1, false);
+    assertEquals(read.getBufferWithoutHeader(), unpacked.getBufferWithoutHeader());
+    // the packed block is left as it was
+    assertEquals(block, deserialized);
+    reader.close();
+  }
+}
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterWriter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests compressing the data blocks of an HFile on other threads than the
+ * writing one.
+ */
+@Category(SmallTests.class)
+public class TestParallelBlockCompression {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final int ROWS = 5000;
+
+  private FileSystem fs;
+
+  @Before
+  public void setUp() throws IOException {
+    fs = FileSystem.get(TEST_UTIL.getConfiguration());
+  }
+
+  private static KeyValue kv(int row) {
+    return new KeyValue(Bytes.toBytes(String.format("row%05d", row)),
+        Bytes.toBytes("f"), Bytes.toBytes("q"), row,
+        Bytes.toBytes("a rather compressible value " + row));
+  }
+
+  private Path writeFile(String name, int threads, DataBlockEncoding encoding,
+      CacheConfig cacheConf) throws IOException {
+    return writeFile(name, threads, encoding, cacheConf, false);
+  }
+
+  /**
+   * @param inlineBlocks whether to write many inline blocks, with a
+   *          multi-level data block index and a compound ROWCOL Bloom filter
+   */
+  private Path writeFile(String name, int threads, DataBlockEncoding encoding,
+      CacheConfig cacheConf, boolean inlineBlocks) throws IOException {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(HFileWriterV2.COMPRESSION_THREADS_KEY, threads);
+    if (inlineBlocks) {
+      conf.setInt(HFileBlockIndex.MAX_CHUNK_SIZE_KEY, 256);
+      conf.setInt(BloomFilterFactory.IO_STOREFILE_BLOOM_BLOCK_SIZE, 256);
+    }
+    if (cacheConf == null) {
+      cacheConf = new CacheConfig(conf);
+    }
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name);
+    HFile.Writer writer = HFile.getWriterFactory(conf, cacheConf)
+        .withPath(fs, path)
+        .withBlockSize(1024)
+        .withCompression(Compression.Algorithm.GZ)
+        .withDataBlockEncoder(new HFileDataBlockEncoderImpl(encoding))
+        .withComparator(KeyValue.KEY_COMPARATOR)
+        .create();
+    BloomFilterWriter bloom = inlineBlocks ? BloomFilterFactory.createGeneralBloomAtWrite(
+        conf, cacheConf, BloomType.ROWCOL, ROWS, writer) : null;
+    for (int i = 0; i < ROWS; i++) {
+      KeyValue kv = kv(i);
+      if (bloom != null) {
+        byte[] bloomKey = bloom.createBloomKey(kv.getBuffer(), kv.getRowOffset(),
+            kv.getRowLength(), kv.getBuffer(), kv.getQualifierOffset(), kv.getQualifierLength());
+        bloom.add(bloomKey, 0, bloomKey.length);
+      }
+      writer.append(kv);
+    }
+    if (bloom != null) {
+      writer.addGeneralBloomFilter(bloom);
+    }
+    writer.appendFileInfo(Bytes.toBytes("key"), Bytes.toBytes("value"));
+    writer.close();
+    return path;
+  }
+
+  private byte[] readFully(Path path) throws IOException {
+    byte[] bytes = new byte[(int) fs.getFileStatus(path).getLen()];
+    FSDataInputStream in = fs.open(path);
+    try {
+      in.readFully(bytes);
+    } finally {
+      in.close();
+    }
+    return bytes;
+  }
+
+  private void assertReadsBack(Path path) throws IOException {
+    HFile.Reader reader = HFile.createReader(fs, path,
+        new CacheConfig(TEST_UTIL.getConfiguration()));
+    reader.loadFileInfo();
+    assertEquals(ROWS, reader.getEntries());
+    HFileScanner scanner = reader.getScanner(false, true);
+    assertTrue(scanner.seekTo());
+    int row = 0;
+    do {
+      assertTrue(KeyValue.COMPARATOR.compare(kv(row), scanner.getKeyValue()) == 0);
+      row++;
+    } while (scanner.next());
+    assertEquals(ROWS, row);
+    // seeks go through the index
+    for (int i = 0; i < ROWS; i += 97) {
+      assertEquals(0, scanner.seekTo(kv(i).getKey()));
+      assertTrue(Bytes.equals(kv(i).getValue(), scanner.getKeyValue().getValue()));
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testSameFile() throws IOException {
+    for (DataBlockEncoding encoding : new DataBlockEncoding[] {
+        DataBlockEncoding.NONE, DataBlockEncoding.PREFIX }) {
+      Path sequential = writeFile("sequential" + encoding, 0, encoding, null);
+      Path parallel = writeFile("parallel" + encoding, 4, encoding, null);
+      assertArrayEquals(readFully(sequential), readFully(parallel));
+      assertReadsBack(parallel);
+    }
+  }
+
+  @Test
+  public void testSameFileWithInlineBlocks() throws IOException {
+    Path sequential = writeFile("inlineSequential", 0, DataBlockEncoding.NONE, null, true);
+    Path parallel = writeFile("inlineParallel", 4, DataBlockEncoding.NONE, null, true);
+    assertArrayEquals(readFully(sequential), readFully(parallel));
+    assertReadsBack(parallel);
+
+    HFile.Reader reader = HFile.createReader(fs, parallel,
+        new CacheConfig(TEST_UTIL.getConfiguration()));
+    try {
+      // the leaf index and Bloom chunks are interleaved with the data blocks
+      assertTrue(reader.getTrailer().getNumDataIndexLevels() > 1);
+      HFileBlock.FSReader fsReader = ((HFileReaderV2) reader).getUncachedBlockReader();
+      long offset = reader.getTrailer().getFirstDataBlockOffset();
+      int leafIndexBlocks = 0;
+      int bloomChunks = 0;
+      while (offset <= reader.getTrailer().getLastDataBlockOffset()) {
+        HFileBlock block = fsReader.readBlockData(offset, -1, -1, false);
+        if (block.getBlockType() == BlockType.LEAF_INDEX) {
+          leafIndexBlocks++;
+        } else if (block.getBlockType() == BlockType.BLOOM_CHUNK) {
+          bloomChunks++;
+        }
+        offset += block.getOnDiskSizeWithHeader();
+      }
+      assertTrue(leafIndexBlocks > 10);
+      assertTrue(bloomChunks > 10);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testCacheOnWrite() throws IOException {
+    LruBlockCache blockCache = new LruBlockCache(8 * 1024 * 1024, 1024, false);
+    CacheConfig cacheConf = new CacheConfig(blockCache, true, false, true, false,
+        false, false, false);
+    Path path = writeFile("testCacheOnWrite", 4, DataBlockEncoding.NONE, cacheConf);
+    HFile.Reader reader = HFile.createReader(fs, path,
+        new CacheConfig(TEST_UTIL.getConfiguration()));
+    reader.loadFileInfo();
+    HFileBlock.FSReader fsReader = ((HFileReaderV2) reader).getUncachedBlockReader();
+    // the blocks are cached at their offsets in the file
+    long offset = reader.getTrailer().getFirstDataBlockOffset();
+    int dataBlocks = 0;
+    while (offset <= reader.getTrailer().getLastDataBlockOffset()) {
+      HFileBlock read = fsReader.readBlockData(offset, -1, -1, false);
+      if (read.getBlockType() == BlockType.DATA) {
+        HFileBlock cached = (HFileBlock) blockCache.getBlock(
+            new BlockCacheKey(reader.getName(), offset), false, false);
+        assertNotNull(cached);
+        assertEquals(read.getBufferWithoutHeader(), cached.getBufferWithoutHeader());
+        dataBlocks++;
+      }
+      offset += read.getOnDiskSizeWithHeader();
+    }
+    // many more than the blocks in flight
+    assertTrue(dataBlocks > 100);
+    reader.close();
+  }
+}
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.hfile.bucket.BucketCache;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the scan-resistant TinyLfuBlockCache, and its FrequencySketch.
+ */
+@Category(SmallTests.class)
+public class TestTinyLfuBlockCache {
+  private static final int BLOCK_SIZE = 10000;
+  /** Room for about a hundred blocks */
+  private static final long MAX_SIZE = 100 * (BLOCK_SIZE + 200)
+      + TinyLfuBlockCache.calculateOverhead(100 * BLOCK_SIZE, BLOCK_SIZE, 16);
+
+  @Test
+  public void testCacheSimple() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    long emptySize = cache.heapSize();
+    Item[] blocks = generateBlocks(50, "block");
+    for (Item block : blocks) {
+      assertNull(cache.getBlock(block.cacheKey, true, false));
+    }
+    for (Item block : blocks) {
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    assertEquals(50, cache.getBlockCount());
+    assertTrue(cache.heapSize() > emptySize + 50 * BLOCK_SIZE);
+    assertTrue(cache.heapSize() <= cache.getMaxSize());
+    for (Item block : blocks) {
+      assertTrue(cache.getBlock(block.cacheKey, true, false) == block);
+    }
+    // caching again is harmless
+    cache.cacheBlock(blocks[0].cacheKey, blocks[0]);
+    assertEquals(50, cache.getBlockCount());
+
+    assertTrue(cache.evictBlock(blocks[0].cacheKey));
+    assertNull(cache.getBlock(blocks[0].cacheKey, true, false));
+    assertEquals(49, cache.getBlockCount());
+    assertEquals(49, cache.evictBlocksByHfileName("block"));
+    assertEquals(0, cache.getBlockCount());
+    assertEquals(emptySize, cache.heapSize());
+    assertEquals(50, cache.getStats().getHitCount());
+    cache.shutdown();
+  }
+
+  @Test
+  public void testHeapSizeChanges() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    CacheTestUtils.testHeapSizeChanges(cache, BLOCK_SIZE);
+    cache.shutdown();
+  }
+
+  @Test
+  public void testBoundedSize() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    for (Item block : generateBlocks(1000, "block")) {
+      if (cache.getBlock(block.cacheKey, true, false) == null) {
+        cache.cacheBlock(block.cacheKey, block);
+      }
+      assertTrue(cache.heapSize() <= cache.getMaxSize());
+    }
+    assertTrue(cache.getBlockCount() > 90);
+    assertTrue(cache.getEvictedCount() > 0);
+    cache.shutdown();
+  }
+
+  @Test
+  public void testScanResistance() throws Exception {
+    TinyLfuBlockCache tinyLfu = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    LruBlockCache lru = new LruBlockCache(MAX_SIZE, BLOCK_SIZE, false);
+    int tinyLfuHits = replayScanTrace(tinyLfu);
+    int lruHits = replayScanTrace(lru);
+    // the working set is read 9 times after it was first loaded
+    assertTrue("TinyLFU hits: " + tinyLfuHits, tinyLfuHits >= 0.9 * 9 * 60);
+    assertTrue("TinyLFU hits: " + tinyLfuHits + ", LRU hits: " + lruHits,
+        tinyLfuHits >= lruHits);
+    tinyLfu.shutdown();
+  }
+
+  /**
+   * Reads a working set of 60 blocks, then 300 blocks read once, ten times
+   * over, the way HFile readers use the cache.
+   * @return the number of hits in the working set
+   */
+  private int replayScanTrace(BlockCache cache) {
+    Item[] workingSet = generateBlocks(60, "hot");
+    int hits = 0;
+    for (int round = 0; round < 10; round++) {
+      for (Item block : workingSet) {
+        if (cache.getBlock(block.cacheKey, true, false) != null) {
+          hits++;
+        } else {
+          cache.cacheBlock(block.cacheKey, block);
+        }
+      }
+      for (Item block : generateBlocks(300, "scan" + round)) {
+        if (cache.getBlock(block.cacheKey, true, false) == null) {
+          cache.cacheBlock(block.cacheKey, block);
+        }
+      }
+    }
+    return hits;
+  }
+
+  @Test
+  public void testAdmissionOfFrequentBlocks() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    Item[] first = generateBlocks(100, "first");
+    for (Item block : first) {
+      cache.getBlock(block.cacheKey, true, false);
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    // a new working set gets in once it was looked up more often
+    Item[] second = generateBlocks(50, "second");
+    for (int round = 0; round < 3; round++) {
+      for (Item block : second) {
+        if (cache.getBlock(block.cacheKey, true, false) == null) {
+          cache.cacheBlock(block.cacheKey, block);
+        }
+      }
+    }
+    int cached = 0;
+    for (Item block : second) {
+      if (cache.containsBlock(block.cacheKey)) {
+        cached++;
+      }
+    }
+    assertTrue("Cached " + cached, cached >= 45);
+    cache.shutdown();
+  }
+
+  @Test
+  public void testRejectedBlocksGoToVictimCache() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    BucketCache victimCache = mock(BucketCache.class);
+    cache.setVictimCache(victimCache);
+    for (Item block : generateBlocks(100, "hot")) {
+      cache.getBlock(block.cacheKey, true, false);
+      cache.cacheBlock(block.cacheKey, block);
+      cache.getBlock(block.cacheKey, true, false);
+    }
+    // read once, less often than any cached block
+    Item[] scan = generateBlocks(50, "scan");
+    for (Item block : scan) {
+      cache.getBlock(block.cacheKey, true, false);
+      cache.cacheBlock(block.cacheKey, block);
+    }
+    assertFalse(cache.containsBlock(scan[0].cacheKey));
+    verify(victimCache).cacheBlockWithWait(eq(scan[0].cacheKey), same(scan[0]), eq(false),
+        eq(false));
+    cache.shutdown();
+  }
+
+  @Test
+  public void testInMemoryBlocks() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(MAX_SIZE, BLOCK_SIZE);
+    Item[] inMemory = generateBlocks(20, "memory");
+    for (Item block : inMemory) {
+      cache.cacheBlock(block.cacheKey, block, true);
+    }
+    for (Item block : generateBlocks(500, "scan")) {
+      if (cache.getBlock(block.cacheKey, true, false) == null) {
+        cache.cacheBlock(block.cacheKey, block);
+      }
+    }
+    for (Item block : inMemory) {
+      assertNotNull(cache.getBlock(block.cacheKey, true, false));
+    }
+    cache.shutdown();
+  }
+
+  @Test
+  public void testCacheMultiThreaded() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(1024 * 1024, 1024);
+    CacheTestUtils.testCacheMultiThreaded(cache, 1024, 10, 1000, 0.80);
+    cache.shutdown();
+  }
+
+  @Test
+  public void testHammerEviction() throws Exception {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(256 * 1024, 5 * 1024);
+    CacheTestUtils.hammerEviction(cache, 5 * 1024, 10, 100);
+    assertTrue(cache.heapSize() <= cache.getMaxSize());
+    cache.shutdown();
+  }
+
+  @Test
+  public void testFrequencySketch() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    int key = "key".hashCode();
+    assertEquals(0, sketch.frequency(key));
+    for (int i = 0; i < 5; i++) {
+      sketch.increment(key);
+    }
+    assertEquals(5, sketch.frequency(key));
+    // saturates
+    for (int i = 0; i < 20; i++) {
+      sketch.increment(key);
+    }
+    assertEquals(15, sketch.frequency(key));
+    // ages: ten times as many increments as table entries halve all counters
+    for (int i = 0; i < 512 * 10; i++) {
+      sketch.increment(("other" + i).hashCode());
+    }
+    assertTrue(sketch.frequency(key) <= 7);
+  }
+
+  private static Item[] generateBlocks(int numBlocks, String hfileName) {
+    Item[] blocks = new Item[numBlocks];
+    for (int i = 0; i < numBlocks; i++) {
+      blocks[i] = new Item(hfileName, i, BLOCK_SIZE);
+    }
+    return blocks;
+  }
+
+  private static class Item implements Cacheable {
+    final BlockCacheKey cacheKey;
+    final int size;
+
+    Item(String hfileName, long offset, int size) {
+      this.cacheKey = new BlockCacheKey(hfileName, offset);
+      this.size = size;
+    }
+
+    @Override
+    public long heapSize() {
+      return ClassSize.align(size);
+    }
+
+    @Override
+    public int getSerializedLength() {
+      return 0;
+    }
+
+    @Override
+    public CacheableDeserializer<Cacheable> getDeserializer() {
+      return null;
+    }
+
+    @Override
+    public void serialize(ByteBuffer destination) {
+    }
+
+    @Override
+    public BlockType getBlockType() {
+      return BlockType.DATA;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Basic test for {@link FileMmapEngine}
+ */
+@Category(SmallTests.class)
+public class TestFileMmapEngine {
+  private static final String FILE_PATH = "testFileMmapEngine";
+  private static final int SIZE = 2 * 1024 * 1024; // 2 MB
+  /** Small segments, so that blocks span them */
+  private static final int SEGMENT_SIZE = 64 * 1024;
+
+  private final Random random = new Random();
+
+  @After
+  public void tearDown() {
+    File file = new File(FILE_PATH);
+    if (file.exists()) {
+      file.delete();
+    }
+  }
+
+  private byte[] randomBytes(int len) {
+    byte[] data = new byte[len];
+    random.nextBytes(data);
+    return data;
+  }
+
+  @Test
+  public void testFileMmapEngine() throws IOException {
+    FileMmapEngine engine = new FileMmapEngine(FILE_PATH, SIZE, SEGMENT_SIZE);
+    try {
+      for (int i = 0; i < 100; i++) {
+        int len = random.nextInt(3 * SEGMENT_SIZE);
+        long offset = random.nextInt(SIZE - len);
+        byte[] data1 = randomBytes(len);
+        byte[] data2 = new byte[len];
+        engine.write(ByteBuffer.wrap(data1), offset);
+        engine.read(ByteBuffer.wrap(data2), offset);
+        assertArrayEquals(data1, data2);
+      }
+    } finally {
+      engine.shutdown();
+    }
+  }
+
+  @Test
+  public void testSegmentBoundaries() throws IOException {
+    // the last segment is shorter than the others
+    int size = 4 * SEGMENT_SIZE + 100;
+    FileMmapEngine engine = new FileMmapEngine(FILE_PATH, size, SEGMENT_SIZE);
+    try {
+      long[] offsets = { 0, SEGMENT_SIZE - 1, SEGMENT_SIZE, 2 * SEGMENT_SIZE - 10,
+          size - 200, size - 1 };
+      for (long offset : offsets) {
+        int len = (int) Math.min(SEGMENT_SIZE + 20, size - offset);
+        byte[] data1 = randomBytes(len);
+        byte[] data2 = new byte[len];
+        engine.write(ByteBuffer.wrap(data1), offset);
+        engine.read(ByteBuffer.wrap(data2), offset);
+        assertArrayEquals(data1, data2);
+      }
+      // the source buffer is read from its position, the destination is
+      // written from its position
+      ByteBuffer src = ByteBuffer.wrap(randomBytes(1000));
+      src.position(100);
+      engine.write(src, SEGMENT_SIZE - 400);
+      ByteBuffer dst = ByteBuffer.allocate(1000);
+      dst.position(100);
+      engine.read(dst, SEGMENT_SIZE - 400);
+      assertArrayEquals(Arrays.copyOfRange(src.array(), 100, 1000),
+          Arrays.copyOfRange(dst.array(), 100, 1000));
+      try {
+        engine.read(ByteBuffer.allocate(101), size - 100);
+        fail("Read past the end of the file");
+      } catch (IOException expected) {
+      }
+    } finally {
+      engine.shutdown();
+    }
+  }
+
+  @Test
+  public void testDataSurvivesShutdown() throws IOException {
+    FileMmapEngine engine = new FileMmapEngine(FILE_PATH, SIZE, SEGMENT_SIZE);
+    byte[] data1 = randomBytes(3 * SEGMENT_SIZE);
+    long offset = SEGMENT_SIZE / 2;
+    engine.write(ByteBuffer.wrap(data1), offset);
+    engine.sync();
+    engine.shutdown();
+    try {
+      engine.read(ByteBuffer.allocate(10), offset);
+      fail("Read from a shut down engine");
+    } catch (IOException expected) {
+    }
+    // the way a cache retrieving its persisted state reopens the file
+    engine = new FileMmapEngine(FILE_PATH, SIZE, SEGMENT_SIZE);
+    try {
+      byte[] data2 = new byte[data1.length];
+      engine.read(ByteBuffer.wrap(data2), offset);
+      assertArrayEquals(data1, data2);
+    } finally {
+      engine.shutdown();
+    }
+  }
+}
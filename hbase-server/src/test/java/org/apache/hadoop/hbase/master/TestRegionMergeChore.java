@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.master;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestRegionMergeChore {
+  private static final byte[] TABLE = Bytes.toBytes("t");
+
+  private final List<HRegionInfo> regions = new ArrayList<HRegionInfo>();
+  private final Map<byte[], Integer> sizes = new TreeMap<byte[], Integer>(Bytes.BYTES_COMPARATOR);
+
+  @Test
+  public void testSelectMerges() {
+    addRegion(HConstants.EMPTY_START_ROW, "b", 1);
+    addRegion("b", "c", 2);
+    addRegion("c", "d", 100);
+    addRegion("d", "e", 3);
+    addRegion("e", HConstants.EMPTY_END_ROW, 4);
+
+    List<Pair<HRegionInfo, HRegionInfo>> merges = RegionMergeChore.selectMerges(regions, sizes, 10);
+    assertEquals(2, merges.size());
+    assertMerge(merges.get(0), 0, 1);
+    assertMerge(merges.get(1), 3, 4);
+
+    // The bound on the merged size is inclusive
+    merges = RegionMergeChore.selectMerges(regions, sizes, 7);
+    assertEquals(2, merges.size());
+    assertMerge(merges.get(1), 3, 4);
+    merges = RegionMergeChore.selectMerges(regions, sizes, 6);
+    assertEquals(1, merges.size());
+    assertMerge(merges.get(0), 0, 1);
+  }
+
+  @Test
+  public void testUnknownSizesAndGaps() {
+    addRegion(HConstants.EMPTY_START_ROW, "b", 1);
+    addRegion("b", "c", 1);
+    // A region in transition is not in the list, which leaves a gap
+    addRegion("d", "e", 1);
+    addRegion("e", "f", 1);
+    addRegion("f", HConstants.EMPTY_END_ROW, 1);
+    // No load reported for the first region yet
+    sizes.remove(regions.get(0).getRegionName());
+
+    List<Pair<HRegionInfo, HRegionInfo>> merges = RegionMergeChore.selectMerges(regions, sizes, 10);
+    assertEquals(1, merges.size());
+    assertMerge(merges.get(0), 2, 3);
+  }
+
+  private void addRegion(String startKey, String endKey, int sizeMB) {
+    addRegion(Bytes.toBytes(startKey), Bytes.toBytes(endKey), sizeMB);
+  }
+
+  private void addRegion(byte[] startKey, String endKey, int sizeMB) {
+    addRegion(startKey, Bytes.toBytes(endKey), sizeMB);
+  }
+
+  private void addRegion(String startKey, byte[] endKey, int sizeMB) {
+    addRegion(Bytes.toBytes(startKey), endKey, sizeMB);
+  }
+
+  private void addRegion(byte[] startKey, byte[] endKey, int sizeMB) {
+    HRegionInfo hri = new HRegionInfo(TABLE, startKey, endKey);
+    regions.add(hri);
+    sizes.put(hri.getRegionName(), sizeMB);
+  }
+
+  private void assertMerge(Pair<HRegionInfo, HRegionInfo> merge, int regionA, int regionB) {
+    assertSame(regions.get(regionA), merge.getFirst());
+    assertSame(regions.get(regionB), merge.getSecond());
+  }
+}
@@ -18,6 +18,9 @@
 
 package org.apache.hadoop.hbase.regionserver;
 
+import java.util.Collection;
+import java.util.Collections;
+
 public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrapper {
 
   @Override
@@ -180,6 +183,46 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 97;
   }
 
+  @Override
+  public long getBlockCacheMetaTierSize() {
+    return 400;
+  }
+
+  @Override
+  public long getBlockCacheMetaTierHitCount() {
+    return 80;
+  }
+
+  @Override
+  public long getBlockCacheMetaTierEvictedCount() {
+    return 5;
+  }
+
+  @Override
+  public Collection<String> getBlockCacheTableNames() {
+    return Collections.singletonList("testTable");
+  }
+
+  @Override
+  public long getBlockCacheTableSize(String table) {
+    return 300;
+  }
+
+  @Override
+  public long getBlockCacheTableHitCount(String table) {
+    return 200;
+  }
+
+  @Override
+  public long getBlockCacheTableMissCount(String table) {
+    return 100;
+  }
+
+  @Override
+  public long getBlockCacheTableEvictedCount(String table) {
+    return 50;
+  }
+
 
   @Override
   public long getUpdatesBlockedTime() {
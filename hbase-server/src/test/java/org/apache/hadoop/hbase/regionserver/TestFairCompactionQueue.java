@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestFairCompactionQueue {
+  private static final long AGING = 1000;
+
+  private ManualEnvironmentEdge edge;
+
+  @Before
+  public void setUp() {
+    edge = new ManualEnvironmentEdge();
+    edge.setValue(1);
+    EnvironmentEdgeManager.injectEdge(edge);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  @Test
+  public void testPriorityIsReevaluatedAtDequeue() {
+    FairCompactionQueue queue =
+        new FairCompactionQueue(new FairCompactionQueue.RunningCompactions(0), AGING);
+    Compaction c1 = new Compaction("t1", "r1", 5);
+    Compaction c2 = new Compaction("t1", "r2", 3);
+    queue.offer(c1);
+    queue.offer(c2);
+    // the store of the first one got more files since
+    c1.priority = 1;
+    assertSame(c1, queue.poll());
+    assertSame(c2, queue.poll());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testWaitingCompactionsAge() {
+    FairCompactionQueue queue =
+        new FairCompactionQueue(new FairCompactionQueue.RunningCompactions(0), AGING);
+    Compaction old = new Compaction("t1", "r1", 5);
+    queue.offer(old);
+    edge.incValue(3 * AGING);
+    Compaction urgent = new Compaction("t2", "r2", 3);
+    queue.offer(urgent);
+    // 5 - 3 for the wait is better than 3
+    assertSame(old, queue.poll());
+    assertSame(urgent, queue.poll());
+  }
+
+  @Test
+  public void testConcurrencyCapPerTable() {
+    FairCompactionQueue.RunningCompactions running = new FairCompactionQueue.RunningCompactions(1);
+    FairCompactionQueue queue = new FairCompactionQueue(running, AGING);
+    Compaction a1 = new Compaction("a", "r1", 1);
+    Compaction a2 = new Compaction("a", "r2", 1);
+    Compaction b1 = new Compaction("b", "r3", 5);
+    queue.offer(a1);
+    queue.offer(a2);
+    queue.offer(b1);
+    assertSame(a1, queue.poll());
+    // a2 is more urgent but its table is running a compaction already
+    assertSame(b1, queue.poll());
+    assertNull(queue.poll());
+    assertEquals(1, queue.size());
+    running.finished(a1);
+    assertSame(a2, queue.poll());
+  }
+
+  @Test
+  public void testBusyTablesYield() {
+    FairCompactionQueue.RunningCompactions running = new FairCompactionQueue.RunningCompactions(0);
+    FairCompactionQueue queue = new FairCompactionQueue(running, AGING);
+    Compaction a1 = new Compaction("a", "r1", 3);
+    Compaction a2 = new Compaction("a", "r2", 3);
+    Compaction b1 = new Compaction("b", "r3", 3);
+    queue.offer(a1);
+    queue.offer(a2);
+    queue.offer(b1);
+    assertSame(a1, queue.poll());
+    assertSame(b1, queue.poll());
+    assertSame(a2, queue.poll());
+  }
+
+  @Test
+  public void testOtherTasksFirst() {
+    FairCompactionQueue queue =
+        new FairCompactionQueue(new FairCompactionQueue.RunningCompactions(0), AGING);
+    Compaction c1 = new Compaction("t1", "r1", 1);
+    Runnable other = new Runnable() {
+      @Override
+      public void run() {
+      }
+    };
+    queue.offer(c1);
+    queue.offer(other);
+    assertSame(other, queue.poll());
+    assertSame(c1, queue.poll());
+  }
+
+  @Test
+  public void testConcurrencyCapThroughExecutor() throws Exception {
+    final FairCompactionQueue.RunningCompactions running =
+        new FairCompactionQueue.RunningCompactions(1);
+    ThreadPoolExecutor pool = CompactSplitThread.createCompactionPool(2,
+        new FairCompactionQueue(running, AGING), Executors.defaultThreadFactory());
+    final Semaphore started = new Semaphore(0);
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      for (String region : new String[] { "r1", "r2" }) {
+        pool.execute(new Compaction("a", region, 1) {
+          @Override
+          public void run() {
+            started.release();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            } finally {
+              // as CompactionRunner does
+              running.finished(this);
+            }
+          }
+        });
+      }
+      assertTrue(started.tryAcquire(10, TimeUnit.SECONDS));
+      // the other compaction of the table waits in the queue, though a thread is free
+      assertFalse(started.tryAcquire(500, TimeUnit.MILLISECONDS));
+      assertEquals(1, running.getRunningForTable("a"));
+      assertEquals(1, pool.getQueue().size());
+
+      release.countDown();
+      assertTrue(started.tryAcquire(10, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      pool.shutdown();
+      assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    assertEquals(0, running.getRunningForTable("a"));
+  }
+
+  private static class Compaction implements FairCompactionQueue.QueuedCompaction {
+    private final String table;
+    private final String region;
+    private int priority;
+
+    Compaction(String table, String region, int priority) {
+      this.table = table;
+      this.region = region;
+      this.priority = priority;
+    }
+
+    @Override
+    public void run() {
+    }
+
+    @Override
+    public String getTableName() {
+      return table;
+    }
+
+    @Override
+    public String getRegionName() {
+      return region;
+    }
+
+    @Override
+    public int getPriority() {
+      return priority;
+    }
+  }
+}
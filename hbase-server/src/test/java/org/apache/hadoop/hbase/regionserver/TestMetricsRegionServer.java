@@ -19,6 +19,7 @@ package org.apache.hadoop.hbase.regionserver;
 
 import org.apache.hadoop.hbase.CompatibilityFactory;
 import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
 import org.apache.hadoop.hbase.test.MetricsAssertHelper;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -128,5 +129,19 @@ public class TestMetricsRegionServer {
     HELPER.assertCounter("slowIncrementCount", 15, serverSource);
     HELPER.assertCounter("slowPutCount", 16, serverSource);
   }
+
+  @Test
+  public void testGetScanMetrics() {
+    ServerSideScanMetrics scanMetrics = new ServerSideScanMetrics();
+    scanMetrics.addSeeks(2);
+    scanMetrics.addCellsExamined(5);
+    rsm.updateGetScanMetrics(scanMetrics.getMetricsMap());
+    scanMetrics.addSeeks(1);
+    rsm.updateGetScanMetrics(scanMetrics.getMetricsMap());
+    HELPER.assertCounter(MetricsRegionServer.GET_SCAN_METRICS_PREFIX
+        + ScanMetrics.SEEKS_METRIC_NAME, 3, serverSource);
+    HELPER.assertCounter(MetricsRegionServer.GET_SCAN_METRICS_PREFIX
+        + ScanMetrics.CELLS_EXAMINED_METRIC_NAME, 5, serverSource);
+  }
 }
 
@@ -17,7 +17,9 @@
  */
 package org.apache.hadoop.hbase.regionserver;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -101,5 +103,18 @@ public class TestMiniBatchOperationInProgress {
     WALEdit wal = new WALEdit();
     miniBatch.setWalEdit(0, wal);
     assertEquals(wal, walEditsFromCoprocessors[7]);
+
+    assertNull(miniBatch.getOperationsFromCoprocessors(0));
+    Put first = new Put(Bytes.toBytes(100));
+    Put second = new Put(Bytes.toBytes(101));
+    miniBatch.addOperationsFromCP(1, new Mutation[] { first });
+    miniBatch.addOperationsFromCP(1, new Mutation[] { second });
+    assertArrayEquals(new Mutation[] { first, second }, miniBatch.getOperationsFromCoprocessors(1));
+    assertNull(miniBatch.getOperationsFromCoprocessors(2));
+    try {
+      miniBatch.addOperationsFromCP(3, new Mutation[] { first });
+      fail("Should throw Exception while accessing out of range");
+    } catch (ArrayIndexOutOfBoundsException e) {
+    }
   }
 }
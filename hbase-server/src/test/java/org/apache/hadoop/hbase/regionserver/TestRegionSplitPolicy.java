@@ -34,6 +34,8 @@ import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.SmallTests;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -173,6 +175,75 @@ public class TestRegionSplitPolicy {
     assertEquals("ef", Bytes.toString(policy.getSplitPoint()));
   }
 
+  @Test
+  public void testLoadAwareRegionSplitPolicy() throws IOException {
+    conf.set(HConstants.HBASE_REGION_SPLIT_POLICY_KEY,
+        LoadAwareRegionSplitPolicy.class.getName());
+    conf.setLong(LoadAwareRegionSplitPolicy.REQUESTS_PER_SECOND_KEY, 10);
+    conf.setLong(LoadAwareRegionSplitPolicy.PERIOD_MILLIS_KEY, 1000);
+    conf.setInt(LoadAwareRegionSplitPolicy.SUSTAINED_PERIODS_KEY, 2);
+    conf.setInt(LoadAwareRegionSplitPolicy.SAMPLE_SIZE_KEY, 100);
+    conf.setInt(LoadAwareRegionSplitPolicy.SAMPLE_INTERVAL_KEY, 1);
+    htd.setMaxFileSize(1024L);
+    HStore mockStore = Mockito.mock(HStore.class);
+    Mockito.doReturn(100L).when(mockStore).getSize();
+    Mockito.doReturn(true).when(mockStore).canSplit();
+    Mockito.doReturn(Bytes.toBytes("size split")).when(mockStore).getSplitPoint();
+    stores.put(new byte[]{1}, mockStore);
+
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(1000);
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      LoadAwareRegionSplitPolicy policy =
+          (LoadAwareRegionSplitPolicy)RegionSplitPolicy.create(mockRegion, conf);
+      assertTrue(policy.shouldCheckPeriodically());
+
+      // One period over the request rate is not enough
+      serveRequests(policy);
+      edge.incValue(1000);
+      assertFalse(policy.shouldSplit());
+
+      // The second one in a row is; the split point divides the requests, not the bytes
+      serveRequests(policy);
+      edge.incValue(1000);
+      assertTrue(policy.shouldSplit());
+      assertEquals("m", Bytes.toString(policy.getSplitPoint()));
+
+      // A quiet period resets the load
+      edge.incValue(1000);
+      assertFalse(policy.shouldSplit());
+      assertEquals("size split", Bytes.toString(policy.getSplitPoint()));
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+
+    // The start key of the region is never a split point
+    List<byte[]> rows = new ArrayList<byte[]>();
+    rows.add(Bytes.toBytes("a"));
+    rows.add(Bytes.toBytes("a"));
+    assertNull(LoadAwareRegionSplitPolicy.getBalancedSplitRow(rows, Bytes.toBytes("a")));
+    rows.add(Bytes.toBytes("b"));
+    assertEquals("b", Bytes.toString(
+        LoadAwareRegionSplitPolicy.getBalancedSplitRow(rows, Bytes.toBytes("a"))));
+  }
+
+  /**
+   * Serves 100 requests, 40 of them to row "m" and the others spread around it.
+   */
+  private void serveRequests(LoadAwareRegionSplitPolicy policy) {
+    for (int i = 0; i < 30; ++i) {
+      byte[] row = Bytes.toBytes(String.format("a%02d", i));
+      policy.requestServed(row, 0, row.length);
+      row = Bytes.toBytes(String.format("z%02d", i));
+      policy.requestServed(row, 0, row.length);
+    }
+    byte[] hotRow = Bytes.toBytes("m");
+    for (int i = 0; i < 40; ++i) {
+      policy.requestServed(hotRow, 0, hotRow.length);
+    }
+  }
+
   @Test
   public void testConstantSizePolicy() throws IOException {
     htd.setMaxFileSize(1024L);
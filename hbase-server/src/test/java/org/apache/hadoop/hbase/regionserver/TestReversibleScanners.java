@@ -0,0 +1,434 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.MediumTests;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.NoOpDataBlockEncoder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Test the seekToPreviousRow, backwardSeek and seekToLastRow support of the
+ * scanners, and reversed scans through them up to the region level.
+ */
+@Category(MediumTests.class)
+public class TestReversibleScanners {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILYNAME = Bytes.toBytes("testCf");
+  private static final long TS = System.currentTimeMillis();
+  private static final int MAXMVCC = 7;
+  private static final byte[] ROW = Bytes.toBytes("testRow");
+  private static final int ROWSIZE = 200;
+  private static final byte[][] ROWS = makeN(ROW, ROWSIZE);
+  private static final byte[] QUAL = Bytes.toBytes("testQual");
+  private static final int QUALSIZE = 5;
+  private static final byte[][] QUALS = makeN(QUAL, QUALSIZE);
+  private static final byte[] VALUE = Bytes.toBytes("testValue");
+  private static final int VALUESIZE = 3;
+  private static final byte[][] VALUES = makeN(VALUE, VALUESIZE);
+
+  private Configuration conf;
+  private FileSystem fs;
+  private CacheConfig cacheConf;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = FileSystem.get(conf);
+    cacheConf = new CacheConfig(conf);
+    MultiVersionConsistencyControl.setThreadReadPoint(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testReversibleStoreFileScanner() throws IOException {
+    Path hfilePath = new Path(TEST_UTIL.getDataTestDir(
+        "testReversibleStoreFileScanner"), "regionname");
+    // Small blocks, so that stepping back a row regularly crosses a block
+    StoreFile.Writer writer = new StoreFile.WriterBuilder(conf, cacheConf, fs,
+        2 * 1024).withOutputDir(hfilePath).build();
+    writeStoreFile(writer);
+
+    StoreFile sf = new StoreFile(fs, writer.getPath(), conf, cacheConf,
+        BloomType.NONE, NoOpDataBlockEncoder.INSTANCE);
+    StoreFileScanner scanner = sf.createReader().getStoreFileScanner(false, false);
+    seekTestOfReversibleKeyValueScanner(scanner);
+    scanner.close();
+  }
+
+  @Test
+  public void testReversibleMemstoreScanner() throws IOException {
+    MemStore memstore = new MemStore();
+    writeMemstore(memstore);
+    KeyValueScanner scanner = memstore.getScanners().get(0);
+    seekTestOfReversibleKeyValueScanner(scanner);
+    scanner.close();
+
+    // Rows whose KeyValues are all newer than the read point are invisible.
+    MemStore partlyVisible = new MemStore();
+    for (int i = 0; i < ROWSIZE; i++) {
+      KeyValue kv = makeKV(i, 0);
+      kv.setMemstoreTS(i % 2 == 0 ? 1 : MAXMVCC + 1);
+      partlyVisible.add(kv);
+    }
+    MultiVersionConsistencyControl.setThreadReadPoint(MAXMVCC);
+    scanner = partlyVisible.getScanners().get(0);
+    assertTrue(scanner.seekToLastRow());
+    for (int i = ROWSIZE - 2; i >= 0; i -= 2) {
+      assertTrue(Bytes.equals(ROWS[i], scanner.peek().getRow()));
+      if (i > 0) {
+        assertTrue(scanner.seekToPreviousRow(scanner.peek()));
+      }
+    }
+    assertFalse(scanner.seekToPreviousRow(scanner.peek()));
+    scanner.close();
+  }
+
+  @Test
+  public void testReversibleKeyValueHeap() throws IOException {
+    // Rows are spread over a memstore and two store files.
+    MemStore memstore = new MemStore();
+    Path hfilePath = new Path(TEST_UTIL.getDataTestDir(
+        "testReversibleKeyValueHeap"), "regionname");
+    StoreFile.Writer writer1 = new StoreFile.WriterBuilder(conf, cacheConf, fs,
+        2 * 1024).withOutputDir(hfilePath).build();
+    StoreFile.Writer writer2 = new StoreFile.WriterBuilder(conf, cacheConf, fs,
+        2 * 1024).withOutputDir(hfilePath).build();
+    writeStoreFile(new StoreFile.Writer[] { writer1, writer2 }, memstore);
+
+    List<KeyValueScanner> scanners = getScanners(memstore, writer1, writer2);
+    for (KeyValueScanner scanner : scanners) {
+      scanner.seekToLastRow();
+    }
+    ReversedKeyValueHeap heap = new ReversedKeyValueHeap(scanners,
+        KeyValue.COMPARATOR);
+    verifyDescendingRows(heap, ROWSIZE - 1, 0);
+    assertNull(heap.peek());
+    heap.close();
+
+    // backwardSeek to a middle row, then skip rows with seekToPreviousRow
+    scanners = getScanners(memstore, writer1, writer2);
+    int startRowNum = ROWSIZE / 2;
+    KeyValue seekKey = KeyValue.createFirstOnRow(ROWS[startRowNum]);
+    for (KeyValueScanner scanner : scanners) {
+      scanner.backwardSeek(seekKey);
+    }
+    heap = new ReversedKeyValueHeap(scanners, KeyValue.COMPARATOR);
+    assertTrue(Bytes.equals(ROWS[startRowNum], heap.peek().getRow()));
+    assertTrue(heap.seekToPreviousRow(heap.peek()));
+    assertTrue(Bytes.equals(ROWS[startRowNum - 1], heap.peek().getRow()));
+    verifyDescendingRows(heap, startRowNum - 1, 0);
+    heap.close();
+
+    // a heap nested in another one is seeked to its last row through it
+    scanners = getScanners(new MemStore(), writer1);
+    for (KeyValueScanner scanner : scanners) {
+      scanner.backwardSeek(seekKey);
+    }
+    List<KeyValueScanner> outerScanners = new ArrayList<KeyValueScanner>();
+    outerScanners.add(new ReversedKeyValueHeap(scanners, KeyValue.COMPARATOR));
+    outerScanners.addAll(getScanners(memstore, writer2));
+    heap = new ReversedKeyValueHeap(outerScanners, KeyValue.COMPARATOR);
+    assertTrue(heap.seekToLastRow());
+    verifyDescendingRows(heap, ROWSIZE - 1, 0);
+    heap.close();
+  }
+
+  @Test
+  public void testReversibleStoreScanner() throws IOException {
+    MemStore memstore = new MemStore();
+    Path hfilePath = new Path(TEST_UTIL.getDataTestDir(
+        "testReversibleStoreScanner"), "regionname");
+    StoreFile.Writer writer1 = new StoreFile.WriterBuilder(conf, cacheConf, fs,
+        2 * 1024).withOutputDir(hfilePath).build();
+    StoreFile.Writer writer2 = new StoreFile.WriterBuilder(conf, cacheConf, fs,
+        2 * 1024).withOutputDir(hfilePath).build();
+    writeStoreFile(new StoreFile.Writer[] { writer1, writer2 }, memstore);
+
+    ScanInfo scanInfo = new ScanInfo(FAMILYNAME, 0, Integer.MAX_VALUE,
+        Long.MAX_VALUE, false, 0, KeyValue.COMPARATOR);
+    ScanType scanType = ScanType.USER_SCAN;
+
+    // Whole table, newest version only
+    Scan scan = new Scan();
+    scan.setReversed(true);
+    StoreScanner storeScanner = new ReversedStoreScanner(scan, scanInfo,
+        scanType, null, getScanners(memstore, writer1, writer2));
+    verifyCountAndOrder(storeScanner, QUALSIZE * ROWSIZE, ROWSIZE);
+
+    // Start and stop rows: the start row is included, the stop row is not
+    int startRowNum = ROWSIZE * 3 / 4;
+    int stopRowNum = ROWSIZE / 4;
+    scan = new Scan(ROWS[startRowNum], ROWS[stopRowNum]);
+    scan.setReversed(true);
+    storeScanner = new ReversedStoreScanner(scan, scanInfo, scanType, null,
+        getScanners(memstore, writer1, writer2));
+    verifyCountAndOrder(storeScanner, QUALSIZE * (startRowNum - stopRowNum),
+        startRowNum - stopRowNum);
+
+    // All versions of one column
+    scan = new Scan(ROWS[startRowNum]);
+    scan.setReversed(true);
+    scan.setMaxVersions();
+    scan.addColumn(FAMILYNAME, QUALS[0]);
+    NavigableSet<byte[]> columns = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+    columns.add(QUALS[0]);
+    storeScanner = new ReversedStoreScanner(scan, scanInfo, scanType, columns,
+        getScanners(memstore, writer1, writer2));
+    verifyCountAndOrder(storeScanner, VALUESIZE * (startRowNum + 1),
+        startRowNum + 1);
+  }
+
+  @Test
+  public void testReversedRegionScan() throws IOException {
+    byte[] tableName = Bytes.toBytes("testReversedRegionScan");
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    htd.addFamily(new HColumnDescriptor(FAMILYNAME));
+    HRegionInfo info = new HRegionInfo(htd.getName(), null, null, false);
+    Path path = TEST_UTIL.getDataTestDir("testReversedRegionScan");
+    HRegion region = HRegion.createHRegion(info, path, conf, htd);
+    try {
+      for (int i = 0; i < ROWSIZE; i++) {
+        Put put = new Put(ROWS[i]);
+        for (int j = 0; j < QUALSIZE; j++) {
+          put.add(FAMILYNAME, QUALS[j], TS, VALUES[0]);
+        }
+        region.put(put);
+        if (i == ROWSIZE / 2) {
+          region.flushcache();
+        }
+      }
+
+      Scan scan = new Scan();
+      scan.setReversed(true);
+      verifyRegionScan(region, scan, ROWSIZE - 1, 0);
+
+      int startRowNum = ROWSIZE * 3 / 4;
+      int stopRowNum = ROWSIZE / 4;
+      scan = new Scan(ROWS[startRowNum], ROWS[stopRowNum]);
+      scan.setReversed(true);
+      verifyRegionScan(region, scan, startRowNum, stopRowNum + 1);
+
+      // A start row which is not in the table starts from the row before it
+      scan = new Scan(Bytes.add(ROWS[startRowNum], new byte[] { 0 }));
+      scan.setReversed(true);
+      verifyRegionScan(region, scan, startRowNum, 0);
+    } finally {
+      HRegion.closeHRegion(region);
+    }
+  }
+
+  private void verifyRegionScan(HRegion region, Scan scan, int expectedFirst,
+      int expectedLast) throws IOException {
+    RegionScanner scanner = region.getScanner(scan);
+    List<KeyValue> results = new ArrayList<KeyValue>();
+    int rowNum = expectedFirst;
+    boolean hasMore = true;
+    while (hasMore) {
+      hasMore = scanner.next(results);
+      if (results.isEmpty()) {
+        continue;
+      }
+      assertEquals(QUALSIZE, results.size());
+      for (KeyValue kv : results) {
+        assertTrue(Bytes.equals(ROWS[rowNum], kv.getRow()));
+      }
+      results.clear();
+      rowNum--;
+    }
+    assertEquals(expectedLast - 1, rowNum);
+    scanner.close();
+  }
+
+  private void verifyCountAndOrder(InternalScanner scanner,
+      int expectedKVCount, int expectedRowCount) throws IOException {
+    List<KeyValue> kvList = new ArrayList<KeyValue>();
+    KeyValue lastKV = null;
+    int rowCount = 0;
+    int kvCount = 0;
+    boolean hasMore = true;
+    while (hasMore) {
+      hasMore = scanner.next(kvList);
+      if (kvList.isEmpty()) {
+        continue;
+      }
+      rowCount++;
+      kvCount += kvList.size();
+      if (lastKV != null) {
+        // rows come in descending order
+        assertTrue(KeyValue.COMPARATOR.compareRows(kvList.get(0), lastKV) < 0);
+      }
+      lastKV = kvList.get(kvList.size() - 1);
+      kvList.clear();
+    }
+    assertEquals(expectedKVCount, kvCount);
+    assertEquals(expectedRowCount, rowCount);
+  }
+
+  private void verifyDescendingRows(KeyValueScanner scanner, int firstRowNum,
+      int lastRowNum) throws IOException {
+    KeyValue kv;
+    int rowNum = firstRowNum;
+    KeyValue prev = null;
+    while ((kv = scanner.peek()) != null) {
+      if (prev != null && !prev.matchingRow(kv)) {
+        rowNum--;
+      }
+      assertTrue("Expected row " + Bytes.toString(ROWS[rowNum]) + " but got "
+          + kv, Bytes.equals(ROWS[rowNum], kv.getRow()));
+      if (prev != null && prev.matchingRow(kv)) {
+        assertTrue(KeyValue.COMPARATOR.compare(prev, kv) < 0);
+      }
+      prev = kv;
+      scanner.next();
+    }
+    assertEquals(lastRowNum, rowNum);
+  }
+
+  private void seekTestOfReversibleKeyValueScanner(KeyValueScanner scanner)
+      throws IOException {
+    // seekToLastRow, then step back through every row
+    assertTrue(scanner.seekToLastRow());
+    for (int i = ROWSIZE - 1; i >= 0; i--) {
+      KeyValue kv = scanner.peek();
+      assertTrue(Bytes.equals(ROWS[i], kv.getRow()));
+      // positioned at the first KeyValue of the row
+      assertTrue(Bytes.equals(QUALS[0], kv.getQualifier()));
+      assertEquals(i > 0, scanner.seekToPreviousRow(kv));
+    }
+    assertNull(scanner.peek());
+
+    // backwardSeek within a row stays on that row
+    int rowNum = ROWSIZE / 2;
+    KeyValue seekKey = makeKV(rowNum, 2);
+    assertTrue(scanner.backwardSeek(seekKey));
+    assertTrue(Bytes.equals(ROWS[rowNum], scanner.peek().getRow()));
+    assertTrue(Bytes.equals(QUALS[2], scanner.peek().getQualifier()));
+
+    // backwardSeek past the end of a row goes to the previous row
+    seekKey = KeyValue.createLastOnRow(ROWS[rowNum]);
+    assertTrue(scanner.backwardSeek(seekKey));
+    assertTrue(Bytes.equals(ROWS[rowNum - 1], scanner.peek().getRow()));
+
+    // backwardSeek to a row which is not there
+    seekKey = KeyValue.createFirstOnRow(Bytes.add(ROWS[rowNum], new byte[] { 0 }));
+    assertTrue(scanner.backwardSeek(seekKey));
+    assertTrue(Bytes.equals(ROWS[rowNum], scanner.peek().getRow()));
+
+    // nothing before the first row
+    assertFalse(scanner.seekToPreviousRow(KeyValue.createFirstOnRow(ROWS[0])));
+  }
+
+  private List<KeyValueScanner> getScanners(MemStore memstore,
+      StoreFile.Writer... writers) throws IOException {
+    List<KeyValueScanner> scanners = new ArrayList<KeyValueScanner>();
+    for (StoreFile.Writer writer : writers) {
+      StoreFile sf = new StoreFile(fs, writer.getPath(), conf, cacheConf,
+          BloomType.NONE, NoOpDataBlockEncoder.INSTANCE);
+      scanners.add(sf.createReader().getStoreFileScanner(false, false));
+    }
+    scanners.addAll(memstore.getScanners());
+    return scanners;
+  }
+
+  private static void writeStoreFile(final StoreFile.Writer writer)
+      throws IOException {
+    try {
+      for (int i = 0; i < ROWSIZE; i++) {
+        for (int j = 0; j < QUALSIZE; j++) {
+          writer.append(makeKV(i, j));
+        }
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static void writeMemstore(MemStore memstore) throws IOException {
+    for (int i = 0; i < ROWSIZE; i++) {
+      for (int j = 0; j < QUALSIZE; j++) {
+        memstore.add(makeKV(i, j));
+      }
+    }
+  }
+
+  /**
+   * Spreads all versions of every cell over the writers and the memstore, so
+   * that each of them holds some of each row.
+   */
+  private static void writeStoreFile(final StoreFile.Writer[] writers,
+      MemStore memstore) throws IOException {
+    try {
+      for (int i = 0; i < ROWSIZE; i++) {
+        for (int j = 0; j < QUALSIZE; j++) {
+          for (int k = 0; k < VALUESIZE; k++) {
+            KeyValue kv = new KeyValue(ROWS[i], FAMILYNAME, QUALS[j], TS - k,
+                VALUES[k]);
+            int target = (i + j + k) % (writers.length + 1);
+            if (target < writers.length) {
+              writers[target].append(kv);
+            } else {
+              memstore.add(kv);
+            }
+          }
+        }
+      }
+    } finally {
+      for (StoreFile.Writer writer : writers) {
+        writer.close();
+      }
+    }
+  }
+
+  private static KeyValue makeKV(int rowNum, int qualNum) {
+    return new KeyValue(ROWS[rowNum], FAMILYNAME, QUALS[qualNum], TS,
+        VALUES[0]);
+  }
+
+  private static byte[][] makeN(byte[] base, int n) {
+    byte[][] ret = new byte[n][];
+    for (int i = 0; i < n; i++) {
+      ret[i] = Bytes.add(base, Bytes.toBytes(String.format("%04d", i)));
+    }
+    return ret;
+  }
+}
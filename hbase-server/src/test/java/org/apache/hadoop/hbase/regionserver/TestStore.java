@@ -230,24 +230,70 @@ public class TestStore extends TestCase {
       CompactionContext compaction = this.store.requestCompaction();
       CompactionRequest cr = compaction.getRequest();
       // the first is expired normally.
-      // If not the first compaction, there is another empty store file,
       List<StoreFile> files = new ArrayList<StoreFile>(cr.getFiles());
-      assertEquals(Math.min(i, 2), cr.getFiles().size());
+      assertEquals(1, cr.getFiles().size());
+      assertTrue(cr.isAllFilesExpired());
       for (int j = 0; j < files.size(); j++) {
         assertTrue(files.get(j).getReader().getMaxTimestamp() < (edge
             .currentTimeMillis() - this.store.getScanInfo().getTtl()));
       }
-      // Verify that the expired store file is compacted to an empty store file.
-      // Default compaction policy creates just one and only one compacted file.
-      StoreFile compactedFile = this.store.compact(compaction).get(0);
-      // It is an empty store file.
-      assertEquals(0, compactedFile.getReader().getEntries());
+      List<StoreFile> compactedFiles = this.store.compact(compaction);
+      if (i < storeFileNum) {
+        // The expired store file is archived without being rewritten.
+        assertTrue(compactedFiles.isEmpty());
+        assertEquals(storeFileNum - i, this.store.getStorefiles().size());
+      } else {
+        // The last store file is compacted to an empty store file, which keeps the
+        // sequence id of the store.
+        assertEquals(1, compactedFiles.size());
+        assertEquals(0, compactedFiles.get(0).getReader().getEntries());
+      }
 
       // Let the next store file expired.
       edge.incrementTime(sleepTime);
     }
   }
 
+  /**
+   * The newest store file may hold nothing but expired cells, when they were written with old
+   * timestamps. It must not be archived without a replacement keeping its sequence id.
+   */
+  public void testNewestStoreFileExpired() throws Exception {
+    int ttl = 4;
+    IncrementingEnvironmentEdge edge = new IncrementingEnvironmentEdge();
+    EnvironmentEdgeManagerTestHelper.injectEdge(edge);
+
+    Configuration conf = HBaseConfiguration.create();
+    conf.setBoolean("hbase.store.delete.expired.storefile", true);
+    HColumnDescriptor hcd = new HColumnDescriptor(family);
+    hcd.setTimeToLive(ttl);
+    init(getName(), conf, hcd);
+
+    long now = EnvironmentEdgeManager.currentTimeMillis();
+    long ttlMs = this.store.getScanInfo().getTtl();
+    // the older file has cells that do not expire during the test
+    this.store.add(new KeyValue(row, family, qf1, now + 10 * ttlMs, (byte[]) null));
+    flush(1);
+    // the newest file has cells about to expire
+    this.store.add(new KeyValue(row, family, qf2, now, (byte[]) null));
+    flush(2);
+    long maxSequenceId = this.store.getMaxSequenceId(true);
+    edge.incrementTime(2 * ttlMs);
+
+    CompactionContext compaction = this.store.requestCompaction();
+    CompactionRequest cr = compaction.getRequest();
+    assertTrue(cr.isAllFilesExpired());
+    assertEquals(1, cr.getFiles().size());
+    assertEquals(maxSequenceId, cr.getFiles().iterator().next().getMaxSequenceId());
+
+    // compacted to an empty store file rather than archived
+    List<StoreFile> compactedFiles = this.store.compact(compaction);
+    assertEquals(1, compactedFiles.size());
+    assertEquals(0, compactedFiles.get(0).getReader().getEntries());
+    assertEquals(2, this.store.getStorefiles().size());
+    assertEquals(maxSequenceId, this.store.getMaxSequenceId(true));
+  }
+
   public void testLowestModificationTime() throws Exception {
     Configuration conf = HBaseConfiguration.create();
     FileSystem fs = FileSystem.get(conf);
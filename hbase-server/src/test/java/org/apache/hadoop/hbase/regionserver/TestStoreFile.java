@@ -666,6 +666,83 @@ public class TestStoreFile extends HBaseTestCase {
     }
   }
 
+  public void testRowPrefixBloomFilter() throws Exception {
+    FileSystem fs = FileSystem.getLocal(conf);
+    conf.setFloat(BloomFilterFactory.IO_STOREFILE_BLOOM_ERROR_RATE, (float) 0.01);
+    conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_ENABLED, true);
+    conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER, "|");
+    int entityCount = 100;
+    int timestamps = 10;
+    try {
+      // write the rows of the even entities
+      Path f = new Path(ROOT_DIR, getName());
+      StoreFile.Writer writer = new StoreFile.WriterBuilder(conf, cacheConf,
+          fs, StoreFile.DEFAULT_BLOCKSIZE_SMALL)
+              .withFilePath(f)
+              .withBloomType(BloomType.ROWPREFIX)
+              .withMaxKeyCount(entityCount)
+              .withChecksumType(CKTYPE)
+              .withBytesPerChecksum(CKBYTES)
+              .build();
+      for (int i = 0; i < entityCount * 2; i += 2) {
+        for (int t = 0; t < timestamps; t++) {
+          writer.append(new KeyValue(
+              Bytes.toBytes(String.format("entity%05d|%05d", i, t)),
+              "family".getBytes(), "col".getBytes(), Bytes.toBytes(t)));
+        }
+      }
+      writer.close();
+
+      StoreFile.Reader reader = new StoreFile.Reader(fs, f, cacheConf,
+          DataBlockEncoding.NONE);
+      reader.loadFileInfo();
+      reader.loadBloomfilter();
+      StoreFileScanner scanner = reader.getStoreFileScanner(false, false);
+      assertEquals(BloomType.ROWPREFIX, reader.getBloomFilterType());
+      assertEquals(entityCount, reader.generalBloomFilter.getKeyCount());
+      TreeSet<byte[]> columns = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+      columns.add("col".getBytes());
+
+      int falsePos = 0;
+      for (int i = 0; i < entityCount * 2; i++) {
+        String entity = String.format("entity%05d", i);
+        Scan reversed = new Scan(Bytes.toBytes(entity + "|00005"),
+            Bytes.toBytes(entity + "|00002"));
+        reversed.setReversed(true);
+        Scan[] scans = {
+            // all the rows of the entity, up to the next prefix
+            new Scan(Bytes.toBytes(entity + "|"), Bytes.toBytes(entity + "}")),
+            // some of them
+            new Scan(Bytes.toBytes(entity + "|00002"),
+                Bytes.toBytes(entity + "|00005")),
+            reversed,
+            // a get
+            new Scan(Bytes.toBytes(entity + "|00003"),
+                Bytes.toBytes(entity + "|00003")) };
+        for (Scan scan : scans) {
+          boolean exists = scanner.shouldUseScanner(scan, columns, Long.MIN_VALUE);
+          if (i % 2 == 0) {
+            assertTrue(exists);
+          } else if (exists) {
+            falsePos++;
+          }
+        }
+      }
+      assertTrue("False positives: " + falsePos, falsePos < 4 * entityCount * 0.01 * 4);
+
+      // scans over rows of different prefixes are not filtered
+      assertTrue(scanner.shouldUseScanner(new Scan(Bytes.toBytes("entity00001|"),
+          Bytes.toBytes("entity00002")), columns, Long.MIN_VALUE));
+      assertTrue(scanner.shouldUseScanner(new Scan(Bytes.toBytes("entity00001"),
+          Bytes.toBytes("entity00001}")), columns, Long.MIN_VALUE));
+
+      reader.close(true);
+      fs.delete(f, true);
+    } finally {
+      conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER, "");
+    }
+  }
+
   public void testSeqIdComparator() {
     assertOrdering(StoreFile.Comparators.SEQ_ID,
         mockStoreFile(true,  100,   1000, -1, "/foo/123"),
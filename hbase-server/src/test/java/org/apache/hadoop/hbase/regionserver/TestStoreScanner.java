@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.TreeSet;
 
@@ -36,6 +37,7 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.KeyValueTestUtil;
 import org.apache.hadoop.hbase.MediumTests;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
 import org.apache.hadoop.hbase.regionserver.ScanInfo;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.EnvironmentEdge;
@@ -69,6 +71,43 @@ public class TestStoreScanner extends TestCase {
     return cols;
   }
 
+  public void testScanMetrics() throws IOException {
+    String r1 = "R1";
+    KeyValue [] kvs = new KeyValue[] {
+        KeyValueTestUtil.create(r1, CF_STR, "a", 1, KeyValue.Type.Put, "dont-care"),
+        KeyValueTestUtil.create(r1, CF_STR, "a", 2, KeyValue.Type.Put, "dont-care"),
+        KeyValueTestUtil.create(r1, CF_STR, "a", 3, KeyValue.Type.Put, "dont-care"),
+        KeyValueTestUtil.create(r1, CF_STR, "a", 4, KeyValue.Type.Put, "dont-care"),
+        KeyValueTestUtil.create(r1, CF_STR, "a", 5, KeyValue.Type.Put, "dont-care"),
+    };
+    List<KeyValueScanner> scanners = Arrays.<KeyValueScanner>asList(
+        new KeyValueScanner[] {
+            new KeyValueScanFixture(KeyValue.COMPARATOR, kvs)
+    });
+    Scan scanSpec = new Scan(Bytes.toBytes(r1));
+    scanSpec.setTimeRange(1, 3);
+    scanSpec.setMaxVersions();
+    StoreScanner scan = new StoreScanner(scanSpec, scanInfo, scanType,
+        getCols("a"), scanners);
+    ServerSideScanMetrics scanMetrics = new ServerSideScanMetrics();
+    ServerSideScanMetrics.setThreadScanMetrics(scanMetrics);
+    try {
+      List<KeyValue> results = new ArrayList<KeyValue>();
+      scan.next(results);
+      assertEquals(2, results.size());
+      Map<String, Long> metrics = scanMetrics.getMetricsMap();
+      long examined = metrics.get(ScanMetrics.CELLS_EXAMINED_METRIC_NAME);
+      long filtered = metrics.get(ScanMetrics.CELLS_FILTERED_METRIC_NAME);
+      assertTrue(examined > results.size());
+      assertEquals(results.size(), examined - filtered);
+      // reading the metrics resets them
+      assertEquals(0L, scanMetrics.getMetricsMap()
+          .get(ScanMetrics.CELLS_EXAMINED_METRIC_NAME).longValue());
+    } finally {
+      ServerSideScanMetrics.setThreadScanMetrics(null);
+    }
+  }
+
   public void testScanTimeRange() throws IOException {
     String r1 = "R1";
     // returns only 1 of these 2 even though same timestamp
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.apache.hadoop.hbase.regionserver.StripeStoreFileManager.OPEN_KEY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@Category(SmallTests.class)
+public class TestStripeMultiFileWriter {
+  private static final byte[] KEY_B = Bytes.toBytes("bbb");
+  private static final byte[] KEY_D = Bytes.toBytes("ddd");
+
+  @Test
+  public void testBoundaryWriter() throws Exception {
+    MockWriterFactory factory = new MockWriterFactory();
+    StripeMultiFileWriter mw = new StripeMultiFileWriter.BoundaryMultiWriter(
+        Arrays.asList(OPEN_KEY, KEY_B, KEY_D, OPEN_KEY));
+    mw.init(factory);
+    append(mw, "aaa", "aaa", "bbb", "ccc", "ddd", "eee");
+    List<Path> paths = mw.commitWriters(10, true);
+    assertEquals(3, paths.size());
+    assertEquals(3, factory.files.size());
+    factory.files.get(0).assertFile(OPEN_KEY, KEY_B, "aaa", "aaa");
+    factory.files.get(1).assertFile(KEY_B, KEY_D, "bbb", "ccc");
+    factory.files.get(2).assertFile(KEY_D, OPEN_KEY, "ddd", "eee");
+    for (WrittenFile file : factory.files) {
+      verify(file.writer).appendMetadata(10, true);
+      verify(file.writer).close();
+    }
+  }
+
+  @Test
+  public void testBoundaryWriterSkipsEmptyStripes() throws Exception {
+    MockWriterFactory factory = new MockWriterFactory();
+    StripeMultiFileWriter mw = new StripeMultiFileWriter.BoundaryMultiWriter(
+        Arrays.asList(OPEN_KEY, KEY_B, KEY_D, OPEN_KEY));
+    mw.init(factory);
+    append(mw, "aaa", "eee");
+    assertEquals(2, mw.commitWriters(10, false).size());
+    assertEquals(2, factory.files.size());
+    factory.files.get(0).assertFile(OPEN_KEY, KEY_B, "aaa");
+    factory.files.get(1).assertFile(KEY_D, OPEN_KEY, "eee");
+  }
+
+  @Test
+  public void testBoundaryWriterWritesOneEmptyFile() throws Exception {
+    MockWriterFactory factory = new MockWriterFactory();
+    StripeMultiFileWriter mw = new StripeMultiFileWriter.BoundaryMultiWriter(
+        Arrays.asList(OPEN_KEY, KEY_B, OPEN_KEY));
+    mw.init(factory);
+    // the empty file keeps track of the max sequence id
+    assertEquals(1, mw.commitWriters(10, false).size());
+    factory.files.get(0).assertFile(OPEN_KEY, KEY_B);
+    verify(factory.files.get(0).writer).appendMetadata(10, false);
+  }
+
+  @Test
+  public void testBoundaryWriterRejectsRowsOutOfItsStripes() throws Exception {
+    StripeMultiFileWriter mw =
+        new StripeMultiFileWriter.BoundaryMultiWriter(Arrays.asList(KEY_B, KEY_D));
+    mw.init(new MockWriterFactory());
+    try {
+      append(mw, "aaa");
+      fail("A row before the first stripe should be rejected");
+    } catch (IOException expected) {
+      // expected
+    }
+    mw = new StripeMultiFileWriter.BoundaryMultiWriter(Arrays.asList(KEY_B, KEY_D));
+    mw.init(new MockWriterFactory());
+    append(mw, "bbb");
+    try {
+      append(mw, "ddd");
+      fail("The end row of the last stripe should be rejected");
+    } catch (IOException expected) {
+      // expected
+    }
+    assertEquals(1, mw.abortWriters().size());
+  }
+
+  @Test
+  public void testSizeWriter() throws Exception {
+    MockWriterFactory factory = new MockWriterFactory();
+    StripeMultiFileWriter mw =
+        new StripeMultiFileWriter.SizeMultiWriter(3, 2, OPEN_KEY, OPEN_KEY);
+    mw.init(factory);
+    // a row is never split across stripes, and the last one takes what is left
+    append(mw, "aaa", "aaa", "aaa", "bbb", "ccc", "ddd", "eee", "fff");
+    assertEquals(3, mw.commitWriters(10, true).size());
+    factory.files.get(0).assertFile(OPEN_KEY, KEY_B, "aaa", "aaa", "aaa");
+    factory.files.get(1).assertFile(KEY_B, KEY_D, "bbb", "ccc");
+    factory.files.get(2).assertFile(KEY_D, OPEN_KEY, "ddd", "eee", "fff");
+  }
+
+  @Test
+  public void testSizeWriterRejectsRowsOutOfItsRange() throws Exception {
+    StripeMultiFileWriter mw = new StripeMultiFileWriter.SizeMultiWriter(2, 1, KEY_B, KEY_D);
+    mw.init(new MockWriterFactory());
+    append(mw, "bbb", "ccc", "ddd");
+    try {
+      mw.commitWriters(10, true);
+      fail("The end row of the range should be rejected");
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  static void append(Compactor.CellSink sink, String... rows) throws IOException {
+    for (String row : rows) {
+      sink.append(createKeyValue(row));
+    }
+  }
+
+  static KeyValue createKeyValue(String row) {
+    return new KeyValue(Bytes.toBytes(row), Bytes.toBytes("f"), Bytes.toBytes("q"), 1L,
+        KeyValue.Type.Put, Bytes.toBytes("v"));
+  }
+
+  /**
+   * Creates mock writers, and keeps what is written to them.
+   */
+  static class MockWriterFactory implements StripeMultiFileWriter.WriterFactory {
+    final List<WrittenFile> files = new ArrayList<WrittenFile>();
+
+    @Override
+    public StoreFile.Writer createWriter() throws IOException {
+      WrittenFile file = new WrittenFile(files.size());
+      files.add(file);
+      return file.writer;
+    }
+  }
+
+  /**
+   * A mock writer and what was written to it.
+   */
+  static class WrittenFile {
+    final StoreFile.Writer writer = mock(StoreFile.Writer.class);
+    final List<KeyValue> kvs = new ArrayList<KeyValue>();
+    final Map<byte[], byte[]> fileInfo = new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR);
+
+    WrittenFile(int index) throws IOException {
+      when(writer.getPath()).thenReturn(new Path("/hbase/tmp/file" + index));
+      doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) {
+          kvs.add((KeyValue) invocation.getArguments()[0]);
+          return null;
+        }
+      }).when(writer).append(any(KeyValue.class));
+      doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) {
+          Object[] args = invocation.getArguments();
+          fileInfo.put((byte[]) args[0], (byte[]) args[1]);
+          return null;
+        }
+      }).when(writer).appendFileInfo(any(byte[].class), any(byte[].class));
+    }
+
+    /**
+     * Checks the file has the given stripe, null for none, and the key values of the rows.
+     */
+    void assertFile(byte[] startRow, byte[] endRow, String... rows) {
+      assertArrayEquals(startRow, fileInfo.get(StripeStoreFileManager.STRIPE_START_KEY));
+      assertArrayEquals(endRow, fileInfo.get(StripeStoreFileManager.STRIPE_END_KEY));
+      assertEquals(rows.length, kvs.size());
+      for (int i = 0; i < rows.length; ++i) {
+        assertEquals(rows[i], Bytes.toString(kvs.get(i).getRow()));
+      }
+    }
+  }
+}
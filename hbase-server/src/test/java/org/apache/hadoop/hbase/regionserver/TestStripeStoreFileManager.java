@@ -0,0 +1,266 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.apache.hadoop.hbase.regionserver.StripeStoreFileManager.OPEN_KEY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestStripeStoreFileManager {
+  private static final byte[] KEY_B = Bytes.toBytes("bbb");
+  private static final byte[] KEY_C = Bytes.toBytes("ccc");
+  private static final byte[] KEY_D = Bytes.toBytes("ddd");
+
+  private StripeStoreFileManager manager;
+  private long seqId = 0;
+
+  @Before
+  public void setUp() {
+    Configuration conf = HBaseConfiguration.create();
+    this.manager = new StripeStoreFileManager(KeyValue.COMPARATOR, conf);
+    this.seqId = 0;
+  }
+
+  @Test
+  public void testFilesWithoutStripesGoToL0() throws Exception {
+    StoreFile sf = createFile();
+    manager.insertNewFile(sf);
+    assertEquals(0, manager.getStripeCount());
+    assertTrue(manager.getStripeBoundaries().isEmpty());
+    assertFiles(manager.getLevel0Files(), sf);
+    assertFiles(manager.getFilesForScanOrGet(true, KEY_B, KEY_B), sf);
+    assertFiles(manager.getStorefiles(), sf);
+  }
+
+  @Test
+  public void testLoadFiles() throws Exception {
+    StoreFile l0 = createFile();
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1 = createFile(KEY_B, KEY_D);
+    StoreFile sf2 = createFile(KEY_D, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(sf2, l0, sf1, sf0));
+    assertEquals(3, manager.getStripeCount());
+    assertFiles(manager.getLevel0Files(), l0);
+    assertFiles(manager.getStripes().get(0), sf0);
+    assertFiles(manager.getStripes().get(1), sf1);
+    assertFiles(manager.getStripes().get(2), sf2);
+    assertArrayEquals(KEY_B, manager.getStartRow(1));
+    assertArrayEquals(KEY_D, manager.getEndRow(1));
+    assertArrayEquals(OPEN_KEY, manager.getEndRow(2));
+    List<byte[]> boundaries = manager.getStripeBoundaries();
+    assertEquals(4, boundaries.size());
+    assertArrayEquals(OPEN_KEY, boundaries.get(0));
+    assertArrayEquals(KEY_B, boundaries.get(1));
+    assertArrayEquals(KEY_D, boundaries.get(2));
+    assertArrayEquals(OPEN_KEY, boundaries.get(3));
+  }
+
+  @Test
+  public void testOverlappingStripesGoToL0() throws Exception {
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_C);
+    StoreFile sf1 = createFile(KEY_B, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(sf0, sf1));
+    assertEquals(1, manager.getStripeCount());
+    assertFiles(manager.getStripes().get(0), sf0);
+    assertFiles(manager.getLevel0Files(), sf1);
+  }
+
+  @Test
+  public void testGetFilesForScanOrGet() throws Exception {
+    StoreFile l0 = createFile();
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1 = createFile(KEY_B, KEY_D);
+    StoreFile sf2 = createFile(KEY_D, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(l0, sf0, sf1, sf2));
+    // a get reads L0 and one stripe only
+    assertFiles(manager.getFilesForScanOrGet(true, KEY_C, KEY_C), l0, sf1);
+    assertFiles(manager.getFilesForScanOrGet(true, KEY_B, KEY_B), l0, sf1);
+    assertFiles(manager.getFilesForScanOrGet(true, KEY_D, KEY_D), l0, sf2);
+    // a scan reads the stripes it covers
+    assertFiles(manager.getFilesForScanOrGet(false, OPEN_KEY, KEY_C), l0, sf0, sf1);
+    assertFiles(manager.getFilesForScanOrGet(false, KEY_C, OPEN_KEY), l0, sf1, sf2);
+    assertFiles(manager.getFilesForScanOrGet(false, OPEN_KEY, OPEN_KEY), l0, sf0, sf1, sf2);
+  }
+
+  @Test
+  public void testInsertNewFile() throws Exception {
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1 = createFile(KEY_B, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(sf0, sf1));
+    // flushed into a stripe
+    StoreFile flushed = createFile(KEY_B, OPEN_KEY);
+    manager.insertNewFile(flushed);
+    assertFiles(manager.getStripes().get(1), sf1, flushed);
+    // written for stripes that were split meanwhile, fitting one of the current stripes
+    StoreFile narrower = createFile(KEY_C, KEY_D);
+    manager.insertNewFile(narrower);
+    assertFiles(manager.getStripes().get(1), sf1, flushed, narrower);
+    // spanning several stripes
+    StoreFile wider = createFile(OPEN_KEY, KEY_C);
+    manager.insertNewFile(wider);
+    assertFiles(manager.getLevel0Files(), wider);
+    assertEquals(5, manager.getStorefileCount());
+  }
+
+  @Test
+  public void testCompactLevel0IntoStripes() throws Exception {
+    StoreFile l0a = createFile();
+    StoreFile l0b = createFile();
+    manager.loadFiles(Arrays.asList(l0a, l0b));
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_C);
+    StoreFile sf1 = createFile(KEY_C, OPEN_KEY);
+    manager.addCompactionResults(Arrays.asList(l0a, l0b), Arrays.asList(sf0, sf1));
+    assertTrue(manager.getLevel0Files().isEmpty());
+    assertEquals(2, manager.getStripeCount());
+    assertFiles(manager.getStripes().get(0), sf0);
+    assertFiles(manager.getStripes().get(1), sf1);
+    assertFiles(manager.getStorefiles(), sf0, sf1);
+  }
+
+  @Test
+  public void testSplitStripe() throws Exception {
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1a = createFile(KEY_B, OPEN_KEY);
+    StoreFile sf1b = createFile(KEY_B, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(sf0, sf1a, sf1b));
+    // flushed while the stripe was being split
+    StoreFile flushed = createFile(KEY_B, OPEN_KEY);
+    manager.insertNewFile(flushed);
+    StoreFile split0 = createFile(KEY_B, KEY_D);
+    StoreFile split1 = createFile(KEY_D, OPEN_KEY);
+    manager.addCompactionResults(Arrays.asList(sf1a, sf1b), Arrays.asList(split0, split1));
+    assertEquals(3, manager.getStripeCount());
+    assertFiles(manager.getStripes().get(0), sf0);
+    assertFiles(manager.getStripes().get(1), split0);
+    assertFiles(manager.getStripes().get(2), split1);
+    assertFiles(manager.getLevel0Files(), flushed);
+    assertArrayEquals(KEY_D, manager.getStartRow(2));
+  }
+
+  @Test
+  public void testMergeStripes() throws Exception {
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1 = createFile(KEY_B, KEY_D);
+    StoreFile sf2 = createFile(KEY_D, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(sf0, sf1, sf2));
+    // the compaction only wrote data for the first of the two stripes
+    StoreFile merged = createFile(KEY_B, OPEN_KEY);
+    manager.addCompactionResults(Arrays.asList(sf1, sf2), Arrays.asList(merged));
+    assertEquals(2, manager.getStripeCount());
+    assertFiles(manager.getStripes().get(1), merged);
+    assertFiles(manager.getFilesForScanOrGet(true, KEY_D, KEY_D), merged);
+  }
+
+  @Test
+  public void testRowKeyBefore() throws Exception {
+    StoreFile l0 = createFile();
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1a = createFile(KEY_B, KEY_D);
+    StoreFile sf1b = createFile(KEY_B, KEY_D);
+    StoreFile sf2 = createFile(KEY_D, OPEN_KEY);
+    manager.loadFiles(Arrays.asList(l0, sf0, sf1a, sf1b, sf2));
+    KeyValue target = KeyValue.createFirstOnRow(KEY_C);
+    List<StoreFile> candidates = toList(manager.getCandidateFilesForRowKeyBefore(target));
+    assertEquals(Arrays.asList(l0, sf1b, sf1a, sf0), candidates);
+    // nothing before the candidate can be better than it
+    KeyValue candidate = KeyValue.createFirstOnRow(KEY_B);
+    candidates = toList(manager.updateCandidateFilesForRowKeyBefore(
+        candidates.iterator(), target, candidate));
+    assertEquals(Arrays.asList(l0, sf1b, sf1a), candidates);
+  }
+
+  @Test
+  public void testGetSplitPoint() throws Exception {
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B, 10);
+    StoreFile sf1 = createFile(KEY_B, KEY_C, 5);
+    StoreFile sf2 = createFile(KEY_C, KEY_D, 5);
+    StoreFile sf3 = createFile(KEY_D, OPEN_KEY, 10);
+    manager.loadFiles(Arrays.asList(sf0, sf1, sf2, sf3));
+    assertArrayEquals(KEY_C, manager.getSplitPoint());
+  }
+
+  @Test
+  public void testClearFiles() throws Exception {
+    StoreFile l0 = createFile();
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    manager.loadFiles(Arrays.asList(l0, sf0));
+    assertFiles(manager.clearFiles(), l0, sf0);
+    assertEquals(0, manager.getStorefileCount());
+    assertEquals(0, manager.getStripeCount());
+    assertFalse(manager.getFilesForScanOrGet(true, KEY_B, KEY_B).iterator().hasNext());
+  }
+
+  private static void assertFiles(Collection<StoreFile> actual, StoreFile... expected) {
+    assertEquals(expected.length, actual.size());
+    assertEquals(new HashSet<StoreFile>(Arrays.asList(expected)),
+        new HashSet<StoreFile>(actual));
+  }
+
+  private static List<StoreFile> toList(Iterator<StoreFile> iterator) {
+    List<StoreFile> result = new ArrayList<StoreFile>();
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    return result;
+  }
+
+  private StoreFile createFile() throws Exception {
+    return createFile(null, null, 1);
+  }
+
+  private StoreFile createFile(byte[] startRow, byte[] endRow) throws Exception {
+    return createFile(startRow, endRow, 1);
+  }
+
+  private StoreFile createFile(byte[] startRow, byte[] endRow, long size) throws Exception {
+    long fileSeqId = ++this.seqId;
+    StoreFile sf = mock(StoreFile.class);
+    StoreFile.Reader reader = mock(StoreFile.Reader.class);
+    when(reader.length()).thenReturn(size);
+    when(sf.getReader()).thenReturn(reader);
+    when(sf.getMaxSequenceId()).thenReturn(fileSeqId);
+    when(sf.getPath()).thenReturn(new Path("/hbase/table/region/family/file" + fileSeqId));
+    when(sf.getMetadataValue(StripeStoreFileManager.STRIPE_START_KEY)).thenReturn(startRow);
+    when(sf.getMetadataValue(StripeStoreFileManager.STRIPE_END_KEY)).thenReturn(endRow);
+    when(sf.toString()).thenReturn("file" + fileSeqId);
+    return sf;
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.apache.hadoop.hbase.regionserver.StripeStoreFileManager.OPEN_KEY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.monitoring.MonitoredTask;
+import org.apache.hadoop.hbase.regionserver.TestStripeMultiFileWriter.MockWriterFactory;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@Category(SmallTests.class)
+public class TestStripeStoreFlusher {
+  private static final byte[] KEY_B = Bytes.toBytes("bbb");
+  private static final byte[] KEY_D = Bytes.toBytes("ddd");
+
+  private Configuration conf;
+  private Store store;
+  private StripeStoreFileManager manager;
+  private MockWriterFactory factory;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = HBaseConfiguration.create();
+    manager = new StripeStoreFileManager(KeyValue.COMPARATOR, conf);
+    factory = new MockWriterFactory();
+    store = mock(Store.class);
+    when(store.getComparator()).thenReturn(KeyValue.COMPARATOR);
+    when(store.getFamily()).thenReturn(new HColumnDescriptor("f"));
+    when(store.createWriterInTmp(anyLong(), any(Compression.Algorithm.class), eq(false),
+        eq(true))).thenAnswer(new Answer<StoreFile.Writer>() {
+          @Override
+          public StoreFile.Writer answer(InvocationOnMock invocation) throws IOException {
+            return factory.createWriter();
+          }
+        });
+    // the coprocessor host hands out a plain scanner of the snapshot
+    RegionCoprocessorHost host = mock(RegionCoprocessorHost.class);
+    when(host.preFlushScannerOpen(any(Store.class), any(KeyValueScanner.class))).thenAnswer(
+        new Answer<InternalScanner>() {
+          @Override
+          public InternalScanner answer(InvocationOnMock invocation) {
+            return new SnapshotScanner((KeyValueScanner) invocation.getArguments()[1]);
+          }
+        });
+    when(host.preFlush(any(Store.class), any(InternalScanner.class))).thenAnswer(
+        new Answer<InternalScanner>() {
+          @Override
+          public InternalScanner answer(InvocationOnMock invocation) {
+            return (InternalScanner) invocation.getArguments()[1];
+          }
+        });
+    when(store.getCoprocessorHost()).thenReturn(host);
+  }
+
+  @Test
+  public void testFlushIntoLevel0WithoutStripes() throws Exception {
+    AtomicLong flushedSize = new AtomicLong();
+    assertEquals(1, flush(flushedSize, "aaa", "ccc", "eee").size());
+    factory.files.get(0).assertFile(null, null, "aaa", "ccc", "eee");
+    verify(factory.files.get(0).writer).appendMetadata(5, false);
+    verify(factory.files.get(0).writer).close();
+    assertTrue(flushedSize.get() > 0);
+  }
+
+  @Test
+  public void testFlushIntoStripes() throws Exception {
+    manager.loadFiles(Arrays.asList(createFile(OPEN_KEY, KEY_B), createFile(KEY_B, KEY_D),
+        createFile(KEY_D, OPEN_KEY)));
+    assertEquals(3, flush(new AtomicLong(), "aaa", "bbb", "ccc", "ddd", "eee").size());
+    factory.files.get(0).assertFile(OPEN_KEY, KEY_B, "aaa");
+    factory.files.get(1).assertFile(KEY_B, KEY_D, "bbb", "ccc");
+    factory.files.get(2).assertFile(KEY_D, OPEN_KEY, "ddd", "eee");
+    for (TestStripeMultiFileWriter.WrittenFile file : factory.files) {
+      verify(file.writer).appendMetadata(5, false);
+    }
+  }
+
+  @Test
+  public void testFlushSkipsStripesWithoutData() throws Exception {
+    manager.loadFiles(Arrays.asList(createFile(OPEN_KEY, KEY_B), createFile(KEY_B, KEY_D),
+        createFile(KEY_D, OPEN_KEY)));
+    assertEquals(2, flush(new AtomicLong(), "aaa", "eee").size());
+    factory.files.get(0).assertFile(OPEN_KEY, KEY_B, "aaa");
+    factory.files.get(1).assertFile(KEY_D, OPEN_KEY, "eee");
+  }
+
+  private List<Path> flush(AtomicLong flushedSize, String... rows)
+      throws IOException {
+    SortedSet<KeyValue> snapshot = new TreeSet<KeyValue>(KeyValue.COMPARATOR);
+    for (String row : rows) {
+      snapshot.add(TestStripeMultiFileWriter.createKeyValue(row));
+    }
+    StripeStoreFlusher flusher = new StripeStoreFlusher(conf, store, manager);
+    return flusher.flushSnapshot(snapshot, 5, new TimeRangeTracker(), flushedSize,
+        mock(MonitoredTask.class));
+  }
+
+  private static StoreFile createFile(byte[] startRow, byte[] endRow) {
+    StoreFile sf = mock(StoreFile.class);
+    when(sf.getMetadataValue(StripeStoreFileManager.STRIPE_START_KEY)).thenReturn(startRow);
+    when(sf.getMetadataValue(StripeStoreFileManager.STRIPE_END_KEY)).thenReturn(endRow);
+    return sf;
+  }
+
+  /**
+   * Returns the key values of the memstore scanner of a flush one by one.
+   */
+  private static class SnapshotScanner implements InternalScanner {
+    private final KeyValueScanner scanner;
+
+    SnapshotScanner(KeyValueScanner scanner) {
+      this.scanner = scanner;
+    }
+
+    @Override
+    public boolean next(List<KeyValue> results) throws IOException {
+      KeyValue kv = scanner.next();
+      if (kv != null) {
+        results.add(kv);
+      }
+      return scanner.peek() != null;
+    }
+
+    @Override
+    public boolean next(List<KeyValue> results, int limit) throws IOException {
+      return next(results);
+    }
+
+    @Override
+    public void close() {
+      scanner.close();
+    }
+  }
+}
@@ -0,0 +1,407 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.StoreEngine;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFileManager;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Runs the compaction policy of a store engine against a model of the files of one store, fed by
+ * a flush schedule, and reports how much it writes and how many files the store has over time.
+ * The engine and its policy are the real classes, configured as on a region server, e.g. with
+ * hbase.hstore.engine.class and hbase.hstore.defaultengine.compactionpolicy.class.
+ * <p>
+ * The files are modelled by their size, sequence id and time range. A compaction writes one file
+ * as large as its inputs, takes their size over the compaction throughput, and runs one at a time
+ * as with a single compaction thread; flushes keep adding files meanwhile. Engines that write
+ * several files per compaction, like the stripe engine, are not modelled. Time based decisions,
+ * such as periodic major compactions, TTLs and time windows, follow the simulated clock.
+ * <p>
+ * Run with a flush schedule from the logs of a region server, or a synthetic one:
+ * <pre>
+ * CompactionPolicySimulator [-D key=value]... -log FILE [-region NAME]
+ * CompactionPolicySimulator [-D key=value]... -synthetic COUNT INTERVAL_MS SIZE_BYTES
+ * </pre>
+ */
+public class CompactionPolicySimulator {
+  /** The sizes written by the compactions, in bytes per second */
+  public static final String THROUGHPUT_KEY = "hbase.compaction.simulator.throughput";
+  /** The TTL of the store, in ms */
+  public static final String TTL_KEY = "hbase.compaction.simulator.ttl";
+
+  private static final Pattern FLUSH_PATTERN =
+      Pattern.compile("Finished memstore flush of ~\\S+/(\\d+),");
+  private static final String LOG_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+
+  /**
+   * A flush of the store: when it happened and the size of the file it wrote.
+   */
+  public static class Flush {
+    private final long time;
+    private final long size;
+
+    public Flush(long time, long size) {
+      this.time = time;
+      this.size = size;
+    }
+  }
+
+  /**
+   * The outcome of a simulation.
+   */
+  public static class Result {
+    private long flushedBytes = 0;
+    private long compactedBytes = 0;
+    private int compactions = 0;
+    private int maxFileCount = 0;
+    private double fileCountTime = 0;
+    private long duration = 0;
+
+    public long getFlushedBytes() {
+      return flushedBytes;
+    }
+
+    /**
+     * @return The bytes written by the compactions.
+     */
+    public long getCompactedBytes() {
+      return compactedBytes;
+    }
+
+    public int getCompactions() {
+      return compactions;
+    }
+
+    /**
+     * @return The bytes written by flushes and compactions per byte flushed.
+     */
+    public double getWriteAmplification() {
+      return (flushedBytes == 0) ? 0 : (double) (flushedBytes + compactedBytes) / flushedBytes;
+    }
+
+    public int getMaxFileCount() {
+      return maxFileCount;
+    }
+
+    /**
+     * @return The number of files of the store, on average over time.
+     */
+    public double getAverageFileCount() {
+      return (duration == 0) ? maxFileCount : fileCountTime / duration;
+    }
+
+    /**
+     * @return The number of files a get reads on average over time, without Bloom filters.
+     */
+    public double getReadAmplification() {
+      return getAverageFileCount();
+    }
+
+    @Override
+    public String toString() {
+      return "flushed=" + StringUtils.humanReadableInt(flushedBytes)
+          + ", compacted=" + StringUtils.humanReadableInt(compactedBytes)
+          + ", compactions=" + compactions
+          + ", writeAmplification=" + String.format("%.2f", getWriteAmplification())
+          + ", averageFileCount=" + String.format("%.2f", getAverageFileCount())
+          + ", maxFileCount=" + maxFileCount
+          + ", readAmplification=" + String.format("%.2f", getReadAmplification());
+    }
+  }
+
+  /**
+   * A compaction being run, until its end time.
+   */
+  private static class RunningCompaction {
+    private final Collection<StoreFile> files;
+    private final boolean isMajor;
+    private final long endTime;
+
+    private RunningCompaction(Collection<StoreFile> files, boolean isMajor, long endTime) {
+      this.files = files;
+      this.isMajor = isMajor;
+      this.endTime = endTime;
+    }
+  }
+
+  private final Configuration conf;
+  private final long throughput;
+  private final ManualEnvironmentEdge clock = new ManualEnvironmentEdge();
+  private StoreEngine<?, ?, ?, ?> engine;
+  private StoreFileManager files;
+  private OffPeakHours offPeakHours;
+  private Result result;
+  private RunningCompaction running;
+  private long lastSampleTime;
+  private long sequenceId;
+  private int fileIndex;
+
+  public CompactionPolicySimulator(Configuration conf) {
+    this.conf = conf;
+    this.throughput = Math.max(1, conf.getLong(THROUGHPUT_KEY, 50L * 1024 * 1024));
+  }
+
+  /**
+   * Runs the flushes, in time order, then the compactions they lead to.
+   */
+  public Result simulate(List<Flush> flushes) throws IOException {
+    if (flushes.isEmpty()) {
+      return new Result();
+    }
+    EnvironmentEdgeManager.injectEdge(clock);
+    try {
+      return doSimulate(flushes);
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  private Result doSimulate(List<Flush> flushes) throws IOException {
+    HStore store = mock(HStore.class);
+    when(store.getStoreFileTtl()).thenReturn(conf.getLong(TTL_KEY, Long.MAX_VALUE));
+    when(store.getBlockingFileCount()).thenReturn((long) conf.getInt(
+        HStore.BLOCKING_STOREFILES_KEY, HStore.DEFAULT_BLOCKING_STOREFILE_COUNT));
+    when(store.getMemstoreFlushSize()).thenReturn(conf.getLong(
+        HConstants.HREGION_MEMSTORE_FLUSH_SIZE, HTableDescriptor.DEFAULT_MEMSTORE_FLUSH_SIZE));
+    this.engine = StoreEngine.create(store, conf, KeyValue.COMPARATOR);
+    this.files = engine.getStoreFileManager();
+    this.files.loadFiles(new ArrayList<StoreFile>());
+    this.offPeakHours = OffPeakHours.getInstance(conf);
+    this.result = new Result();
+    this.running = null;
+    this.sequenceId = 0;
+    this.fileIndex = 0;
+    this.lastSampleTime = flushes.get(0).time;
+    clock.setValue(lastSampleTime);
+
+    for (Flush flush : flushes) {
+      advance(flush.time);
+      files.insertNewFile(createFile(flush.size, ++sequenceId, flush.time, flush.time, false));
+      result.flushedBytes += flush.size;
+      sample();
+      startCompaction();
+    }
+    // let the compactions settle
+    while (running != null) {
+      advance(running.endTime);
+    }
+    return result;
+  }
+
+  /**
+   * Moves the clock to the given time, finishing the compactions that end before it.
+   */
+  private void advance(long time) throws IOException {
+    while (running != null && running.endTime <= time) {
+      clock.setValue(running.endTime);
+      sample();
+      finishCompaction();
+      sample();
+      startCompaction();
+    }
+    clock.setValue(Math.max(time, clock.currentTimeMillis()));
+    sample();
+  }
+
+  private void startCompaction() throws IOException {
+    if (running != null) {
+      return;
+    }
+    CompactionContext compaction = engine.createCompaction();
+    boolean offPeak = offPeakHours.isOffPeakHour(getHour(clock.currentTimeMillis()));
+    List<StoreFile> none = Collections.emptyList();
+    if (!compaction.select(none, false, offPeak, false) || !compaction.hasSelection()) {
+      return;
+    }
+    Collection<StoreFile> selected = compaction.getRequest().getFiles();
+    if (selected.isEmpty()) {
+      return;
+    }
+    long size = 0;
+    for (StoreFile file : selected) {
+      size += file.getReader().length();
+    }
+    boolean isMajor = selected.size() == files.getStorefileCount();
+    long endTime = clock.currentTimeMillis() + size * 1000 / throughput;
+    running = new RunningCompaction(new ArrayList<StoreFile>(selected), isMajor, endTime);
+  }
+
+  private void finishCompaction() throws IOException {
+    long size = 0;
+    long maxSequenceId = 0;
+    long minTimestamp = Long.MAX_VALUE;
+    long maxTimestamp = Long.MIN_VALUE;
+    for (StoreFile file : running.files) {
+      size += file.getReader().length();
+      maxSequenceId = Math.max(maxSequenceId, file.getMaxSequenceId());
+      minTimestamp = Math.min(minTimestamp, file.getMinimumTimestamp());
+      maxTimestamp = Math.max(maxTimestamp, file.getReader().getMaxTimestamp());
+    }
+    StoreFile output =
+        createFile(size, maxSequenceId, minTimestamp, maxTimestamp, running.isMajor);
+    files.addCompactionResults(running.files, Collections.singletonList(output));
+    result.compactedBytes += size;
+    result.compactions++;
+    running = null;
+  }
+
+  /**
+   * Accounts for the files of the store since the last sample.
+   */
+  private void sample() {
+    long now = clock.currentTimeMillis();
+    int count = files.getStorefileCount();
+    result.fileCountTime += (double) count * (now - lastSampleTime);
+    result.duration += now - lastSampleTime;
+    result.maxFileCount = Math.max(result.maxFileCount, count);
+    lastSampleTime = now;
+  }
+
+  private static int getHour(long time) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    return calendar.get(Calendar.HOUR_OF_DAY);
+  }
+
+  private StoreFile createFile(long size, long seqId, long minTimestamp, long maxTimestamp,
+      boolean isMajor) {
+    StoreFile file = mock(StoreFile.class);
+    StoreFile.Reader reader = mock(StoreFile.Reader.class);
+    when(reader.length()).thenReturn(size);
+    when(reader.getTotalUncompressedBytes()).thenReturn(size);
+    when(reader.getSequenceID()).thenReturn(seqId);
+    when(reader.getMaxTimestamp()).thenReturn(maxTimestamp);
+    when(file.getReader()).thenReturn(reader);
+    when(file.getMaxSequenceId()).thenReturn(seqId);
+    when(file.getMinimumTimestamp()).thenReturn(minTimestamp);
+    when(file.getModificationTimeStamp()).thenReturn(clock.currentTimeMillis());
+    when(file.isMajorCompaction()).thenReturn(isMajor);
+    when(file.getPath()).thenReturn(new Path("/hbase/simulated/region/family/file" + fileIndex));
+    when(file.toString()).thenReturn("file" + fileIndex + "(size=" + size + ", seqId=" + seqId
+        + ")");
+    ++fileIndex;
+    return file;
+  }
+
+  /**
+   * Reads the flushes of a region server log.
+   * @param region The region to read the flushes of; null for all the flushes of the log.
+   */
+  public static List<Flush> readFlushesFromLog(String logFile, String region)
+      throws IOException {
+    List<Flush> flushes = new ArrayList<Flush>();
+    SimpleDateFormat dateFormat = new SimpleDateFormat(LOG_DATE_FORMAT);
+    BufferedReader in = new BufferedReader(new FileReader(logFile));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        Matcher m = FLUSH_PATTERN.matcher(line);
+        if (!m.find() || (region != null && !line.contains(region))
+            || line.length() < LOG_DATE_FORMAT.length()) {
+          continue;
+        }
+        try {
+          long time = dateFormat.parse(line.substring(0, LOG_DATE_FORMAT.length())).getTime();
+          flushes.add(new Flush(time, Long.parseLong(m.group(1))));
+        } catch (ParseException e) {
+          // not a log line
+        }
+      }
+    } finally {
+      in.close();
+    }
+    return flushes;
+  }
+
+  /**
+   * @return count flushes of the given size at the given interval.
+   */
+  public static List<Flush> syntheticFlushes(int count, long intervalMs, long size) {
+    List<Flush> flushes = new ArrayList<Flush>(count);
+    for (int i = 0; i < count; ++i) {
+      flushes.add(new Flush(i * intervalMs, size));
+    }
+    return flushes;
+  }
+
+  private static void usage() {
+    System.err.println("Usage: CompactionPolicySimulator [-D key=value]..."
+        + " (-log FILE [-region NAME] | -synthetic COUNT INTERVAL_MS SIZE_BYTES)");
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    List<Flush> flushes = null;
+    String log = null;
+    String region = null;
+    for (int i = 0; i < args.length; ++i) {
+      if ("-D".equals(args[i]) && i + 1 < args.length) {
+        String[] kv = args[++i].split("=", 2);
+        if (kv.length != 2) {
+          usage();
+        }
+        conf.set(kv[0], kv[1]);
+      } else if ("-log".equals(args[i]) && i + 1 < args.length) {
+        log = args[++i];
+      } else if ("-region".equals(args[i]) && i + 1 < args.length) {
+        region = args[++i];
+      } else if ("-synthetic".equals(args[i]) && i + 3 < args.length) {
+        flushes = syntheticFlushes(Integer.parseInt(args[i + 1]), Long.parseLong(args[i + 2]),
+            Long.parseLong(args[i + 3]));
+        i += 3;
+      } else {
+        usage();
+      }
+    }
+    if (log != null) {
+      flushes = readFlushesFromLog(log, region);
+    }
+    if (flushes == null) {
+      usage();
+    }
+    System.out.println(new CompactionPolicySimulator(conf).simulate(flushes));
+  }
+}
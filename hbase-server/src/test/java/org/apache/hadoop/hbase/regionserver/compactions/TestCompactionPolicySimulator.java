@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.regionserver.DefaultStoreEngine;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestCompactionPolicySimulator {
+  private static final long MB = 1024 * 1024;
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+    conf.setLong("hbase.hregion.majorcompaction", 0);
+    conf.setInt(HStore.BLOCKING_STOREFILES_KEY, 100);
+    // compactions finish at once
+    conf.setLong(CompactionPolicySimulator.THROUGHPUT_KEY, Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testNoCompactions() throws Exception {
+    conf.setInt("hbase.hstore.compaction.min", 100);
+    conf.setInt("hbase.hstore.compaction.max", 100);
+    CompactionPolicySimulator.Result result = new CompactionPolicySimulator(conf).simulate(
+        CompactionPolicySimulator.syntheticFlushes(10, 60 * 1000, MB));
+    assertEquals(10 * MB, result.getFlushedBytes());
+    assertEquals(0, result.getCompactions());
+    assertEquals(1.0, result.getWriteAmplification(), 0.001);
+    assertEquals(10, result.getMaxFileCount());
+    // 1 to 9 files for a minute each
+    assertEquals(5.0, result.getAverageFileCount(), 0.001);
+  }
+
+  @Test
+  public void testRatioBasedPolicy() throws Exception {
+    conf.setInt("hbase.hstore.compaction.min", 3);
+    conf.set(DefaultStoreEngine.DEFAULT_COMPACTION_POLICY_CLASS_KEY,
+        RatioBasedCompactionPolicy.class.getName());
+    CompactionPolicySimulator.Result result = new CompactionPolicySimulator(conf).simulate(
+        CompactionPolicySimulator.syntheticFlushes(30, 60 * 1000, MB));
+    assertEquals(30 * MB, result.getFlushedBytes());
+    assertTrue(result.getCompactions() > 0);
+    assertTrue(result.getWriteAmplification() > 1.0);
+    assertEquals(result.getFlushedBytes() + result.getCompactedBytes(),
+        result.getWriteAmplification() * result.getFlushedBytes(), 1.0);
+    assertTrue(result.toString(), result.getMaxFileCount() < 10);
+    assertTrue(result.getAverageFileCount() <= result.getMaxFileCount());
+  }
+
+  @Test
+  public void testSlowCompactionsLetFilesPileUp() throws Exception {
+    conf.setInt("hbase.hstore.compaction.min", 3);
+    CompactionPolicySimulator.Result fast = new CompactionPolicySimulator(conf).simulate(
+        CompactionPolicySimulator.syntheticFlushes(30, 60 * 1000, MB));
+    // a compaction of three files takes three minutes
+    conf.setLong(CompactionPolicySimulator.THROUGHPUT_KEY, MB / 60);
+    CompactionPolicySimulator.Result slow = new CompactionPolicySimulator(conf).simulate(
+        CompactionPolicySimulator.syntheticFlushes(30, 60 * 1000, MB));
+    assertTrue(slow + " vs " + fast, slow.getAverageFileCount() > fast.getAverageFileCount());
+  }
+
+  @Test
+  public void testReadFlushesFromLog() throws Exception {
+    File log = File.createTempFile("regionserver", ".log");
+    log.deleteOnExit();
+    FileWriter out = new FileWriter(log);
+    try {
+      out.write("2013-10-01 10:00:00,000 INFO org.apache.hadoop.hbase.regionserver.HRegion: "
+          + "Finished memstore flush of ~128.0m/134217728, currentsize=0.0/0 for region "
+          + "t,,1.aaa. in 100ms, sequenceid=5, compaction requested=false\n");
+      out.write("2013-10-01 10:00:30,000 INFO org.apache.hadoop.hbase.regionserver.HRegion: "
+          + "Finished memstore flush of ~1.0m/1048576, currentsize=0.0/0 for region "
+          + "t,b,1.bbb. in 10ms, sequenceid=6, compaction requested=false\n");
+      out.write("2013-10-01 10:01:00,000 INFO org.apache.hadoop.hbase.regionserver.HRegion: "
+          + "Started memstore flush for t,,1.aaa., current region memstore size 64.0m\n");
+      out.write("2013-10-01 10:01:00,500 INFO org.apache.hadoop.hbase.regionserver.HRegion: "
+          + "Finished memstore flush of ~64.0m/67108864, currentsize=0.0/0 for region "
+          + "t,,1.aaa. in 100ms, sequenceid=7, compaction requested=false\n");
+    } finally {
+      out.close();
+    }
+    List<CompactionPolicySimulator.Flush> all =
+        CompactionPolicySimulator.readFlushesFromLog(log.getPath(), null);
+    assertEquals(3, all.size());
+    List<CompactionPolicySimulator.Flush> region =
+        CompactionPolicySimulator.readFlushesFromLog(log.getPath(), "1.aaa.");
+    assertEquals(2, region.size());
+    CompactionPolicySimulator.Result result = new CompactionPolicySimulator(conf).simulate(region);
+    assertEquals(134217728L + 67108864L, result.getFlushedBytes());
+  }
+}
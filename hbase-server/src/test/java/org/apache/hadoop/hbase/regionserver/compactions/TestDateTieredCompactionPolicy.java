@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestDateTieredCompactionPolicy {
+  private static final long NOW = 1000;
+
+  private Configuration conf;
+  private StoreConfigInformation storeConfigInfo;
+  private int fileIndex = 0;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+    conf.setLong(DateTieredCompactionPolicy.BASE_WINDOW_MILLIS_KEY, 10);
+    conf.setInt(DateTieredCompactionPolicy.WINDOWS_PER_TIER_KEY, 4);
+    conf.setInt("hbase.hstore.compaction.min", 3);
+    conf.setInt("hbase.hstore.compaction.max", 10);
+    storeConfigInfo = mock(StoreConfigInformation.class);
+    when(storeConfigInfo.getMemstoreFlushSize()).thenReturn(128L);
+    when(storeConfigInfo.getStoreFileTtl()).thenReturn(Long.MAX_VALUE);
+    when(storeConfigInfo.getBlockingFileCount()).thenReturn(10L);
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(NOW);
+    EnvironmentEdgeManager.injectEdge(edge);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  @Test
+  public void testIncomingWindow() throws Exception {
+    List<StoreFile> files = createFiles(1001, 1002, 1003);
+    assertSelection(files, files);
+  }
+
+  @Test
+  public void testOlderWindowBeforeIncomingWindow() throws Exception {
+    // two files in the incoming window are not enough; the older window [960, 1000) is
+    List<StoreFile> files = createFiles(965, 975, 1001, 1002);
+    assertSelection(files, files.subList(0, 2));
+  }
+
+  @Test
+  public void testNothingToCompact() throws Exception {
+    List<StoreFile> files = createFiles(500, 965, 1001, 1002);
+    assertSelection(files, new ArrayList<StoreFile>());
+    DateTieredCompactionPolicy policy = new DateTieredCompactionPolicy(conf, storeConfigInfo);
+    assertFalse(policy.needsCompaction(files, new ArrayList<StoreFile>()));
+    assertFalse(policy.isMajorCompaction(files));
+  }
+
+  @Test
+  public void testDoesNotCompactAcrossWindows() throws Exception {
+    // the files in [800, 960) and in [960, 1000) are not compacted together
+    List<StoreFile> files = createFiles(810, 820, 970, 1001);
+    assertSelection(files, files.subList(0, 2));
+  }
+
+  @Test
+  public void testOutOfOrderFileStaysWithItsNeighbours() throws Exception {
+    // the newer data of the third file was flushed along with the data of the older window
+    List<StoreFile> files = createFiles(965, 975, 1005, 985, 1001);
+    assertSelection(files, files.subList(0, 4));
+  }
+
+  @Test
+  public void testMaxStoreFileAge() throws Exception {
+    conf.setLong(DateTieredCompactionPolicy.MAX_STOREFILE_AGE_MILLIS_KEY, 30);
+    List<StoreFile> files = createFiles(965, 975, 1001, 1002);
+    assertSelection(files, new ArrayList<StoreFile>());
+  }
+
+  @Test
+  public void testExpiredFiles() throws Exception {
+    when(storeConfigInfo.getStoreFileTtl()).thenReturn(100L);
+    List<StoreFile> files = createFiles(500, 800, 965, 975, 1001);
+    assertSelection(files, files.subList(0, 2));
+    DateTieredCompactionPolicy policy = new DateTieredCompactionPolicy(conf, storeConfigInfo);
+    assertTrue(policy.needsCompaction(files, new ArrayList<StoreFile>()));
+    assertTrue(policy.selectCompaction(files, new ArrayList<StoreFile>(), false, false, false)
+        .isAllFilesExpired());
+  }
+
+  private void assertSelection(List<StoreFile> files, List<StoreFile> expected)
+      throws Exception {
+    DateTieredCompactionPolicy policy = new DateTieredCompactionPolicy(conf, storeConfigInfo);
+    CompactionRequest request = policy.selectCompaction(
+        files, new ArrayList<StoreFile>(), false, false, false);
+    assertEquals(expected, new ArrayList<StoreFile>(request.getFiles()));
+    assertEquals(!expected.isEmpty(),
+        policy.needsCompaction(files, new ArrayList<StoreFile>()));
+  }
+
+  /**
+   * @return Files with the given max timestamps, from oldest to newest by sequence id.
+   */
+  private List<StoreFile> createFiles(long... maxTimestamps) {
+    StoreFile[] files = new StoreFile[maxTimestamps.length];
+    for (int i = 0; i < maxTimestamps.length; ++i) {
+      StoreFile sf = mock(StoreFile.class);
+      StoreFile.Reader reader = mock(StoreFile.Reader.class);
+      when(reader.getMaxTimestamp()).thenReturn(maxTimestamps[i]);
+      when(reader.length()).thenReturn(10L);
+      when(sf.getReader()).thenReturn(reader);
+      when(sf.getPath()).thenReturn(new Path("/hbase/table/region/family/file" + fileIndex));
+      when(sf.toString()).thenReturn("file" + fileIndex + "@" + maxTimestamps[i]);
+      ++fileIndex;
+      files[i] = sf;
+    }
+    return Arrays.asList(files);
+  }
+}
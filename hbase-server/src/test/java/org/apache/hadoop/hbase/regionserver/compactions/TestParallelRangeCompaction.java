@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileBlockIndex;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestParallelRangeCompaction {
+
+  @Test
+  public void testSplitRowsOfOneFile() throws Exception {
+    List<StoreFile> files = new ArrayList<StoreFile>();
+    files.add(createFile(400, "a", "b", "c", "d", "e", "f", "g", "h"));
+    assertSplitRows(DefaultCompactor.getSplitRows(files, 4, KeyValue.COMPARATOR),
+        "c", "e", "g");
+    assertSplitRows(DefaultCompactor.getSplitRows(files, 2, KeyValue.COMPARATOR), "e");
+  }
+
+  @Test
+  public void testSplitRowsWeightedByFileSize() throws Exception {
+    List<StoreFile> files = new ArrayList<StoreFile>();
+    // the large file has most of the data in its rows
+    files.add(createFile(300, "a", "b", "c"));
+    files.add(createFile(30, "d", "e", "f"));
+    assertSplitRows(DefaultCompactor.getSplitRows(files, 2, KeyValue.COMPARATOR), "c");
+  }
+
+  @Test
+  public void testNoSplitOfOneRow() throws Exception {
+    List<StoreFile> files = new ArrayList<StoreFile>();
+    files.add(createFile(100, "a", "a", "a", "a"));
+    files.add(createFile(100, "a"));
+    assertTrue(DefaultCompactor.getSplitRows(files, 4, KeyValue.COMPARATOR).isEmpty());
+  }
+
+  private static void assertSplitRows(List<byte[]> actual, String... expected) {
+    assertEquals(expected.length, actual.size());
+    for (int i = 0; i < expected.length; ++i) {
+      assertEquals(expected[i], Bytes.toString(actual.get(i)));
+    }
+  }
+
+  /**
+   * @return A file of the given size whose block index has the given rows at the root level.
+   */
+  private static StoreFile createFile(long size, String... rows) {
+    HFileBlockIndex.BlockIndexReader index = mock(HFileBlockIndex.BlockIndexReader.class);
+    when(index.getRootBlockCount()).thenReturn(rows.length);
+    for (int i = 0; i < rows.length; ++i) {
+      KeyValue kv = new KeyValue(Bytes.toBytes(rows[i]), Bytes.toBytes("f"),
+          Bytes.toBytes("q"), 1L, KeyValue.Type.Put);
+      when(index.getRootBlockKey(i)).thenReturn(kv.getKey());
+    }
+    HFile.Reader hfileReader = mock(HFile.Reader.class);
+    when(hfileReader.getDataBlockIndexReader()).thenReturn(index);
+    StoreFile.Reader reader = mock(StoreFile.Reader.class);
+    when(reader.getHFileReader()).thenReturn(hfileReader);
+    when(reader.length()).thenReturn(size);
+    StoreFile file = mock(StoreFile.class);
+    when(file.getReader()).thenReturn(reader);
+    return file;
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.regionserver.MetricsRegionServer;
+import org.apache.hadoop.hbase.regionserver.RegionServerServices;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestPressureAwareCompactionThroughputController {
+  private static final long LOWER = 10L * 1024 * 1024;
+  private static final long HIGHER = 20L * 1024 * 1024;
+
+  private RegionServerServices server;
+  private MetricsRegionServer metrics;
+  private PressureAwareCompactionThroughputController controller;
+
+  @Before
+  public void setUp() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setLong(PressureAwareCompactionThroughputController
+        .HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_LOWER_BOUND, LOWER);
+    conf.setLong(PressureAwareCompactionThroughputController
+        .HBASE_HSTORE_COMPACTION_MAX_THROUGHPUT_HIGHER_BOUND, HIGHER);
+    conf.setLong(PressureAwareCompactionThroughputController
+        .HBASE_HSTORE_COMPACTION_LATENCY_TARGET, 50);
+    // tune by hand only
+    conf.setInt(PressureAwareCompactionThroughputController
+        .HBASE_HSTORE_COMPACTION_THROUGHPUT_TUNE_PERIOD, Integer.MAX_VALUE);
+    conf.set(CompactionThroughputControllerFactory.HBASE_THROUGHPUT_CONTROLLER_KEY,
+        PressureAwareCompactionThroughputController.class.getName());
+    server = mock(RegionServerServices.class);
+    metrics = mock(MetricsRegionServer.class);
+    when(server.getMetrics()).thenReturn(metrics);
+    controller = (PressureAwareCompactionThroughputController)
+        CompactionThroughputControllerFactory.create(server, conf);
+  }
+
+  @After
+  public void tearDown() {
+    controller.stop("test done");
+  }
+
+  @Test
+  public void testDefaultIsNoLimit() {
+    CompactionThroughputController noLimit = CompactionThroughputControllerFactory.create(
+        server, HBaseConfiguration.create());
+    assertTrue(noLimit instanceof NoLimitCompactionThroughputController);
+  }
+
+  @Test
+  public void testLimitFollowsCompactionPressure() {
+    when(server.getCompactionPressure()).thenReturn(0.0);
+    controller.tune();
+    assertEquals(LOWER, controller.getMaxThroughput(), 0.1);
+
+    when(server.getCompactionPressure()).thenReturn(0.5);
+    controller.tune();
+    assertEquals((LOWER + HIGHER) / 2, controller.getMaxThroughput(), 0.1);
+
+    when(server.getCompactionPressure()).thenReturn(1.0);
+    controller.tune();
+    assertEquals(HIGHER, controller.getMaxThroughput(), 0.1);
+
+    // updates are blocked, the compactions must catch up as fast as they can
+    when(server.getCompactionPressure()).thenReturn(1.5);
+    controller.tune();
+    assertEquals(Double.MAX_VALUE, controller.getMaxThroughput(), 0.1);
+  }
+
+  @Test
+  public void testLimitLoweredByForegroundLatency() {
+    when(server.getCompactionPressure()).thenReturn(1.0);
+    // 10 requests of 100 ms on average, twice the target
+    when(metrics.getForegroundRequestCount()).thenReturn(10L);
+    when(metrics.getForegroundLatencyTotal()).thenReturn(1000L);
+    controller.tune();
+    assertEquals(LOWER, controller.getMaxThroughput(), 0.1);
+
+    // 10 more requests of 10 ms on average, under the target
+    when(metrics.getForegroundRequestCount()).thenReturn(20L);
+    when(metrics.getForegroundLatencyTotal()).thenReturn(1100L);
+    controller.tune();
+    assertEquals(HIGHER, controller.getMaxThroughput(), 0.1);
+  }
+
+  @Test
+  public void testControlSleepsToKeepTheLimit() throws Exception {
+    controller.setMaxThroughput(LOWER);
+    controller.start("c1");
+    // writing the lower bound takes a second at the lower bound
+    long slept = controller.control("c1", LOWER);
+    assertTrue("slept " + slept, slept > 500 && slept <= 1000);
+    // no sleep until the next check interval
+    assertEquals(0, controller.control("c1", LOWER + 1));
+    controller.finish("c1");
+    assertEquals(0, controller.control("c1", 3 * LOWER));
+  }
+}
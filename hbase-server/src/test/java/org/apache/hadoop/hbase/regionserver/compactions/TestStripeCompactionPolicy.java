@@ -0,0 +1,272 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.apache.hadoop.hbase.regionserver.StripeStoreFileManager.OPEN_KEY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StripeStoreConfig;
+import org.apache.hadoop.hbase.regionserver.StripeStoreFileManager;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+
+@Category(SmallTests.class)
+public class TestStripeCompactionPolicy {
+  private static final byte[] KEY_B = Bytes.toBytes("bbb");
+  private static final byte[] KEY_D = Bytes.toBytes("ddd");
+  private static final List<StoreFile> NONE = new ArrayList<StoreFile>();
+
+  private Configuration conf;
+  private StoreConfigInformation storeConfigInfo;
+  private StripeStoreFileManager manager;
+  private long seqId = 0;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+    conf.setInt(StripeStoreConfig.MIN_FILES_KEY, 3);
+    conf.setInt(StripeStoreConfig.MIN_FILES_L0_KEY, 2);
+    conf.setLong(StripeStoreConfig.SIZE_TO_SPLIT_KEY, 1000);
+    conf.setInt(StripeStoreConfig.SPLIT_PARTS_KEY, 2);
+    conf.setInt(StripeStoreConfig.INITIAL_STRIPE_COUNT_KEY, 2);
+    storeConfigInfo = mock(StoreConfigInformation.class);
+    when(storeConfigInfo.getMemstoreFlushSize()).thenReturn(128L);
+    when(storeConfigInfo.getStoreFileTtl()).thenReturn(Long.MAX_VALUE);
+    when(storeConfigInfo.getBlockingFileCount()).thenReturn(10L);
+    manager = new StripeStoreFileManager(KeyValue.COMPARATOR, conf);
+  }
+
+  @Test
+  public void testNothingToCompact() throws Exception {
+    loadFiles(createFile(), createFile(OPEN_KEY, KEY_B), createFile(OPEN_KEY, KEY_B),
+        createFile(KEY_B, OPEN_KEY));
+    assertNull(createPolicy().selectCompaction(manager, NONE, false));
+    assertNeedsCompaction(false, NONE);
+  }
+
+  @Test
+  public void testReferencesCompactAllFilesIntoNewStripes() throws Exception {
+    StoreFile reference = createFile(OPEN_KEY, KEY_B);
+    when(reference.isReference()).thenReturn(true);
+    loadFiles(reference, createFile(KEY_B, OPEN_KEY));
+    StripeCompactionPolicy.StripeCompactionRequest request =
+        createPolicy().selectCompaction(manager, NONE, false);
+    assertTrue(request instanceof StripeCompactionPolicy.SplitStripeCompactionRequest);
+    assertFiles(request, manager.getStorefiles());
+    StripeCompactor compactor = mock(StripeCompactor.class);
+    request.execute(compactor, null);
+    verify(compactor).compact(any(CompactionRequest.class), eq(2), anyLong(), eq(OPEN_KEY),
+        eq(OPEN_KEY), eq(true), any(CompactionThroughputController.class));
+    assertNeedsCompaction(true, NONE);
+    // not while anything else compacts
+    assertNull(createPolicy().selectCompaction(manager, Arrays.asList(reference), false));
+    assertNeedsCompaction(false, Arrays.asList(reference));
+  }
+
+  @Test
+  public void testLevel0CompactsIntoStripes() throws Exception {
+    StoreFile l0a = createFile();
+    StoreFile l0b = createFile();
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    loadFiles(l0a, l0b, sf0, createFile(KEY_B, OPEN_KEY));
+    StripeCompactionPolicy.StripeCompactionRequest request =
+        createPolicy().selectCompaction(manager, NONE, false);
+    assertTrue(request instanceof StripeCompactionPolicy.BoundaryStripeCompactionRequest);
+    assertFiles(request, Arrays.asList(l0a, l0b));
+    StripeCompactor compactor = mock(StripeCompactor.class);
+    request.execute(compactor, null);
+    verifyBoundaryCompaction(compactor, false, OPEN_KEY, KEY_B, OPEN_KEY);
+    assertNeedsCompaction(true, NONE);
+    // not while a stripe compacts
+    assertNull(createPolicy().selectCompaction(manager, Arrays.asList(sf0), false));
+  }
+
+  @Test
+  public void testLevel0CompactsIntoInitialStripes() throws Exception {
+    loadFiles(createFile(), createFile());
+    StripeCompactionPolicy.StripeCompactionRequest request =
+        createPolicy().selectCompaction(manager, NONE, false);
+    StripeCompactor compactor = mock(StripeCompactor.class);
+    request.execute(compactor, null);
+    verify(compactor).compact(any(CompactionRequest.class), eq(2), anyLong(), eq(OPEN_KEY),
+        eq(OPEN_KEY), eq(false), any(CompactionThroughputController.class));
+  }
+
+  @Test
+  public void testStripeWithMostFiles() throws Exception {
+    StoreFile sf0 = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf1a = createFile(KEY_B, KEY_D);
+    StoreFile sf1b = createFile(KEY_B, KEY_D);
+    StoreFile sf1c = createFile(KEY_B, KEY_D);
+    StoreFile sf2a = createFile(KEY_D, OPEN_KEY);
+    StoreFile sf2b = createFile(KEY_D, OPEN_KEY);
+    StoreFile sf2c = createFile(KEY_D, OPEN_KEY);
+    StoreFile sf2d = createFile(KEY_D, OPEN_KEY);
+    loadFiles(sf0, sf1a, sf1b, sf1c, sf2a, sf2b, sf2c, sf2d);
+    StripeCompactionPolicy.StripeCompactionRequest request =
+        createPolicy().selectCompaction(manager, NONE, false);
+    assertFiles(request, Arrays.asList(sf2a, sf2b, sf2c, sf2d));
+    // all the files of the stripe and none in L0: the deletes are dropped
+    StripeCompactor compactor = mock(StripeCompactor.class);
+    request.execute(compactor, null);
+    verifyBoundaryCompaction(compactor, true, KEY_D, OPEN_KEY);
+
+    // the other stripe while that one compacts
+    request = createPolicy().selectCompaction(manager, Arrays.asList(sf2a, sf2b), false);
+    assertFiles(request, Arrays.asList(sf1a, sf1b, sf1c));
+    assertNeedsCompaction(true, Arrays.asList(sf2a, sf2b));
+    assertNeedsCompaction(false, Arrays.asList(sf1a, sf2a));
+  }
+
+  @Test
+  public void testDeletesKeptWhileLevel0HasFiles() throws Exception {
+    StoreFile l0 = createFile();
+    StoreFile sf0a = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf0b = createFile(OPEN_KEY, KEY_B);
+    StoreFile sf0c = createFile(OPEN_KEY, KEY_B);
+    loadFiles(l0, sf0a, sf0b, sf0c, createFile(KEY_B, OPEN_KEY));
+    StripeCompactionPolicy.StripeCompactionRequest request =
+        createPolicy().selectCompaction(manager, NONE, false);
+    assertFiles(request, Arrays.asList(sf0a, sf0b, sf0c));
+    StripeCompactor compactor = mock(StripeCompactor.class);
+    request.execute(compactor, null);
+    verifyBoundaryCompaction(compactor, false, OPEN_KEY, KEY_B);
+  }
+
+  @Test
+  public void testLargeStripeIsSplit() throws Exception {
+    StoreFile large = createFile(KEY_B, OPEN_KEY, 2000);
+    StoreFile small = createFile(KEY_B, OPEN_KEY, 10);
+    loadFiles(createFile(OPEN_KEY, KEY_B), large, small);
+    StripeCompactionPolicy.StripeCompactionRequest request =
+        createPolicy().selectCompaction(manager, NONE, false);
+    assertTrue(request instanceof StripeCompactionPolicy.SplitStripeCompactionRequest);
+    assertFiles(request, Arrays.asList(large, small));
+    StripeCompactor compactor = mock(StripeCompactor.class);
+    request.execute(compactor, null);
+    verify(compactor).compact(any(CompactionRequest.class), eq(2), anyLong(), eq(KEY_B),
+        eq(OPEN_KEY), eq(true), any(CompactionThroughputController.class));
+    assertNeedsCompaction(true, NONE);
+  }
+
+  @Test
+  public void testLargeFileOfOneRowIsNotSplit() throws Exception {
+    StoreFile large = createFile(KEY_B, OPEN_KEY, 2000);
+    byte[] key = new KeyValue(KEY_D, Bytes.toBytes("f"), Bytes.toBytes("q")).getKey();
+    when(large.getReader().getFirstKey()).thenReturn(key);
+    when(large.getReader().getLastKey()).thenReturn(key);
+    loadFiles(createFile(OPEN_KEY, KEY_B), large);
+    assertNull(createPolicy().selectCompaction(manager, NONE, false));
+    assertNeedsCompaction(false, NONE);
+  }
+
+  @Test
+  public void testNeverMajorCompacts() throws Exception {
+    loadFiles(createFile(OPEN_KEY, KEY_B), createFile(KEY_B, OPEN_KEY));
+    assertFalse(createPolicy().isMajorCompaction(manager.getStorefiles()));
+  }
+
+  private StripeCompactionPolicy createPolicy() {
+    return new StripeCompactionPolicy(conf, storeConfigInfo,
+        new StripeStoreConfig(conf, storeConfigInfo));
+  }
+
+  private void loadFiles(StoreFile... files) {
+    manager.loadFiles(Arrays.asList(files));
+  }
+
+  /**
+   * Checks the store needs a compaction or not, from its stripes as the stripe store engine
+   * asks, and from the files only as the generic signature does.
+   */
+  private void assertNeedsCompaction(boolean expected, List<StoreFile> filesCompacting) {
+    StripeCompactionPolicy policy = createPolicy();
+    assertEquals(expected, policy.needsCompactions(manager, filesCompacting));
+    assertEquals(expected, policy.needsCompaction(manager.getStorefiles(), filesCompacting));
+  }
+
+  /**
+   * Checks the compactor was asked to compact into the stripes of the given boundaries.
+   */
+  @SuppressWarnings("unchecked")
+  private static void verifyBoundaryCompaction(StripeCompactor compactor, boolean dropDeletes,
+      byte[]... expected) throws Exception {
+    ArgumentCaptor<List> boundaries = ArgumentCaptor.forClass(List.class);
+    verify(compactor).compact(any(CompactionRequest.class), boundaries.capture(),
+        eq(dropDeletes), any(CompactionThroughputController.class));
+    List<byte[]> actual = boundaries.getValue();
+    assertEquals(expected.length, actual.size());
+    for (int i = 0; i < expected.length; ++i) {
+      assertArrayEquals(expected[i], actual.get(i));
+    }
+  }
+
+  private static void assertFiles(StripeCompactionPolicy.StripeCompactionRequest request,
+      List<StoreFile> expected) {
+    assertEquals(new HashSet<StoreFile>(expected),
+        new HashSet<StoreFile>(request.getRequest().getFiles()));
+  }
+
+  private StoreFile createFile() throws Exception {
+    return createFile(null, null, 1);
+  }
+
+  private StoreFile createFile(byte[] startRow, byte[] endRow) throws Exception {
+    return createFile(startRow, endRow, 1);
+  }
+
+  private StoreFile createFile(byte[] startRow, byte[] endRow, long size) throws Exception {
+    long fileSeqId = ++this.seqId;
+    StoreFile sf = mock(StoreFile.class);
+    StoreFile.Reader reader = mock(StoreFile.Reader.class);
+    when(reader.length()).thenReturn(size);
+    when(reader.getEntries()).thenReturn(size);
+    when(sf.getReader()).thenReturn(reader);
+    when(sf.getMaxSequenceId()).thenReturn(fileSeqId);
+    when(sf.getPath()).thenReturn(new Path("/hbase/table/region/family/file" + fileSeqId));
+    when(sf.getMetadataValue(StripeStoreFileManager.STRIPE_START_KEY)).thenReturn(startRow);
+    when(sf.getMetadataValue(StripeStoreFileManager.STRIPE_END_KEY)).thenReturn(endRow);
+    when(sf.toString()).thenReturn("file" + fileSeqId);
+    return sf;
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Compares the false positive rate and the lookup time of classic and blocked
+ * Bloom filters, over Bloom chunks of the default size filled up to the
+ * target error rate, many more of them than fit in the CPU caches.
+ * <p>
+ * Usage: BloomFilterPerformanceEvaluation [errorRate [chunks]]
+ */
+public class BloomFilterPerformanceEvaluation {
+  static final Log LOG =
+      LogFactory.getLog(BloomFilterPerformanceEvaluation.class.getName());
+
+  private static final int CHUNK_BYTE_SIZE = 128 * 1024;
+  private static final int LOOKUPS = 2 * 1000 * 1000;
+
+  private final double errorRate;
+  private final int chunks;
+
+  public BloomFilterPerformanceEvaluation(double errorRate, int chunks) {
+    this.errorRate = errorRate;
+    this.chunks = chunks;
+  }
+
+  private static byte[] rowKey(long i) {
+    return Bytes.toBytes(String.format("row%012d", i));
+  }
+
+  /**
+   * Fills the chunks up to their maximum number of keys, key i of chunk c
+   * being the row c * maxKeys + i, and looks up as many present keys as
+   * absent ones in random chunks.
+   */
+  private void run(String name, ByteBloomFilter first) {
+    ByteBloomFilter[] filters = new ByteBloomFilter[chunks];
+    int maxKeys = (int) first.getMaxKeys();
+    for (int c = 0; c < chunks; c++) {
+      filters[c] = c == 0 ? first : first.createAnother();
+      filters[c].allocBloom();
+      for (int i = 0; i < maxKeys; i++) {
+        filters[c].add(rowKey((long) c * maxKeys + i));
+      }
+    }
+
+    Random random = new Random(42);
+    int[] lookupChunks = new int[LOOKUPS];
+    byte[][] lookupKeys = new byte[LOOKUPS][];
+    for (int i = 0; i < LOOKUPS; i++) {
+      int c = random.nextInt(chunks);
+      lookupChunks[i] = c;
+      if (i % 2 == 0) {
+        lookupKeys[i] = rowKey((long) c * maxKeys + random.nextInt(maxKeys));
+      } else {
+        lookupKeys[i] = rowKey((long) chunks * maxKeys + i);
+      }
+    }
+
+    // once to warm up, once measured
+    int falsePositives = 0;
+    long elapsedNs = 0;
+    for (int round = 0; round < 2; round++) {
+      falsePositives = 0;
+      long startNs = System.nanoTime();
+      for (int i = 0; i < LOOKUPS; i++) {
+        byte[] key = lookupKeys[i];
+        boolean found =
+            filters[lookupChunks[i]].contains(key, 0, key.length, null);
+        if (i % 2 == 0) {
+          if (!found) {
+            throw new IllegalStateException("False negative for "
+                + Bytes.toStringBinary(key));
+          }
+        } else if (found) {
+          falsePositives++;
+        }
+      }
+      elapsedNs = System.nanoTime() - startNs;
+    }
+
+    LOG.info(String.format("%s: %d chunks of %d bytes, %d keys and %d hash "
+        + "functions a chunk, false positive rate %.5f (target %.5f), "
+        + "%.1f ns/lookup", name, chunks, first.getByteSize(), maxKeys,
+        first.getHashCount(), falsePositives * 2.0 / LOOKUPS, errorRate,
+        elapsedNs * 1.0 / LOOKUPS));
+  }
+
+  public void run() {
+    run("Classic", ByteBloomFilter.createBySize(CHUNK_BYTE_SIZE, errorRate,
+        Hash.MURMUR_HASH, 0));
+    run("Blocked", BlockedByteBloomFilter.createBySize(CHUNK_BYTE_SIZE,
+        errorRate, Hash.MURMUR_HASH, 0));
+  }
+
+  public static void main(String[] args) {
+    double errorRate = args.length > 0 ? Double.parseDouble(args[0]) : 0.01;
+    int chunks = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+    new BloomFilterPerformanceEvaluation(errorRate, chunks).run();
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.hbase.SmallTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestBlockedByteBloomFilter {
+  private static final double ERROR_RATE = 0.01;
+
+  private static byte[] key(int i) {
+    return Bytes.toBytes("row" + i);
+  }
+
+  /**
+   * @return the false positive rate of the filter holding keys 0 to keyCount
+   */
+  private static double falsePositiveRate(ByteBloomFilter bloom, int keyCount) {
+    int falsePositives = 0;
+    int lookups = 100000;
+    for (int i = keyCount; i < keyCount + lookups; i++) {
+      if (bloom.contains(key(i))) {
+        falsePositives++;
+      }
+    }
+    return falsePositives * 1.0 / lookups;
+  }
+
+  @Test
+  public void testFalsePositiveRate() throws IOException {
+    BlockedByteBloomFilter bloom = BlockedByteBloomFilter.createBySize(
+        64 * 1024, ERROR_RATE, Hash.MURMUR_HASH, 0);
+    bloom.allocBloom();
+    int maxKeys = (int) bloom.getMaxKeys();
+    for (int i = 0; i < maxKeys; i++) {
+      bloom.add(key(i));
+    }
+    for (int i = 0; i < maxKeys; i++) {
+      assertTrue(bloom.contains(key(i)));
+    }
+    assertEquals(ERROR_RATE, bloom.actualErrorRate(), 0.0001);
+    double falsePositiveRate = falsePositiveRate(bloom, maxKeys);
+    assertTrue("False positive rate " + falsePositiveRate,
+        falsePositiveRate < ERROR_RATE * 1.2);
+
+    // as written out in a Bloom chunk
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bloom.writeBloom(new DataOutputStream(out));
+    byte[] chunk = out.toByteArray();
+    for (int i = 0; i < maxKeys; i += 100) {
+      byte[] key = key(i);
+      assertTrue(BlockedByteBloomFilter.contains(key, 0, key.length, chunk, 0,
+          chunk.length, Hash.getInstance(Hash.MURMUR_HASH),
+          bloom.getHashCount()));
+      assertTrue(bloom.createAnother().contains(key, ByteBuffer.wrap(chunk)));
+    }
+  }
+
+  @Test
+  public void testFold() {
+    BlockedByteBloomFilter bloom = BlockedByteBloomFilter.createBySize(
+        64 * 1024, ERROR_RATE, Hash.MURMUR_HASH, 3);
+    bloom.allocBloom();
+    long byteSize = bloom.getByteSize();
+    int keyCount = (int) (bloom.getMaxKeys() / 10);
+    for (int i = 0; i < keyCount; i++) {
+      bloom.add(key(i));
+    }
+    bloom.compactBloom();
+    assertEquals(byteSize >> 3, bloom.getByteSize());
+    for (int i = 0; i < keyCount; i++) {
+      assertTrue(bloom.contains(key(i)));
+    }
+    double falsePositiveRate = falsePositiveRate(bloom, keyCount);
+    assertTrue("False positive rate " + falsePositiveRate,
+        falsePositiveRate < ERROR_RATE);
+  }
+
+  @Test
+  public void testSizing() {
+    assertEquals(64, BlockedByteBloomFilter.computeBlockedByteSize(1, 7));
+    assertEquals(1024, BlockedByteBloomFilter.computeBlockedByteSize(1000, 0));
+    // folds only as much as blocks of about that size allow
+    assertEquals(1024, BlockedByteBloomFilter.computeBlockedByteSize(1000, 7));
+    assertEquals(5120, BlockedByteBloomFilter.computeBlockedByteSize(5001, 4));
+    assertEquals(128 * 1024,
+        BlockedByteBloomFilter.computeBlockedByteSize(128 * 1024, 7));
+
+    // a few percent fewer keys than a classic filter of the same size
+    BlockedByteBloomFilter blocked = BlockedByteBloomFilter.createBySize(
+        128 * 1024, ERROR_RATE, Hash.MURMUR_HASH, 7);
+    ByteBloomFilter classic = ByteBloomFilter.createBySize(128 * 1024,
+        ERROR_RATE, Hash.MURMUR_HASH, 7);
+    assertEquals(classic.getByteSize(), blocked.getByteSize());
+    assertTrue(blocked.getMaxKeys() < classic.getMaxKeys());
+    assertTrue(blocked.getMaxKeys() > classic.getMaxKeys() * 0.9);
+    assertTrue(BlockedByteBloomFilter.blockedErrorRate(
+        blocked.getMaxKeys() * 512.0 / (blocked.getByteSize() * 8),
+        blocked.getHashCount()) <= ERROR_RATE);
+  }
+}
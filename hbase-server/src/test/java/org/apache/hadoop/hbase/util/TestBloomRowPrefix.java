@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.SmallTests;
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(SmallTests.class)
+public class TestBloomRowPrefix {
+
+  private static int prefixLength(BloomRowPrefix rowPrefix, String row) {
+    byte[] b = Bytes.toBytes("xx" + row);
+    return rowPrefix.getPrefixLength(b, 2, b.length - 2);
+  }
+
+  private static String scanPrefix(BloomRowPrefix rowPrefix, String startRow,
+      String stopRow) {
+    Scan scan = new Scan(Bytes.toBytesBinary(startRow),
+        Bytes.toBytesBinary(stopRow));
+    byte[] prefix = rowPrefix.getScanPrefix(scan);
+    return prefix == null ? null : Bytes.toStringBinary(prefix);
+  }
+
+  @Test
+  public void testFixedLength() {
+    BloomRowPrefix rowPrefix = BloomRowPrefix.fixedLength(4);
+    assertEquals(4, prefixLength(rowPrefix, "abcdef"));
+    assertEquals(4, prefixLength(rowPrefix, "abcd"));
+    assertEquals(2, prefixLength(rowPrefix, "ab"));
+
+    assertEquals("abcd", scanPrefix(rowPrefix, "abcd", "abce"));
+    assertEquals("abcd", scanPrefix(rowPrefix, "abcd1", "abcd5"));
+    assertEquals("abcd", scanPrefix(rowPrefix, "abcd5", "abcd5"));
+    assertEquals("ab\\xFF\\xFF",
+        scanPrefix(rowPrefix, "ab\\xFF\\xFF", "ac"));
+    assertEquals("\\xFF\\xFF\\xFF\\xFF",
+        scanPrefix(rowPrefix, "\\xFF\\xFF\\xFF\\xFF1", ""));
+    // over several prefixes
+    assertNull(scanPrefix(rowPrefix, "abcd", "abcf"));
+    assertNull(scanPrefix(rowPrefix, "abcd", "abce1"));
+    assertNull(scanPrefix(rowPrefix, "abc", "abcd5"));
+    assertNull(scanPrefix(rowPrefix, "abcd", ""));
+    assertNull(scanPrefix(rowPrefix, "", "abcd"));
+  }
+
+  @Test
+  public void testDelimited() {
+    BloomRowPrefix rowPrefix = BloomRowPrefix.delimited(Bytes.toBytes("||"));
+    assertEquals(3, prefixLength(rowPrefix, "abc||def||g"));
+    assertEquals(0, prefixLength(rowPrefix, "||def"));
+    assertEquals(5, prefixLength(rowPrefix, "abc|d"));
+
+    assertEquals("abc", scanPrefix(rowPrefix, "abc||", "abc|}"));
+    assertEquals("abc", scanPrefix(rowPrefix, "abc||1", "abc||5"));
+    assertEquals("abc", scanPrefix(rowPrefix, "abc||5", "abc||5"));
+    assertEquals("abc|d", scanPrefix(rowPrefix, "abc|d", "abc|d"));
+    // over several prefixes
+    assertNull(scanPrefix(rowPrefix, "abc||", "abc|}1"));
+    assertNull(scanPrefix(rowPrefix, "abc|", "abc||5"));
+    assertNull(scanPrefix(rowPrefix, "abc||", ""));
+
+    Scan reversed = new Scan(Bytes.toBytes("abc||5"), Bytes.toBytes("abc||1"));
+    reversed.setReversed(true);
+    assertEquals("abc", Bytes.toString(rowPrefix.getScanPrefix(reversed)));
+    // a reversed scan includes its start row
+    reversed = new Scan(Bytes.toBytes("abc|}"), Bytes.toBytes("abc||"));
+    reversed.setReversed(true);
+    assertNull(rowPrefix.getScanPrefix(reversed));
+  }
+
+  @Test
+  public void testSerialization() {
+    for (BloomRowPrefix rowPrefix : new BloomRowPrefix[] {
+        BloomRowPrefix.fixedLength(12),
+        BloomRowPrefix.delimited(new byte[] { 0, '|' }) }) {
+      assertEquals(rowPrefix.toString(),
+          BloomRowPrefix.fromBytes(rowPrefix.toBytes()).toString());
+    }
+
+    Configuration conf = new Configuration(false);
+    assertNull(BloomRowPrefix.fromConf(conf));
+    conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER, "\\x00");
+    assertEquals("delimiter=\\x00", BloomRowPrefix.fromConf(conf).toString());
+    conf.setInt(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_LENGTH, 8);
+    try {
+      BloomRowPrefix.fromConf(conf);
+      fail("Both a length and a delimiter");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    conf.set(BloomFilterFactory.IO_STOREFILE_BLOOM_ROWPREFIX_DELIMITER, "");
+    assertEquals("length=8", BloomRowPrefix.fromConf(conf).toString());
+  }
+}